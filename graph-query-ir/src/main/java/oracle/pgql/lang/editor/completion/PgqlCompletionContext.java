@@ -4,6 +4,7 @@
 package oracle.pgql.lang.editor.completion;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface PgqlCompletionContext {
 
@@ -16,4 +17,17 @@ public interface PgqlCompletionContext {
   List<String> getVertexLabels(String graphName);
 
   List<String> getEdgeLabels(String graphName);
+
+  /**
+   * Gets the version of the graph names, labels and properties returned by this context. The version must change
+   * whenever any of them changes.
+   *
+   * The version is used to decide whether the completion index that was built for this context can be reused. If no
+   * version is provided then the names are retrieved and indexed again for every completion request.
+   *
+   * @return the version of the graph names, labels and properties
+   */
+  default Optional<Long> getVersion() {
+    return Optional.empty();
+  }
 }
@@ -39,7 +39,7 @@ public class DerivedTable extends Subquery implements TableExpression {
 
   @Override
   public String toString() {
-    return (lateral ? "LATERAL " : "") + "(" + getQuery() + ")";
+    return PgqlPrinter.printPgqlString((TableExpression) this);
   }
 
   @Override
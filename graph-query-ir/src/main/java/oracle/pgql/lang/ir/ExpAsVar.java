@@ -3,7 +3,7 @@
  */
 package oracle.pgql.lang.ir;
 
-import static oracle.pgql.lang.ir.PgqlUtils.printPgqlString;
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
 
 public class ExpAsVar extends QueryVariable {
 
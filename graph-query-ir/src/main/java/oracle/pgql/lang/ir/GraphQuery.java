@@ -6,7 +6,7 @@ package oracle.pgql.lang.ir;
 import java.util.List;
 import java.util.Set;
 
-import static oracle.pgql.lang.ir.PgqlUtils.printPgqlString;
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
 
 public abstract class GraphQuery implements PgqlStatement {
 
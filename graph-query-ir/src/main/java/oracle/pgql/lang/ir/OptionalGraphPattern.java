@@ -3,6 +3,8 @@
  */
 package oracle.pgql.lang.ir;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import java.util.LinkedHashSet;
 import java.util.Set;
 
@@ -20,7 +22,7 @@ public class OptionalGraphPattern extends GraphPattern {
 
   @Override
   public String toString() {
-    return "OPTIONAL " + super.toString();
+    return printPgqlString(this);
   }
 
   @Override
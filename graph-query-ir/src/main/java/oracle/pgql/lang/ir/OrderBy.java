@@ -5,7 +5,7 @@ package oracle.pgql.lang.ir;
 
 import java.util.List;
 
-import static oracle.pgql.lang.ir.PgqlUtils.printPgqlString;
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
 
 public class OrderBy {
 
@@ -0,0 +1,1002 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.ir;
+
+import static oracle.pgql.lang.ir.PgqlUtils.GENERATED_VAR_PREFIX;
+import static oracle.pgql.lang.ir.PgqlUtils.printHops;
+import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
+import static oracle.pgql.lang.ir.PgqlUtils.printLiteral;
+import static oracle.pgql.lang.ir.PgqlUtils.printPathExpression;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import oracle.pgql.lang.ir.QueryExpression.AllProperties;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.Interval;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.SourceDestinationPredicate;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrJsonArrayagg;
+import oracle.pgql.lang.ir.QueryExpression.JsonOnNull;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+import oracle.pgql.lang.ir.QueryExpression.Constant;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDate;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTime;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimeWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestamp;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestampWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+import oracle.pgql.lang.ir.unnest.RowsPerMatchType;
+
+/**
+ * Pretty-prints queries and expressions into an {@link Appendable}. The toString() methods of the IR are implemented on
+ * top of this printer, so the output is identical to the output of toString().
+ *
+ * The printer appends every part of a statement to a single buffer instead of concatenating the strings of nested
+ * elements, so that printing takes time linear in the size of the output. When printing into an Appendable other than
+ * a StringBuilder, e.g. a {@link java.io.Writer}, the buffer is passed on to the Appendable in chunks, such that the
+ * complete query string is never materialized. Statements other than queries (e.g. DDL statements) are printed using
+ * their toString() method.
+ */
+public final class PgqlPrinter {
+
+  private static final int FLUSH_THRESHOLD = 8192;
+
+  private final StringBuilder sb;
+
+  private final Appendable out;
+
+  /**
+   * The number of regions of the buffer that are still inspected and that should therefore not be flushed.
+   */
+  private int pinCount = 0;
+
+  private PgqlPrinter(StringBuilder sb, Appendable out) {
+    this.sb = sb;
+    this.out = out;
+  }
+
+  public static void print(PgqlStatement statement, Appendable out) throws IOException {
+    print(out, printer -> printer.printStatement(statement));
+  }
+
+  public static void print(QueryExpression expression, Appendable out) throws IOException {
+    print(out, printer -> printer.printExpression(expression));
+  }
+
+  private static void print(Appendable out, Consumer<PgqlPrinter> action) throws IOException {
+    if (out instanceof StringBuilder) {
+      action.accept(new PgqlPrinter((StringBuilder) out, null));
+      return;
+    }
+    PgqlPrinter printer = new PgqlPrinter(new StringBuilder(), out);
+    try {
+      action.accept(printer);
+      printer.flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static String print(Consumer<PgqlPrinter> action) {
+    PgqlPrinter printer = new PgqlPrinter(new StringBuilder(), null);
+    action.accept(printer);
+    return printer.sb.toString();
+  }
+
+  // HELPER METHODS FOR toString() BELOW; the public ones are used by the IR classes in other packages and are not meant
+  // to be called otherwise
+
+  static String printPgqlString(GraphQuery graphQuery) {
+    return print(printer -> printer.printGraphQuery(graphQuery));
+  }
+
+  static String printPgqlString(QueryExpression expression) {
+    return print(printer -> printer.printExpression(expression));
+  }
+
+  static String printPgqlString(TableExpression tableExpression) {
+    return print(printer -> printer.printTableExpression(tableExpression));
+  }
+
+  static String printPgqlString(QueryPath path) {
+    return print(printer -> printer.printPath(path));
+  }
+
+  static String printPgqlString(ExpAsVar expAsVar) {
+    return print(printer -> printer.printExpAsVar(expAsVar));
+  }
+
+  static String printPgqlString(Projection projection) {
+    return print(printer -> printer.printProjection(projection));
+  }
+
+  static String printPgqlString(GroupBy groupBy) {
+    return print(printer -> printer.printGroupBy(groupBy));
+  }
+
+  static String printPgqlString(OrderBy orderBy) {
+    return print(printer -> printer.printOrderBy(orderBy));
+  }
+
+  static String printPgqlString(OrderByElem orderByElem) {
+    return print(printer -> printer.printOrderByElem(orderByElem));
+  }
+
+  static String printPgqlString(WhenThenExpression whenThenExpression) {
+    return print(printer -> printer.printWhenThen(whenThenExpression));
+  }
+
+  public static String printPgqlString(Modification modification) {
+    return print(printer -> printer.printModification(modification));
+  }
+
+  public static String printPgqlString(Insertion insertion) {
+    return print(printer -> printer.printInsertion(insertion));
+  }
+
+  public static String printPgqlString(Update update) {
+    return print(printer -> printer.printUpdate(update));
+  }
+
+  public static String printPgqlString(SetPropertyExpression setPropertyExpression) {
+    return print(printer -> printer.printSetPropertyExpression(setPropertyExpression));
+  }
+
+  // BUFFER MANAGEMENT BELOW
+
+  private PgqlPrinter append(String s) {
+    sb.append(s);
+    return this;
+  }
+
+  private PgqlPrinter append(Object o) {
+    sb.append(o);
+    return this;
+  }
+
+  /**
+   * Passes the buffer on to the Appendable if it grew large enough. Only called in between elements, where no part of
+   * the buffer is inspected anymore.
+   */
+  private void flushIfNeeded() {
+    if (out != null && pinCount == 0 && sb.length() >= FLUSH_THRESHOLD) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    try {
+      out.append(sb);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    sb.setLength(0);
+  }
+
+  private boolean regionEquals(int start, String s) {
+    if (sb.length() - start != s.length()) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); i++) {
+      if (sb.charAt(start + i) != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  // STATEMENTS AND CLAUSES BELOW
+
+  private void printStatement(PgqlStatement statement) {
+    if (statement instanceof GraphQuery) {
+      printGraphQuery((GraphQuery) statement);
+    } else {
+      append(statement);
+    }
+  }
+
+  private void printGraphQuery(GraphQuery graphQuery) {
+    for (CommonPathExpression commonPathExpression : graphQuery.getCommonPathExpressions()) {
+      append("PATH ").append(printIdentifier(commonPathExpression.getName(), false)).append(" AS ");
+      append(printPathExpression(commonPathExpression, false)).append("\n");
+    }
+
+    switch (graphQuery.getQueryType()) {
+      case SELECT:
+        printProjection(((SelectQuery) graphQuery).getProjection());
+        break;
+      case MODIFY:
+        ModifyQuery modifyQuery = (ModifyQuery) graphQuery;
+        String separator = "";
+        for (Modification modification : modifyQuery.getModifications()) {
+          append(separator);
+          printModification(modification);
+          separator = "\n";
+          flushIfNeeded();
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(graphQuery.getQueryType().toString());
+    }
+
+    List<TableExpression> tableExpressions = graphQuery.getTableExpressions();
+    if (!tableExpressions.isEmpty()) {
+      append("\nFROM ");
+      for (int i = 0; i < tableExpressions.size(); i++) {
+        TableExpression tableExpression = tableExpressions.get(i);
+        if (i > 0) {
+          append(",\n");
+        }
+        if (tableExpression.getTableExpressionType() == TableExpressionType.GRAPH_PATTERN) {
+          boolean isLastTableExpression = i == tableExpressions.size() - 1;
+          printGraphPattern((GraphPattern) tableExpression, graphQuery.getGraphName(), isLastTableExpression);
+        } else {
+          printTableExpression(tableExpression);
+        }
+        flushIfNeeded();
+      }
+    }
+    printWhereClause(graphQuery.getConstraints());
+    GroupBy groupBy = graphQuery.getGroupBy();
+    if (groupBy != null && groupBy.getElements().isEmpty() == false) {
+      append("\n");
+      printGroupBy(groupBy);
+    }
+    QueryExpression having = graphQuery.getHaving();
+    if (having != null) {
+      append("\nHAVING ");
+      printExpression(having);
+    }
+    OrderBy orderBy = graphQuery.getOrderBy();
+    if (orderBy.getElements().isEmpty() == false) {
+      append("\n");
+      printOrderBy(orderBy);
+    }
+    QueryExpression limit = graphQuery.getLimit();
+    if (limit != null) {
+      append("\nLIMIT ");
+      printExpression(limit);
+    }
+    QueryExpression offset = graphQuery.getOffset();
+    if (offset != null) {
+      append("\nOFFSET ");
+      printExpression(offset);
+    }
+  }
+
+  private void printProjection(Projection projection) {
+    if (projection.getElements().isEmpty()) {
+      append("SELECT *");
+    } else {
+      append("SELECT ").append(projection.isDistinct() ? "DISTINCT " : "");
+      String separator = "";
+      for (ExpAsVar expAsVar : projection.getElements()) {
+        append(separator);
+        printExpAsVar(expAsVar);
+        separator = ", ";
+        flushIfNeeded();
+      }
+    }
+  }
+
+  private void printExpAsVar(ExpAsVar expAsVar) {
+    if (expAsVar.getExp().getExpType() == ExpressionType.ALL_PROPERTIES) {
+      printExpression(expAsVar.getExp());
+    } else {
+      int start = sb.length();
+      pinCount++;
+      printExpression(expAsVar.getExp());
+      pinCount--;
+      String printedName = printIdentifier(expAsVar.getName(), false);
+      if (expAsVar.isAnonymous() && regionEquals(start, printedName)) {
+        return; // print e.g. GROUP BY x AS GROUP BY x and not GROUP BY x AS x
+      } else {
+        // here we also convert some anonymous ExpAsVars into non-anonymous ExpAsVars, which is needed because the
+        // original query gets transformed/optimized in various ways and an anonymous ExpAsVar may be referenced in
+        // different contexts than in the original query so that it needs to be deanonymized for the pretty-printed
+        // query to be valid
+        append(" AS ").append(printedName);
+      }
+    }
+  }
+
+  private void printTableExpression(TableExpression tableExpression) {
+    switch (tableExpression.getTableExpressionType()) {
+      case GRAPH_PATTERN:
+        printGraphPattern((GraphPattern) tableExpression, null, true);
+        break;
+      case OPTIONAL_GRAPH_PATTERN:
+        append("OPTIONAL ");
+        printGraphPattern((GraphPattern) tableExpression, null, true);
+        break;
+      case DERIVED_TABLE:
+        printExpression((DerivedTable) tableExpression);
+        break;
+      default:
+        throw new IllegalArgumentException(tableExpression.getTableExpressionType().toString());
+    }
+  }
+
+  private void printGraphPattern(GraphPattern graphPattern, SchemaQualifiedName graphName,
+      boolean isLastTableExpression) {
+    Set<QueryVertex> uncoveredVertices = new LinkedHashSet<>(graphPattern.getVertices());
+
+    boolean parenthesizeMatch = !graphPattern.getConstraints().isEmpty()
+        && !isLastTableExpression || graphPattern instanceof OptionalGraphPattern;
+
+    String onClause = graphName == null ? "" : " ON " + graphName.toString();
+    String separator = parenthesizeMatch ? "\n     , " : onClause + "\n   , MATCH ";
+    append(parenthesizeMatch ? "MATCH ( " : "MATCH ");
+
+    boolean first = true;
+    RowsPerMatch rowsPerMatchForParenthesizedPath = null;
+    for (VertexPairConnection connection : graphPattern.getConnections()) {
+      uncoveredVertices.remove(connection.getSrc());
+      uncoveredVertices.remove(connection.getDst());
+      if (!first) {
+        append(separator);
+      }
+      first = false;
+      if (isVariableLengthPathPatternNotReaches(connection)) {
+        QueryPath path = (QueryPath) connection;
+        printPath(path);
+        if (parenthesizeMatch) {
+          rowsPerMatchForParenthesizedPath = path.getRowsPerMatch();
+        } else {
+          printRowsClause(path.getRowsPerMatch());
+        }
+      } else {
+        append(connection.getSrc()).append(" ");
+        if (connection.getVariableType() == VariableType.PATH) {
+          printPath((QueryPath) connection);
+        } else {
+          append(connection);
+        }
+        append(" ").append(connection.getDst());
+      }
+      flushIfNeeded();
+    }
+
+    // print remaining vertices that are not part of any connection
+    for (QueryVertex vertex : uncoveredVertices) {
+      if (!first) {
+        append(separator);
+      }
+      first = false;
+      append(vertex);
+    }
+
+    if (parenthesizeMatch) {
+      printWhereClause(graphPattern.getConstraints());
+      append(")").append(onClause);
+      printRowsClause(rowsPerMatchForParenthesizedPath);
+    } else {
+      append(onClause);
+      printWhereClause(graphPattern.getConstraints());
+    }
+  }
+
+  private void printWhereClause(Set<QueryExpression> constraints) {
+    String separator = "\nWHERE ";
+    for (QueryExpression constraint : constraints) {
+      append(separator);
+      printExpression(constraint);
+      separator = "\n  AND ";
+      flushIfNeeded();
+    }
+  }
+
+  private void printRowsClause(RowsPerMatch rowsPerMatch) {
+    if (rowsPerMatch != null && rowsPerMatch.getRowsPerMatchType() != RowsPerMatchType.ONE_ROW_PER_MATCH) {
+      append(" ").append(rowsPerMatch);
+    }
+  }
+
+  private static boolean isVariableLengthPathPatternNotReaches(VertexPairConnection connection) {
+    if (connection.getVariableType() != VariableType.PATH) {
+      return false;
+    }
+
+    QueryPath queryPath = (QueryPath) connection;
+    PathFindingGoal goal = queryPath.getPathFindingGoal();
+    return goal != PathFindingGoal.REACHES || queryPath.getPathExpressionName().startsWith(GENERATED_VAR_PREFIX);
+  }
+
+  private void printPath(QueryPath path) {
+    PathFindingGoal goal = path.getPathFindingGoal();
+    switch (goal) {
+      case REACHES:
+        if (path.getPathExpressionName().startsWith(GENERATED_VAR_PREFIX)) {
+          // ANY
+          printVariableLengthPathPattern(path);
+        } else {
+          // -/../->
+          append("-/");
+          if (!path.isAnonymous()) {
+            append(printIdentifier(path.getName(), false));
+          }
+          append(":").append(printIdentifier(path.getPathExpressionName(), false)).append(printHops(path))
+              .append("/->");
+        }
+        break;
+      case SHORTEST:
+      case CHEAPEST:
+      case ALL:
+        printVariableLengthPathPattern(path);
+        break;
+      default:
+        throw new UnsupportedOperationException(goal.name());
+    }
+  }
+
+  private void printVariableLengthPathPattern(QueryPath path) {
+    PathFindingGoal goal = path.getPathFindingGoal();
+    switch (goal) {
+      case REACHES:
+        append("ANY ");
+        break;
+      case ALL:
+        append("ALL ");
+        break;
+      case SHORTEST:
+      case CHEAPEST:
+        if (path.getKValue() == 1) {
+          append(path.getWithTies() ? "ALL " : "ANY ").append(goal).append(" ");
+        } else {
+          append(goal).append(" ").append(path.getKValue()).append(" ");
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException(goal.name());
+    }
+
+    PathMode pathMode = path.getPathMode();
+    if (pathMode != PathMode.WALK) {
+      append(pathMode).append(" ");
+    }
+    append(path.getSrc()).append(" ");
+    String pathExpression = printPathExpression(path.getCommonPathExpression(), true);
+    if (pathExpression.contains("WHERE") || pathExpression.contains("COST") || pathExpression.startsWith("(")
+        || pathExpression.endsWith(")")) {
+      append("(").append(pathExpression).append(")");
+    } else {
+      append(pathExpression);
+    }
+    append(printHops(path)).append(" ").append(path.getDst());
+  }
+
+  private void printGroupBy(GroupBy groupBy) {
+    append("GROUP BY ");
+    String separator = "";
+    for (ExpAsVar expAsVar : groupBy.getElements()) {
+      append(separator);
+      printExpAsVar(expAsVar);
+      separator = ", ";
+    }
+  }
+
+  private void printOrderBy(OrderBy orderBy) {
+    append("ORDER BY ");
+    String separator = "";
+    for (OrderByElem orderByElem : orderBy.getElements()) {
+      append(separator);
+      printOrderByElem(orderByElem);
+      separator = ", ";
+    }
+  }
+
+  private void printOrderByElem(OrderByElem orderByElem) {
+    printExpression(orderByElem.getExp());
+    append(orderByElem.isAscending() ? "" : " DESC");
+  }
+
+  // MODIFICATIONS BELOW
+
+  private void printModification(Modification modification) {
+    switch (modification.getModificationType()) {
+      case INSERT: {
+        InsertClause insertClause = (InsertClause) modification;
+        append("INSERT ");
+        if (insertClause.getGraphName() != null) {
+          append("INTO ").append(insertClause.getGraphName()).append(" ");
+        }
+        String separator = "";
+        for (Insertion insertion : insertClause.getInsertions()) {
+          append(separator);
+          printInsertion(insertion);
+          separator = ", ";
+          flushIfNeeded();
+        }
+        break;
+      }
+      case UPDATE: {
+        append("UPDATE ");
+        String separator = "";
+        for (Update update : ((UpdateClause) modification).getUpdates()) {
+          append(separator);
+          printUpdate(update);
+          separator = ", ";
+          flushIfNeeded();
+        }
+        break;
+      }
+      case DELETE: {
+        append("DELETE ");
+        printExpressions(((DeleteClause) modification).getDeletions(), ", ");
+        break;
+      }
+      default:
+        throw new IllegalArgumentException(modification.getModificationType().toString());
+    }
+  }
+
+  private void printInsertion(Insertion insertion) {
+    switch (insertion.getInsertionType()) {
+      case VERTEX_INSERTION: {
+        VertexInsertion vertexInsertion = (VertexInsertion) insertion;
+        append("VERTEX ").append(printIdentifier(vertexInsertion.getVertex().getName(), false));
+        printLabelsAndProperties(vertexInsertion.getLabels(), vertexInsertion.getProperties());
+        break;
+      }
+      case EDGE_INSERTION: {
+        EdgeInsertion edgeInsertion = (EdgeInsertion) insertion;
+        QueryEdge edge = edgeInsertion.getEdge();
+        append("EDGE ").append(printIdentifier(edge.getName(), false)) //
+            .append(" BETWEEN ").append(printIdentifier(edge.getSrc().getName(), false)) //
+            .append(" AND ").append(printIdentifier(edge.getDst().getName(), false));
+        printLabelsAndProperties(edgeInsertion.getLabels(), edgeInsertion.getProperties());
+        break;
+      }
+      default:
+        throw new IllegalArgumentException(insertion.getInsertionType().toString());
+    }
+  }
+
+  private void printLabelsAndProperties(List<QueryExpression> labels, List<SetPropertyExpression> properties) {
+    if (!labels.isEmpty()) {
+      append(" LABELS ( ");
+      String separator = "";
+      for (QueryExpression label : labels) {
+        append(separator).append(printIdentifier(((ConstString) label).getValue(), false));
+        separator = ", ";
+      }
+      append(" )");
+    }
+    if (!properties.isEmpty()) {
+      append(" PROPERTIES ( ");
+      printSetPropertyExpressions(properties);
+      append(" )");
+    }
+  }
+
+  private void printUpdate(Update update) {
+    printExpression(update.getElement());
+    if (!update.getSetPropertyExpressions().isEmpty()) {
+      append(" SET ( ");
+      printSetPropertyExpressions(update.getSetPropertyExpressions());
+      append(" )");
+    }
+  }
+
+  private void printSetPropertyExpressions(List<SetPropertyExpression> setPropertyExpressions) {
+    String separator = "";
+    for (SetPropertyExpression setPropertyExpression : setPropertyExpressions) {
+      append(separator);
+      printSetPropertyExpression(setPropertyExpression);
+      separator = ", ";
+    }
+  }
+
+  private void printSetPropertyExpression(SetPropertyExpression setPropertyExpression) {
+    printExpression(setPropertyExpression.getPropertyAccess());
+    append(" = ");
+    printExpression(setPropertyExpression.getValueExpression());
+  }
+
+  // EXPRESSIONS BELOW
+
+  private void printExpressions(List<? extends QueryExpression> expressions, String separator) {
+    Iterator<? extends QueryExpression> it = expressions.iterator();
+    while (it.hasNext()) {
+      printExpression(it.next());
+      if (it.hasNext()) {
+        append(separator);
+      }
+    }
+  }
+
+  private void printBinaryExpression(QueryExpression expression, String operator) {
+    BinaryExpression binaryExpression = (BinaryExpression) expression;
+    append("(");
+    printExpression(binaryExpression.getExp1());
+    append(operator);
+    printExpression(binaryExpression.getExp2());
+    append(")");
+  }
+
+  private void printExpression(QueryExpression expression) {
+    if (expression == null) {
+      append("null");
+      return;
+    }
+
+    switch (expression.getExpType()) {
+      case INTEGER:
+      case BOOLEAN:
+        append(((Constant<?>) expression).getValue());
+        break;
+      case DECIMAL:
+        append(printLiteral(((ConstDecimal) expression).getValue()));
+        break;
+      case STRING:
+        append(printLiteral(((ConstString) expression).getValue()));
+        break;
+      case DATE:
+        append(printLiteral(((ConstDate) expression).getValue()));
+        break;
+      case TIME:
+        append(printLiteral(((ConstTime) expression).getValue()));
+        break;
+      case TIMESTAMP:
+        append(printLiteral(((ConstTimestamp) expression).getValue()));
+        break;
+      case TIME_WITH_TIMEZONE:
+        append(printLiteral(((ConstTimeWithTimezone) expression).getValue()));
+        break;
+      case TIMESTAMP_WITH_TIMEZONE:
+        append(printLiteral(((ConstTimestampWithTimezone) expression).getValue()));
+        break;
+      case INTERVAL: {
+        Interval interval = (Interval) expression;
+        append("INTERVAL ").append(printLiteral(interval.getValue())).append(" ")
+            .append(interval.getSingleDateTimeField().name());
+        break;
+      }
+      case SUB:
+        printBinaryExpression(expression, " - ");
+        break;
+      case ADD:
+        printBinaryExpression(expression, " + ");
+        break;
+      case MUL:
+        printBinaryExpression(expression, " * ");
+        break;
+      case DIV:
+        printBinaryExpression(expression, " / ");
+        break;
+      case MOD:
+        printBinaryExpression(expression, " % ");
+        break;
+      case UMIN:
+        append("-(");
+        printExpression(((UnaryExpression) expression).getExp());
+        append(")");
+        break;
+      case AND:
+        printBinaryExpression(expression, " AND ");
+        break;
+      case OR:
+        printBinaryExpression(expression, " OR ");
+        break;
+      case NOT:
+        append("(NOT ");
+        printExpression(((UnaryExpression) expression).getExp());
+        append(")");
+        break;
+      case EQUAL:
+        printBinaryExpression(expression, " = ");
+        break;
+      case NOT_EQUAL:
+        printBinaryExpression(expression, " <> ");
+        break;
+      case GREATER:
+        printBinaryExpression(expression, " > ");
+        break;
+      case GREATER_EQUAL:
+        printBinaryExpression(expression, " >= ");
+        break;
+      case LESS:
+        printBinaryExpression(expression, " < ");
+        break;
+      case LESS_EQUAL:
+        printBinaryExpression(expression, " <= ");
+        break;
+      case CONCAT:
+        printBinaryExpression(expression, " || ");
+        break;
+      case AGGR_COUNT:
+        printAggregation((AbstractAggregation) expression, "COUNT", "");
+        break;
+      case AGGR_MIN:
+        printAggregation((AbstractAggregation) expression, "MIN", "");
+        break;
+      case AGGR_MAX:
+        printAggregation((AbstractAggregation) expression, "MAX", "");
+        break;
+      case AGGR_SUM:
+        printAggregation((AbstractAggregation) expression, "SUM", "");
+        break;
+      case AGGR_AVG:
+        printAggregation((AbstractAggregation) expression, "AVG", "");
+        break;
+      case AGGR_ARRAY_AGG:
+        printAggregation((AbstractAggregation) expression, "ARRAY_AGG", "");
+        break;
+      case AGGR_LISTAGG: {
+        String separator = ((AggrListagg) expression).getSeparator();
+        printAggregation((AbstractAggregation) expression, "LISTAGG",
+            separator.length() > 0 ? ", " + printLiteral(separator) : "");
+        break;
+      }
+      case AGGR_JSON_ARRAYAGG: {
+        AggrJsonArrayagg jsonArrayagg = (AggrJsonArrayagg) expression;
+        append("JSON_ARRAYAGG(");
+        printExpression(jsonArrayagg.getExp());
+        append(jsonArrayagg.isFormatJson() ? " FORMAT JSON" : "");
+        if (!jsonArrayagg.getOrderBy().getElements().isEmpty()) {
+          append(" ");
+          printOrderBy(jsonArrayagg.getOrderBy());
+        }
+        append(jsonArrayagg.getJsonOnNull() == JsonOnNull.NULL_ON_NULL ? " NULL ON NULL" : "");
+        if (jsonArrayagg.getJsonReturnType() != null) {
+          append(" RETURNING ").append(jsonArrayagg.getJsonReturnType());
+        }
+        append(")");
+        break;
+      }
+      case VARREF:
+        append(printIdentifier(((VarRef) expression).getVariable().getName(), false));
+        break;
+      case BIND_VARIABLE:
+        append("?");
+        break;
+      case STAR:
+        append("*");
+        break;
+      case ALL_PROPERTIES: {
+        AllProperties allProperties = (AllProperties) expression;
+        printExpression(allProperties.getVarRef());
+        append(".*");
+        if (allProperties.getPrefix() != null) {
+          append(" PREFIX ").append(printLiteral(allProperties.getPrefix()));
+        }
+        break;
+      }
+      case SCALAR_SUBQUERY:
+        printSubquery((Subquery) expression, "( ", " )");
+        break;
+      case EXISTS:
+        append("EXISTS");
+        printSubquery((Subquery) expression, "( ", " )");
+        break;
+      case DERIVED_TABLE:
+        append(((DerivedTable) expression).isLateral() ? "LATERAL " : "");
+        printSubquery((Subquery) expression, "(", ")");
+        break;
+      case PROP_ACCESS: {
+        PropertyAccess propertyAccess = (PropertyAccess) expression;
+        append(printIdentifier(propertyAccess.getVariable().getName(), false)).append(".")
+            .append(printIdentifier(propertyAccess.getPropertyName(), false));
+        break;
+      }
+      case CAST: {
+        Cast cast = (Cast) expression;
+        append("CAST(");
+        printExpression(cast.getExp());
+        // TIMEZONE is used in java.sql.*, but TIME ZONE is standard SQL
+        append(" AS ").append(cast.getTargetTypeName().replace("TIMEZONE", "TIME ZONE")).append(")");
+        break;
+      }
+      case FUNCTION_CALL: {
+        FunctionCall functionCall = (FunctionCall) expression;
+        if (functionCall.getSchemaName() != null) {
+          append(printIdentifier(functionCall.getSchemaName(), false)).append(".");
+        }
+        if (functionCall.getPackageName() != null) {
+          append(printIdentifier(functionCall.getPackageName(), false)).append(".");
+        }
+        append(printIdentifier(functionCall.getFunctionName(), false)).append("(");
+        printExpressions(functionCall.getArgs(), ", ");
+        append(")");
+        break;
+      }
+      case EXTRACT_EXPRESSION: {
+        ExtractExpression extractExpression = (ExtractExpression) expression;
+        append("EXTRACT(").append(extractExpression.getField()).append(" FROM ");
+        printExpression(extractExpression.getExp());
+        append(")");
+        break;
+      }
+      case IN_EXPRESSION: {
+        InPredicate inPredicate = (InPredicate) expression;
+        printExpression(inPredicate.getExp());
+        append(" IN ");
+        printExpression(inPredicate.getInValueList());
+        break;
+      }
+      case IN_VALUE_LIST:
+        printInValueList((InValueList) expression);
+        break;
+      case IS_NULL:
+        printExpression(((IsNull) expression).getExp());
+        append(" IS NULL");
+        break;
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) expression;
+        append("CASE WHEN ");
+        printExpression(ifElse.getExp1());
+        append(" THEN ");
+        printExpression(ifElse.getExp2());
+        if (ifElse.getExp3() != null) {
+          append(" ELSE ");
+          printExpression(ifElse.getExp3());
+        }
+        append(" END");
+        break;
+      }
+      case SIMPLE_CASE: {
+        SimpleCase simpleCase = (SimpleCase) expression;
+        append("CASE ");
+        printExpression(simpleCase.getCaseOperand());
+        append(" ");
+        String separator = "";
+        for (WhenThenExpression whenThen : simpleCase.getWhenThenExps()) {
+          append(separator);
+          printWhenThen(whenThen);
+          separator = " ";
+        }
+        if (simpleCase.getElseExp() != null) {
+          append(" ELSE ");
+          printExpression(simpleCase.getElseExp());
+        }
+        append(" END");
+        break;
+      }
+      case SUBSTRING: {
+        SubstringExpression substring = (SubstringExpression) expression;
+        append("SUBSTRING(");
+        printExpression(substring.getExp());
+        append(" FROM ");
+        printExpression(substring.getStartPosition());
+        if (substring.getStringLength() != null) {
+          append(" FOR ");
+          printExpression(substring.getStringLength());
+        }
+        append(")");
+        break;
+      }
+      case BETWEEN_PREDICATE: {
+        BetweenPredicate between = (BetweenPredicate) expression;
+        printExpression(between.getExp1());
+        append(" BETWEEN ");
+        printExpression(between.getExp2());
+        append(" AND ");
+        printExpression(between.getExp3());
+        break;
+      }
+      case SOURCE_DESTINATION_PREDICATE: {
+        SourceDestinationPredicate predicate = (SourceDestinationPredicate) expression;
+        printExpression(predicate.getVertexReference());
+        append(predicate.isSourcePredicate() ? " IS SOURCE OF " : " IS DESTINATION OF ");
+        printExpression(predicate.getEdgeReference());
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unexpected expression type: " + expression.getExpType());
+    }
+  }
+
+  private void printAggregation(AbstractAggregation aggregation, String name, String separator) {
+    append(name).append("(").append(aggregation.isDistinct() ? "DISTINCT " : "");
+    printExpression(aggregation.getExp());
+    append(separator).append(")");
+  }
+
+  private void printSubquery(Subquery subquery, String open, String close) {
+    append(open);
+    if (subquery.getQuery() == null) {
+      append("null");
+    } else {
+      printGraphQuery(subquery.getQuery());
+    }
+    append(close);
+  }
+
+  private void printWhenThen(WhenThenExpression whenThen) {
+    append("WHEN ");
+    printExpression(whenThen.getWhen());
+    append(" THEN ");
+    printExpression(whenThen.getThen());
+  }
+
+  private void printInValueList(InValueList inValueList) {
+    append("(");
+    String separator = "";
+    switch (inValueList.getArrayElementType()) {
+      case INTEGER:
+        for (long value : inValueList.getIntegerValues()) {
+          sb.append(separator).append(value);
+          separator = ", ";
+        }
+        break;
+      case DECIMAL:
+        for (double value : inValueList.getDecimalValues()) {
+          append(separator).append(printLiteral(value));
+          separator = ", ";
+        }
+        break;
+      case BOOLEAN:
+        for (boolean value : inValueList.getBooleanValues()) {
+          sb.append(separator).append(value);
+          separator = ", ";
+        }
+        break;
+      case STRING:
+        for (String value : inValueList.getStringValues()) {
+          append(separator).append(printLiteral(value));
+          separator = ", ";
+        }
+        break;
+      case DATE:
+        for (LocalDate value : inValueList.getDateValues()) {
+          append(separator).append(printLiteral(value));
+          separator = ", ";
+        }
+        break;
+      case TIME:
+        for (LocalTime value : inValueList.getTimeValues()) {
+          append(separator).append(printLiteral(value));
+          separator = ", ";
+        }
+        break;
+      case TIMESTAMP:
+        for (LocalDateTime value : inValueList.getTimestampValues()) {
+          append(separator).append(printLiteral(value));
+          separator = ", ";
+        }
+        break;
+      default:
+        throw new IllegalArgumentException(inValueList.getArrayElementType().toString());
+    }
+    append(")");
+  }
+}
@@ -9,42 +9,28 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.OffsetDateTime;
 import java.time.OffsetTime;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import oracle.pgql.lang.util.AbstractQueryExpressionVisitor;
+import oracle.pgql.lang.util.AbstractQueryTraversal;
 import oracle.pgql.lang.ir.QueryExpression.Aggregation;
 import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
-import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
 import oracle.pgql.lang.ir.QueryExpression.VarRef;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrArrayAgg;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrAvg;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrCount;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrJsonArrayagg;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMax;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMin;
-import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrSum;
 import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
 import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
 import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
 import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
-import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
 import oracle.pgql.lang.ir.QueryVariable.VariableType;
-import oracle.pgql.lang.ir.modify.ModifyQuery;
 import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
 import oracle.pgql.lang.ir.unnest.OneRowPerStep;
 import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
 import oracle.pgql.lang.ir.unnest.RowsPerMatch;
-import oracle.pgql.lang.ir.unnest.RowsPerMatchType;
 
 public class PgqlUtils {
 
@@ -70,114 +56,63 @@ public class PgqlUtils {
    */
   public static Set<QueryVariable> getVariables(QueryExpression exp) {
     final Set<QueryVariable> result = new HashSet<>();
-    exp.accept(new AbstractQueryExpressionVisitor() {
+    new AbstractQueryTraversal() {
 
       @Override
-      public void visit(VarRef varRef) {
-        result.add(varRef.getVariable());
-      }
-
-      @Override
-      public void visit(PropertyAccess propAccess) {
-        result.add(propAccess.getVariable());
-      }
-
-      @Override
-      public void visit(QueryVertex queryVertex) {
-        result.add(queryVertex);
-      }
-
-      @Override
-      public void visit(QueryEdge queryEdge) {
-        result.add(queryEdge);
-      }
-
-      @Override
-      public void visit(QueryPath queryPath) {
-        result.add(queryPath);
-        RowsPerMatch rowsPerMatch = queryPath.getRowsPerMatch();
-        switch (queryPath.getRowsPerMatch().getRowsPerMatchType()) {
-          case ONE_ROW_PER_VERTEX:
-            result.add(((OneRowPerVertex) rowsPerMatch).getVertex());
-            break;
-          case ONE_ROW_PER_EDGE:
-            result.add(((OneRowPerEdge) rowsPerMatch).getEdge());
-            break;
-          case ONE_ROW_PER_MATCH:
-            break;
-          case ONE_ROW_PER_STEP:
-            OneRowPerStep oneRowPerStep = (OneRowPerStep) rowsPerMatch;
-            result.add(oneRowPerStep.getVertex1());
-            result.add(oneRowPerStep.getEdge());
-            result.add(oneRowPerStep.getVertex2());
-            break;
-          default:
-            throw new UnsupportedOperationException(rowsPerMatch.getRowsPerMatchType() + " not supported");
+      protected TraversalAction preVisit(Object node) {
+        if (node instanceof VarRef) {
+          result.add(((VarRef) node).getVariable());
+        } else if (node instanceof PropertyAccess) {
+          result.add(((PropertyAccess) node).getVariable());
+        } else if (node instanceof QueryVertex || node instanceof QueryEdge) {
+          result.add((QueryVariable) node);
+        } else if (node instanceof QueryPath) {
+          QueryPath queryPath = (QueryPath) node;
+          result.add(queryPath);
+          RowsPerMatch rowsPerMatch = queryPath.getRowsPerMatch();
+          switch (queryPath.getRowsPerMatch().getRowsPerMatchType()) {
+            case ONE_ROW_PER_VERTEX:
+              result.add(((OneRowPerVertex) rowsPerMatch).getVertex());
+              break;
+            case ONE_ROW_PER_EDGE:
+              result.add(((OneRowPerEdge) rowsPerMatch).getEdge());
+              break;
+            case ONE_ROW_PER_MATCH:
+              break;
+            case ONE_ROW_PER_STEP:
+              OneRowPerStep oneRowPerStep = (OneRowPerStep) rowsPerMatch;
+              result.add(oneRowPerStep.getVertex1());
+              result.add(oneRowPerStep.getEdge());
+              result.add(oneRowPerStep.getVertex2());
+              break;
+            default:
+              throw new UnsupportedOperationException(rowsPerMatch.getRowsPerMatchType() + " not supported");
+          }
+          return TraversalAction.SKIP_CHILDREN;
         }
+        return TraversalAction.CONTINUE;
       }
-    });
+    }.traverse(exp);
     return result;
   }
 
   public static Set<Aggregation> getAggregations(QueryExpression exp) {
     final Set<Aggregation> result = new HashSet<>();
-    exp.accept(new AbstractQueryExpressionVisitor() {
-
-      @Override
-      public void visit(AggrCount aggrCount) {
-        result.add(aggrCount);
-      }
-
-      @Override
-      public void visit(AggrListagg aggrListagg) {
-        result.add(aggrListagg);
-      }
-
-      @Override
-      public void visit(AggrMin aggrMin) {
-        result.add(aggrMin);
-      }
-
-      @Override
-      public void visit(AggrMax aggrMax) {
-        result.add(aggrMax);
-      }
-
-      @Override
-      public void visit(AggrSum aggrSum) {
-        result.add(aggrSum);
-      }
+    new AbstractQueryTraversal() {
 
       @Override
-      public void visit(AggrAvg aggrAvg) {
-        result.add(aggrAvg);
-      }
-
-      @Override
-      public void visit(AggrJsonArrayagg aggrJsonArrayagg) {
-        result.add(aggrJsonArrayagg);
-      }
-
-      @Override
-      public void visit(AggrArrayAgg aggrArrayAgg) {
-        result.add(aggrArrayAgg);
-      }
-
-      @Override
-      public void visit(Exists exists) {
-        // don't visit EXISTS subqueries
-      }
-
-      @Override
-      public void visit(ScalarSubquery subquery) {
-        // don't visit scalar subqueries
-      }
-
-      @Override
-      public void visit(DerivedTable derivedTable) {
-        // don't visit LATERAL subqueries
+      protected TraversalAction preVisit(Object node) {
+        if (node instanceof Aggregation) {
+          result.add((Aggregation) node);
+          return TraversalAction.SKIP_CHILDREN;
+        } else if (node instanceof Subquery) {
+          // don't visit EXISTS, scalar and LATERAL subqueries
+          return TraversalAction.SKIP_CHILDREN;
+        } else {
+          return TraversalAction.CONTINUE;
+        }
       }
-    });
+    }.traverse(exp);
     return result;
   }
 
@@ -210,193 +145,70 @@ public class PgqlUtils {
     }
   }
 
+  /**
+   * @deprecated use {@link GraphQuery#toString()} or {@link PgqlPrinter#print(PgqlStatement, Appendable)}
+   */
+  @Deprecated
   protected static String printPgqlString(GraphQuery graphQuery) {
-    String result = printPathPatterns(graphQuery.getCommonPathExpressions());
-
-    switch (graphQuery.getQueryType()) {
-      case SELECT:
-        result += ((SelectQuery) graphQuery).getProjection();
-        break;
-      case MODIFY:
-        ModifyQuery modifyQuery = (ModifyQuery) graphQuery;
-        result += modifyQuery.getModifications().stream() //
-            .map(x -> x.toString()) //
-            .collect(Collectors.joining("\n"));
-        break;
-      default:
-        throw new IllegalArgumentException(graphQuery.getQueryType().toString());
-    }
-
-    List<TableExpression> tableExpressions = graphQuery.getTableExpressions();
-    if (!tableExpressions.isEmpty()) {
-      result += "\nFROM ";
-
-      List<String> tableExpressionStrings = new ArrayList<>();
-      for (int i = 0; i < tableExpressions.size(); i++) {
-        TableExpression tableExpression = tableExpressions.get(i);
-        boolean isLastTableExpression = i == tableExpressions.size() - 1;
-        tableExpressionStrings.add(tableExpression.getTableExpressionType() == TableExpressionType.GRAPH_PATTERN
-            ? printPgqlString((GraphPattern) tableExpression, graphQuery.getGraphName(), isLastTableExpression)
-            : tableExpression.toString());
-      }
-
-      result += tableExpressionStrings.stream().collect(Collectors.joining(",\n"));
-    }
-    result += printWhereClause(graphQuery.getConstraints());
-    GroupBy groupBy = graphQuery.getGroupBy();
-    if (groupBy != null && groupBy.getElements().isEmpty() == false) {
-      result += "\n" + groupBy;
-    }
-    QueryExpression having = graphQuery.getHaving();
-    if (having != null) {
-      result += "\nHAVING " + having;
-    }
-    OrderBy orderBy = graphQuery.getOrderBy();
-    if (orderBy.getElements().isEmpty() == false) {
-      result += "\n" + orderBy;
-    }
-    QueryExpression limit = graphQuery.getLimit();
-    if (limit != null) {
-      result += "\nLIMIT " + limit;
-    }
-    QueryExpression offset = graphQuery.getOffset();
-    if (offset != null) {
-      result += "\nOFFSET " + offset;
-    }
-    return result;
+    return PgqlPrinter.printPgqlString(graphQuery);
   }
 
+  /**
+   * @deprecated use {@link Projection#toString()}
+   */
+  @Deprecated
   protected static String printPgqlString(Projection projection) {
-    if (projection.getElements().isEmpty()) {
-      return "SELECT *";
-    } else {
-      return "SELECT " + (projection.isDistinct() ? "DISTINCT " : "") + projection.getElements().stream() //
-          .map(x -> x.toString()) //
-          .collect(Collectors.joining(", "));
-    }
+    return PgqlPrinter.printPgqlString(projection);
   }
 
+  /**
+   * @deprecated use {@link #printIdentifier(String, boolean)}
+   */
+  @Deprecated
   protected static String printPgqlString(QueryVariable variable) {
     return printIdentifier(variable.name, false);
   }
 
+  /**
+   * @deprecated use {@link ExpAsVar#toString()}
+   */
+  @Deprecated
   protected static String printPgqlString(ExpAsVar expAsVar) {
-    if (expAsVar.getExp().getExpType() == ExpressionType.ALL_PROPERTIES) {
-      return expAsVar.getExp().toString();
-    } else {
-      String printedExpAsVar = expAsVar.getExp().toString();
-      String printedName = printIdentifier(expAsVar.getName(), false);
-      if (expAsVar.isAnonymous() && printedExpAsVar.equals(printedName)) {
-        return printedExpAsVar; // print e.g. GROUP BY x AS GROUP BY x and not GROUP BY x AS x
-      } else {
-        // here we also convert some anonymous ExpAsVars into non-anonymous ExpAsVars, which is needed because the
-        // original query gets transformed/optimized in various ways and an anonymous ExpAsVar may be referenced in
-        // different contexts than in the original query so that it needs to be deanonymized for the pretty-printed
-        // query to be valid
-        return expAsVar.getExp() + " AS " + printIdentifier(expAsVar.getName(), false);
-      }
-    }
+    return PgqlPrinter.printPgqlString(expAsVar);
   }
 
+  /**
+   * @deprecated use {@link GraphPattern#toString()}
+   */
+  @Deprecated
   protected static String printPgqlString(GraphPattern graphPattern) {
-    return printPgqlString(graphPattern, null, true);
-  }
-
-  private static String printPgqlString(GraphPattern graphPattern, SchemaQualifiedName graphName,
-      boolean isLastTableExpression) {
-    Set<QueryVertex> uncoveredVertices = new LinkedHashSet<>(graphPattern.getVertices());
-    List<String> graphPatternMatches = new ArrayList<String>();
-
-    boolean parenthesizeMatch = !graphPattern.getConstraints().isEmpty()
-        && !isLastTableExpression || graphPattern instanceof OptionalGraphPattern;
-
-    Iterator<VertexPairConnection> connectionIt = graphPattern.getConnections().iterator();
-    RowsPerMatch rowsPerMatchForParenthesizedPath = null;
-    while (connectionIt.hasNext()) {
-      VertexPairConnection connection = connectionIt.next();
-      uncoveredVertices.remove(connection.getSrc());
-      uncoveredVertices.remove(connection.getDst());
-      if (isVariableLengthPathPatternNotReaches(connection)) {
-        QueryPath path = (QueryPath) connection;
-        if (parenthesizeMatch) {
-          graphPatternMatches.add(path.toString());
-          rowsPerMatchForParenthesizedPath = path.getRowsPerMatch();
-        } else {
-          graphPatternMatches.add(path.toString() + printRowsClause(path.getRowsPerMatch()));
-        }
-      } else {
-        graphPatternMatches.add(connection.getSrc() + " " + connection + " " + connection.getDst());
-      }
-    }
-
-    // print remaining vertices that are not part of any connection
-    Iterator<QueryVertex> vertexIt = uncoveredVertices.iterator();
-    while (vertexIt.hasNext()) {
-      graphPatternMatches.add(vertexIt.next().toString());
-    }
-
-    String result;
-    if (parenthesizeMatch) {
-      result = "MATCH ( " + graphPatternMatches.stream().collect(Collectors.joining("\n     , "));
-      result += printWhereClause(graphPattern.getConstraints());
-      result += ")" + printOnClause(graphName);
-      result += printRowsClause(rowsPerMatchForParenthesizedPath);
-    } else {
-      result = "MATCH "
-          + graphPatternMatches.stream().collect(Collectors.joining(printOnClause(graphName) + "\n   , MATCH "))
-          + printOnClause(graphName);
-      result += printWhereClause(graphPattern.getConstraints());
-    }
-
-    return result;
-  }
-
-  private static String printWhereClause(Set<QueryExpression> constraints) {
-    if (constraints.isEmpty()) {
-      return "";
-    } else {
-      return "\nWHERE " + constraints.stream() //
-          .map(x -> x.toString()) //
-          .collect(Collectors.joining("\n  AND "));
-    }
+    String result = PgqlPrinter.printPgqlString((TableExpression) graphPattern);
+    // optional graph patterns were printed without the OPTIONAL keyword
+    return graphPattern instanceof OptionalGraphPattern ? result.substring("OPTIONAL ".length()) : result;
   }
 
-  private static String printRowsClause(RowsPerMatch rowsPerMatch) {
-    if (rowsPerMatch == null || rowsPerMatch.getRowsPerMatchType() == RowsPerMatchType.ONE_ROW_PER_MATCH) {
-      return "";
-    } else {
-      return " " + rowsPerMatch;
-    }
-  }
-
-  private static boolean isVariableLengthPathPatternNotReaches(VertexPairConnection connection) {
-    if (connection.getVariableType() != VariableType.PATH) {
-      return false;
-    }
-
-    QueryPath queryPath = (QueryPath) connection;
-    PathFindingGoal goal = queryPath.getPathFindingGoal();
-    return goal != PathFindingGoal.REACHES || queryPath.getPathExpressionName().startsWith(GENERATED_VAR_PREFIX);
-  }
-
-  private static String printOnClause(SchemaQualifiedName graphName) {
-    if (graphName == null) {
-      return "";
-    } else {
-      return " ON " + graphName.toString();
-    }
+  /**
+   * @deprecated use {@link GroupBy#toString()}
+   */
+  @Deprecated
+  protected static String printPgqlString(GroupBy groupBy) {
+    return PgqlPrinter.printPgqlString(groupBy);
   }
 
-  private static String printPathPatterns(List<CommonPathExpression> commonPathExpressions) {
-    return commonPathExpressions.stream() //
-        .map(x -> printCommonPathExpression(x)) //
-        .collect(Collectors.joining());
+  /**
+   * @deprecated use {@link OrderBy#toString()}
+   */
+  @Deprecated
+  protected static String printPgqlString(OrderBy orderBy) {
+    return PgqlPrinter.printPgqlString(orderBy);
   }
 
-  private static String printCommonPathExpression(CommonPathExpression commonPathExpression) {
-    String result = "PATH " + printIdentifier(commonPathExpression.getName(), false) + " AS ";
-    result += printPathExpression(commonPathExpression, false);
-    return result + "\n";
+  /**
+   * @deprecated use {@link OrderByElem#toString()}
+   */
+  @Deprecated
+  protected static String printPgqlString(OrderByElem orderByElem) {
+    return PgqlPrinter.printPgqlString(orderByElem);
   }
 
   protected static String printPathExpression(CommonPathExpression commonPathExpression, boolean tryOmitSrcAndDst) {
@@ -566,22 +378,6 @@ public class PgqlUtils {
     }
   }
 
-  protected static String printPgqlString(GroupBy groupBy) {
-    return "GROUP BY " + groupBy.getElements().stream() //
-        .map(x -> x.toString()) //
-        .collect(Collectors.joining(", "));
-  }
-
-  protected static String printPgqlString(OrderBy orderBy) {
-    return "ORDER BY " + orderBy.getElements().stream() //
-        .map(orderByElem -> printPgqlString(orderByElem)) //
-        .collect(Collectors.joining(", "));
-  }
-
-  protected static String printPgqlString(OrderByElem orderByElem) {
-    return orderByElem.getExp() + (orderByElem.isAscending() ? "" : " DESC");
-  }
-
   private static String printTime(LocalTime time) {
     StringBuilder buf = new StringBuilder(18);
     int hourValue = time.getHour();
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.ir;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.QueryExpression.AllProperties;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrJsonArrayagg;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.util.AbstractQueryTraversal;
+
+/**
+ * The properties that a query reads and writes per vertex and edge variable, such that only the needed properties have
+ * to be loaded from storage. Properties are collected from all clauses of the query and its subqueries, including the
+ * WHERE and COST clauses of path pattern macros and the ORDER BY of JSON_ARRAYAGG.
+ *
+ * Properties that are accessed on a column of a subquery or on a GROUP BY element are attributed to the vertex or edge
+ * that the column or element refers to, and properties that a subquery accesses on a correlated vertex or edge are also
+ * attributed to the vertex or edge of the outer query. The target properties of SET clauses and of INSERT property
+ * specifications are written rather than read. Variables are looked up by identity.
+ */
+public final class PropertyFootprint {
+
+  private final GraphQuery query;
+
+  private final Set<QueryVariable> variables = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private final Map<QueryVariable, Set<String>> readProperties = new IdentityHashMap<>();
+
+  private final Map<QueryVariable, Set<String>> writtenProperties = new IdentityHashMap<>();
+
+  private final Set<QueryVariable> allPropertiesRead = Collections.newSetFromMap(new IdentityHashMap<>());
+
+  private PropertyFootprint(GraphQuery query) {
+    this.query = query;
+  }
+
+  /**
+   * Analyzes a query.
+   */
+  public static PropertyFootprint of(GraphQuery query) {
+    PropertyFootprint footprint = new PropertyFootprint(query);
+    new Collector(footprint).collect(query);
+    return footprint;
+  }
+
+  /**
+   * @return the analyzed query
+   */
+  public GraphQuery getQuery() {
+    return query;
+  }
+
+  /**
+   * @return the vertex and edge variables that are matched by the graph patterns of the query and its subqueries,
+   *         including the vertices and edges of path patterns
+   */
+  public Set<QueryVariable> getVariables() {
+    return Collections.unmodifiableSet(variables);
+  }
+
+  /**
+   * @return the names of the properties that the query reads from the given vertex or edge, in order of first access.
+   *         Properties that are only read through {@code v.*} are not included (see {@link #readsAllProperties}).
+   */
+  public Set<String> getReadProperties(QueryVariable vertexOrEdge) {
+    Set<String> result = readProperties.get(vertexOrEdge);
+    return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * @return true if the query selects all properties of the given vertex or edge through {@code v.*}
+   */
+  public boolean readsAllProperties(QueryVariable vertexOrEdge) {
+    return allPropertiesRead.contains(vertexOrEdge);
+  }
+
+  /**
+   * @return the names of the properties that the query writes to the given vertex or edge, in order of first access
+   */
+  public Set<String> getWrittenProperties(QueryVariable vertexOrEdge) {
+    Set<String> result = writtenProperties.get(vertexOrEdge);
+    return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+  }
+
+  private static final class Collector extends AbstractQueryTraversal {
+
+    private final PropertyFootprint footprint;
+
+    /**
+     * Expressions that the traversal does not reach, i.e. the costs of path patterns and the ORDER BY expressions of
+     * JSON_ARRAYAGG. These are traversed after the query.
+     */
+    private final Deque<QueryExpression> pendingExpressions = new ArrayDeque<>();
+
+    private final Set<PropertyAccess> writeTargets = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * The vertex or edge of the outer query per correlated vertex or edge of a subquery.
+     */
+    private final Map<QueryVariable, QueryVariable> correlations = new IdentityHashMap<>();
+
+    Collector(PropertyFootprint footprint) {
+      this.footprint = footprint;
+    }
+
+    void collect(GraphQuery query) {
+      traverse(query);
+      while (!pendingExpressions.isEmpty()) {
+        traverse(pendingExpressions.poll());
+      }
+
+      for (Map.Entry<QueryVariable, QueryVariable> correlation : correlations.entrySet()) {
+        QueryVariable inner = correlation.getKey();
+        QueryVariable outer = correlation.getValue();
+        while (outer != null) {
+          addAll(inner, outer);
+          outer = correlations.get(outer);
+        }
+      }
+    }
+
+    @Override
+    protected TraversalAction preVisit(Object node) {
+      if (node instanceof QueryVertex) {
+        QueryVertex vertex = (QueryVertex) node;
+        footprint.variables.add(vertex);
+        addCorrelation(vertex, vertex.getCorrelationVertexInOuterQuery());
+      } else if (node instanceof QueryEdge) {
+        QueryEdge edge = (QueryEdge) node;
+        footprint.variables.add(edge);
+        addCorrelation(edge, edge.getCorrelationEdgeInOuterQuery());
+      } else if (node instanceof QueryPath) {
+        // the traversal reaches the edges and constraints of the path but not its vertices and cost
+        QueryPath path = (QueryPath) node;
+        footprint.variables.addAll(path.getVertices());
+        if (path.getCost() != null) {
+          pendingExpressions.add(path.getCost());
+        }
+      } else if (node instanceof SetPropertyExpression) {
+        writeTargets.add(((SetPropertyExpression) node).getPropertyAccess());
+      } else if (node instanceof PropertyAccess) {
+        PropertyAccess propertyAccess = (PropertyAccess) node;
+        QueryVariable variable = resolve(propertyAccess.getVariable());
+        if (variable != null) {
+          Map<QueryVariable, Set<String>> properties = writeTargets.contains(propertyAccess)
+              ? footprint.writtenProperties
+              : footprint.readProperties;
+          properties.computeIfAbsent(variable, v -> new LinkedHashSet<>()).add(propertyAccess.getPropertyName());
+        }
+      } else if (node instanceof AllProperties) {
+        QueryVariable variable = resolve(((AllProperties) node).getVarRef().getVariable());
+        if (variable != null) {
+          footprint.allPropertiesRead.add(variable);
+        }
+      } else if (node instanceof AggrJsonArrayagg) {
+        OrderBy orderBy = ((AggrJsonArrayagg) node).getOrderBy();
+        if (orderBy != null) {
+          for (OrderByElem element : orderBy.getElements()) {
+            pendingExpressions.add(element.getExp());
+          }
+        }
+      }
+      return TraversalAction.CONTINUE;
+    }
+
+    private void addCorrelation(QueryVariable inner, QueryVariable outer) {
+      QueryVariable resolvedOuter = resolve(outer);
+      if (resolvedOuter != null) {
+        correlations.put(inner, resolvedOuter);
+      }
+    }
+
+    private void addAll(QueryVariable from, QueryVariable to) {
+      Set<String> read = footprint.readProperties.get(from);
+      if (read != null) {
+        footprint.readProperties.computeIfAbsent(to, v -> new LinkedHashSet<>()).addAll(read);
+      }
+      Set<String> written = footprint.writtenProperties.get(from);
+      if (written != null) {
+        footprint.writtenProperties.computeIfAbsent(to, v -> new LinkedHashSet<>()).addAll(written);
+      }
+      if (footprint.allPropertiesRead.contains(from)) {
+        footprint.allPropertiesRead.add(to);
+      }
+    }
+
+    /**
+     * @return the vertex or edge that the variable refers to, looking through columns of subqueries and GROUP BY
+     *         elements that are plain variable references; null if the variable does not refer to a vertex or edge
+     */
+    private static QueryVariable resolve(QueryVariable variable) {
+      while (variable != null && variable.getVariableType() == VariableType.EXP_AS_VAR) {
+        QueryExpression exp = ((ExpAsVar) variable).getExp();
+        variable = exp.getExpType() == ExpressionType.VARREF ? ((VarRef) exp).getVariable() : null;
+      }
+      if (variable == null
+          || (variable.getVariableType() != VariableType.VERTEX && variable.getVariableType() != VariableType.EDGE)) {
+        return null;
+      }
+      return variable;
+    }
+  }
+}
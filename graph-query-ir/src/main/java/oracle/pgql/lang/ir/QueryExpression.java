@@ -3,10 +3,7 @@
  */
 package oracle.pgql.lang.ir;
 
-import static java.util.stream.Collectors.joining;
-import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
-import static oracle.pgql.lang.ir.PgqlUtils.printPgqlString;
-import static oracle.pgql.lang.ir.PgqlUtils.printLiteral;
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -15,8 +12,6 @@ import java.time.OffsetDateTime;
 import java.time.OffsetTime;
 import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 public interface QueryExpression {
 
@@ -260,7 +255,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " - " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -281,7 +276,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " + " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -302,7 +297,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " * " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -323,7 +318,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " / " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -344,7 +339,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " % " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -365,7 +360,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "-(" + getExp() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -389,7 +384,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " AND " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -410,7 +405,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " OR " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -431,7 +426,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(NOT " + getExp() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -455,7 +450,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " = " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -476,7 +471,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " <> " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -497,7 +492,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " > " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -518,7 +513,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " >= " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -539,7 +534,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " < " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -560,7 +555,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "(" + getExp1() + " <= " + getExp2() + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -583,7 +578,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return "(" + getExp1() + " || " + getExp2() + ")";
+      return printPgqlString(this);
     }
 
     @Override
@@ -610,7 +605,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return value.toString();
+      return printPgqlString(this);
     }
 
     @Override
@@ -660,7 +655,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return printLiteral(value);
+        return printPgqlString(this);
       }
 
       @Override
@@ -681,7 +676,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return printLiteral(value);
+        return printPgqlString(this);
       }
 
       @Override
@@ -720,7 +715,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return printLiteral(value);
+        return printPgqlString(this);
       }
 
       @Override
@@ -742,7 +737,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return printLiteral(value);
+        return printPgqlString(this);
       }
 
       @Override
@@ -764,7 +759,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return printLiteral(value);
+        return printPgqlString(this);
       }
 
       @Override
@@ -786,7 +781,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return printLiteral(value);
+        return printPgqlString(this);
       }
 
       @Override
@@ -808,7 +803,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return printLiteral(value);
+        return printPgqlString(this);
       }
 
       @Override
@@ -880,6 +875,10 @@ public interface QueryExpression {
       return Double.parseDouble(value);
     }
 
+    public String getValue() {
+      return value;
+    }
+
     public void setValue(String value) {
       this.value = value;
     }
@@ -896,7 +895,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return "INTERVAL " + printLiteral(value) + " " + dateTimeField.name();
+      return printPgqlString(this);
     }
 
     @Override
@@ -955,7 +954,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return printPgqlString(variable);
+      return printPgqlString(this);
     }
 
     @Override
@@ -1005,7 +1004,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return "?";
+      return printPgqlString(this);
     }
 
     @Override
@@ -1065,7 +1064,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return printPgqlString(variable) + "." + printIdentifier(propertyName, false);
+      return printPgqlString(this);
     }
 
     @Override
@@ -1132,9 +1131,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        String normalizedType = targetTypeName.replace("TIMEZONE", "TIME ZONE"); // TIMEZONE is used in java.sql.*, but
-                                                                                 // TIME ZONE is standard SQL
-        return "CAST(" + exp + " AS " + normalizedType + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -1188,7 +1185,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        return "EXISTS" + super.toString();
+        return printPgqlString(this);
       }
     }
   }
@@ -1257,10 +1254,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      String schemaNamePart = schemaName == null ? "" : printIdentifier(schemaName, false) + ".";
-      String packageNamePart = packageName == null ? "" : printIdentifier(packageName, false) + ".";
-      String expressions = args.stream().map(QueryExpression::toString).collect(joining(", "));
-      return schemaNamePart + packageNamePart + printIdentifier(functionName, false) + "(" + expressions + ")";
+      return printPgqlString(this);
     }
 
     @Override
@@ -1351,7 +1345,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return "EXTRACT(" + getField() + " FROM " + getExp() + ")";
+      return printPgqlString(this);
     }
 
     @Override
@@ -1418,7 +1412,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return exp + " IN " + inValueList;
+      return printPgqlString(this);
     }
 
     @Override
@@ -1582,35 +1576,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        String values;
-        switch (arrayElementType) {
-          case INTEGER:
-            values = Arrays.stream(integerValues).mapToObj(Long::toString).collect(joining(", "));
-            break;
-          case DECIMAL:
-            values = Arrays.stream(decimalValues).mapToObj(v -> printLiteral(v)).collect(joining(", "));
-            break;
-          case BOOLEAN:
-            values = IntStream.range(0, booleanValues.length)
-                .mapToObj(i -> Boolean.valueOf(booleanValues[i]).toString()).collect(joining(", "));
-            break;
-          case STRING:
-            values = Arrays.stream(stringValues).map(v -> printLiteral(v)).collect(joining(", "));
-            break;
-          case DATE:
-            values = Arrays.stream(dateValues).map(v -> printLiteral(v)).collect(joining(", "));
-            break;
-          case TIME:
-            values = Arrays.stream(timeValues).map(v -> printLiteral(v)).collect(joining(", "));
-            break;
-          case TIMESTAMP:
-            values = Arrays.stream(timestampValues).map(v -> printLiteral(v)).collect(joining(", "));
-            break;
-          default:
-            throw new IllegalArgumentException(arrayElementType.toString());
-        }
-
-        return "(" + values + ")";
+        return printPgqlString(this);
       }
 
       @Override
@@ -1671,7 +1637,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return exp + " IS NULL";
+      return printPgqlString(this);
     }
 
     @Override
@@ -1747,11 +1713,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      String elseClause = "";
-      if (exp3 != null) {
-        elseClause += " ELSE " + exp3;
-      }
-      return "CASE WHEN " + exp1 + " THEN " + exp2 + elseClause + " END";
+      return printPgqlString(this);
     }
 
     @Override
@@ -1849,15 +1811,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      String result = "CASE " + caseOperand + " ";
-      result += whenThenExps.stream() //
-          .map(x -> x.toString()) //
-          .collect(Collectors.joining(" "));
-      if (elseExp != null) {
-        result += " ELSE " + elseExp;
-      }
-      result += " END";
-      return result;
+      return printPgqlString(this);
     }
 
     @Override
@@ -1932,7 +1886,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return "WHEN " + when + " THEN " + then;
+      return printPgqlString(this);
     }
 
     @Override
@@ -2008,12 +1962,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      String result = "SUBSTRING(" + exp + " FROM " + startPosition;
-      if (stringLength != null) {
-        result += " FOR " + stringLength;
-      }
-      result += ")";
-      return result;
+      return printPgqlString(this);
     }
 
     @Override
@@ -2068,7 +2017,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return getExp1() + " BETWEEN " + getExp2() + " AND " + getExp3();
+      return printPgqlString(this);
     }
 
     @Override
@@ -2122,7 +2071,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return vertexReference + " IS " + (isSourcePredicate ? "SOURCE" : "DESTINATION") + " OF " + edgeReference;
+      return printPgqlString(this);
     }
 
     @Override
@@ -2194,39 +2143,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        String result;
-        String separator = "";
-        switch (getExpType()) {
-          case AGGR_COUNT:
-            result = "COUNT";
-            break;
-          case AGGR_MIN:
-            result = "MIN";
-            break;
-          case AGGR_MAX:
-            result = "MAX";
-            break;
-          case AGGR_AVG:
-            result = "AVG";
-            break;
-          case AGGR_SUM:
-            result = "SUM";
-            break;
-          case AGGR_ARRAY_AGG:
-            result = "ARRAY_AGG";
-            break;
-          case AGGR_LISTAGG:
-            result = "LISTAGG";
-            separator = ((AggrListagg) this).getSeparator();
-            if (separator.length() > 0) {
-              separator = ", " + printLiteral(separator);
-            }
-            break;
-          default:
-            throw new IllegalArgumentException("Unexpected expression type: " + getExpType());
-        }
-        result += "(" + (distinct ? "DISTINCT " : "") + getExp() + separator + ")";
-        return result;
+        return printPgqlString(this);
       }
 
       @Override
@@ -2414,14 +2331,7 @@ public interface QueryExpression {
 
       @Override
       public String toString() {
-        String result = "JSON_ARRAYAGG(";
-        result += getExp();
-        result += formatJson ? " FORMAT JSON" : "";
-        result += orderBy.getElements().isEmpty() ? "" : " " + orderBy.toString();
-        result += jsonOnNull == JsonOnNull.NULL_ON_NULL ? " NULL ON NULL" : "";
-        result += jsonReturnType == null ? "" : " RETURNING " + jsonReturnType;
-        result += ")";
-        return result;
+        return printPgqlString(this);
       }
 
       @Override
@@ -2499,7 +2409,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return "*";
+      return printPgqlString(this);
     }
 
     @Override
@@ -2559,7 +2469,7 @@ public interface QueryExpression {
 
     @Override
     public String toString() {
-      return varRef + ".*" + (prefix == null ? "" : " PREFIX " + printLiteral(prefix));
+      return printPgqlString(this);
     }
 
     @Override
@@ -2612,7 +2522,7 @@ public interface QueryExpression {
     }
 
     public String toString() {
-      return "( " + query + " )";
+      return printPgqlString(this);
     }
 
     @Override
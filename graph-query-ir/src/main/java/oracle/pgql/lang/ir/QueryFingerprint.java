@@ -0,0 +1,750 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.ir;
+
+import static oracle.pgql.lang.ir.PgqlUtils.GENERATED_VAR_PREFIX;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import oracle.pgql.lang.ir.QueryExpression.AllProperties;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.Constant;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.SourceDestinationPredicate;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrJsonArrayagg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerStep;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+
+/**
+ * A 128-bit fingerprint of the structure of a query, for use as a key in plan caches.
+ *
+ * Two queries have the same fingerprint if they only differ in formatting, in the names of anonymous variables and
+ * generated path expressions, or in the order of the predicates of a WHERE clause (or of another set of constraints).
+ * Literals, bind variables, labels, properties and the names of user-defined variables are part of the fingerprint.
+ *
+ * The fingerprint is a hash; distinct queries result in the same fingerprint with negligible probability only.
+ */
+public final class QueryFingerprint {
+
+  private final long high;
+
+  private final long low;
+
+  public QueryFingerprint(long high, long low) {
+    this.high = high;
+    this.low = low;
+  }
+
+  /**
+   * Computes the fingerprint of a query.
+   */
+  public static QueryFingerprint of(GraphQuery query) {
+    Builder builder = new Builder();
+    builder.query(query);
+    return builder.hasher.finish();
+  }
+
+  public long getHigh() {
+    return high;
+  }
+
+  public long getLow() {
+    return low;
+  }
+
+  @Override
+  public int hashCode() {
+    return (int) (high ^ (high >>> 32) ^ low ^ (low >>> 32));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj)
+      return true;
+    if (obj == null)
+      return false;
+    if (getClass() != obj.getClass())
+      return false;
+    QueryFingerprint other = (QueryFingerprint) obj;
+    return high == other.high && low == other.low;
+  }
+
+  /**
+   * @return the fingerprint as 32 hexadecimal digits
+   */
+  @Override
+  public String toString() {
+    return String.format("%016x%016x", high, low);
+  }
+
+  private static final long[] EXPRESSION_TAGS = new long[ExpressionType.values().length];
+
+  static {
+    for (ExpressionType type : ExpressionType.values()) {
+      // based on the name rather than the ordinal, such that fingerprints do not change when types are added
+      EXPRESSION_TAGS[type.ordinal()] = tag(type.name());
+    }
+  }
+
+  private static final long NULL_TAG = tag("<<null>>");
+
+  private static final long NAMED_VARIABLE_TAG = tag("<<named>>");
+
+  private static final long ANONYMOUS_VARIABLE_TAG = tag("<<anonymous>>");
+
+  private static long tag(String name) {
+    return ((long) name.hashCode() << 32) ^ name.length();
+  }
+
+  private static final class Builder {
+
+    private Hasher hasher = new Hasher();
+
+    // canonical numbers of anonymous variables, in order of first occurrence
+    private final Map<String, Integer> anonymousVariables = new HashMap<>();
+
+    private final Deque<String> numberedVariables = new ArrayDeque<>();
+
+    private void query(GraphQuery query) {
+      putEnum(query.getQueryType());
+
+      List<CommonPathExpression> commonPathExpressions = query.getCommonPathExpressions();
+      hasher.putLong(commonPathExpressions.size());
+      for (CommonPathExpression commonPathExpression : commonPathExpressions) {
+        variableName(commonPathExpression.getName());
+        pathStructure(commonPathExpression.getVertices(), commonPathExpression.getConnections(),
+            commonPathExpression.getConstraints(), commonPathExpression.getCost());
+      }
+
+      SchemaQualifiedName graphName = query.getGraphName();
+      if (graphName == null) {
+        hasher.putLong(NULL_TAG);
+      } else {
+        putString(graphName.getSchemaName());
+        putString(graphName.getName());
+      }
+
+      switch (query.getQueryType()) {
+        case SELECT:
+          Projection projection = ((SelectQuery) query).getProjection();
+          if (projection == null) {
+            hasher.putLong(NULL_TAG);
+          } else {
+            hasher.putBoolean(projection.isDistinct());
+            expAsVars(projection.getElements());
+          }
+          break;
+        case MODIFY:
+          List<Modification> modifications = ((ModifyQuery) query).getModifications();
+          hasher.putLong(modifications.size());
+          for (Modification modification : modifications) {
+            modification(modification);
+          }
+          break;
+        default:
+          throw new IllegalArgumentException(query.getQueryType().toString());
+      }
+
+      List<TableExpression> tableExpressions = query.getTableExpressions();
+      hasher.putLong(tableExpressions.size());
+      for (TableExpression tableExpression : tableExpressions) {
+        tableExpression(tableExpression);
+      }
+
+      unorderedExpressions(query.getConstraints());
+
+      GroupBy groupBy = query.getGroupBy();
+      if (groupBy == null) {
+        hasher.putLong(NULL_TAG);
+      } else {
+        expAsVars(groupBy.getElements());
+      }
+      expression(query.getHaving());
+      orderBy(query.getOrderBy());
+      expression(query.getLimit());
+      expression(query.getOffset());
+    }
+
+    private void modification(Modification modification) {
+      putEnum(modification.getModificationType());
+      switch (modification.getModificationType()) {
+        case INSERT:
+          InsertClause insertClause = (InsertClause) modification;
+          SchemaQualifiedName graphName = insertClause.getGraphName();
+          if (graphName == null) {
+            hasher.putLong(NULL_TAG);
+          } else {
+            putString(graphName.getSchemaName());
+            putString(graphName.getName());
+          }
+          hasher.putLong(insertClause.getInsertions().size());
+          for (Insertion insertion : insertClause.getInsertions()) {
+            putEnum(insertion.getInsertionType());
+            switch (insertion.getInsertionType()) {
+              case VERTEX_INSERTION:
+                variable(((VertexInsertion) insertion).getVertex());
+                break;
+              case EDGE_INSERTION:
+                QueryEdge edge = ((EdgeInsertion) insertion).getEdge();
+                variable(edge);
+                variable(edge.getSrc());
+                variable(edge.getDst());
+                break;
+              default:
+                throw new IllegalArgumentException(insertion.getInsertionType().toString());
+            }
+            AbstractInsertion abstractInsertion = (AbstractInsertion) insertion;
+            expressions(abstractInsertion.getLabels());
+            setPropertyExpressions(abstractInsertion.getProperties());
+          }
+          break;
+        case UPDATE:
+          List<Update> updates = ((UpdateClause) modification).getUpdates();
+          hasher.putLong(updates.size());
+          for (Update update : updates) {
+            expression(update.getElement());
+            setPropertyExpressions(update.getSetPropertyExpressions());
+          }
+          break;
+        case DELETE:
+          expressions(((DeleteClause) modification).getDeletions());
+          break;
+        default:
+          throw new IllegalArgumentException(modification.getModificationType().toString());
+      }
+    }
+
+    private void setPropertyExpressions(List<SetPropertyExpression> setPropertyExpressions) {
+      hasher.putLong(setPropertyExpressions.size());
+      for (SetPropertyExpression setPropertyExpression : setPropertyExpressions) {
+        expression(setPropertyExpression.getPropertyAccess());
+        expression(setPropertyExpression.getValueExpression());
+      }
+    }
+
+    private void tableExpression(TableExpression tableExpression) {
+      putEnum(tableExpression.getTableExpressionType());
+      switch (tableExpression.getTableExpressionType()) {
+        case GRAPH_PATTERN:
+        case OPTIONAL_GRAPH_PATTERN:
+          GraphPattern graphPattern = (GraphPattern) tableExpression;
+          pathStructure(graphPattern.getVertices(), graphPattern.getConnections(), graphPattern.getConstraints(),
+              null);
+          break;
+        case DERIVED_TABLE:
+          expression((DerivedTable) tableExpression);
+          break;
+        default:
+          throw new IllegalArgumentException(tableExpression.getTableExpressionType().toString());
+      }
+    }
+
+    private void pathStructure(Collection<QueryVertex> vertices, Collection<VertexPairConnection> connections,
+        Collection<QueryExpression> constraints, QueryExpression cost) {
+      hasher.putLong(vertices.size());
+      for (QueryVertex vertex : vertices) {
+        variable(vertex);
+        variable(vertex.getCorrelationVertexInOuterQuery());
+      }
+      hasher.putLong(connections.size());
+      for (VertexPairConnection connection : connections) {
+        connection(connection);
+      }
+      unorderedExpressions(constraints);
+      expression(cost);
+    }
+
+    private void connection(VertexPairConnection connection) {
+      putEnum(connection.getVariableType());
+      variable(connection);
+      variable(connection.getSrc());
+      variable(connection.getDst());
+      putEnum(connection.getDirection());
+      switch (connection.getVariableType()) {
+        case EDGE:
+          variable(((QueryEdge) connection).getCorrelationEdgeInOuterQuery());
+          break;
+        case PATH:
+          QueryPath path = (QueryPath) connection;
+          variableName(path.getPathExpressionName());
+          hasher.putLong(path.getMinHops());
+          hasher.putLong(path.getMaxHops());
+          putEnum(path.getPathFindingGoal());
+          hasher.putLong(path.getKValue());
+          hasher.putBoolean(path.getWithTies());
+          putEnum(path.getPathMode());
+          rowsPerMatch(path.getRowsPerMatch());
+          pathStructure(path.getVertices(), path.getConnections(), path.getConstraints(), path.getCost());
+          break;
+        default:
+          throw new IllegalArgumentException(connection.getVariableType().toString());
+      }
+    }
+
+    private void rowsPerMatch(RowsPerMatch rowsPerMatch) {
+      if (rowsPerMatch == null) {
+        hasher.putLong(NULL_TAG);
+        return;
+      }
+      putEnum(rowsPerMatch.getRowsPerMatchType());
+      switch (rowsPerMatch.getRowsPerMatchType()) {
+        case ONE_ROW_PER_MATCH:
+          break;
+        case ONE_ROW_PER_VERTEX:
+          variable(((OneRowPerVertex) rowsPerMatch).getVertex());
+          break;
+        case ONE_ROW_PER_EDGE:
+          variable(((OneRowPerEdge) rowsPerMatch).getEdge());
+          break;
+        case ONE_ROW_PER_STEP:
+          OneRowPerStep oneRowPerStep = (OneRowPerStep) rowsPerMatch;
+          variable(oneRowPerStep.getVertex1());
+          variable(oneRowPerStep.getEdge());
+          variable(oneRowPerStep.getVertex2());
+          break;
+        default:
+          throw new IllegalArgumentException(rowsPerMatch.getRowsPerMatchType().toString());
+      }
+    }
+
+    private void expAsVars(List<ExpAsVar> expAsVars) {
+      hasher.putLong(expAsVars.size());
+      for (ExpAsVar expAsVar : expAsVars) {
+        variable(expAsVar);
+        expression(expAsVar.getExp());
+      }
+    }
+
+    private void orderBy(OrderBy orderBy) {
+      if (orderBy == null) {
+        hasher.putLong(NULL_TAG);
+        return;
+      }
+      hasher.putLong(orderBy.getElements().size());
+      for (OrderByElem orderByElem : orderBy.getElements()) {
+        expression(orderByElem.getExp());
+        hasher.putBoolean(orderByElem.isAscending());
+      }
+    }
+
+    private void expressions(List<? extends QueryExpression> expressions) {
+      hasher.putLong(expressions.size());
+      for (QueryExpression expression : expressions) {
+        expression(expression);
+      }
+    }
+
+    /**
+     * Hashes each of the expressions separately and combines the sorted hashes, such that the result does not depend on
+     * the order of the expressions. Anonymous variables that first occur in one of the expressions are numbered
+     * independently from the other expressions.
+     */
+    private void unorderedExpressions(Collection<QueryExpression> expressions) {
+      long[] hashes = new long[expressions.size() * 2];
+      Hasher parent = hasher;
+      int i = 0;
+      for (QueryExpression expression : expressions) {
+        int numberedVariablesBefore = numberedVariables.size();
+        hasher = new Hasher();
+        expression(expression);
+        QueryFingerprint fingerprint = hasher.finish();
+        hashes[i++] = fingerprint.high;
+        hashes[i++] = fingerprint.low;
+        while (numberedVariables.size() > numberedVariablesBefore) {
+          anonymousVariables.remove(numberedVariables.pop());
+        }
+      }
+      hasher = parent;
+
+      sortPairs(hashes);
+      hasher.putLong(expressions.size());
+      for (long hash : hashes) {
+        hasher.putLong(hash);
+      }
+    }
+
+    private void expression(QueryExpression exp) {
+      if (exp == null) {
+        hasher.putLong(NULL_TAG);
+        return;
+      }
+      ExpressionType type = exp.getExpType();
+      hasher.putLong(EXPRESSION_TAGS[type.ordinal()]);
+      switch (type) {
+        case INTEGER:
+          hasher.putLong((Long) ((Constant<?>) exp).getValue());
+          break;
+        case DECIMAL:
+          hasher.putLong(Double.doubleToLongBits((Double) ((Constant<?>) exp).getValue()));
+          break;
+        case STRING:
+          putString((String) ((Constant<?>) exp).getValue());
+          break;
+        case BOOLEAN:
+          hasher.putBoolean((Boolean) ((Constant<?>) exp).getValue());
+          break;
+        case DATE:
+        case TIME:
+        case TIMESTAMP:
+        case TIME_WITH_TIMEZONE:
+        case TIMESTAMP_WITH_TIMEZONE:
+          putString(((Constant<?>) exp).getValue().toString());
+          break;
+        case INTERVAL:
+        case IN_VALUE_LIST:
+          putString(exp.toString());
+          break;
+        case SUB:
+        case ADD:
+        case MUL:
+        case DIV:
+        case MOD:
+        case AND:
+        case OR:
+        case EQUAL:
+        case NOT_EQUAL:
+        case GREATER:
+        case GREATER_EQUAL:
+        case LESS:
+        case LESS_EQUAL:
+        case CONCAT:
+          BinaryExpression binaryExpression = (BinaryExpression) exp;
+          expression(binaryExpression.getExp1());
+          expression(binaryExpression.getExp2());
+          break;
+        case UMIN:
+        case NOT:
+          expression(((UnaryExpression) exp).getExp());
+          break;
+        case AGGR_COUNT:
+        case AGGR_MIN:
+        case AGGR_MAX:
+        case AGGR_SUM:
+        case AGGR_AVG:
+        case AGGR_ARRAY_AGG:
+          AbstractAggregation aggregation = (AbstractAggregation) exp;
+          hasher.putBoolean(aggregation.isDistinct());
+          expression(aggregation.getExp());
+          break;
+        case AGGR_JSON_ARRAYAGG:
+          AggrJsonArrayagg jsonArrayagg = (AggrJsonArrayagg) exp;
+          expression(jsonArrayagg.getExp());
+          hasher.putBoolean(jsonArrayagg.isFormatJson());
+          orderBy(jsonArrayagg.getOrderBy());
+          putEnum(jsonArrayagg.getJsonOnNull());
+          putString(jsonArrayagg.getJsonReturnType());
+          break;
+        case AGGR_LISTAGG:
+          AggrListagg listagg = (AggrListagg) exp;
+          hasher.putBoolean(listagg.isDistinct());
+          expression(listagg.getExp());
+          putString(listagg.getSeparator());
+          break;
+        case VARREF:
+          variable(((VarRef) exp).getVariable());
+          break;
+        case BIND_VARIABLE:
+          hasher.putLong(((BindVariable) exp).getParameterIndex());
+          break;
+        case STAR:
+          break;
+        case ALL_PROPERTIES:
+          AllProperties allProperties = (AllProperties) exp;
+          expression(allProperties.getVarRef());
+          putString(allProperties.getPrefix());
+          break;
+        case SCALAR_SUBQUERY:
+        case EXISTS:
+          query(((Subquery) exp).getQuery());
+          break;
+        case DERIVED_TABLE:
+          DerivedTable derivedTable = (DerivedTable) exp;
+          hasher.putBoolean(derivedTable.isLateral());
+          query(derivedTable.getQuery());
+          break;
+        case PROP_ACCESS:
+          PropertyAccess propertyAccess = (PropertyAccess) exp;
+          variable(propertyAccess.getVariable());
+          putString(propertyAccess.getPropertyName());
+          break;
+        case CAST:
+          Cast cast = (Cast) exp;
+          expression(cast.getExp());
+          putString(cast.getTargetTypeName());
+          break;
+        case FUNCTION_CALL:
+          FunctionCall functionCall = (FunctionCall) exp;
+          putString(functionCall.getSchemaName());
+          putString(functionCall.getPackageName());
+          putString(functionCall.getFunctionName());
+          expressions(functionCall.getArgs());
+          break;
+        case EXTRACT_EXPRESSION:
+          ExtractExpression extractExpression = (ExtractExpression) exp;
+          putEnum(extractExpression.getField());
+          expression(extractExpression.getExp());
+          break;
+        case IN_EXPRESSION:
+          InPredicate inPredicate = (InPredicate) exp;
+          expression(inPredicate.getExp());
+          expression(inPredicate.getInValueList());
+          break;
+        case IS_NULL:
+          expression(((IsNull) exp).getExp());
+          break;
+        case IF_ELSE:
+          IfElse ifElse = (IfElse) exp;
+          expression(ifElse.getExp1());
+          expression(ifElse.getExp2());
+          expression(ifElse.getExp3());
+          break;
+        case SIMPLE_CASE:
+          SimpleCase simpleCase = (SimpleCase) exp;
+          expression(simpleCase.getCaseOperand());
+          hasher.putLong(simpleCase.getWhenThenExps().size());
+          for (WhenThenExpression whenThen : simpleCase.getWhenThenExps()) {
+            expression(whenThen.getWhen());
+            expression(whenThen.getThen());
+          }
+          expression(simpleCase.getElseExp());
+          break;
+        case SUBSTRING:
+          SubstringExpression substring = (SubstringExpression) exp;
+          expression(substring.getExp());
+          expression(substring.getStartPosition());
+          expression(substring.getStringLength());
+          break;
+        case BETWEEN_PREDICATE:
+          BetweenPredicate between = (BetweenPredicate) exp;
+          expression(between.getExp1());
+          expression(between.getExp2());
+          expression(between.getExp3());
+          break;
+        case SOURCE_DESTINATION_PREDICATE:
+          SourceDestinationPredicate sourceDestinationPredicate = (SourceDestinationPredicate) exp;
+          expression(sourceDestinationPredicate.getVertexReference());
+          expression(sourceDestinationPredicate.getEdgeReference());
+          hasher.putBoolean(sourceDestinationPredicate.isSourcePredicate());
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected expression type: " + type);
+      }
+    }
+
+    private void variable(QueryVariable variable) {
+      if (variable == null) {
+        hasher.putLong(NULL_TAG);
+      } else if (variable.isAnonymous()) {
+        anonymousVariable(variable.getName());
+      } else {
+        variableName(variable.getName());
+      }
+    }
+
+    /**
+     * Names of path expressions that were generated for path patterns are treated like anonymous variables.
+     */
+    private void variableName(String name) {
+      if (name != null && name.startsWith(GENERATED_VAR_PREFIX)) {
+        anonymousVariable(name);
+      } else {
+        hasher.putLong(NAMED_VARIABLE_TAG);
+        putString(name);
+      }
+    }
+
+    private void anonymousVariable(String name) {
+      Integer number = anonymousVariables.get(name);
+      if (number == null) {
+        number = anonymousVariables.size();
+        anonymousVariables.put(name, number);
+        numberedVariables.push(name);
+      }
+      hasher.putLong(ANONYMOUS_VARIABLE_TAG);
+      hasher.putLong(number);
+    }
+
+    private void putEnum(Enum<?> value) {
+      putString(value == null ? null : value.name());
+    }
+
+    private void putString(String value) {
+      if (value == null) {
+        hasher.putLong(NULL_TAG);
+      } else {
+        hasher.putString(value);
+      }
+    }
+  }
+
+  /**
+   * Sorts an array of (high, low) pairs.
+   */
+  private static void sortPairs(long[] hashes) {
+    int n = hashes.length / 2;
+    if (n < 2) {
+      return;
+    }
+    Pair[] pairs = new Pair[n];
+    for (int i = 0; i < n; i++) {
+      pairs[i] = new Pair(hashes[2 * i], hashes[2 * i + 1]);
+    }
+    Arrays.sort(pairs);
+    for (int i = 0; i < n; i++) {
+      hashes[2 * i] = pairs[i].high;
+      hashes[2 * i + 1] = pairs[i].low;
+    }
+  }
+
+  private static final class Pair implements Comparable<Pair> {
+
+    final long high;
+
+    final long low;
+
+    Pair(long high, long low) {
+      this.high = high;
+      this.low = low;
+    }
+
+    @Override
+    public int compareTo(Pair other) {
+      int result = Long.compare(high, other.high);
+      return result != 0 ? result : Long.compare(low, other.low);
+    }
+  }
+
+  /**
+   * A streaming variant of 128-bit MurmurHash3 (x64) that consumes longs instead of bytes.
+   */
+  private static final class Hasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+
+    private long h2;
+
+    private long pending;
+
+    private boolean hasPending;
+
+    private long length;
+
+    void putLong(long k) {
+      length++;
+      if (!hasPending) {
+        pending = k;
+        hasPending = true;
+        return;
+      }
+      hasPending = false;
+      mixBlock(pending, k);
+    }
+
+    void putBoolean(boolean value) {
+      putLong(value ? 1 : 0);
+    }
+
+    void putString(String value) {
+      int length = value.length();
+      putLong(length);
+      for (int i = 0; i < length; i += 4) {
+        long chunk = 0;
+        for (int j = i; j < Math.min(i + 4, length); j++) {
+          chunk = (chunk << 16) | value.charAt(j);
+        }
+        putLong(chunk);
+      }
+    }
+
+    private void mixBlock(long k1, long k2) {
+      h1 ^= mixK1(k1);
+      h1 = Long.rotateLeft(h1, 27);
+      h1 += h2;
+      h1 = h1 * 5 + 0x52dce729;
+
+      h2 ^= mixK2(k2);
+      h2 = Long.rotateLeft(h2, 31);
+      h2 += h1;
+      h2 = h2 * 5 + 0x38495ab5;
+    }
+
+    QueryFingerprint finish() {
+      if (hasPending) {
+        h1 ^= mixK1(pending);
+      }
+      h1 ^= length;
+      h2 ^= length;
+      h1 += h2;
+      h2 += h1;
+      h1 = fmix64(h1);
+      h2 = fmix64(h2);
+      h1 += h2;
+      h2 += h1;
+      return new QueryFingerprint(h1, h2);
+    }
+
+    private static long mixK1(long k1) {
+      k1 *= C1;
+      k1 = Long.rotateLeft(k1, 31);
+      k1 *= C2;
+      return k1;
+    }
+
+    private static long mixK2(long k2) {
+      k2 *= C2;
+      k2 = Long.rotateLeft(k2, 33);
+      k2 *= C1;
+      return k2;
+    }
+
+    private static long fmix64(long k) {
+      k ^= k >>> 33;
+      k *= 0xff51afd7ed558ccdL;
+      k ^= k >>> 33;
+      k *= 0xc4ceb93fe53a87ebL;
+      k ^= k >>> 33;
+      return k;
+    }
+  }
+}
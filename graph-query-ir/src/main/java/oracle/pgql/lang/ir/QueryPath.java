@@ -10,10 +10,7 @@ import oracle.pgql.lang.ir.unnest.OneRowPerMatch;
 import oracle.pgql.lang.ir.unnest.RowsPerMatch;
 import oracle.pgql.lang.ir.unnest.RowsPerMatchType;
 
-import static oracle.pgql.lang.ir.PgqlUtils.GENERATED_VAR_PREFIX;
-import static oracle.pgql.lang.ir.PgqlUtils.printHops;
-import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
-import static oracle.pgql.lang.ir.PgqlUtils.printPathExpression;
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
 
 public class QueryPath extends VertexPairConnection {
 
@@ -61,6 +58,10 @@ public class QueryPath extends VertexPairConnection {
         direction, new OneRowPerMatch());
   }
 
+  public CommonPathExpression getCommonPathExpression() {
+    return commonPathExpression;
+  }
+
   public String getPathExpressionName() {
     return commonPathExpression.getName();
   }
@@ -170,62 +171,7 @@ public class QueryPath extends VertexPairConnection {
 
   @Override
   public String toString() {
-    switch (goal) {
-      case REACHES:
-        if (commonPathExpression.getName().startsWith(GENERATED_VAR_PREFIX)) {
-          // ANY
-          return printVariableLengthPathPattern(goal);
-        } else {
-          // -/../->
-          String path = "-/";
-          if (!isAnonymous()) {
-            path += printIdentifier(name, false);
-          }
-          return path + ":" + printIdentifier(commonPathExpression.getName(), false) + printHops(this) + "/->";
-        }
-      case SHORTEST:
-      case CHEAPEST:
-      case ALL:
-        return printVariableLengthPathPattern(goal);
-      default:
-        throw new UnsupportedOperationException(goal.name());
-    }
-  }
-
-  private String printVariableLengthPathPattern(PathFindingGoal goal) {
-    String pathPatternPrefix = null;
-    switch (goal) {
-      case REACHES:
-        pathPatternPrefix = "ANY ";
-        break;
-      case ALL:
-        pathPatternPrefix = "ALL ";
-        break;
-      case SHORTEST:
-      case CHEAPEST:
-        if (kValue == 1) {
-          pathPatternPrefix = (withTies ? "ALL " : "ANY ") + goal.toString() + " ";
-        } else {
-          pathPatternPrefix = goal.toString() + " " + kValue + " ";
-        }
-        break;
-      default:
-        new UnsupportedOperationException(goal.name());
-    }
-
-    pathPatternPrefix += pathMode == PathMode.WALK ? "" : pathMode.toString() + " ";
-    String result = pathPatternPrefix + getSrc() + " ";
-    String pathExpression = printPathExpression(commonPathExpression, true);
-    if (pathExpression.contains("WHERE") || pathExpression.contains("COST") || pathExpression.startsWith("(")
-        || pathExpression.endsWith(")")) {
-      result += "(" + pathExpression + ")";
-    } else {
-      result += pathExpression;
-    }
-
-    result += printHops(this) + " " + getDst();
-
-    return result;
+    return printPgqlString(this);
   }
 
   public void accept(QueryExpressionVisitor v) {
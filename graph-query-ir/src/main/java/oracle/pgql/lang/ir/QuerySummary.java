@@ -0,0 +1,336 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.ir;
+
+import static oracle.pgql.lang.ir.PgqlUtils.isHasLabelFunctionForVar;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.QueryExpression.Aggregation;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerStep;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+import oracle.pgql.lang.util.AbstractQueryTraversal;
+
+/**
+ * The result of a single analysis pass over a query, such that repeated questions about the query do not require
+ * repeated walks over the IR: the graph pattern that defines each variable, the properties that are accessed per
+ * variable, the aggregations and correlated variables of the query and its subqueries, and the label predicates per
+ * variable.
+ *
+ * Variables and subqueries are looked up by identity, so lookups need to use the instances of the analyzed query. The
+ * summary is not updated if the query is modified afterwards.
+ */
+public final class QuerySummary {
+
+  private final GraphQuery query;
+
+  private final Map<QueryVariable, TableExpression> definingPatterns = new IdentityHashMap<>();
+
+  private final Map<QueryVariable, Set<String>> referencedProperties = new IdentityHashMap<>();
+
+  private final Map<QueryVariable, List<QueryExpression>> labelPredicates = new IdentityHashMap<>();
+
+  private final Map<QueryVariable, List<List<String>>> labelConstraints = new IdentityHashMap<>();
+
+  private final Map<GraphQuery, List<Aggregation>> aggregations = new IdentityHashMap<>();
+
+  private final Map<GraphQuery, Set<QueryVariable>> correlatedVariables = new IdentityHashMap<>();
+
+  private QuerySummary(GraphQuery query) {
+    this.query = query;
+  }
+
+  /**
+   * Analyzes a query.
+   */
+  public static QuerySummary of(GraphQuery query) {
+    QuerySummary summary = new QuerySummary(query);
+    new Analyzer(summary).traverse(query);
+    return summary;
+  }
+
+  /**
+   * @return the analyzed query
+   */
+  public GraphQuery getQuery() {
+    return query;
+  }
+
+  /**
+   * @return the graph pattern that defines the given vertex, edge or path, or the derived table that defines the given
+   *         column of a subquery in the FROM clause; null if the variable is not defined by a table expression (e.g. a
+   *         SELECT or GROUP BY element or an inserted vertex or edge)
+   */
+  public TableExpression getDefiningPattern(QueryVariable variable) {
+    return definingPatterns.get(variable);
+  }
+
+  /**
+   * @return the names of the properties that are accessed on the given variable anywhere in the query, in order of
+   *         first access
+   */
+  public Set<String> getReferencedProperties(QueryVariable variable) {
+    Set<String> result = referencedProperties.get(variable);
+    return result == null ? Collections.emptySet() : Collections.unmodifiableSet(result);
+  }
+
+  /**
+   * @return the label predicates (see {@link PgqlUtils#isHasLabelFunctionForVar(QueryExpression, QueryVariable)}) of
+   *         the given variable in the WHERE clauses of all graph patterns, including OPTIONAL MATCH clauses that match
+   *         the variable again
+   */
+  public List<QueryExpression> getLabelPredicates(QueryVariable variable) {
+    List<QueryExpression> result = labelPredicates.get(variable);
+    return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return the labels of the label predicates of the given variable: a conjunction of disjunctions of labels, or an
+   *         empty list if the variable is not constrained by labels
+   */
+  public List<List<String>> getLabelConstraints(QueryVariable variable) {
+    List<List<String>> result = labelConstraints.get(variable);
+    return result == null ? Collections.emptyList() : Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return the labels of the label predicates of the given variable in the WHERE clause of the given graph pattern
+   *         only: a conjunction of disjunctions of labels, or an empty list if the graph pattern does not constrain the
+   *         variable by labels
+   */
+  public List<List<String>> getLabelConstraints(QueryVariable variable, GraphPattern graphPattern) {
+    List<QueryExpression> predicates = getLabelPredicates(variable);
+    List<List<String>> constraints = getLabelConstraints(variable);
+    List<List<String>> result = new ArrayList<>();
+    for (int i = 0; i < predicates.size(); i++) {
+      for (QueryExpression constraint : graphPattern.getConstraints()) {
+        if (constraint == predicates.get(i)) {
+          result.add(constraints.get(i));
+          break;
+        }
+      }
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  /**
+   * @return the aggregations of the analyzed query, excluding those of its subqueries
+   */
+  public List<Aggregation> getAggregations() {
+    return getAggregations(query);
+  }
+
+  /**
+   * @param query
+   *          the analyzed query or one of its (nested) subqueries
+   * @return the aggregations of the given query, excluding those of its subqueries and those that are nested inside
+   *         another aggregation, in order of appearance
+   */
+  public List<Aggregation> getAggregations(GraphQuery query) {
+    List<Aggregation> result = aggregations.get(query);
+    return result == null ? Collections.emptyList() : result;
+  }
+
+  /**
+   * @param subquery
+   *          one of the (nested) subqueries of the analyzed query
+   * @return the variables of enclosing queries that are referenced by the subquery or by one of its subqueries, either
+   *         directly or through correlated vertices and edges
+   */
+  public Set<QueryVariable> getCorrelatedVariables(GraphQuery subquery) {
+    Set<QueryVariable> result = correlatedVariables.get(subquery);
+    return result == null ? Collections.emptySet() : result;
+  }
+
+  private static Set<QueryVariable> newVariableSet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  /**
+   * The variables that are defined and referenced by a query and its subqueries.
+   */
+  private static final class Scope {
+
+    private final Set<QueryVariable> definedVariables = newVariableSet();
+
+    private final Set<QueryVariable> referencedVariables = newVariableSet();
+
+    private final List<Aggregation> aggregations = new ArrayList<>();
+
+    private int openAggregations;
+
+    /**
+     * The graph pattern of which the vertices and connections are being traversed.
+     */
+    private GraphPattern graphPattern;
+  }
+
+  private static final class Analyzer extends AbstractQueryTraversal {
+
+    private final QuerySummary summary;
+
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+
+    Analyzer(QuerySummary summary) {
+      this.summary = summary;
+    }
+
+    @Override
+    protected TraversalAction preVisit(Object node) {
+      if (node instanceof GraphQuery) {
+        scopes.push(new Scope());
+        return TraversalAction.CONTINUE;
+      }
+
+      Scope scope = scopes.peek();
+      if (node instanceof GraphPattern) {
+        GraphPattern graphPattern = (GraphPattern) node;
+        scope.graphPattern = graphPattern;
+        for (QueryExpression constraint : graphPattern.getConstraints()) {
+          addLabelPredicate(constraint);
+        }
+      } else if (node instanceof DerivedTable) {
+        DerivedTable derivedTable = (DerivedTable) node;
+        for (ExpAsVar column : derivedTable.getQuery().getProjection().getElements()) {
+          summary.definingPatterns.putIfAbsent(column, derivedTable);
+        }
+      } else if (node instanceof QueryVertex) {
+        QueryVertex vertex = (QueryVertex) node;
+        define(scope, vertex);
+        addReference(scope, vertex.getCorrelationVertexInOuterQuery());
+      } else if (node instanceof QueryEdge) {
+        QueryEdge edge = (QueryEdge) node;
+        define(scope, edge);
+        addReference(scope, edge.getCorrelationEdgeInOuterQuery());
+      } else if (node instanceof QueryPath) {
+        // the variables of the path pattern itself are local to the path
+        QueryPath path = (QueryPath) node;
+        define(scope, path);
+        RowsPerMatch rowsPerMatch = path.getRowsPerMatch();
+        switch (rowsPerMatch.getRowsPerMatchType()) {
+          case ONE_ROW_PER_MATCH:
+            break;
+          case ONE_ROW_PER_VERTEX:
+            define(scope, ((OneRowPerVertex) rowsPerMatch).getVertex());
+            break;
+          case ONE_ROW_PER_EDGE:
+            define(scope, ((OneRowPerEdge) rowsPerMatch).getEdge());
+            break;
+          case ONE_ROW_PER_STEP:
+            OneRowPerStep oneRowPerStep = (OneRowPerStep) rowsPerMatch;
+            define(scope, oneRowPerStep.getVertex1());
+            define(scope, oneRowPerStep.getEdge());
+            define(scope, oneRowPerStep.getVertex2());
+            break;
+          default:
+            throw new UnsupportedOperationException(rowsPerMatch.getRowsPerMatchType() + " not supported");
+        }
+        return TraversalAction.SKIP_CHILDREN;
+      } else if (node instanceof ExpAsVar) {
+        scope.definedVariables.add((ExpAsVar) node);
+      } else if (node instanceof VarRef) {
+        addReference(scope, ((VarRef) node).getVariable());
+      } else if (node instanceof PropertyAccess) {
+        PropertyAccess propertyAccess = (PropertyAccess) node;
+        addReference(scope, propertyAccess.getVariable());
+        summary.referencedProperties.computeIfAbsent(propertyAccess.getVariable(), v -> new LinkedHashSet<>())
+            .add(propertyAccess.getPropertyName());
+      } else if (node instanceof Aggregation) {
+        if (scope.openAggregations == 0) {
+          scope.aggregations.add((Aggregation) node);
+        }
+        scope.openAggregations++;
+      }
+      return TraversalAction.CONTINUE;
+    }
+
+    @Override
+    protected TraversalAction postVisit(Object node) {
+      if (node instanceof GraphQuery) {
+        GraphQuery query = (GraphQuery) node;
+        Scope scope = scopes.pop();
+        Set<QueryVariable> correlated = newVariableSet();
+        for (QueryVariable variable : scope.referencedVariables) {
+          if (!scope.definedVariables.contains(variable)) {
+            correlated.add(variable);
+          }
+        }
+        summary.correlatedVariables.put(query, Collections.unmodifiableSet(correlated));
+        summary.aggregations.put(query, Collections.unmodifiableList(scope.aggregations));
+
+        Scope enclosingScope = scopes.peek();
+        if (enclosingScope != null) {
+          enclosingScope.definedVariables.addAll(scope.definedVariables);
+          enclosingScope.referencedVariables.addAll(scope.referencedVariables);
+        }
+      } else if (node instanceof GraphPattern) {
+        scopes.peek().graphPattern = null;
+      } else if (node instanceof Aggregation) {
+        scopes.peek().openAggregations--;
+      }
+      return TraversalAction.CONTINUE;
+    }
+
+    private void define(Scope scope, QueryVariable variable) {
+      scope.definedVariables.add(variable);
+      if (scope.graphPattern != null) {
+        summary.definingPatterns.putIfAbsent(variable, scope.graphPattern);
+      }
+    }
+
+    private void addReference(Scope scope, QueryVariable variable) {
+      if (variable != null) {
+        scope.referencedVariables.add(variable);
+      }
+    }
+
+    private void addLabelPredicate(QueryExpression constraint) {
+      QueryExpression firstDisjunct = constraint;
+      while (firstDisjunct.getExpType() == ExpressionType.OR) {
+        firstDisjunct = ((Or) firstDisjunct).getExp1();
+      }
+      if (firstDisjunct.getExpType() != ExpressionType.FUNCTION_CALL) {
+        return;
+      }
+      List<QueryExpression> args = ((FunctionCall) firstDisjunct).getArgs();
+      if (args.isEmpty() || args.get(0).getExpType() != ExpressionType.VARREF) {
+        return;
+      }
+      QueryVariable variable = ((VarRef) args.get(0)).getVariable();
+      if (isHasLabelFunctionForVar(constraint, variable)) {
+        summary.labelPredicates.computeIfAbsent(variable, v -> new ArrayList<>()).add(constraint);
+        List<String> labels = new ArrayList<>();
+        addLabels(constraint, labels);
+        summary.labelConstraints.computeIfAbsent(variable, v -> new ArrayList<>())
+            .add(Collections.unmodifiableList(labels));
+      }
+    }
+
+    private static void addLabels(QueryExpression labelPredicate, List<String> labels) {
+      if (labelPredicate.getExpType() == ExpressionType.OR) {
+        Or or = (Or) labelPredicate;
+        addLabels(or.getExp1(), labels);
+        addLabels(or.getExp2(), labels);
+      } else {
+        labels.add(((ConstString) ((FunctionCall) labelPredicate).getArgs().get(1)).getValue());
+      }
+    }
+  }
+}
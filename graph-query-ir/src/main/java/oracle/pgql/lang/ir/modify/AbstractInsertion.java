@@ -3,12 +3,13 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
+
 import java.util.List;
 import java.util.stream.Collectors;
 
 import oracle.pgql.lang.ir.QueryExpression;
 import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
-import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
 
 public abstract class AbstractInsertion implements Insertion {
 
@@ -37,6 +38,10 @@ public abstract class AbstractInsertion implements Insertion {
     this.properties = properties;
   }
 
+  /**
+   * @deprecated no longer used by {@link #toString()}, which is implemented by {@link oracle.pgql.lang.ir.PgqlPrinter}
+   */
+  @Deprecated
   protected String printLabels() {
     if (labels.isEmpty()) {
       return "";
@@ -47,6 +52,10 @@ public abstract class AbstractInsertion implements Insertion {
     }
   }
 
+  /**
+   * @deprecated no longer used by {@link #toString()}, which is implemented by {@link oracle.pgql.lang.ir.PgqlPrinter}
+   */
+  @Deprecated
   protected String printProperties() {
     if (properties.isEmpty()) {
       return "";
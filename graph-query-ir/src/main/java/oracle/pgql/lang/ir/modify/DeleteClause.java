@@ -3,8 +3,9 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import java.util.List;
-import java.util.stream.Collectors;
 
 import oracle.pgql.lang.ir.QueryExpressionVisitor;
 import oracle.pgql.lang.ir.QueryExpression.VarRef;
@@ -32,9 +33,7 @@ public class DeleteClause implements Modification {
 
   @Override
   public String toString() {
-    return "DELETE " + deletions.stream() //
-        .map(x -> x.toString()) //
-        .collect(Collectors.joining(", "));
+    return printPgqlString(this);
   }
 
   @Override
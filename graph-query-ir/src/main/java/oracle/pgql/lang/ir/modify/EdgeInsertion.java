@@ -3,14 +3,14 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import java.util.List;
 
 import oracle.pgql.lang.ir.QueryEdge;
 import oracle.pgql.lang.ir.QueryExpression;
 import oracle.pgql.lang.ir.QueryExpressionVisitor;
 
-import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
-
 public class EdgeInsertion extends AbstractInsertion {
 
   private QueryEdge edge;
@@ -35,9 +35,7 @@ public class EdgeInsertion extends AbstractInsertion {
 
   @Override
   public String toString() {
-    return "EDGE " + printIdentifier(edge.getName(), false) + " BETWEEN "
-        + printIdentifier(edge.getSrc().getName(), false) + " AND " + printIdentifier(edge.getDst().getName(), false)
-        + printLabels() + printProperties();
+    return printPgqlString(this);
   }
 
   @Override
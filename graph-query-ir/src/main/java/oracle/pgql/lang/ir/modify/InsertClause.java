@@ -3,8 +3,9 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import java.util.List;
-import java.util.stream.Collectors;
 
 import oracle.pgql.lang.ir.QueryExpressionVisitor;
 import oracle.pgql.lang.ir.SchemaQualifiedName;
@@ -38,8 +39,7 @@ public class InsertClause implements Modification {
 
   @Override
   public String toString() {
-    String intoClause = graphName == null ? "" : "INTO " + graphName + " ";
-    return "INSERT " + intoClause + insertions.stream().map(x -> x.toString()).collect(Collectors.joining(", "));
+    return printPgqlString(this);
   }
 
   @Override
@@ -3,6 +3,8 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import oracle.pgql.lang.ir.QueryExpression;
 import oracle.pgql.lang.ir.QueryExpressionVisitor;
 import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
@@ -36,7 +38,7 @@ public class SetPropertyExpression {
 
   @Override
   public String toString() {
-    return propertyAccess + " = " + valueExpression;
+    return printPgqlString(this);
   }
 
   @Override
@@ -3,8 +3,9 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import java.util.List;
-import java.util.stream.Collectors;
 import oracle.pgql.lang.ir.QueryExpression.VarRef;
 
 import oracle.pgql.lang.ir.QueryExpressionVisitor;
@@ -38,12 +39,7 @@ public class Update {
 
   @Override
   public String toString() {
-    String result = element.toString();
-    if (!setPropertyExpressions.isEmpty()) {
-      result += " SET ( "
-          + setPropertyExpressions.stream().map(x -> x.toString()).collect(Collectors.joining(", ")) + " )";
-    }
-    return result;
+    return printPgqlString(this);
   }
 
   @Override
@@ -3,8 +3,9 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import java.util.List;
-import java.util.stream.Collectors;
 
 import oracle.pgql.lang.ir.QueryExpressionVisitor;
 
@@ -26,7 +27,7 @@ public class UpdateClause implements Modification {
 
   @Override
   public String toString() {
-    return "UPDATE " + updates.stream().map(x -> x.toString()).collect(Collectors.joining(", "));
+    return printPgqlString(this);
   }
 
   @Override
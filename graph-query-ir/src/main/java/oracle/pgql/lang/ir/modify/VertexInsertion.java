@@ -3,14 +3,14 @@
  */
 package oracle.pgql.lang.ir.modify;
 
+import static oracle.pgql.lang.ir.PgqlPrinter.printPgqlString;
+
 import java.util.List;
 
 import oracle.pgql.lang.ir.QueryExpression;
 import oracle.pgql.lang.ir.QueryExpressionVisitor;
 import oracle.pgql.lang.ir.QueryVertex;
 
-import static oracle.pgql.lang.ir.PgqlUtils.printIdentifier;
-
 public class VertexInsertion extends AbstractInsertion {
 
   private QueryVertex vertex;
@@ -31,7 +31,7 @@ public class VertexInsertion extends AbstractInsertion {
 
   @Override
   public String toString() {
-    return "VERTEX " + printIdentifier(vertex.getName(), false) + printLabels() + printProperties();
+    return printPgqlString(this);
   }
 
   @Override
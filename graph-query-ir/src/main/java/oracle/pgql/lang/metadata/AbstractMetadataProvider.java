@@ -5,7 +5,9 @@ package oracle.pgql.lang.metadata;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
+import oracle.pgql.lang.ir.Direction;
 import oracle.pgql.lang.ir.SchemaQualifiedName;
 
 /**
@@ -14,6 +16,8 @@ import oracle.pgql.lang.ir.SchemaQualifiedName;
  */
 public abstract class AbstractMetadataProvider {
 
+  private final AtomicLong invalidationCount = new AtomicLong();
+
   /**
    * Get the schema of the default graph, including its labels, properties and property types.
    * 
@@ -163,4 +167,106 @@ public abstract class AbstractMetadataProvider {
   public Optional<List<DataTypeSynonym>> getDataTypeSynonyms() {
     return Optional.empty();
   }
+
+  /**
+   * Get the number of vertices that have a label. Used for estimating the cost of match orders.
+   *
+   * @param graphName
+   *          the name of the graph with schema qualifier, or null for the default graph
+   * @param vertexLabel
+   *          the label, or null for the total number of vertices
+   * @return the number of vertices
+   */
+  public Optional<Long> getVertexCount(SchemaQualifiedName graphName, String vertexLabel) {
+    return Optional.empty();
+  }
+
+  /**
+   * Get the number of edges that have a label. Used for estimating the cost of match orders.
+   *
+   * @param graphName
+   *          the name of the graph with schema qualifier, or null for the default graph
+   * @param edgeLabel
+   *          the label, or null for the total number of edges
+   * @return the number of edges
+   */
+  public Optional<Long> getEdgeCount(SchemaQualifiedName graphName, String edgeLabel) {
+    return Optional.empty();
+  }
+
+  /**
+   * Get the average number of edges with a label per vertex that is the source (OUTGOING) or destination (INCOMING)
+   * of such edges. Used for estimating the cost of match orders.
+   *
+   * @param graphName
+   *          the name of the graph with schema qualifier, or null for the default graph
+   * @param edgeLabel
+   *          the label, or null for edges with any label
+   * @param direction
+   *          OUTGOING or INCOMING
+   * @return the average degree
+   */
+  public Optional<Double> getAverageDegree(SchemaQualifiedName graphName, String edgeLabel, Direction direction) {
+    return Optional.empty();
+  }
+
+  /**
+   * Get statistics about the values of a vertex property. Used for estimating the selectivity of filters.
+   *
+   * @param graphName
+   *          the name of the graph with schema qualifier, or null for the default graph
+   * @param vertexLabel
+   *          the label, or null for the property across all labels
+   * @param propertyName
+   *          the name of the property
+   * @return the statistics of the property
+   */
+  public Optional<PropertyStatistics> getVertexPropertyStatistics(SchemaQualifiedName graphName, String vertexLabel,
+      String propertyName) {
+    return Optional.empty();
+  }
+
+  /**
+   * Get statistics about the values of an edge property. Used for estimating the selectivity of filters.
+   *
+   * @param graphName
+   *          the name of the graph with schema qualifier, or null for the default graph
+   * @param edgeLabel
+   *          the label, or null for the property across all labels
+   * @param propertyName
+   *          the name of the property
+   * @return the statistics of the property
+   */
+  public Optional<PropertyStatistics> getEdgePropertyStatistics(SchemaQualifiedName graphName, String edgeLabel,
+      String propertyName) {
+    return Optional.empty();
+  }
+
+  /**
+   * Gets the version of the metadata (graph schemas, types, functions, etc.) returned by this provider. The version
+   * must change whenever any of the metadata changes.
+   *
+   * The version is used by the parser to decide whether cached parse results and cached metadata can be reused. If no
+   * version is provided then nothing is cached for this provider.
+   *
+   * @return the version of the metadata
+   */
+  public Optional<Long> getSchemaVersion() {
+    return Optional.empty();
+  }
+
+  /**
+   * Invalidates everything that the parser cached for this provider, such as parse results and type tables derived
+   * from the metadata. Use this when the metadata changed without a change in schema version.
+   */
+  public void invalidateCachedMetadata() {
+    invalidationCount.incrementAndGet();
+  }
+
+  /**
+   * @return the number of times {@link #invalidateCachedMetadata()} was called
+   */
+  public final long getInvalidationCount() {
+    return invalidationCount.get();
+  }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.metadata;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Statistics about the values of a property, used for estimating the selectivity of filters.
+ */
+public class PropertyStatistics {
+
+  private final long distinctValueCount;
+
+  private final double nullFraction;
+
+  private final List<Double> histogramBounds;
+
+  public PropertyStatistics(long distinctValueCount, double nullFraction) {
+    this(distinctValueCount, nullFraction, Collections.emptyList());
+  }
+
+  /**
+   * @param distinctValueCount
+   *          the number of distinct non-null values
+   * @param nullFraction
+   *          the fraction of vertices or edges for which the property is null or missing
+   * @param histogramBounds
+   *          for numeric properties, the ascending bounds of an equi-depth histogram: n + 1 bounds for n buckets that
+   *          each hold the same number of non-null values; empty if there is no histogram
+   */
+  public PropertyStatistics(long distinctValueCount, double nullFraction, List<Double> histogramBounds) {
+    this.distinctValueCount = distinctValueCount;
+    this.nullFraction = nullFraction;
+    this.histogramBounds = histogramBounds;
+  }
+
+  public long getDistinctValueCount() {
+    return distinctValueCount;
+  }
+
+  public double getNullFraction() {
+    return nullFraction;
+  }
+
+  public List<Double> getHistogramBounds() {
+    return histogramBounds;
+  }
+}
@@ -0,0 +1,474 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.GroupBy;
+import oracle.pgql.lang.ir.OrderBy;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.Projection;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.AllProperties;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.SourceDestinationPredicate;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.TernaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.TableExpression;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerStep;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+
+/**
+ * A depth-first traversal of the IR that uses an explicit stack instead of recursion, such that deeply nested
+ * expressions (e.g. generated conditions with thousands of AND or OR terms) can be traversed without overflowing the
+ * call stack.
+ *
+ * Nodes are traversed in the same order as {@link AbstractQueryExpressionVisitor} visits them. In addition, rows per
+ * match clauses and the WHEN/THEN pairs of simple CASE expressions are traversed as nodes of their own. Implementations
+ * of this class override {@link #preVisit(Object)} and/or {@link #postVisit(Object)}, which are called for query
+ * expressions, queries, table expressions, query variables, projections, GROUP BY and ORDER BY clauses, modifications,
+ * insertions, updates, SET property expressions, rows per match clauses and WHEN/THEN pairs. Null children are skipped.
+ *
+ * The stack of a traversal is reused by subsequent traversals of the same instance, so apart from the iterators over
+ * unordered collections such as the constraints of a query, traversing does not allocate.
+ */
+public abstract class AbstractQueryTraversal {
+
+  public enum TraversalAction {
+
+    /**
+     * Continue with the children of the node (pre-order) or with the next node (post-order).
+     */
+    CONTINUE,
+
+    /**
+     * Skip the children of the node. The node is not post-visited. When returned from {@link #postVisit(Object)}, this
+     * is the same as CONTINUE.
+     */
+    SKIP_CHILDREN,
+
+    /**
+     * Stop the traversal.
+     */
+    TERMINATE
+  }
+
+  private static final int INITIAL_STACK_SIZE = 32;
+
+  private Object[] stack = new Object[INITIAL_STACK_SIZE];
+
+  /**
+   * Whether the node at the same position of the stack is to be post-visited rather than pre-visited.
+   */
+  private boolean[] postVisitMarkers = new boolean[INITIAL_STACK_SIZE];
+
+  private int stackSize = 0;
+
+  private boolean traversing = false;
+
+  /**
+   * Called before the children of a node are traversed.
+   */
+  protected TraversalAction preVisit(Object node) {
+    return TraversalAction.CONTINUE;
+  }
+
+  /**
+   * Called after the children of a node are traversed, unless {@link #preVisit(Object)} returned SKIP_CHILDREN for the
+   * node.
+   */
+  protected TraversalAction postVisit(Object node) {
+    return TraversalAction.CONTINUE;
+  }
+
+  /**
+   * @return false if the traversal was terminated by one of the hooks, true otherwise
+   */
+  public final boolean traverse(QueryExpression expression) {
+    return traverseNode(expression);
+  }
+
+  /**
+   * @return false if the traversal was terminated by one of the hooks, true otherwise
+   */
+  public final boolean traverse(GraphQuery query) {
+    return traverseNode(query);
+  }
+
+  /**
+   * @return false if the traversal was terminated by one of the hooks, true otherwise
+   */
+  public final boolean traverse(TableExpression tableExpression) {
+    return traverseNode(tableExpression);
+  }
+
+  /**
+   * @return false if the traversal was terminated by one of the hooks, true otherwise
+   */
+  public final boolean traverse(Modification modification) {
+    return traverseNode(modification);
+  }
+
+  private boolean traverseNode(Object root) {
+    if (traversing) {
+      throw new IllegalStateException("traversal is already in progress");
+    }
+    traversing = true;
+    try {
+      if (root != null) {
+        push(root);
+      }
+      while (stackSize > 0) {
+        stackSize--;
+        Object node = stack[stackSize];
+        boolean postVisit = postVisitMarkers[stackSize];
+        stack[stackSize] = null;
+        postVisitMarkers[stackSize] = false;
+
+        if (postVisit) {
+          if (postVisit(node) == TraversalAction.TERMINATE) {
+            return false;
+          }
+          continue;
+        }
+
+        switch (preVisit(node)) {
+          case CONTINUE:
+            push(node);
+            postVisitMarkers[stackSize - 1] = true;
+            int firstChild = stackSize;
+            pushChildren(node);
+            reverse(firstChild);
+            break;
+          case SKIP_CHILDREN:
+            break;
+          case TERMINATE:
+            return false;
+          default:
+            throw new IllegalStateException();
+        }
+      }
+      return true;
+    } finally {
+      Arrays.fill(stack, 0, stackSize, null);
+      Arrays.fill(postVisitMarkers, 0, stackSize, false);
+      stackSize = 0;
+      traversing = false;
+    }
+  }
+
+  private void push(Object node) {
+    if (node == null) {
+      return;
+    }
+    if (stackSize == stack.length) {
+      stack = Arrays.copyOf(stack, stackSize * 2);
+      postVisitMarkers = Arrays.copyOf(postVisitMarkers, stackSize * 2);
+    }
+    stack[stackSize++] = node;
+  }
+
+  private void pushAll(List<?> nodes) {
+    for (int i = 0; i < nodes.size(); i++) {
+      push(nodes.get(i));
+    }
+  }
+
+  private void pushAll(Collection<?> nodes) {
+    for (Object node : nodes) {
+      push(node);
+    }
+  }
+
+  /**
+   * Children are pushed in order and then reversed, such that they are popped in order.
+   */
+  private void reverse(int from) {
+    for (int i = from, j = stackSize - 1; i < j; i++, j--) {
+      Object tmp = stack[i];
+      stack[i] = stack[j];
+      stack[j] = tmp;
+    }
+  }
+
+  private void pushChildren(Object node) {
+    if (node instanceof QueryExpression) {
+      pushChildren((QueryExpression) node);
+    } else if (node instanceof GraphQuery) {
+      pushChildren((GraphQuery) node);
+    } else if (node instanceof GraphPattern) {
+      GraphPattern graphPattern = (GraphPattern) node;
+      pushAll(graphPattern.getVertices());
+      pushAll(graphPattern.getConnections());
+      pushAll(graphPattern.getConstraints());
+    } else if (node instanceof QueryVariable) {
+      pushChildren((QueryVariable) node);
+    } else if (node instanceof Projection) {
+      pushAll(((Projection) node).getElements());
+    } else if (node instanceof GroupBy) {
+      pushAll(((GroupBy) node).getElements());
+    } else if (node instanceof OrderBy) {
+      pushAll(((OrderBy) node).getElements());
+    } else if (node instanceof OrderByElem) {
+      push(((OrderByElem) node).getExp());
+    } else if (node instanceof WhenThenExpression) {
+      WhenThenExpression whenThen = (WhenThenExpression) node;
+      push(whenThen.getWhen());
+      push(whenThen.getThen());
+    } else if (node instanceof RowsPerMatch) {
+      pushChildren((RowsPerMatch) node);
+    } else if (node instanceof Modification) {
+      pushChildren((Modification) node);
+    } else if (node instanceof Insertion) {
+      pushChildren((Insertion) node);
+    } else if (node instanceof Update) {
+      Update update = (Update) node;
+      push(update.getElement());
+      pushAll(update.getSetPropertyExpressions());
+    } else if (node instanceof SetPropertyExpression) {
+      SetPropertyExpression setPropertyExpression = (SetPropertyExpression) node;
+      push(setPropertyExpression.getPropertyAccess());
+      push(setPropertyExpression.getValueExpression());
+    } else {
+      throw new IllegalArgumentException("Unexpected node: " + node.getClass().getName());
+    }
+  }
+
+  private void pushChildren(QueryExpression expression) {
+    switch (expression.getExpType()) {
+      case INTEGER:
+      case DECIMAL:
+      case STRING:
+      case BOOLEAN:
+      case DATE:
+      case TIME:
+      case TIMESTAMP:
+      case TIME_WITH_TIMEZONE:
+      case TIMESTAMP_WITH_TIMEZONE:
+      case INTERVAL:
+      case VARREF:
+      case BIND_VARIABLE:
+      case STAR:
+      case PROP_ACCESS:
+      case IN_VALUE_LIST:
+        break;
+      case SUB:
+      case ADD:
+      case MUL:
+      case DIV:
+      case MOD:
+      case AND:
+      case OR:
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+      case CONCAT: {
+        BinaryExpression binaryExpression = (BinaryExpression) expression;
+        push(binaryExpression.getExp1());
+        push(binaryExpression.getExp2());
+        break;
+      }
+      case UMIN:
+      case NOT:
+      case AGGR_COUNT:
+      case AGGR_MIN:
+      case AGGR_MAX:
+      case AGGR_SUM:
+      case AGGR_AVG:
+      case AGGR_ARRAY_AGG:
+      case AGGR_JSON_ARRAYAGG:
+      case AGGR_LISTAGG:
+        push(((UnaryExpression) expression).getExp());
+        break;
+      case ALL_PROPERTIES:
+        push(((AllProperties) expression).getVarRef());
+        break;
+      case SCALAR_SUBQUERY:
+      case EXISTS:
+      case DERIVED_TABLE:
+        push(((Subquery) expression).getQuery());
+        break;
+      case CAST:
+        push(((Cast) expression).getExp());
+        break;
+      case FUNCTION_CALL:
+        pushAll(((FunctionCall) expression).getArgs());
+        break;
+      case EXTRACT_EXPRESSION:
+        push(((ExtractExpression) expression).getExp());
+        break;
+      case IN_EXPRESSION: {
+        InPredicate inPredicate = (InPredicate) expression;
+        push(inPredicate.getExp());
+        push(inPredicate.getInValueList());
+        break;
+      }
+      case IS_NULL:
+        push(((IsNull) expression).getExp());
+        break;
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) expression;
+        push(ifElse.getExp1());
+        push(ifElse.getExp2());
+        push(ifElse.getExp3());
+        break;
+      }
+      case SIMPLE_CASE: {
+        SimpleCase simpleCase = (SimpleCase) expression;
+        push(simpleCase.getCaseOperand());
+        pushAll(simpleCase.getWhenThenExps());
+        push(simpleCase.getElseExp());
+        break;
+      }
+      case SUBSTRING: {
+        SubstringExpression substring = (SubstringExpression) expression;
+        push(substring.getExp());
+        push(substring.getStartPosition());
+        push(substring.getStringLength());
+        break;
+      }
+      case BETWEEN_PREDICATE: {
+        TernaryExpression between = (TernaryExpression) expression;
+        push(between.getExp1());
+        push(between.getExp2());
+        push(between.getExp3());
+        break;
+      }
+      case SOURCE_DESTINATION_PREDICATE: {
+        SourceDestinationPredicate predicate = (SourceDestinationPredicate) expression;
+        push(predicate.getVertexReference());
+        push(predicate.getEdgeReference());
+        break;
+      }
+      default:
+        throw new IllegalArgumentException("Unexpected expression type: " + expression.getExpType());
+    }
+  }
+
+  private void pushChildren(GraphQuery query) {
+    switch (query.getQueryType()) {
+      case SELECT:
+        push(((SelectQuery) query).getProjection());
+        break;
+      case MODIFY:
+        pushAll(((ModifyQuery) query).getModifications());
+        break;
+      default:
+        throw new IllegalArgumentException(query.getQueryType().toString());
+    }
+    pushAll(query.getTableExpressions());
+    pushAll(query.getConstraints());
+    push(query.getGroupBy());
+    push(query.getHaving());
+    push(query.getOrderBy());
+    push(query.getLimit());
+    push(query.getOffset());
+  }
+
+  private void pushChildren(QueryVariable variable) {
+    switch (variable.getVariableType()) {
+      case VERTEX:
+      case EDGE:
+        break;
+      case PATH:
+        QueryPath path = (QueryPath) variable;
+        pushAll(path.getConnections());
+        pushAll(path.getConstraints());
+        push(path.getRowsPerMatch());
+        break;
+      case EXP_AS_VAR:
+        push(((ExpAsVar) variable).getExp());
+        break;
+      default:
+        throw new IllegalArgumentException(variable.getVariableType().toString());
+    }
+  }
+
+  private void pushChildren(RowsPerMatch rowsPerMatch) {
+    switch (rowsPerMatch.getRowsPerMatchType()) {
+      case ONE_ROW_PER_MATCH:
+        break;
+      case ONE_ROW_PER_VERTEX:
+        push(((OneRowPerVertex) rowsPerMatch).getVertex());
+        break;
+      case ONE_ROW_PER_EDGE:
+        push(((OneRowPerEdge) rowsPerMatch).getEdge());
+        break;
+      case ONE_ROW_PER_STEP:
+        OneRowPerStep oneRowPerStep = (OneRowPerStep) rowsPerMatch;
+        push(oneRowPerStep.getVertex1());
+        push(oneRowPerStep.getEdge());
+        push(oneRowPerStep.getVertex2());
+        break;
+      default:
+        throw new UnsupportedOperationException(rowsPerMatch.getRowsPerMatchType() + " not supported");
+    }
+  }
+
+  private void pushChildren(Modification modification) {
+    switch (modification.getModificationType()) {
+      case INSERT:
+        pushAll(((InsertClause) modification).getInsertions());
+        break;
+      case UPDATE:
+        pushAll(((UpdateClause) modification).getUpdates());
+        break;
+      case DELETE:
+        pushAll(((DeleteClause) modification).getDeletions());
+        break;
+      default:
+        throw new IllegalArgumentException(modification.getModificationType().toString());
+    }
+  }
+
+  private void pushChildren(Insertion insertion) {
+    switch (insertion.getInsertionType()) {
+      case VERTEX_INSERTION:
+        push(((VertexInsertion) insertion).getVertex());
+        break;
+      case EDGE_INSERTION:
+        push(((EdgeInsertion) insertion).getEdge());
+        break;
+      default:
+        throw new IllegalArgumentException(insertion.getInsertionType().toString());
+    }
+    AbstractInsertion abstractInsertion = (AbstractInsertion) insertion;
+    pushAll(abstractInsertion.getLabels());
+    pushAll(abstractInsertion.getProperties());
+  }
+}
@@ -0,0 +1,1488 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import oracle.pgql.lang.PgqlException;
+import oracle.pgql.lang.ddl.CallStatement;
+import oracle.pgql.lang.ddl.propertygraph.BaseElementTable;
+import oracle.pgql.lang.ddl.propertygraph.BaseGraph;
+import oracle.pgql.lang.ddl.propertygraph.CreatePropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.CreateSuperPropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.DropPropertyGraph;
+import oracle.pgql.lang.ddl.propertygraph.EdgeTable;
+import oracle.pgql.lang.ddl.propertygraph.ElementTable;
+import oracle.pgql.lang.ddl.propertygraph.Key;
+import oracle.pgql.lang.ddl.propertygraph.Label;
+import oracle.pgql.lang.ddl.propertygraph.Property;
+import oracle.pgql.lang.ddl.propertygraph.VertexTable;
+import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.DerivedTable;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.GroupBy;
+import oracle.pgql.lang.ir.OptionalGraphPattern;
+import oracle.pgql.lang.ir.OrderBy;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.PathFindingGoal;
+import oracle.pgql.lang.ir.PathMode;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.Projection;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.AllProperties;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.ConcatExpression;
+import oracle.pgql.lang.ir.QueryExpression.DateTimeField;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression.ExtractField;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate.InValueList;
+import oracle.pgql.lang.ir.QueryExpression.Interval;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.JsonOnNull;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.SourceDestinationPredicate;
+import oracle.pgql.lang.ir.QueryExpression.Star;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrArrayAgg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrAvg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrCount;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrJsonArrayagg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMax;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMin;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrSum;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Add;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Div;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mod;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mul;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Sub;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.UMin;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDate;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTime;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimeWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestamp;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstTimestampWithTimezone;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.And;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.GreaterEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Less;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.LessEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.NotEqual;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryType;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.StatementType;
+import oracle.pgql.lang.ir.TableExpression;
+import oracle.pgql.lang.ir.TableExpressionType;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.InsertionType;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModificationType;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerEdge;
+import oracle.pgql.lang.ir.unnest.OneRowPerMatch;
+import oracle.pgql.lang.ir.unnest.OneRowPerStep;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+import oracle.pgql.lang.ir.unnest.RowsPerMatch;
+import oracle.pgql.lang.ir.unnest.RowsPerMatchType;
+
+/**
+ * A compact binary encoding of {@link PgqlStatement}s, such that parsed statements can be stored in a file or a shared
+ * cache and loaded by another process without parsing them again.
+ *
+ * Variables (and common path expressions and vertex tables) that are referenced from multiple places are encoded once
+ * and decoded into a single instance, just like in the statement that was encoded. Strings are encoded once per
+ * statement as well.
+ *
+ * The encoding starts with a format version and a hash of the names of the constants of the IR's enums. Encodings that
+ * were produced by a different version of the IR are rejected by {@link #decode(byte[])}, in which case the statement
+ * should be parsed again.
+ */
+public final class PgqlStatementCodec {
+
+  private static final byte[] MAGIC = { 'P', 'G', 'Q', 'L' };
+
+  /**
+   * Needs to be incremented for any change to the encoding.
+   */
+  private static final int FORMAT_VERSION = 1;
+
+  private static final int ENUM_SCHEMA_HASH = enumSchemaHash(StatementType.class, QueryType.class,
+      ExpressionType.class, VariableType.class, TableExpressionType.class, Direction.class, PathFindingGoal.class,
+      PathMode.class, RowsPerMatchType.class, ModificationType.class, InsertionType.class, DateTimeField.class,
+      ExtractField.class, JsonOnNull.class);
+
+  // tags for variables, common path expressions and vertex tables
+  private static final int NULL = 0;
+
+  private static final int REFERENCE = 1;
+
+  private static final int DEFINITION = 2;
+
+  private PgqlStatementCodec() {
+  }
+
+  /**
+   * @param statement
+   *          the statement to encode
+   * @return the encoded statement
+   */
+  public static byte[] encode(PgqlStatement statement) {
+    Encoder encoder = new Encoder();
+    encoder.writeBytes(MAGIC);
+    encoder.writeUnsigned(FORMAT_VERSION);
+    encoder.writeUnsigned(ENUM_SCHEMA_HASH & 0xFFFFFFFFL);
+    encoder.statement(statement);
+    return encoder.toByteArray();
+  }
+
+  /**
+   * @param bytes
+   *          a statement that was encoded with {@link #encode(PgqlStatement)}
+   * @return the decoded statement
+   * @throws PgqlException
+   *           if the bytes are not an encoded statement or if they were encoded by an incompatible version
+   */
+  public static PgqlStatement decode(byte[] bytes) throws PgqlException {
+    Decoder decoder = new Decoder(bytes);
+    try {
+      for (byte b : MAGIC) {
+        if (decoder.readByte() != b) {
+          throw new PgqlException("Not an encoded PGQL statement");
+        }
+      }
+      long version = decoder.readUnsigned();
+      long enumSchemaHash = decoder.readUnsigned();
+      if (version != FORMAT_VERSION || enumSchemaHash != (ENUM_SCHEMA_HASH & 0xFFFFFFFFL)) {
+        throw new PgqlException("Encoded PGQL statement has an incompatible format (version " + version + ")");
+      }
+      PgqlStatement statement = decoder.statement();
+      if (decoder.position != bytes.length) {
+        throw new PgqlException("Encoded PGQL statement has trailing bytes");
+      }
+      return statement;
+    } catch (RuntimeException e) {
+      throw new PgqlException("Malformed encoded PGQL statement", e);
+    }
+  }
+
+  @SafeVarargs
+  private static int enumSchemaHash(Class<? extends Enum<?>>... enumClasses) {
+    int result = 1;
+    for (Class<? extends Enum<?>> enumClass : enumClasses) {
+      result = 31 * result + enumClass.getSimpleName().hashCode();
+      for (Enum<?> constant : enumClass.getEnumConstants()) {
+        result = 31 * result + constant.name().hashCode();
+      }
+    }
+    return result;
+  }
+
+  private static final class Encoder {
+
+    private byte[] buffer = new byte[256];
+
+    private int size;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    private final Map<Object, Integer> sharedObjects = new IdentityHashMap<>();
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, size);
+    }
+
+    private void ensureCapacity(int additionalBytes) {
+      if (size + additionalBytes > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additionalBytes));
+      }
+    }
+
+    void writeByte(int b) {
+      ensureCapacity(1);
+      buffer[size++] = (byte) b;
+    }
+
+    void writeBytes(byte[] bytes) {
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, size, bytes.length);
+      size += bytes.length;
+    }
+
+    void writeUnsigned(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7FL) != 0) {
+        buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      buffer[size++] = (byte) value;
+    }
+
+    void writeSigned(long value) {
+      writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    void writeBoolean(boolean value) {
+      writeByte(value ? 1 : 0);
+    }
+
+    void writeDouble(double value) {
+      long bits = Double.doubleToRawLongBits(value);
+      ensureCapacity(8);
+      for (int i = 0; i < 8; i++) {
+        buffer[size++] = (byte) (bits >>> (8 * i));
+      }
+    }
+
+    /**
+     * 0 for null, 1 followed by the characters for a new string, or 2 + n for the n-th string of the statement.
+     */
+    void writeString(String value) {
+      if (value == null) {
+        writeUnsigned(0);
+        return;
+      }
+      Integer index = strings.get(value);
+      if (index != null) {
+        writeUnsigned(index + 2);
+        return;
+      }
+      strings.put(value, strings.size());
+      writeUnsigned(1);
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      writeUnsigned(bytes.length);
+      writeBytes(bytes);
+    }
+
+    void writeEnum(Enum<?> value) {
+      writeUnsigned(value == null ? 0 : value.ordinal() + 1);
+    }
+
+    <T> void writeCollection(Collection<T> collection, Consumer<T> elementWriter) {
+      if (collection == null) {
+        writeUnsigned(0);
+        return;
+      }
+      writeUnsigned(collection.size() + 1);
+      for (T element : collection) {
+        elementWriter.accept(element);
+      }
+    }
+
+    void writeStrings(List<String> strings) {
+      writeCollection(strings, this::writeString);
+    }
+
+    /**
+     * @return true if the object still needs to be written, in which case it was assigned the next identifier
+     */
+    private boolean writeSharedObjectTag(Object object, int definitionTag) {
+      if (object == null) {
+        writeUnsigned(NULL);
+        return false;
+      }
+      Integer id = sharedObjects.get(object);
+      if (id != null) {
+        writeUnsigned(REFERENCE);
+        writeUnsigned(id);
+        return false;
+      }
+      writeUnsigned(definitionTag);
+      return true;
+    }
+
+    private void defineSharedObject(Object object) {
+      sharedObjects.put(object, sharedObjects.size());
+    }
+
+    void statement(PgqlStatement statement) {
+      writeEnum(statement.getStatementType());
+      switch (statement.getStatementType()) {
+        case SELECT:
+        case GRAPH_MODIFY:
+          graphQuery((GraphQuery) statement);
+          break;
+        case CREATE_PROPERTY_GRAPH:
+          createPropertyGraph((CreatePropertyGraph) statement);
+          break;
+        case CREATE_SUPER_PROPERTY_GRAPH:
+          CreateSuperPropertyGraph createSuperPropertyGraph = (CreateSuperPropertyGraph) statement;
+          writeCollection(createSuperPropertyGraph.getBaseGraphs(), this::baseGraph);
+          createPropertyGraph(createSuperPropertyGraph);
+          break;
+        case DROP_PROPERTY_GRAPH:
+          schemaQualifiedName(((DropPropertyGraph) statement).getGraphName());
+          break;
+        case CALL:
+          CallStatement callStatement = (CallStatement) statement;
+          writeString(callStatement.getSchemaName());
+          writeString(callStatement.getPackageName());
+          writeString(callStatement.getRoutineName());
+          writeCollection(callStatement.getArgumentList(), this::expression);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported statement type: " + statement.getStatementType());
+      }
+    }
+
+    void graphQuery(GraphQuery query) {
+      writeEnum(query.getQueryType());
+      writeCollection(query.getCommonPathExpressions(), this::commonPathExpression);
+      schemaQualifiedName(query.getGraphName());
+      switch (query.getQueryType()) {
+        case SELECT:
+          Projection projection = ((SelectQuery) query).getProjection();
+          writeBoolean(projection.isDistinct());
+          writeCollection(projection.getElements(), this::variable);
+          break;
+        case MODIFY:
+          writeCollection(((ModifyQuery) query).getModifications(), this::modification);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported query type: " + query.getQueryType());
+      }
+      writeCollection(query.getTableExpressions(), this::tableExpression);
+      writeCollection(query.getConstraints(), this::expression);
+      GroupBy groupBy = query.getGroupBy();
+      writeCollection(groupBy == null ? null : groupBy.getElements(), this::variable);
+      expression(query.getHaving());
+      orderBy(query.getOrderBy());
+      expression(query.getLimit());
+      expression(query.getOffset());
+    }
+
+    void schemaQualifiedName(SchemaQualifiedName name) {
+      writeBoolean(name != null);
+      if (name != null) {
+        writeString(name.getSchemaName());
+        writeString(name.getName());
+      }
+    }
+
+    void orderBy(OrderBy orderBy) {
+      writeCollection(orderBy == null ? null : orderBy.getElements(), orderByElem -> {
+        expression(orderByElem.getExp());
+        writeBoolean(orderByElem.isAscending());
+      });
+    }
+
+    void commonPathExpression(CommonPathExpression commonPathExpression) {
+      if (!writeSharedObjectTag(commonPathExpression, DEFINITION)) {
+        return;
+      }
+      defineSharedObject(commonPathExpression);
+      writeString(commonPathExpression.getName());
+      writeCollection(commonPathExpression.getVertices(), this::variable);
+      writeCollection(commonPathExpression.getConnections(), this::variable);
+      writeCollection(commonPathExpression.getConstraints(), this::expression);
+      expression(commonPathExpression.getCost());
+    }
+
+    void tableExpression(TableExpression tableExpression) {
+      writeEnum(tableExpression.getTableExpressionType());
+      switch (tableExpression.getTableExpressionType()) {
+        case GRAPH_PATTERN:
+        case OPTIONAL_GRAPH_PATTERN:
+          GraphPattern graphPattern = (GraphPattern) tableExpression;
+          writeCollection(graphPattern.getVertices(), this::variable);
+          writeCollection(graphPattern.getConnections(), this::variable);
+          writeCollection(graphPattern.getConstraints(), this::expression);
+          break;
+        case DERIVED_TABLE:
+          DerivedTable derivedTable = (DerivedTable) tableExpression;
+          writeBoolean(derivedTable.isLateral());
+          graphQuery(derivedTable.getQuery());
+          break;
+        default:
+          throw new IllegalArgumentException(
+              "Unsupported table expression type: " + tableExpression.getTableExpressionType());
+      }
+    }
+
+    /**
+     * A variable is defined at its first occurrence and referenced by its identifier at other occurrences.
+     */
+    void variable(QueryVariable variable) {
+      int definitionTag = variable == null ? NULL : DEFINITION + variable.getVariableType().ordinal();
+      if (!writeSharedObjectTag(variable, definitionTag)) {
+        return;
+      }
+      writeString(variable.getName());
+      writeString(variable.getUniqueName());
+      writeBoolean(variable.isAnonymous());
+      switch (variable.getVariableType()) {
+        case VERTEX:
+          defineSharedObject(variable);
+          variable(((QueryVertex) variable).getCorrelationVertexInOuterQuery());
+          break;
+        case EDGE:
+          defineSharedObject(variable);
+          QueryEdge edge = (QueryEdge) variable;
+          vertexPairConnection(edge);
+          variable(edge.getCorrelationEdgeInOuterQuery());
+          break;
+        case PATH:
+          QueryPath path = (QueryPath) variable;
+          // the common path expression is needed to create the path
+          commonPathExpression(path.getCommonPathExpression());
+          defineSharedObject(variable);
+          vertexPairConnection(path);
+          writeUnsigned(path.getMinHops());
+          writeSigned(path.getMaxHops());
+          writeEnum(path.getPathFindingGoal());
+          writeSigned(path.getKValue());
+          writeBoolean(path.getWithTies());
+          writeEnum(path.getPathMode());
+          rowsPerMatch(path.getRowsPerMatch());
+          break;
+        case EXP_AS_VAR:
+          defineSharedObject(variable);
+          ExpAsVar expAsVar = (ExpAsVar) variable;
+          expression(expAsVar.getExp());
+          writeString(expAsVar.getNameOriginText());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported variable type: " + variable.getVariableType());
+      }
+    }
+
+    private void vertexPairConnection(VertexPairConnection connection) {
+      variable(connection.getSrc());
+      variable(connection.getDst());
+      writeEnum(connection.getDirection());
+    }
+
+    void rowsPerMatch(RowsPerMatch rowsPerMatch) {
+      writeEnum(rowsPerMatch == null ? null : rowsPerMatch.getRowsPerMatchType());
+      if (rowsPerMatch == null) {
+        return;
+      }
+      switch (rowsPerMatch.getRowsPerMatchType()) {
+        case ONE_ROW_PER_MATCH:
+          break;
+        case ONE_ROW_PER_VERTEX:
+          variable(((OneRowPerVertex) rowsPerMatch).getVertex());
+          break;
+        case ONE_ROW_PER_EDGE:
+          variable(((OneRowPerEdge) rowsPerMatch).getEdge());
+          break;
+        case ONE_ROW_PER_STEP:
+          OneRowPerStep oneRowPerStep = (OneRowPerStep) rowsPerMatch;
+          variable(oneRowPerStep.getVertex1());
+          variable(oneRowPerStep.getEdge());
+          variable(oneRowPerStep.getVertex2());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported rows per match: " + rowsPerMatch.getRowsPerMatchType());
+      }
+    }
+
+    void modification(Modification modification) {
+      writeEnum(modification.getModificationType());
+      switch (modification.getModificationType()) {
+        case INSERT:
+          InsertClause insertClause = (InsertClause) modification;
+          schemaQualifiedName(insertClause.getGraphName());
+          writeCollection(insertClause.getInsertions(), this::insertion);
+          break;
+        case UPDATE:
+          writeCollection(((UpdateClause) modification).getUpdates(), update -> {
+            expression(update.getElement());
+            writeCollection(update.getSetPropertyExpressions(), this::setPropertyExpression);
+          });
+          break;
+        case DELETE:
+          writeCollection(((DeleteClause) modification).getDeletions(), this::expression);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported modification type: " + modification.getModificationType());
+      }
+    }
+
+    void insertion(Insertion insertion) {
+      writeEnum(insertion.getInsertionType());
+      switch (insertion.getInsertionType()) {
+        case VERTEX_INSERTION:
+          variable(((VertexInsertion) insertion).getVertex());
+          break;
+        case EDGE_INSERTION:
+          variable(((EdgeInsertion) insertion).getEdge());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported insertion type: " + insertion.getInsertionType());
+      }
+      AbstractInsertion abstractInsertion = (AbstractInsertion) insertion;
+      writeCollection(abstractInsertion.getLabels(), this::expression);
+      writeCollection(abstractInsertion.getProperties(), this::setPropertyExpression);
+    }
+
+    void setPropertyExpression(SetPropertyExpression setPropertyExpression) {
+      expression(setPropertyExpression.getPropertyAccess());
+      expression(setPropertyExpression.getValueExpression());
+    }
+
+    void expression(QueryExpression exp) {
+      writeEnum(exp == null ? null : exp.getExpType());
+      if (exp == null) {
+        return;
+      }
+      switch (exp.getExpType()) {
+        case INTEGER:
+          writeSigned(((ConstInteger) exp).getValue());
+          break;
+        case DECIMAL:
+          writeDouble(((ConstDecimal) exp).getValue());
+          break;
+        case STRING:
+          writeString(((ConstString) exp).getValue());
+          break;
+        case BOOLEAN:
+          writeBoolean(((ConstBoolean) exp).getValue());
+          break;
+        case DATE:
+          date(((ConstDate) exp).getValue());
+          break;
+        case TIME:
+          time(((ConstTime) exp).getValue());
+          break;
+        case TIMESTAMP:
+          timestamp(((ConstTimestamp) exp).getValue());
+          break;
+        case TIME_WITH_TIMEZONE:
+          OffsetTime offsetTime = ((ConstTimeWithTimezone) exp).getValue();
+          time(offsetTime.toLocalTime());
+          writeSigned(offsetTime.getOffset().getTotalSeconds());
+          break;
+        case TIMESTAMP_WITH_TIMEZONE:
+          OffsetDateTime offsetDateTime = ((ConstTimestampWithTimezone) exp).getValue();
+          timestamp(offsetDateTime.toLocalDateTime());
+          writeSigned(offsetDateTime.getOffset().getTotalSeconds());
+          break;
+        case INTERVAL:
+          Interval interval = (Interval) exp;
+          writeString(interval.getValue());
+          writeEnum(interval.getSingleDateTimeField());
+          break;
+        case SUB:
+        case ADD:
+        case MUL:
+        case DIV:
+        case MOD:
+        case AND:
+        case OR:
+        case EQUAL:
+        case NOT_EQUAL:
+        case GREATER:
+        case GREATER_EQUAL:
+        case LESS:
+        case LESS_EQUAL:
+        case CONCAT:
+          BinaryExpression binaryExpression = (BinaryExpression) exp;
+          expression(binaryExpression.getExp1());
+          expression(binaryExpression.getExp2());
+          break;
+        case UMIN:
+        case NOT:
+          expression(((UnaryExpression) exp).getExp());
+          break;
+        case IS_NULL:
+          expression(((IsNull) exp).getExp());
+          break;
+        case AGGR_COUNT:
+        case AGGR_MIN:
+        case AGGR_MAX:
+        case AGGR_SUM:
+        case AGGR_AVG:
+        case AGGR_ARRAY_AGG:
+          AbstractAggregation aggregation = (AbstractAggregation) exp;
+          writeBoolean(aggregation.isDistinct());
+          expression(aggregation.getExp());
+          break;
+        case AGGR_JSON_ARRAYAGG:
+          AggrJsonArrayagg jsonArrayagg = (AggrJsonArrayagg) exp;
+          expression(jsonArrayagg.getExp());
+          writeBoolean(jsonArrayagg.isFormatJson());
+          orderBy(jsonArrayagg.getOrderBy());
+          writeEnum(jsonArrayagg.getJsonOnNull());
+          writeString(jsonArrayagg.getJsonReturnType());
+          break;
+        case AGGR_LISTAGG:
+          AggrListagg listagg = (AggrListagg) exp;
+          writeBoolean(listagg.isDistinct());
+          expression(listagg.getExp());
+          writeString(listagg.getSeparator());
+          break;
+        case VARREF:
+          variable(((VarRef) exp).getVariable());
+          break;
+        case BIND_VARIABLE:
+          writeSigned(((BindVariable) exp).getParameterIndex());
+          break;
+        case STAR:
+          break;
+        case ALL_PROPERTIES:
+          AllProperties allProperties = (AllProperties) exp;
+          expression(allProperties.getVarRef());
+          writeString(allProperties.getPrefix());
+          break;
+        case SCALAR_SUBQUERY:
+        case EXISTS:
+          graphQuery(((Subquery) exp).getQuery());
+          break;
+        case DERIVED_TABLE:
+          tableExpression((DerivedTable) exp);
+          break;
+        case PROP_ACCESS:
+          PropertyAccess propertyAccess = (PropertyAccess) exp;
+          variable(propertyAccess.getVariable());
+          writeString(propertyAccess.getPropertyName());
+          break;
+        case CAST:
+          Cast cast = (Cast) exp;
+          expression(cast.getExp());
+          writeString(cast.getTargetTypeName());
+          break;
+        case FUNCTION_CALL:
+          FunctionCall functionCall = (FunctionCall) exp;
+          writeString(functionCall.getSchemaName());
+          writeString(functionCall.getPackageName());
+          writeString(functionCall.getFunctionName());
+          writeCollection(functionCall.getArgs(), this::expression);
+          break;
+        case EXTRACT_EXPRESSION:
+          ExtractExpression extractExpression = (ExtractExpression) exp;
+          writeEnum(extractExpression.getField());
+          expression(extractExpression.getExp());
+          break;
+        case IN_EXPRESSION:
+          InPredicate inPredicate = (InPredicate) exp;
+          expression(inPredicate.getExp());
+          expression(inPredicate.getInValueList());
+          break;
+        case IN_VALUE_LIST:
+          inValueList((InValueList) exp);
+          break;
+        case IF_ELSE:
+          IfElse ifElse = (IfElse) exp;
+          expression(ifElse.getExp1());
+          expression(ifElse.getExp2());
+          expression(ifElse.getExp3());
+          break;
+        case SIMPLE_CASE:
+          SimpleCase simpleCase = (SimpleCase) exp;
+          expression(simpleCase.getCaseOperand());
+          writeCollection(simpleCase.getWhenThenExps(), whenThen -> {
+            expression(whenThen.getWhen());
+            expression(whenThen.getThen());
+          });
+          expression(simpleCase.getElseExp());
+          expression(simpleCase.getIfElseRepresentation());
+          break;
+        case SUBSTRING:
+          SubstringExpression substring = (SubstringExpression) exp;
+          expression(substring.getExp());
+          expression(substring.getStartPosition());
+          expression(substring.getStringLength());
+          break;
+        case BETWEEN_PREDICATE:
+          BetweenPredicate between = (BetweenPredicate) exp;
+          expression(between.getExp1());
+          expression(between.getExp2());
+          expression(between.getExp3());
+          break;
+        case SOURCE_DESTINATION_PREDICATE:
+          SourceDestinationPredicate sourceDestinationPredicate = (SourceDestinationPredicate) exp;
+          expression(sourceDestinationPredicate.getVertexReference());
+          expression(sourceDestinationPredicate.getEdgeReference());
+          writeBoolean(sourceDestinationPredicate.isSourcePredicate());
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported expression type: " + exp.getExpType());
+      }
+    }
+
+    void inValueList(InValueList inValueList) {
+      ExpressionType elementType = inValueList.getArrayElementType();
+      writeEnum(elementType);
+      switch (elementType) {
+        case INTEGER:
+          long[] integerValues = inValueList.getIntegerValues();
+          writeUnsigned(integerValues.length);
+          for (long value : integerValues) {
+            writeSigned(value);
+          }
+          break;
+        case DECIMAL:
+          double[] decimalValues = inValueList.getDecimalValues();
+          writeUnsigned(decimalValues.length);
+          for (double value : decimalValues) {
+            writeDouble(value);
+          }
+          break;
+        case BOOLEAN:
+          boolean[] booleanValues = inValueList.getBooleanValues();
+          writeUnsigned(booleanValues.length);
+          for (boolean value : booleanValues) {
+            writeBoolean(value);
+          }
+          break;
+        case STRING:
+          writeCollection(Arrays.asList(inValueList.getStringValues()), this::writeString);
+          break;
+        case DATE:
+          writeCollection(Arrays.asList(inValueList.getDateValues()), this::date);
+          break;
+        case TIME:
+          writeCollection(Arrays.asList(inValueList.getTimeValues()), this::time);
+          break;
+        case TIMESTAMP:
+          writeCollection(Arrays.asList(inValueList.getTimestampValues()), this::timestamp);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported IN value list type: " + elementType);
+      }
+    }
+
+    void date(LocalDate date) {
+      writeSigned(date.toEpochDay());
+    }
+
+    void time(LocalTime time) {
+      writeUnsigned(time.toNanoOfDay());
+    }
+
+    void timestamp(LocalDateTime timestamp) {
+      date(timestamp.toLocalDate());
+      time(timestamp.toLocalTime());
+    }
+
+    void createPropertyGraph(CreatePropertyGraph createPropertyGraph) {
+      schemaQualifiedName(createPropertyGraph.getGraphName());
+      writeCollection(createPropertyGraph.getVertexTables(), this::vertexTable);
+      writeCollection(createPropertyGraph.getEdgeTables(), this::edgeTable);
+      writeStrings(createPropertyGraph.getOptions());
+    }
+
+    void baseGraph(BaseGraph baseGraph) {
+      schemaQualifiedName(baseGraph.getGraphName());
+      writeCollection(baseGraph.getBaseElementTables(), baseElementTable -> {
+        writeString(baseElementTable.getReferencedTableName());
+        writeString(baseElementTable.getTableAlias());
+      });
+      writeStrings(baseGraph.getAllElementTablesExcept());
+    }
+
+    /**
+     * Vertex tables are shared objects since edge tables reference them.
+     */
+    void vertexTable(VertexTable vertexTable) {
+      if (!writeSharedObjectTag(vertexTable, DEFINITION)) {
+        return;
+      }
+      defineSharedObject(vertexTable);
+      elementTable(vertexTable);
+    }
+
+    void edgeTable(EdgeTable edgeTable) {
+      elementTable(edgeTable);
+      vertexTable(edgeTable.getSourceVertexTable());
+      key(edgeTable.getEdgeSourceKey());
+      key(edgeTable.getSourceVertexKey());
+      vertexTable(edgeTable.getDestinationVertexTable());
+      key(edgeTable.getEdgeDestinationKey());
+      key(edgeTable.getDestinationVertexKey());
+    }
+
+    private void elementTable(ElementTable elementTable) {
+      schemaQualifiedName(elementTable.getTableName());
+      writeString(elementTable.getTableAlias());
+      key(elementTable.getKey());
+      writeCollection(elementTable.getLabels(), label -> {
+        writeString(label.getName());
+        writeBoolean(label.isPropertiesAreAllColumns());
+        if (label.isPropertiesAreAllColumns()) {
+          writeStrings(label.getPropertiesAreAllColumnsExcept());
+        } else {
+          writeCollection(label.getProperties(), property -> {
+            expression(property.getValueExpression());
+            writeString(property.getPropertyName());
+          });
+        }
+      });
+    }
+
+    void key(Key key) {
+      writeStrings(key == null ? null : key.getColumnNames());
+    }
+  }
+
+  private static final class Decoder {
+
+    private final byte[] bytes;
+
+    private int position;
+
+    private final List<String> strings = new ArrayList<>();
+
+    private final List<Object> sharedObjects = new ArrayList<>();
+
+    Decoder(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    byte readByte() {
+      return bytes[position++];
+    }
+
+    long readUnsigned() {
+      long result = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        byte b = bytes[position++];
+        result |= (long) (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) {
+          return result;
+        }
+      }
+      throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * Reads a number of elements (or a tag), which is validated against the number of remaining bytes such that corrupt
+     * input does not result in huge allocations.
+     */
+    int readCount() {
+      long value = readUnsigned();
+      if (value > bytes.length - position + 1) {
+        // every element takes at least one byte
+        throw new IllegalArgumentException("Malformed count: " + value);
+      }
+      return (int) value;
+    }
+
+    long readSigned() {
+      long value = readUnsigned();
+      return (value >>> 1) ^ -(value & 1);
+    }
+
+    boolean readBoolean() {
+      return readByte() != 0;
+    }
+
+    double readDouble() {
+      long bits = 0;
+      for (int i = 0; i < 8; i++) {
+        bits |= (bytes[position++] & 0xFFL) << (8 * i);
+      }
+      return Double.longBitsToDouble(bits);
+    }
+
+    String readString() {
+      long tag = readUnsigned();
+      if (tag == 0) {
+        return null;
+      } else if (tag > 1) {
+        return strings.get((int) (tag - 2));
+      }
+      int length = readCount();
+      String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      strings.add(value);
+      return value;
+    }
+
+    <E extends Enum<E>> E readEnum(E[] values) {
+      int value = (int) readUnsigned();
+      return value == 0 ? null : values[value - 1];
+    }
+
+    <T> List<T> readList(Supplier<T> elementReader) {
+      int count = readCount();
+      if (count == 0) {
+        return null;
+      }
+      List<T> result = new ArrayList<>(count - 1);
+      for (int i = 1; i < count; i++) {
+        result.add(elementReader.get());
+      }
+      return result;
+    }
+
+    <T> LinkedHashSet<T> readSet(Supplier<T> elementReader) {
+      int count = readCount();
+      if (count == 0) {
+        return null;
+      }
+      LinkedHashSet<T> result = new LinkedHashSet<>();
+      for (int i = 1; i < count; i++) {
+        result.add(elementReader.get());
+      }
+      return result;
+    }
+
+    List<String> readStrings() {
+      return readList(this::readString);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T readSharedObjectReference(int tag) {
+      if (tag == NULL) {
+        return null;
+      }
+      return (T) sharedObjects.get((int) readUnsigned());
+    }
+
+    PgqlStatement statement() {
+      StatementType statementType = readEnum(StatementType.values());
+      switch (statementType) {
+        case SELECT:
+        case GRAPH_MODIFY:
+          return graphQuery();
+        case CREATE_PROPERTY_GRAPH: {
+          CreatePropertyGraph createPropertyGraph = new CreatePropertyGraph(null, null, null);
+          createPropertyGraph(createPropertyGraph);
+          return createPropertyGraph;
+        }
+        case CREATE_SUPER_PROPERTY_GRAPH: {
+          List<BaseGraph> baseGraphs = readList(this::baseGraph);
+          CreateSuperPropertyGraph createSuperPropertyGraph = new CreateSuperPropertyGraph(null, baseGraphs, null,
+              null);
+          createPropertyGraph(createSuperPropertyGraph);
+          return createSuperPropertyGraph;
+        }
+        case DROP_PROPERTY_GRAPH:
+          return new DropPropertyGraph(schemaQualifiedName());
+        case CALL:
+          String schemaName = readString();
+          String packageName = readString();
+          String routineName = readString();
+          return new CallStatement(schemaName, packageName, routineName, readList(this::expression));
+        default:
+          throw new IllegalArgumentException("Unsupported statement type: " + statementType);
+      }
+    }
+
+    GraphQuery graphQuery() {
+      QueryType queryType = readEnum(QueryType.values());
+      List<CommonPathExpression> commonPathExpressions = readList(this::commonPathExpression);
+      SchemaQualifiedName graphName = schemaQualifiedName();
+      Projection projection = null;
+      List<Modification> modifications = null;
+      switch (queryType) {
+        case SELECT:
+          boolean distinct = readBoolean();
+          projection = new Projection(distinct, readList(() -> (ExpAsVar) variable()));
+          break;
+        case MODIFY:
+          modifications = readList(this::modification);
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported query type: " + queryType);
+      }
+      List<TableExpression> tableExpressions = readList(this::tableExpression);
+      LinkedHashSet<QueryExpression> constraints = readSet(this::expression);
+      List<ExpAsVar> groupByElements = readList(() -> (ExpAsVar) variable());
+      GroupBy groupBy = groupByElements == null ? null : new GroupBy(groupByElements);
+      QueryExpression having = expression();
+      OrderBy orderBy = orderBy();
+      QueryExpression limit = expression();
+      QueryExpression offset = expression();
+      if (queryType == QueryType.SELECT) {
+        return new SelectQuery(commonPathExpressions, projection, graphName, tableExpressions, constraints, groupBy,
+            having, orderBy, limit, offset);
+      } else {
+        return new ModifyQuery(commonPathExpressions, modifications, graphName, tableExpressions, constraints, groupBy,
+            having, orderBy, limit, offset);
+      }
+    }
+
+    SchemaQualifiedName schemaQualifiedName() {
+      if (!readBoolean()) {
+        return null;
+      }
+      String schemaName = readString();
+      return new SchemaQualifiedName(schemaName, readString());
+    }
+
+    OrderBy orderBy() {
+      List<OrderByElem> elements = readList(() -> {
+        QueryExpression exp = expression();
+        return new OrderByElem(exp, readBoolean());
+      });
+      return elements == null ? null : new OrderBy(elements);
+    }
+
+    CommonPathExpression commonPathExpression() {
+      int tag = readCount();
+      if (tag != DEFINITION) {
+        return readSharedObjectReference(tag);
+      }
+      CommonPathExpression commonPathExpression = new CommonPathExpression(null, null, null, null);
+      sharedObjects.add(commonPathExpression);
+      commonPathExpression.setName(readString());
+      commonPathExpression.setVertices(readList(() -> (QueryVertex) variable()));
+      commonPathExpression.setConnections(readList(() -> (VertexPairConnection) variable()));
+      commonPathExpression.setConstraints(readSet(this::expression));
+      commonPathExpression.setCost(expression());
+      return commonPathExpression;
+    }
+
+    TableExpression tableExpression() {
+      TableExpressionType type = readEnum(TableExpressionType.values());
+      switch (type) {
+        case GRAPH_PATTERN:
+        case OPTIONAL_GRAPH_PATTERN:
+          LinkedHashSet<QueryVertex> vertices = readSet(() -> (QueryVertex) variable());
+          LinkedHashSet<VertexPairConnection> connections = readSet(() -> (VertexPairConnection) variable());
+          LinkedHashSet<QueryExpression> constraints = readSet(this::expression);
+          return type == TableExpressionType.GRAPH_PATTERN ? new GraphPattern(vertices, connections, constraints)
+              : new OptionalGraphPattern(vertices, connections, constraints);
+        case DERIVED_TABLE:
+          boolean lateral = readBoolean();
+          return new DerivedTable((SelectQuery) graphQuery(), lateral);
+        default:
+          throw new IllegalArgumentException("Unsupported table expression type: " + type);
+      }
+    }
+
+    /**
+     * Variables are registered before their contents are read, in the same order as in which the encoder assigned
+     * identifiers.
+     */
+    QueryVariable variable() {
+      int tag = readCount();
+      if (tag < DEFINITION) {
+        return readSharedObjectReference(tag);
+      }
+      VariableType variableType = VariableType.values()[tag - DEFINITION];
+      String name = readString();
+      String uniqueName = readString();
+      boolean anonymous = readBoolean();
+      switch (variableType) {
+        case VERTEX: {
+          QueryVertex vertex = new QueryVertex(name, uniqueName, anonymous, null);
+          sharedObjects.add(vertex);
+          vertex.setCorrelationVertexInOuterQuery(variable());
+          return vertex;
+        }
+        case EDGE: {
+          QueryEdge edge = new QueryEdge(null, null, name, uniqueName, anonymous, null, null);
+          sharedObjects.add(edge);
+          vertexPairConnection(edge);
+          edge.setCorrelationEdgeInOuterQuery(variable());
+          return edge;
+        }
+        case PATH: {
+          CommonPathExpression commonPathExpression = commonPathExpression();
+          QueryPath path = new QueryPath(null, null, name, commonPathExpression, anonymous, 0, 0, null, 0, false, null,
+              null, null);
+          path.setUniqueName(uniqueName);
+          sharedObjects.add(path);
+          vertexPairConnection(path);
+          path.setMinHops(readUnsigned());
+          path.setMaxHops(readSigned());
+          path.setPathFindingGoal(readEnum(PathFindingGoal.values()));
+          path.setKValue((int) readSigned());
+          path.setWithTies(readBoolean());
+          path.setPathMode(readEnum(PathMode.values()));
+          path.setRowsPerMatch(rowsPerMatch());
+          return path;
+        }
+        case EXP_AS_VAR: {
+          ExpAsVar expAsVar = new ExpAsVar(null, name, uniqueName, anonymous, null);
+          sharedObjects.add(expAsVar);
+          expAsVar.setExp(expression());
+          expAsVar.setNameOriginText(readString());
+          return expAsVar;
+        }
+        default:
+          throw new IllegalArgumentException("Unsupported variable type: " + variableType);
+      }
+    }
+
+    private void vertexPairConnection(VertexPairConnection connection) {
+      connection.setSrc((QueryVertex) variable());
+      connection.setDst((QueryVertex) variable());
+      connection.setDirection(readEnum(Direction.values()));
+    }
+
+    RowsPerMatch rowsPerMatch() {
+      RowsPerMatchType type = readEnum(RowsPerMatchType.values());
+      if (type == null) {
+        return null;
+      }
+      switch (type) {
+        case ONE_ROW_PER_MATCH:
+          return new OneRowPerMatch();
+        case ONE_ROW_PER_VERTEX:
+          return new OneRowPerVertex((QueryVertex) variable());
+        case ONE_ROW_PER_EDGE:
+          return new OneRowPerEdge((QueryEdge) variable());
+        case ONE_ROW_PER_STEP:
+          QueryVertex vertex1 = (QueryVertex) variable();
+          QueryEdge edge = (QueryEdge) variable();
+          return new OneRowPerStep(vertex1, edge, (QueryVertex) variable());
+        default:
+          throw new IllegalArgumentException("Unsupported rows per match: " + type);
+      }
+    }
+
+    Modification modification() {
+      ModificationType type = readEnum(ModificationType.values());
+      switch (type) {
+        case INSERT:
+          SchemaQualifiedName graphName = schemaQualifiedName();
+          return new InsertClause(graphName, readList(this::insertion));
+        case UPDATE:
+          return new UpdateClause(readList(() -> {
+            VarRef element = (VarRef) expression();
+            return new Update(element, readList(this::setPropertyExpression));
+          }));
+        case DELETE:
+          return new DeleteClause(readList(() -> (VarRef) expression()));
+        default:
+          throw new IllegalArgumentException("Unsupported modification type: " + type);
+      }
+    }
+
+    Insertion insertion() {
+      InsertionType type = readEnum(InsertionType.values());
+      QueryVariable variable = variable();
+      List<QueryExpression> labels = readList(this::expression);
+      List<SetPropertyExpression> properties = readList(this::setPropertyExpression);
+      switch (type) {
+        case VERTEX_INSERTION:
+          return new VertexInsertion((QueryVertex) variable, labels, properties);
+        case EDGE_INSERTION:
+          return new EdgeInsertion((QueryEdge) variable, labels, properties);
+        default:
+          throw new IllegalArgumentException("Unsupported insertion type: " + type);
+      }
+    }
+
+    SetPropertyExpression setPropertyExpression() {
+      PropertyAccess propertyAccess = (PropertyAccess) expression();
+      return new SetPropertyExpression(propertyAccess, expression());
+    }
+
+    QueryExpression expression() {
+      ExpressionType type = readEnum(ExpressionType.values());
+      if (type == null) {
+        return null;
+      }
+      switch (type) {
+        case INTEGER:
+          return new ConstInteger(readSigned());
+        case DECIMAL:
+          return new ConstDecimal(readDouble());
+        case STRING:
+          return new ConstString(readString());
+        case BOOLEAN:
+          return new ConstBoolean(readBoolean());
+        case DATE:
+          return new ConstDate(date());
+        case TIME:
+          return new ConstTime(time());
+        case TIMESTAMP:
+          return new ConstTimestamp(timestamp());
+        case TIME_WITH_TIMEZONE: {
+          LocalTime time = time();
+          return new ConstTimeWithTimezone(OffsetTime.of(time, ZoneOffset.ofTotalSeconds((int) readSigned())));
+        }
+        case TIMESTAMP_WITH_TIMEZONE: {
+          LocalDateTime timestamp = timestamp();
+          return new ConstTimestampWithTimezone(
+              OffsetDateTime.of(timestamp, ZoneOffset.ofTotalSeconds((int) readSigned())));
+        }
+        case INTERVAL: {
+          String value = readString();
+          return new Interval(value, readEnum(DateTimeField.values()));
+        }
+        case SUB:
+          return new Sub(expression(), expression());
+        case ADD:
+          return new Add(expression(), expression());
+        case MUL:
+          return new Mul(expression(), expression());
+        case DIV:
+          return new Div(expression(), expression());
+        case MOD:
+          return new Mod(expression(), expression());
+        case AND:
+          return new And(expression(), expression());
+        case OR:
+          return new Or(expression(), expression());
+        case EQUAL:
+          return new Equal(expression(), expression());
+        case NOT_EQUAL:
+          return new NotEqual(expression(), expression());
+        case GREATER:
+          return new Greater(expression(), expression());
+        case GREATER_EQUAL:
+          return new GreaterEqual(expression(), expression());
+        case LESS:
+          return new Less(expression(), expression());
+        case LESS_EQUAL:
+          return new LessEqual(expression(), expression());
+        case CONCAT:
+          return new ConcatExpression(expression(), expression());
+        case UMIN:
+          return new UMin(expression());
+        case NOT:
+          return new Not(expression());
+        case IS_NULL:
+          return new IsNull(expression());
+        case AGGR_COUNT:
+          return new AggrCount(readBoolean(), expression());
+        case AGGR_MIN:
+          return new AggrMin(readBoolean(), expression());
+        case AGGR_MAX:
+          return new AggrMax(readBoolean(), expression());
+        case AGGR_SUM:
+          return new AggrSum(readBoolean(), expression());
+        case AGGR_AVG:
+          return new AggrAvg(readBoolean(), expression());
+        case AGGR_ARRAY_AGG:
+          return new AggrArrayAgg(readBoolean(), expression());
+        case AGGR_JSON_ARRAYAGG: {
+          QueryExpression exp = expression();
+          boolean formatJson = readBoolean();
+          OrderBy orderBy = orderBy();
+          JsonOnNull jsonOnNull = readEnum(JsonOnNull.values());
+          return new AggrJsonArrayagg(exp, formatJson, orderBy, jsonOnNull, readString());
+        }
+        case AGGR_LISTAGG: {
+          boolean distinct = readBoolean();
+          QueryExpression exp = expression();
+          return new AggrListagg(distinct, exp, readString());
+        }
+        case VARREF:
+          return new VarRef(variable());
+        case BIND_VARIABLE:
+          return new BindVariable((int) readSigned());
+        case STAR:
+          return new Star();
+        case ALL_PROPERTIES: {
+          VarRef varRef = (VarRef) expression();
+          return new AllProperties(varRef, readString());
+        }
+        case SCALAR_SUBQUERY:
+          return new ScalarSubquery((SelectQuery) graphQuery());
+        case EXISTS:
+          return new Exists((SelectQuery) graphQuery());
+        case DERIVED_TABLE:
+          return (DerivedTable) tableExpression();
+        case PROP_ACCESS: {
+          QueryVariable variable = variable();
+          return new PropertyAccess(variable, readString());
+        }
+        case CAST: {
+          QueryExpression exp = expression();
+          return new Cast(exp, readString());
+        }
+        case FUNCTION_CALL: {
+          String schemaName = readString();
+          String packageName = readString();
+          String functionName = readString();
+          return new FunctionCall(schemaName, packageName, functionName, readList(this::expression));
+        }
+        case EXTRACT_EXPRESSION: {
+          ExtractField field = readEnum(ExtractField.values());
+          return new ExtractExpression(field, expression());
+        }
+        case IN_EXPRESSION:
+          return new InPredicate(expression(), expression());
+        case IN_VALUE_LIST:
+          return inValueList();
+        case IF_ELSE:
+          return new IfElse(expression(), expression(), expression());
+        case SIMPLE_CASE: {
+          QueryExpression caseOperand = expression();
+          List<WhenThenExpression> whenThenExps = readList(() -> new WhenThenExpression(expression(), expression()));
+          QueryExpression elseExp = expression();
+          return new SimpleCase(caseOperand, whenThenExps, elseExp, (IfElse) expression());
+        }
+        case SUBSTRING:
+          return new SubstringExpression(expression(), expression(), expression());
+        case BETWEEN_PREDICATE:
+          return new BetweenPredicate(expression(), expression(), expression());
+        case SOURCE_DESTINATION_PREDICATE: {
+          VarRef vertexReference = (VarRef) expression();
+          VarRef edgeReference = (VarRef) expression();
+          return new SourceDestinationPredicate(vertexReference, edgeReference, readBoolean());
+        }
+        default:
+          throw new IllegalArgumentException("Unsupported expression type: " + type);
+      }
+    }
+
+    InValueList inValueList() {
+      ExpressionType elementType = readEnum(ExpressionType.values());
+      switch (elementType) {
+        case INTEGER: {
+          long[] values = new long[readCount()];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = readSigned();
+          }
+          return new InValueList(values);
+        }
+        case DECIMAL: {
+          double[] values = new double[readCount()];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = readDouble();
+          }
+          return new InValueList(values);
+        }
+        case BOOLEAN: {
+          boolean[] values = new boolean[readCount()];
+          for (int i = 0; i < values.length; i++) {
+            values[i] = readBoolean();
+          }
+          return new InValueList(values);
+        }
+        case STRING:
+          return new InValueList(readList(this::readString).toArray(new String[0]));
+        case DATE:
+          return new InValueList(readList(this::date).toArray(new LocalDate[0]));
+        case TIME:
+          return new InValueList(readList(this::time).toArray(new LocalTime[0]));
+        case TIMESTAMP:
+          return new InValueList(readList(this::timestamp).toArray(new LocalDateTime[0]));
+        default:
+          throw new IllegalArgumentException("Unsupported IN value list type: " + elementType);
+      }
+    }
+
+    LocalDate date() {
+      return LocalDate.ofEpochDay(readSigned());
+    }
+
+    LocalTime time() {
+      return LocalTime.ofNanoOfDay(readUnsigned());
+    }
+
+    LocalDateTime timestamp() {
+      LocalDate date = date();
+      return LocalDateTime.of(date, time());
+    }
+
+    void createPropertyGraph(CreatePropertyGraph createPropertyGraph) {
+      createPropertyGraph.setGraphName(schemaQualifiedName());
+      createPropertyGraph.setVertexTables(readList(this::vertexTable));
+      createPropertyGraph.setEdgeTables(readList(this::edgeTable));
+      createPropertyGraph.setOptions(readStrings());
+    }
+
+    BaseGraph baseGraph() {
+      SchemaQualifiedName graphName = schemaQualifiedName();
+      List<BaseElementTable> baseElementTables = readList(() -> {
+        String referencedTableName = readString();
+        return new BaseElementTable(referencedTableName, readString());
+      });
+      return new BaseGraph(graphName, baseElementTables, readStrings());
+    }
+
+    VertexTable vertexTable() {
+      int tag = readCount();
+      if (tag != DEFINITION) {
+        return readSharedObjectReference(tag);
+      }
+      int id = sharedObjects.size();
+      sharedObjects.add(null); // element tables do not reference themselves
+      SchemaQualifiedName tableName = schemaQualifiedName();
+      String tableAlias = readString();
+      Key key = key();
+      VertexTable vertexTable = new VertexTable(tableName, tableAlias, key, labels());
+      sharedObjects.set(id, vertexTable);
+      return vertexTable;
+    }
+
+    EdgeTable edgeTable() {
+      SchemaQualifiedName tableName = schemaQualifiedName();
+      String tableAlias = readString();
+      Key key = key();
+      List<Label> labels = labels();
+      VertexTable sourceVertexTable = vertexTable();
+      Key edgeSourceKey = key();
+      Key sourceVertexKey = key();
+      VertexTable destinationVertexTable = vertexTable();
+      Key edgeDestinationKey = key();
+      Key destinationVertexKey = key();
+      return new EdgeTable(tableName, tableAlias, key, sourceVertexTable, edgeSourceKey, sourceVertexKey,
+          destinationVertexTable, edgeDestinationKey, destinationVertexKey, labels);
+    }
+
+    private List<Label> labels() {
+      return readList(() -> {
+        String name = readString();
+        if (readBoolean()) {
+          return new Label(name, true, readStrings());
+        }
+        return new Label(name, readList(() -> {
+          QueryExpression valueExpression = expression();
+          return new Property(valueExpression, readString());
+        }));
+      });
+    }
+
+    Key key() {
+      List<String> columnNames = readStrings();
+      return columnNames == null ? null : new Key(columnNames);
+    }
+  }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.AllProperties;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.Constant;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.Interval;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.SourceDestinationPredicate;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryVariable;
+
+/**
+ * Hash-conses query expressions: structurally equal expressions are replaced by a single canonical instance, such that
+ * equal subexpressions are shared between expressions and between queries that are interned by the same interner.
+ * Expressions that refer to variables are only equal if they refer to the same variable instances, so interning never
+ * makes an expression refer to a variable of another query or of another scope of the same query; between queries,
+ * only subexpressions without variables (e.g. constants) are shared.
+ *
+ * The IR itself is mutable and its hashCode() methods return a constant, since expressions are modified after they
+ * are added to hash sets. Interned expressions, on the other hand, are immutable by contract: they are shared and
+ * must no longer be modified. This allows the interner to compute a structural hash code once per canonical
+ * expression (see {@link #hashCode(QueryExpression)}) and to decide whether two interned expressions are equal by
+ * comparing references. Interning an expression that contains an already interned subexpression does not visit that
+ * subexpression again.
+ *
+ * Interning replaces the subexpressions of the given expression in place. The interner is not thread-safe.
+ */
+public final class QueryExpressionInterner {
+
+  private final HashMap<Node, QueryExpression> canonicalExpressions = new HashMap<>();
+
+  private final IdentityHashMap<QueryExpression, Integer> hashCodes = new IdentityHashMap<>();
+
+  private final Replacer replacer = new Replacer();
+
+  /**
+   * Interns the expression and its subexpressions.
+   *
+   * @param expression
+   *          the expression to intern; may be null
+   * @return the canonical instance that is equal to the expression, which is either the expression itself or an
+   *         expression that was interned before
+   */
+  public QueryExpression intern(QueryExpression expression) {
+    if (expression == null) {
+      return null;
+    }
+    replacer.childHash = 1;
+    replacer.children = new ArrayList<>();
+    return replacer.replace(expression);
+  }
+
+  /**
+   * Interns all expressions of the query, including the expressions of its subqueries, and removes duplicate
+   * constraints. The query is modified in place.
+   */
+  public void intern(GraphQuery query) {
+    replacer.childHash = 1;
+    replacer.children = new ArrayList<>();
+    replacer.visit(query);
+  }
+
+  /**
+   * @return true if the expression is a canonical instance of this interner
+   */
+  public boolean isInterned(QueryExpression expression) {
+    return hashCodes.containsKey(expression);
+  }
+
+  /**
+   * @return the structural hash code of an interned expression, which is computed once when the expression is interned
+   * @throws IllegalArgumentException
+   *           if the expression was not interned by this interner
+   */
+  public int hashCode(QueryExpression expression) {
+    Integer hashCode = hashCodes.get(expression);
+    if (hashCode == null) {
+      throw new IllegalArgumentException("Expression was not interned: " + expression);
+    }
+    return hashCode;
+  }
+
+  /**
+   * @return the number of canonical expressions
+   */
+  public int size() {
+    return canonicalExpressions.size();
+  }
+
+  /**
+   * Removes all canonical expressions. Expressions that were interned before remain shared but are no longer recognized
+   * as canonical instances.
+   */
+  public void clear() {
+    canonicalExpressions.clear();
+    hashCodes.clear();
+  }
+
+  private QueryExpression canonicalize(QueryExpression expression, int hashCode, List<QueryExpression> children) {
+    Node node = new Node(expression, hashCode, children.toArray(new QueryExpression[children.size()]));
+    QueryExpression canonicalExpression = canonicalExpressions.get(node);
+    if (canonicalExpression == null) {
+      canonicalExpressions.put(node, expression);
+      hashCodes.put(expression, hashCode);
+      canonicalExpression = expression;
+    }
+    return canonicalExpression;
+  }
+
+  /**
+   * @return a hash code of the attributes of the expression that are not subexpressions; attributes that are left out
+   *         only cause hash collisions
+   */
+  private static int localHashCode(QueryExpression expression) {
+    switch (expression.getExpType()) {
+      case INTEGER:
+      case DECIMAL:
+      case STRING:
+      case BOOLEAN:
+      case DATE:
+      case TIME:
+      case TIMESTAMP:
+      case TIME_WITH_TIMEZONE:
+      case TIMESTAMP_WITH_TIMEZONE:
+        return Objects.hashCode(((Constant<?>) expression).getValue());
+      case INTERVAL:
+        return Objects.hashCode(((Interval) expression).getValue());
+      case VARREF:
+        return variableHashCode(((VarRef) expression).getVariable());
+      case PROP_ACCESS:
+        PropertyAccess propertyAccess = (PropertyAccess) expression;
+        return 31 * variableHashCode(propertyAccess.getVariable()) + Objects.hashCode(propertyAccess.getPropertyName());
+      case BIND_VARIABLE:
+        return ((BindVariable) expression).getParameterIndex();
+      case FUNCTION_CALL:
+        return Objects.hashCode(((FunctionCall) expression).getFunctionName());
+      case CAST:
+        return Objects.hashCode(((Cast) expression).getTargetTypeName());
+      default:
+        return 0;
+    }
+  }
+
+  private static int variableHashCode(QueryVariable variable) {
+    return System.identityHashCode(variable);
+  }
+
+  /**
+   * QueryVariable.equals() only compares names, so variables of different queries or scopes with the same name are
+   * equal. Expressions are only the same if they refer to the very same variables. Only the variables that an
+   * expression refers to itself are compared here, since those of its subexpressions are compared by interning the
+   * subexpressions.
+   */
+  private static boolean referToSameVariables(QueryExpression expression1, QueryExpression expression2) {
+    switch (expression1.getExpType()) {
+      case VARREF:
+        return ((VarRef) expression1).getVariable() == ((VarRef) expression2).getVariable();
+      case PROP_ACCESS:
+        return ((PropertyAccess) expression1).getVariable() == ((PropertyAccess) expression2).getVariable();
+      case ALL_PROPERTIES:
+        return referToSameVariables(((AllProperties) expression1).getVarRef(),
+            ((AllProperties) expression2).getVarRef());
+      case SOURCE_DESTINATION_PREDICATE: {
+        SourceDestinationPredicate predicate1 = (SourceDestinationPredicate) expression1;
+        SourceDestinationPredicate predicate2 = (SourceDestinationPredicate) expression2;
+        return referToSameVariables(predicate1.getVertexReference(), predicate2.getVertexReference())
+            && referToSameVariables(predicate1.getEdgeReference(), predicate2.getEdgeReference());
+      }
+      case SCALAR_SUBQUERY:
+      case EXISTS:
+      case DERIVED_TABLE:
+        return false; // subqueries define their own variables and are only shared if they are the same instance
+      default:
+        return true;
+    }
+  }
+
+  /**
+   * Interns every expression that it encounters, children first. The hash codes and canonical instances of the
+   * children are accumulated in childHash and children while the children of an expression are visited.
+   */
+  private final class Replacer extends ReplaceExpressions {
+
+    private int childHash;
+
+    private List<QueryExpression> children = new ArrayList<>();
+
+    @Override
+    protected boolean matches(QueryExpression expression) {
+      return true;
+    }
+
+    @Override
+    public QueryExpression replace(QueryExpression expression) {
+      Integer hashCode = hashCodes.get(expression);
+      if (hashCode == null) {
+        int parentChildHash = childHash;
+        List<QueryExpression> parentChildren = children;
+        childHash = 1;
+        children = new ArrayList<>();
+        expression.accept(this);
+        int localHash = 31 * expression.getExpType().ordinal() + localHashCode(expression);
+        hashCode = 31 * localHash + childHash;
+        expression = canonicalize(expression, hashCode, children);
+        childHash = parentChildHash;
+        children = parentChildren;
+      }
+      childHash = 31 * childHash + hashCode;
+      children.add(expression);
+      return expression;
+    }
+  }
+
+  private static final class Node {
+
+    private final QueryExpression expression;
+
+    private final int hashCode;
+
+    private final QueryExpression[] children; // canonical instances
+
+    Node(QueryExpression expression, int hashCode, QueryExpression[] children) {
+      this.expression = expression;
+      this.hashCode = hashCode;
+      this.children = children;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj)
+        return true;
+      if (!(obj instanceof Node))
+        return false;
+      Node other = (Node) obj;
+      if (hashCode != other.hashCode || expression.getExpType() != other.expression.getExpType()
+          || children.length != other.children.length) {
+        return false;
+      }
+      for (int i = 0; i < children.length; i++) {
+        if (children[i] != other.children[i]) {
+          return false;
+        }
+      }
+      // the subexpressions are the same instances, so equals() only compares them by reference
+      return referToSameVariables(expression, other.expression) && expression.equals(other.expression);
+    }
+  }
+}
@@ -3,6 +3,7 @@
  */
 package oracle.pgql.lang.util;
 
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -280,7 +281,7 @@ public abstract class ReplaceExpressions implements QueryExpressionVisitor {
   private Set<QueryExpression> replaceInSet(Set<QueryExpression> expressions) {
     return expressions.stream() //
         .map(this::replaceMatching) //
-        .collect(Collectors.toSet());
+        .collect(Collectors.toCollection(LinkedHashSet::new));
   }
 
   private List<QueryExpression> replaceInList(List<QueryExpression> expressions) {
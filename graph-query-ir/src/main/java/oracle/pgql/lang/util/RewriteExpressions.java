@@ -0,0 +1,678 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.util;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.DerivedTable;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.GroupBy;
+import oracle.pgql.lang.ir.OptionalGraphPattern;
+import oracle.pgql.lang.ir.OrderBy;
+import oracle.pgql.lang.ir.OrderByElem;
+import oracle.pgql.lang.ir.Projection;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.AllProperties;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ConcatExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExtractExpression;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.InPredicate;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.Subquery;
+import oracle.pgql.lang.ir.QueryExpression.SubstringExpression;
+import oracle.pgql.lang.ir.QueryExpression.TernaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.UnaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AbstractAggregation;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrArrayAgg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrAvg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrCount;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrJsonArrayagg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrListagg;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMax;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrMin;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation.AggrSum;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Add;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Div;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mod;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Mul;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Sub;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.UMin;
+import oracle.pgql.lang.ir.QueryExpression.Function.Cast;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.And;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.GreaterEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Less;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.LessEqual;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.NotEqual;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryType;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.TableExpression;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.ir.modify.AbstractInsertion;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Insertion;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+
+/**
+ * A copy-on-write variant of {@link ReplaceExpressions}. Instead of modifying the input, a rewrite returns a new query
+ * or expression in which only the ancestors of replaced expressions are copied, while every unchanged subtree is shared
+ * with the input. If nothing is replaced, the input itself is returned. This allows multiple rewritten variants of a
+ * query to coexist with the original at the cost of the changed paths only.
+ *
+ * Vertices and edges are always shared. A SELECT or GROUP BY element whose expression changes is copied, and all
+ * references to it within the same rewrite are updated to refer to the copy. The same holds for a path whose WHERE or
+ * COST expression changes, while a path macro with changed expressions is copied once and shared by the copies of the
+ * paths that use it.
+ *
+ * Implementations are not thread-safe, but {@link #replace(QueryExpression)} may call back into {@code rewrite}.
+ */
+public abstract class RewriteExpressions {
+
+  /**
+   * The variables that were copied during the current rewrite, or null if there are none.
+   */
+  private Map<QueryVariable, QueryVariable> rewrittenVariables;
+
+  /**
+   * The path macros and path patterns that were rewritten during the current rewrite, or null if there are none.
+   */
+  private Map<CommonPathExpression, CommonPathExpression> rewrittenPathExpressions;
+
+  // API
+
+  /**
+   * Check if an expression should be replaced by this operator.
+   *
+   * @param expression
+   *          A query expression.
+   * @return {@code true}, iff this expression should be replaced.
+   */
+  protected abstract boolean matches(QueryExpression expression);
+
+  /**
+   * Construct a replacement for a given expression. Only matching expressions, i.e., those where
+   * {@link #matches(QueryExpression)} returns {@code true}, are passed to this function for replacement. The given
+   * expression is part of the input and must not be modified.
+   *
+   * @param expression
+   *          The expression that is to be replaced in the query.
+   * @return A new expression that is used as the replacement.
+   */
+  public abstract QueryExpression replace(QueryExpression expression);
+
+  /**
+   * Rewrite a query without modifying it.
+   *
+   * @param query
+   *          A query.
+   * @return the rewritten query, or the given query itself if no expression was replaced
+   */
+  public GraphQuery rewrite(GraphQuery query) {
+    Map<QueryVariable, QueryVariable> outerRewrittenVariables = rewrittenVariables;
+    Map<CommonPathExpression, CommonPathExpression> outerRewrittenPathExpressions = rewrittenPathExpressions;
+    rewrittenVariables = null;
+    rewrittenPathExpressions = null;
+    try {
+      return rewriteQuery(query);
+    } finally {
+      rewrittenVariables = outerRewrittenVariables;
+      rewrittenPathExpressions = outerRewrittenPathExpressions;
+    }
+  }
+
+  /**
+   * Rewrite an expression without modifying it.
+   *
+   * @param expression
+   *          A query expression.
+   * @return the rewritten expression, or the given expression itself if nothing was replaced
+   */
+  public QueryExpression rewrite(QueryExpression expression) {
+    Map<QueryVariable, QueryVariable> outerRewrittenVariables = rewrittenVariables;
+    Map<CommonPathExpression, CommonPathExpression> outerRewrittenPathExpressions = rewrittenPathExpressions;
+    rewrittenVariables = null;
+    rewrittenPathExpressions = null;
+    try {
+      return rewriteMatching(expression);
+    } finally {
+      rewrittenVariables = outerRewrittenVariables;
+      rewrittenPathExpressions = outerRewrittenPathExpressions;
+    }
+  }
+
+  // Queries
+
+  /**
+   * Definitions are rewritten before their uses: path macros before table expressions, table expressions before GROUP
+   * BY, GROUP BY before SELECT and SELECT before HAVING and ORDER BY.
+   */
+  private GraphQuery rewriteQuery(GraphQuery query) {
+    List<CommonPathExpression> commonPathExpressions = rewriteList(query.getCommonPathExpressions(),
+        this::rewriteCommonPathExpression);
+    List<TableExpression> tableExpressions = rewriteList(query.getTableExpressions(), this::rewriteTableExpression);
+    Set<QueryExpression> constraints = rewriteSet(query.getConstraints());
+    GroupBy groupBy = rewriteGroupBy(query.getGroupBy());
+    Projection projection = null;
+    List<Modification> modifications = null;
+    boolean changed;
+    switch (query.getQueryType()) {
+      case SELECT:
+        Projection originalProjection = ((SelectQuery) query).getProjection();
+        projection = rewriteProjection(originalProjection);
+        changed = projection != originalProjection;
+        break;
+      case MODIFY:
+        List<Modification> originalModifications = ((ModifyQuery) query).getModifications();
+        modifications = rewriteList(originalModifications, this::rewriteModification);
+        changed = modifications != originalModifications;
+        break;
+      default:
+        throw new IllegalStateException("Unsupported query type: " + query.getQueryType());
+    }
+    QueryExpression having = rewriteMatching(query.getHaving());
+    OrderBy orderBy = rewriteOrderBy(query.getOrderBy());
+    QueryExpression limit = rewriteMatching(query.getLimit());
+    QueryExpression offset = rewriteMatching(query.getOffset());
+
+    if (!changed && commonPathExpressions == query.getCommonPathExpressions()
+        && tableExpressions == query.getTableExpressions() && constraints == query.getConstraints()
+        && groupBy == query.getGroupBy() && having == query.getHaving() && orderBy == query.getOrderBy()
+        && limit == query.getLimit() && offset == query.getOffset()) {
+      return query;
+    }
+    if (query.getQueryType() == QueryType.SELECT) {
+      return new SelectQuery(commonPathExpressions, projection, query.getGraphName(), tableExpressions,
+          constraints, groupBy, having, orderBy, limit, offset);
+    } else {
+      return new ModifyQuery(commonPathExpressions, modifications, query.getGraphName(), tableExpressions,
+          constraints, groupBy, having, orderBy, limit, offset);
+    }
+  }
+
+  private TableExpression rewriteTableExpression(TableExpression tableExpression) {
+    switch (tableExpression.getTableExpressionType()) {
+      case GRAPH_PATTERN:
+      case OPTIONAL_GRAPH_PATTERN: {
+        GraphPattern graphPattern = (GraphPattern) tableExpression;
+        Set<VertexPairConnection> connections = rewriteConnections(graphPattern.getConnections());
+        Set<QueryExpression> constraints = rewriteSet(graphPattern.getConstraints());
+        if (connections == graphPattern.getConnections() && constraints == graphPattern.getConstraints()) {
+          return graphPattern;
+        }
+        GraphPattern result = graphPattern instanceof OptionalGraphPattern
+            ? new OptionalGraphPattern(graphPattern.getVertices(), null, null)
+            : new GraphPattern(graphPattern.getVertices(), null, null);
+        result.setConnections(connections);
+        result.setConstraints(constraints);
+        return result;
+      }
+      case DERIVED_TABLE:
+        return (DerivedTable) rewriteSubquery((DerivedTable) tableExpression);
+      default:
+        throw new IllegalStateException(
+            "Unsupported table expression type: " + tableExpression.getTableExpressionType());
+    }
+  }
+
+  /**
+   * Returns the given connections if no path changed, or a new set otherwise.
+   */
+  private Set<VertexPairConnection> rewriteConnections(Set<VertexPairConnection> connections) {
+    Set<VertexPairConnection> result = null;
+    for (VertexPairConnection connection : connections) {
+      VertexPairConnection rewrittenConnection = rewriteConnection(connection);
+      if (result == null && rewrittenConnection != connection) {
+        result = new LinkedHashSet<>();
+        for (VertexPairConnection previousConnection : connections) {
+          if (previousConnection == connection) {
+            break;
+          }
+          result.add(previousConnection);
+        }
+      }
+      if (result != null) {
+        result.add(rewrittenConnection);
+      }
+    }
+    return result == null ? connections : result;
+  }
+
+  private VertexPairConnection rewriteConnection(VertexPairConnection connection) {
+    return connection.getVariableType() == VariableType.PATH ? rewritePath((QueryPath) connection) : connection;
+  }
+
+  private QueryPath rewritePath(QueryPath path) {
+    if (rewrittenVariables != null && rewrittenVariables.containsKey(path)) {
+      return (QueryPath) rewrittenVariables.get(path);
+    }
+    CommonPathExpression commonPathExpression = rewriteCommonPathExpression(path.getCommonPathExpression());
+    if (commonPathExpression == path.getCommonPathExpression()) {
+      return path;
+    }
+    QueryPath result = new QueryPath(path.getSrc(), path.getDst(), path.getName(), commonPathExpression,
+        path.isAnonymous(), path.getMinHops(), path.getMaxHops(), path.getPathFindingGoal(), path.getKValue(),
+        path.getWithTies(), path.getPathMode(), path.getDirection(), path.getRowsPerMatch());
+    result.setUniqueName(path.getUniqueName());
+    if (rewrittenVariables == null) {
+      rewrittenVariables = new IdentityHashMap<>();
+    }
+    rewrittenVariables.put(path, result);
+    return result;
+  }
+
+  /**
+   * A path macro that is used by multiple paths is copied only once.
+   */
+  private CommonPathExpression rewriteCommonPathExpression(CommonPathExpression commonPathExpression) {
+    if (rewrittenPathExpressions != null && rewrittenPathExpressions.containsKey(commonPathExpression)) {
+      return rewrittenPathExpressions.get(commonPathExpression);
+    }
+    List<VertexPairConnection> connections = rewriteList(commonPathExpression.getConnections(),
+        this::rewriteConnection);
+    Set<QueryExpression> constraints = rewriteSet(commonPathExpression.getConstraints());
+    QueryExpression cost = rewriteMatching(commonPathExpression.getCost());
+    if (connections == commonPathExpression.getConnections() && constraints == commonPathExpression.getConstraints()
+        && cost == commonPathExpression.getCost()) {
+      return commonPathExpression;
+    }
+    CommonPathExpression result = new CommonPathExpression(commonPathExpression.getName(),
+        commonPathExpression.getVertices(), connections, constraints, cost);
+    if (rewrittenPathExpressions == null) {
+      rewrittenPathExpressions = new IdentityHashMap<>();
+    }
+    rewrittenPathExpressions.put(commonPathExpression, result);
+    return result;
+  }
+
+  private Projection rewriteProjection(Projection projection) {
+    List<ExpAsVar> elements = rewriteList(projection.getElements(), this::rewriteExpAsVar);
+    return elements == projection.getElements() ? projection : new Projection(projection.isDistinct(), elements);
+  }
+
+  private GroupBy rewriteGroupBy(GroupBy groupBy) {
+    if (groupBy == null) {
+      return null;
+    }
+    List<ExpAsVar> elements = rewriteList(groupBy.getElements(), this::rewriteExpAsVar);
+    return elements == groupBy.getElements() ? groupBy : new GroupBy(elements);
+  }
+
+  private OrderBy rewriteOrderBy(OrderBy orderBy) {
+    if (orderBy == null) {
+      return null;
+    }
+    List<OrderByElem> elements = rewriteList(orderBy.getElements(), orderByElem -> {
+      QueryExpression exp = rewriteMatching(orderByElem.getExp());
+      return exp == orderByElem.getExp() ? orderByElem : new OrderByElem(exp, orderByElem.isAscending());
+    });
+    return elements == orderBy.getElements() ? orderBy : new OrderBy(elements);
+  }
+
+  private ExpAsVar rewriteExpAsVar(ExpAsVar expAsVar) {
+    if (rewrittenVariables != null && rewrittenVariables.containsKey(expAsVar)) {
+      // the same element is part of both GROUP BY and SELECT
+      return (ExpAsVar) rewrittenVariables.get(expAsVar);
+    }
+    QueryExpression exp = rewriteMatching(expAsVar.getExp());
+    if (exp == expAsVar.getExp()) {
+      return expAsVar;
+    }
+    ExpAsVar result = new ExpAsVar(exp, expAsVar.getName(), expAsVar.getUniqueName(), expAsVar.isAnonymous(),
+        expAsVar.getNameOriginText());
+    if (rewrittenVariables == null) {
+      rewrittenVariables = new IdentityHashMap<>();
+    }
+    rewrittenVariables.put(expAsVar, result);
+    return result;
+  }
+
+  private QueryVariable rewriteVariable(QueryVariable variable) {
+    if (rewrittenVariables == null) {
+      return variable;
+    }
+    return rewrittenVariables.getOrDefault(variable, variable);
+  }
+
+  // Modifications
+
+  private Modification rewriteModification(Modification modification) {
+    switch (modification.getModificationType()) {
+      case INSERT: {
+        InsertClause insertClause = (InsertClause) modification;
+        List<Insertion> insertions = rewriteList(insertClause.getInsertions(), this::rewriteInsertion);
+        return insertions == insertClause.getInsertions() ? insertClause
+            : new InsertClause(insertClause.getGraphName(), insertions);
+      }
+      case UPDATE: {
+        UpdateClause updateClause = (UpdateClause) modification;
+        List<Update> updates = rewriteList(updateClause.getUpdates(), update -> {
+          List<SetPropertyExpression> setPropertyExpressions = rewriteList(update.getSetPropertyExpressions(),
+              this::rewriteSetPropertyExpression);
+          return setPropertyExpressions == update.getSetPropertyExpressions() ? update
+              : new Update(update.getElement(), setPropertyExpressions);
+        });
+        return updates == updateClause.getUpdates() ? updateClause : new UpdateClause(updates);
+      }
+      case DELETE:
+        return modification;
+      default:
+        throw new IllegalStateException("Unsupported modification type: " + modification.getModificationType());
+    }
+  }
+
+  private Insertion rewriteInsertion(Insertion originalInsertion) {
+    AbstractInsertion insertion = (AbstractInsertion) originalInsertion;
+    List<QueryExpression> labels = rewriteList(insertion.getLabels(), this::rewriteMatching);
+    List<SetPropertyExpression> properties = rewriteList(insertion.getProperties(),
+        this::rewriteSetPropertyExpression);
+    if (labels == insertion.getLabels() && properties == insertion.getProperties()) {
+      return insertion;
+    }
+    switch (insertion.getInsertionType()) {
+      case VERTEX_INSERTION:
+        return new VertexInsertion(((VertexInsertion) insertion).getVertex(), labels, properties);
+      case EDGE_INSERTION:
+        return new EdgeInsertion(((EdgeInsertion) insertion).getEdge(), labels, properties);
+      default:
+        throw new IllegalStateException("Unsupported insertion type: " + insertion.getInsertionType());
+    }
+  }
+
+  private SetPropertyExpression rewriteSetPropertyExpression(SetPropertyExpression setPropertyExpression) {
+    QueryExpression valueExpression = rewriteMatching(setPropertyExpression.getValueExpression());
+    return valueExpression == setPropertyExpression.getValueExpression() ? setPropertyExpression
+        : new SetPropertyExpression(setPropertyExpression.getPropertyAccess(), valueExpression);
+  }
+
+  // Expressions
+
+  private QueryExpression rewriteMatching(QueryExpression expression) {
+    if (expression == null) {
+      return null;
+    } else if (matches(expression)) {
+      return replace(expression);
+    } else {
+      return rewriteChildren(expression);
+    }
+  }
+
+  private QueryExpression rewriteChildren(QueryExpression expression) {
+    switch (expression.getExpType()) {
+      case SUB:
+        return rewriteBinary((BinaryExpression) expression, Sub::new);
+      case ADD:
+        return rewriteBinary((BinaryExpression) expression, Add::new);
+      case MUL:
+        return rewriteBinary((BinaryExpression) expression, Mul::new);
+      case DIV:
+        return rewriteBinary((BinaryExpression) expression, Div::new);
+      case MOD:
+        return rewriteBinary((BinaryExpression) expression, Mod::new);
+      case AND:
+        return rewriteBinary((BinaryExpression) expression, And::new);
+      case OR:
+        return rewriteBinary((BinaryExpression) expression, Or::new);
+      case EQUAL:
+        return rewriteBinary((BinaryExpression) expression, Equal::new);
+      case NOT_EQUAL:
+        return rewriteBinary((BinaryExpression) expression, NotEqual::new);
+      case GREATER:
+        return rewriteBinary((BinaryExpression) expression, Greater::new);
+      case GREATER_EQUAL:
+        return rewriteBinary((BinaryExpression) expression, GreaterEqual::new);
+      case LESS:
+        return rewriteBinary((BinaryExpression) expression, Less::new);
+      case LESS_EQUAL:
+        return rewriteBinary((BinaryExpression) expression, LessEqual::new);
+      case CONCAT:
+        return rewriteBinary((BinaryExpression) expression, ConcatExpression::new);
+      case UMIN:
+        return rewriteUnary((UnaryExpression) expression, UMin::new);
+      case NOT:
+        return rewriteUnary((UnaryExpression) expression, Not::new);
+      case AGGR_COUNT:
+        return rewriteAggregation((AbstractAggregation) expression, AggrCount::new);
+      case AGGR_MIN:
+        return rewriteAggregation((AbstractAggregation) expression, AggrMin::new);
+      case AGGR_MAX:
+        return rewriteAggregation((AbstractAggregation) expression, AggrMax::new);
+      case AGGR_SUM:
+        return rewriteAggregation((AbstractAggregation) expression, AggrSum::new);
+      case AGGR_AVG:
+        return rewriteAggregation((AbstractAggregation) expression, AggrAvg::new);
+      case AGGR_ARRAY_AGG:
+        return rewriteAggregation((AbstractAggregation) expression, AggrArrayAgg::new);
+      case AGGR_LISTAGG: {
+        AggrListagg aggrListagg = (AggrListagg) expression;
+        return rewriteAggregation(aggrListagg,
+            (distinct, exp) -> new AggrListagg(distinct, exp, aggrListagg.getSeparator()));
+      }
+      case AGGR_JSON_ARRAYAGG: {
+        AggrJsonArrayagg aggrJsonArrayagg = (AggrJsonArrayagg) expression;
+        QueryExpression exp = rewriteMatching(aggrJsonArrayagg.getExp());
+        OrderBy orderBy = rewriteOrderBy(aggrJsonArrayagg.getOrderBy());
+        if (exp == aggrJsonArrayagg.getExp() && orderBy == aggrJsonArrayagg.getOrderBy()) {
+          return expression;
+        }
+        return new AggrJsonArrayagg(exp, aggrJsonArrayagg.isFormatJson(), orderBy, aggrJsonArrayagg.getJsonOnNull(),
+            aggrJsonArrayagg.getJsonReturnType());
+      }
+      case VARREF: {
+        QueryVariable variable = ((VarRef) expression).getVariable();
+        QueryVariable rewrittenVariable = rewriteVariable(variable);
+        return rewrittenVariable == variable ? expression : new VarRef(rewrittenVariable);
+      }
+      case PROP_ACCESS: {
+        PropertyAccess propertyAccess = (PropertyAccess) expression;
+        QueryVariable variable = rewriteVariable(propertyAccess.getVariable());
+        return variable == propertyAccess.getVariable() ? expression
+            : new PropertyAccess(variable, propertyAccess.getPropertyName());
+      }
+      case ALL_PROPERTIES: {
+        AllProperties allProperties = (AllProperties) expression;
+        QueryExpression varRef = rewriteChildren(allProperties.getVarRef());
+        return varRef == allProperties.getVarRef() ? expression
+            : new AllProperties((VarRef) varRef, allProperties.getPrefix());
+      }
+      case SCALAR_SUBQUERY:
+      case EXISTS:
+      case DERIVED_TABLE:
+        return rewriteSubquery((Subquery) expression);
+      case CAST: {
+        Cast cast = (Cast) expression;
+        QueryExpression exp = rewriteMatching(cast.getExp());
+        return exp == cast.getExp() ? expression : new Cast(exp, cast.getTargetTypeName());
+      }
+      case FUNCTION_CALL: {
+        FunctionCall functionCall = (FunctionCall) expression;
+        List<QueryExpression> args = rewriteList(functionCall.getArgs(), this::rewriteMatching);
+        return args == functionCall.getArgs() ? expression
+            : new FunctionCall(functionCall.getSchemaName(), functionCall.getPackageName(),
+                functionCall.getFunctionName(), args);
+      }
+      case EXTRACT_EXPRESSION: {
+        ExtractExpression extractExpression = (ExtractExpression) expression;
+        QueryExpression exp = rewriteMatching(extractExpression.getExp());
+        return exp == extractExpression.getExp() ? expression
+            : new ExtractExpression(extractExpression.getField(), exp);
+      }
+      case IN_EXPRESSION: {
+        InPredicate inPredicate = (InPredicate) expression;
+        QueryExpression exp = rewriteMatching(inPredicate.getExp());
+        QueryExpression inValueList = rewriteMatching(inPredicate.getInValueList());
+        return exp == inPredicate.getExp() && inValueList == inPredicate.getInValueList() ? expression
+            : new InPredicate(exp, inValueList);
+      }
+      case IS_NULL: {
+        IsNull isNull = (IsNull) expression;
+        QueryExpression exp = rewriteMatching(isNull.getExp());
+        return exp == isNull.getExp() ? expression : new IsNull(exp);
+      }
+      case IF_ELSE: {
+        IfElse ifElse = (IfElse) expression;
+        QueryExpression exp1 = rewriteMatching(ifElse.getExp1());
+        QueryExpression exp2 = rewriteMatching(ifElse.getExp2());
+        QueryExpression exp3 = rewriteMatching(ifElse.getExp3());
+        return exp1 == ifElse.getExp1() && exp2 == ifElse.getExp2() && exp3 == ifElse.getExp3() ? expression
+            : new IfElse(exp1, exp2, exp3);
+      }
+      case SIMPLE_CASE:
+        return rewriteSimpleCase((SimpleCase) expression);
+      case SUBSTRING: {
+        SubstringExpression substringExpression = (SubstringExpression) expression;
+        QueryExpression exp = rewriteMatching(substringExpression.getExp());
+        QueryExpression startPosition = rewriteMatching(substringExpression.getStartPosition());
+        QueryExpression stringLength = rewriteMatching(substringExpression.getStringLength());
+        return exp == substringExpression.getExp() && startPosition == substringExpression.getStartPosition()
+            && stringLength == substringExpression.getStringLength() ? expression
+                : new SubstringExpression(exp, startPosition, stringLength);
+      }
+      case BETWEEN_PREDICATE: {
+        TernaryExpression betweenPredicate = (TernaryExpression) expression;
+        QueryExpression exp1 = rewriteMatching(betweenPredicate.getExp1());
+        QueryExpression exp2 = rewriteMatching(betweenPredicate.getExp2());
+        QueryExpression exp3 = rewriteMatching(betweenPredicate.getExp3());
+        return exp1 == betweenPredicate.getExp1() && exp2 == betweenPredicate.getExp2()
+            && exp3 == betweenPredicate.getExp3() ? expression : new BetweenPredicate(exp1, exp2, exp3);
+      }
+      default:
+        // constants, intervals, bind variables, IN value lists, stars and source/destination predicates have no
+        // children that can be rewritten
+        return expression;
+    }
+  }
+
+  private QueryExpression rewriteSimpleCase(SimpleCase simpleCase) {
+    QueryExpression caseOperand = rewriteMatching(simpleCase.getCaseOperand());
+    List<WhenThenExpression> whenThenExps = rewriteList(simpleCase.getWhenThenExps(), whenThenExp -> {
+      QueryExpression when = rewriteMatching(whenThenExp.getWhen());
+      QueryExpression then = rewriteMatching(whenThenExp.getThen());
+      return when == whenThenExp.getWhen() && then == whenThenExp.getThen() ? whenThenExp
+          : new WhenThenExpression(when, then);
+    });
+    QueryExpression elseExp = rewriteMatching(simpleCase.getElseExp());
+    QueryExpression ifElseRepresentation = rewriteMatching(simpleCase.getIfElseRepresentation());
+    if (caseOperand == simpleCase.getCaseOperand() && whenThenExps == simpleCase.getWhenThenExps()
+        && elseExp == simpleCase.getElseExp() && ifElseRepresentation == simpleCase.getIfElseRepresentation()) {
+      return simpleCase;
+    }
+    return new SimpleCase(caseOperand, whenThenExps, elseExp, (IfElse) ifElseRepresentation);
+  }
+
+  private QueryExpression rewriteSubquery(Subquery subquery) {
+    SelectQuery query = (SelectQuery) rewriteQuery(subquery.getQuery());
+    if (query == subquery.getQuery()) {
+      return subquery;
+    }
+    switch (subquery.getExpType()) {
+      case SCALAR_SUBQUERY:
+        return new ScalarSubquery(query);
+      case EXISTS:
+        return new Exists(query);
+      case DERIVED_TABLE:
+        return new DerivedTable(query, ((DerivedTable) subquery).isLateral());
+      default:
+        throw new IllegalStateException("Unsupported subquery type: " + subquery.getExpType());
+    }
+  }
+
+  // General rewrite functions
+
+  private QueryExpression rewriteUnary(UnaryExpression unaryExpression,
+      Function<QueryExpression, QueryExpression> constructor) {
+    QueryExpression exp = rewriteMatching(unaryExpression.getExp());
+    return exp == unaryExpression.getExp() ? unaryExpression : constructor.apply(exp);
+  }
+
+  private QueryExpression rewriteBinary(BinaryExpression binaryExpression,
+      BiFunction<QueryExpression, QueryExpression, QueryExpression> constructor) {
+    QueryExpression exp1 = rewriteMatching(binaryExpression.getExp1());
+    QueryExpression exp2 = rewriteMatching(binaryExpression.getExp2());
+    return exp1 == binaryExpression.getExp1() && exp2 == binaryExpression.getExp2() ? binaryExpression
+        : constructor.apply(exp1, exp2);
+  }
+
+  private QueryExpression rewriteAggregation(AbstractAggregation aggregation,
+      BiFunction<Boolean, QueryExpression, QueryExpression> constructor) {
+    QueryExpression exp = rewriteMatching(aggregation.getExp());
+    return exp == aggregation.getExp() ? aggregation : constructor.apply(aggregation.isDistinct(), exp);
+  }
+
+  /**
+   * Returns the given set if no element changed, or a new set otherwise.
+   */
+  private Set<QueryExpression> rewriteSet(Set<QueryExpression> expressions) {
+    LinkedHashSet<QueryExpression> result = null;
+    for (QueryExpression expression : expressions) {
+      QueryExpression rewrittenExpression = rewriteMatching(expression);
+      if (result == null && rewrittenExpression != expression) {
+        result = new LinkedHashSet<>();
+        for (QueryExpression previousExpression : expressions) {
+          if (previousExpression == expression) {
+            break;
+          }
+          result.add(previousExpression);
+        }
+      }
+      if (result != null) {
+        result.add(rewrittenExpression);
+      }
+    }
+    return result == null ? expressions : result;
+  }
+
+  /**
+   * Returns the given list if no element changed, or a new list otherwise.
+   */
+  private static <T> List<T> rewriteList(List<T> elements, UnaryOperator<T> rewriter) {
+    if (elements == null) {
+      return null;
+    }
+    List<T> result = null;
+    for (int i = 0; i < elements.size(); i++) {
+      T element = elements.get(i);
+      T rewrittenElement = rewriter.apply(element);
+      if (result == null && rewrittenElement != element) {
+        result = new ArrayList<>(elements.size());
+        result.addAll(elements.subList(0, i));
+      }
+      if (result != null) {
+        result.add(rewrittenElement);
+      }
+    }
+    return result == null ? elements : result;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * Measures parsing queries that only differ in their literals, such that a cache keyed on the query string is never
+ * hit, with and without automatic parameterization (see {@link Pgql#setAutoParameterize(boolean)}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AutoParameterizationBenchmark {
+
+  private static final String QUERY_PREFIX = "SELECT n.firstName, m.name FROM MATCH (n:Person) -[e:studyAt]-> "
+      + "(m:University) WHERE n.firstName <> 'Alice' AND n.numericProp > ";
+
+  @Param({ "NONE", "SMALL" })
+  public BenchmarkSchema schema;
+
+  private AbstractMetadataProvider metadataProvider;
+
+  private Pgql cachedPgql;
+
+  private Pgql parameterizingPgql;
+
+  private long literal = 0;
+
+  @Setup
+  public void setup() throws Exception {
+    metadataProvider = schema.createMetadataProvider();
+    cachedPgql = new Pgql(new PgqlResultCache(16));
+    parameterizingPgql = new Pgql(new PgqlResultCache(16));
+    parameterizingPgql.setAutoParameterize(true);
+  }
+
+  @TearDown
+  public void tearDown() {
+    cachedPgql.close();
+    parameterizingPgql.close();
+  }
+
+  @Benchmark
+  public PgqlResult parseWithResultCache() throws PgqlException {
+    return cachedPgql.parse(QUERY_PREFIX + literal++, metadataProvider);
+  }
+
+  @Benchmark
+  public PgqlResult parseWithAutoParameterization() throws PgqlException {
+    return parameterizingPgql.parse(QUERY_PREFIX + literal++, metadataProvider);
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import oracle.pgql.lang.metadata.BinaryOperation;
+import oracle.pgql.lang.metadata.EdgeLabel;
+import oracle.pgql.lang.metadata.GraphSchema;
+import oracle.pgql.lang.metadata.Property;
+import oracle.pgql.lang.metadata.UnaryOperation;
+import oracle.pgql.lang.metadata.VertexLabel;
+
+/**
+ * Metadata provider for the benchmark queries (see {@link BenchmarkQuery}). Next to the labels that are used in the
+ * queries, the graph schema has a configurable number of additional labels so that the effect of the size of the graph
+ * schema can be measured.
+ */
+public class BenchmarkMetadataProvider extends AbstractMetadataProvider {
+
+  private static final List<String> NUMERIC_TYPES = Arrays.asList("INTEGER", "LONG", "FLOAT", "DOUBLE");
+
+  private static final String[] PROPERTY_TYPES = { "STRING", "INTEGER", "LONG", "DOUBLE", "DATE", "BOOLEAN",
+      "TIMESTAMP" };
+
+  private final GraphSchema graphSchema;
+
+  private final Long schemaVersion;
+
+  /**
+   * @param numAdditionalLabels
+   *          the number of vertex labels and the number of edge labels to add on top of the labels used in the queries
+   * @param numPropertiesPerLabel
+   *          the number of properties of each additional label
+   * @param versioned
+   *          whether to provide a schema version, which enables caching of metadata by the parser
+   */
+  public BenchmarkMetadataProvider(int numAdditionalLabels, int numPropertiesPerLabel, boolean versioned) {
+    List<VertexLabel> vertexLabels = new ArrayList<>();
+    vertexLabels.add(new VertexLabel("Person", Arrays.asList(new Property("firstName", "STRING"),
+        new Property("dob", "DATE"), new Property("numericProp", "INTEGER"))));
+    vertexLabels.add(new VertexLabel("University", Arrays.asList(new Property("name", "STRING"),
+        new Property("numericProp", "DOUBLE"))));
+
+    List<EdgeLabel> edgeLabels = new ArrayList<>();
+    edgeLabels.add(new EdgeLabel("knows", Arrays.asList(new Property("since", "DATE"))));
+    edgeLabels.add(new EdgeLabel("studyAt", Arrays.asList(new Property("since", "DATE"))));
+
+    for (int i = 0; i < numAdditionalLabels; i++) {
+      vertexLabels.add(new VertexLabel("VertexLabel" + i, createProperties(i, numPropertiesPerLabel)));
+      edgeLabels.add(new EdgeLabel("EdgeLabel" + i, createProperties(i, numPropertiesPerLabel)));
+    }
+
+    this.graphSchema = new GraphSchema(vertexLabels, edgeLabels);
+    this.schemaVersion = versioned ? 1L : null;
+  }
+
+  private static List<Property> createProperties(int labelIndex, int numProperties) {
+    List<Property> properties = new ArrayList<>();
+    for (int i = 0; i < numProperties; i++) {
+      properties.add(new Property("prop" + i, PROPERTY_TYPES[(labelIndex + i) % PROPERTY_TYPES.length]));
+    }
+    return properties;
+  }
+
+  @Override
+  public Optional<GraphSchema> getGraphSchema() {
+    return Optional.of(graphSchema);
+  }
+
+  @Override
+  public Optional<Long> getSchemaVersion() {
+    return Optional.ofNullable(schemaVersion);
+  }
+
+  @Override
+  public Optional<String> getDefaultStringType() {
+    return Optional.of("STRING");
+  }
+
+  @Override
+  public Optional<String> getDefaultShortIntegerType() {
+    return Optional.of("INTEGER");
+  }
+
+  @Override
+  public Optional<String> getDefaultLongIntegerType() {
+    return Optional.of("LONG");
+  }
+
+  @Override
+  public Optional<String> getDefaultDecimalType() {
+    return Optional.of("DOUBLE");
+  }
+
+  @Override
+  public Optional<String> getUnionType(String typeA, String typeB) {
+    if (typeA.equals(typeB)) {
+      return Optional.of(typeA);
+    }
+    return getUnionTypeForNumerics(typeA, typeB);
+  }
+
+  private Optional<String> getUnionTypeForNumerics(String typeA, String typeB) {
+    int indexA = NUMERIC_TYPES.indexOf(typeA);
+    int indexB = NUMERIC_TYPES.indexOf(typeB);
+    if (indexA == -1 || indexB == -1) {
+      return Optional.empty();
+    }
+    return Optional.of(NUMERIC_TYPES.get(Math.max(indexA, indexB)));
+  }
+
+  @Override
+  public Optional<String> getOperationReturnType(UnaryOperation op, String type) {
+    switch (op) {
+      case NOT:
+        return type.equals("BOOLEAN") ? Optional.of("BOOLEAN") : Optional.empty();
+      case UMIN:
+      case SUM:
+        return NUMERIC_TYPES.contains(type) ? Optional.of(type) : Optional.empty();
+      case AVG:
+        return NUMERIC_TYPES.contains(type) ? Optional.of("DOUBLE") : Optional.empty();
+      case MIN:
+      case MAX:
+        return Optional.of(type);
+      case LISTAGG:
+        return Optional.of("STRING");
+      case ARRAY_AGG:
+        return Optional.of("ARRAY<" + type + ">");
+      default:
+        return Optional.empty();
+    }
+  }
+
+  @Override
+  public Optional<String> getOperationReturnType(BinaryOperation op, String typeA, String typeB) {
+    switch (op) {
+      case ADD:
+      case SUB:
+      case MUL:
+      case DIV:
+      case MOD:
+        return getUnionTypeForNumerics(typeA, typeB);
+      case EQUAL:
+      case NOT_EQUAL:
+      case GREATER:
+      case GREATER_EQUAL:
+      case LESS:
+      case LESS_EQUAL:
+        return getUnionType(typeA, typeB).isPresent() ? Optional.of("BOOLEAN") : Optional.empty();
+      case AND:
+      case OR:
+        return typeA.equals("BOOLEAN") && typeB.equals("BOOLEAN") ? Optional.of("BOOLEAN") : Optional.empty();
+      case STRING_CONCAT:
+        return typeA.equals("STRING") && typeB.equals("STRING") ? Optional.of("STRING") : Optional.empty();
+      default:
+        return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+/**
+ * The queries that the benchmarks are run on. The first queries are taken from the unit tests while the last queries
+ * are generated so that they are much larger than typical queries.
+ */
+public enum BenchmarkQuery {
+
+  SIMPLE("SELECT n.firstName FROM MATCH (n:Person)"),
+
+  FILTER("SELECT n.firstName, m.name FROM MATCH (n:Person) -[e:studyAt]-> (m:University) "
+      + "WHERE n.dob > DATE '2000-01-01' AND e.since < DATE '2020-01-01' ORDER BY n.firstName LIMIT 10"),
+
+  AGGREGATION("SELECT n.firstName, COUNT(*) AS cnt, AVG(m.numericProp) FROM MATCH (n:Person) -[:knows]-> (m:Person) "
+      + "GROUP BY n.firstName HAVING COUNT(*) > 1 ORDER BY cnt DESC"),
+
+  SHORTEST_PATH("SELECT ARRAY_AGG(e.since) AS dates FROM MATCH ANY SHORTEST ( (n:Person) -[e:knows]->* (m:Person) ) "
+      + "WHERE n.firstName = 'Alice' AND m.firstName = 'Bob'"),
+
+  PATH_MACRO("PATH p AS (a:Person) -[e:knows]-> (b:Person) WHERE e.since > DATE '2000-01-01' "
+      + "SELECT a.firstName, b.firstName FROM MATCH (a) -/:p*/-> (b)"),
+
+  SUBQUERY("SELECT id(n) FROM MATCH (n:Person) WHERE EXISTS ( SELECT * FROM MATCH (n) -[:knows]-> (m:Person) "
+      + "WHERE m.numericProp > n.numericProp )"),
+
+  LATERAL("SELECT * FROM MATCH (m:Person), LATERAL ( SELECT n.firstName FROM MATCH (n:Person) "
+      + "ORDER BY n.firstName LIMIT 5 ), MATCH (o:University)"),
+
+  SELECT_ALL_PROPERTIES("SELECT n.*, e.* FROM MATCH (n:Person) -[e:studyAt]-> (m:University)"),
+
+  INSERT("INSERT VERTEX v LABELS ( Person ) PROPERTIES ( v.firstName = 'Pete', v.dob = DATE '2000-01-01' ), "
+      + "EDGE e BETWEEN v AND m LABELS ( knows ) PROPERTIES ( e.since = DATE '2020-01-01' ) "
+      + "FROM MATCH (m:Person) WHERE m.firstName = 'Alice'"),
+
+  UPDATE("UPDATE n SET ( n.firstName = 'Larry' ) FROM MATCH (n:Person) WHERE n.numericProp = 3"),
+
+  LARGE_PATTERN(largePattern(32)),
+
+  LARGE_EXPRESSION(largeExpression(64)),
+
+  MANY_SUBQUERIES(manySubqueries(16));
+
+  private final String queryString;
+
+  BenchmarkQuery(String queryString) {
+    this.queryString = queryString;
+  }
+
+  public String getQueryString() {
+    return queryString;
+  }
+
+  /**
+   * A chain of vertices and edges with a filter on every vertex.
+   */
+  private static String largePattern(int numEdges) {
+    StringBuilder select = new StringBuilder("SELECT v0.firstName");
+    StringBuilder match = new StringBuilder(" FROM MATCH (v0:Person)");
+    StringBuilder where = new StringBuilder(" WHERE v0.numericProp > 0");
+    for (int i = 1; i <= numEdges; i++) {
+      select.append(", v" + i + ".firstName, e" + i + ".since");
+      match.append(" -[e" + i + ":knows]-> (v" + i + ":Person)");
+      where.append(" AND v" + i + ".numericProp > v" + (i - 1) + ".numericProp");
+    }
+    return select.append(match).append(where).toString();
+  }
+
+  /**
+   * A deeply nested arithmetic and boolean expression.
+   */
+  private static String largeExpression(int numTerms) {
+    StringBuilder arithmetic = new StringBuilder("n.numericProp");
+    StringBuilder condition = new StringBuilder("n.firstName = 'name0'");
+    for (int i = 1; i < numTerms; i++) {
+      arithmetic.append(i % 2 == 0 ? " + " : " * ").append("(n.numericProp - " + i + ")");
+      condition.append(" OR n.firstName = 'name" + i + "'");
+    }
+    return "SELECT " + arithmetic + " AS x FROM MATCH (n:Person) WHERE " + condition;
+  }
+
+  /**
+   * Many scalar and EXISTS subqueries that each have their own graph pattern.
+   */
+  private static String manySubqueries(int numSubqueries) {
+    StringBuilder select = new StringBuilder("SELECT n.firstName");
+    StringBuilder where = new StringBuilder(" WHERE n.numericProp > 0");
+    for (int i = 0; i < numSubqueries; i++) {
+      select.append(", ( SELECT COUNT(*) FROM MATCH (n) -[:knows]-> (m" + i + ":Person) WHERE m" + i
+          + ".numericProp > " + i + " ) AS cnt" + i);
+      where.append(" AND EXISTS ( SELECT * FROM MATCH (n) -[:studyAt]-> (u" + i + ":University) WHERE u" + i
+          + ".name = 'university" + i + "' )");
+    }
+    return select + " FROM MATCH (n:Person)" + where;
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * The metadata that the benchmark queries are parsed with.
+ */
+public enum BenchmarkSchema {
+
+  /**
+   * No metadata provider, so no type checking based on the graph schema.
+   */
+  NONE(0, 0, false),
+
+  SMALL(0, 0, true),
+
+  LARGE(500, 50, true),
+
+  /**
+   * Like {@link #LARGE} but without a schema version, so that all metadata is translated again for every query.
+   */
+  LARGE_UNVERSIONED(500, 50, false);
+
+  private final int numAdditionalLabels;
+
+  private final int numPropertiesPerLabel;
+
+  private final boolean versioned;
+
+  BenchmarkSchema(int numAdditionalLabels, int numPropertiesPerLabel, boolean versioned) {
+    this.numAdditionalLabels = numAdditionalLabels;
+    this.numPropertiesPerLabel = numPropertiesPerLabel;
+    this.versioned = versioned;
+  }
+
+  /**
+   * @return a new metadata provider, or null for {@link #NONE}
+   */
+  public AbstractMetadataProvider createMetadataProvider() {
+    if (this == NONE) {
+      return null;
+    }
+    return new BenchmarkMetadataProvider(numAdditionalLabels, numPropertiesPerLabel, versioned);
+  }
+}
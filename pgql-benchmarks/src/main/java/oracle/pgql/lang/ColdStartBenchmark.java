@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.metaborg.parsetable.IParseTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the start-up time of the parser in a fresh JVM, as experienced by short-lived processes. Every fork runs
+ * each benchmark exactly once, without warm-up.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ColdStartBenchmark {
+
+  @Benchmark
+  public Pgql newPgql() throws PgqlException {
+    return new Pgql();
+  }
+
+  @Benchmark
+  public PgqlResult newPgqlAndFirstParse() throws PgqlException {
+    return new Pgql().parse(BenchmarkQuery.FILTER.getQueryString());
+  }
+
+  @Benchmark
+  public PgqlResult newPgqlAndFirstParseWithMetadata() throws PgqlException {
+    return new Pgql().parse(BenchmarkQuery.FILTER.getQueryString(), BenchmarkSchema.SMALL.createMetadataProvider());
+  }
+
+  @Benchmark
+  public IParseTable readTextParseTable() throws Exception {
+    return Pgql.readParseTable(Pgql.PARSE_TABLE_RESOURCE);
+  }
+
+  @Benchmark
+  public IParseTable readBinaryParseTable() throws Exception {
+    return Pgql.readParseTable(Pgql.BINARY_PARSE_TABLE_RESOURCE);
+  }
+}
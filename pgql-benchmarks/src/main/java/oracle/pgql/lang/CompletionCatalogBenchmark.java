@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.completion.PgqlCompletionCatalog;
+import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
+
+/**
+ * Measures label and property lookups in a {@link PgqlCompletionCatalog} for a graph with many properties.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompletionCatalogBenchmark {
+
+  @Param({ "100", "10000", "50000" })
+  public int numProperties;
+
+  @Param({ "prop", "prop_12", "p12x" })
+  public String prefix;
+
+  private static final int MAX_RESULTS = 100;
+
+  private PgqlCompletionCatalog catalog;
+
+  @Setup
+  public void setup() {
+    List<String> properties = new ArrayList<>();
+    for (int i = 0; i < numProperties; i++) {
+      properties.add("prop_" + i + (i % 3 == 0 ? "_x" : ""));
+    }
+
+    catalog = new PgqlCompletionCatalog(new PgqlCompletionContext() {
+
+      @Override
+      public List<String> getGraphNames() {
+        return Collections.singletonList("g");
+      }
+
+      @Override
+      public List<String> getVertexProperties(String graphName) {
+        return properties;
+      }
+
+      @Override
+      public List<String> getEdgeProperties(String graphName) {
+        return properties;
+      }
+
+      @Override
+      public List<String> getVertexLabels(String graphName) {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public List<String> getEdgeLabels(String graphName) {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public Optional<Long> getVersion() {
+        return Optional.of(0L);
+      }
+    });
+  }
+
+  @Benchmark
+  public List<String> lookupVertexProperties() {
+    return catalog.lookupVertexProperties("g", prefix, MAX_RESULTS);
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.editor.completion.PgqlCompletion;
+import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
+
+/**
+ * Measures the diagnostics and completions that an editor requests after every keystroke, with and without an editor
+ * session. The edits alternate between a query with a complete property access and the same query with the property
+ * name deleted, which requests property completions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EditorSessionBenchmark {
+
+  private static final String QUERY = BenchmarkQuery.FILTER.getQueryString();
+
+  private static final PgqlCompletionContext COMPLETION_CONTEXT = new PgqlCompletionContext() {
+
+    @Override
+    public List<String> getGraphNames() {
+      return Collections.singletonList("financialNetwork");
+    }
+
+    @Override
+    public List<String> getVertexProperties(String graphName) {
+      return Collections.singletonList("name");
+    }
+
+    @Override
+    public List<String> getEdgeProperties(String graphName) {
+      return Collections.singletonList("amount");
+    }
+
+    @Override
+    public List<String> getVertexLabels(String graphName) {
+      return Collections.singletonList("Person");
+    }
+
+    @Override
+    public List<String> getEdgeLabels(String graphName) {
+      return Collections.singletonList("knows");
+    }
+  };
+
+  private final String[] edits = new String[2];
+
+  private final int[] cursors = new int[2];
+
+  private int editIndex;
+
+  private Pgql pgql;
+
+  private PgqlEditorSession session;
+
+  @Setup
+  public void setup() throws PgqlException {
+    String propertyAccess = "SELECT n.";
+    int afterDot = QUERY.indexOf(propertyAccess) + propertyAccess.length();
+    int afterProperty = afterDot + "firstName".length();
+    edits[0] = QUERY.substring(0, afterDot) + QUERY.substring(afterProperty);
+    cursors[0] = afterDot;
+    edits[1] = QUERY;
+    cursors[1] = afterProperty;
+    pgql = new Pgql();
+    session = pgql.createEditorSession(null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pgql.close();
+  }
+
+  @Benchmark
+  public List<PgqlCompletion> keystrokeWithoutSession() throws PgqlException {
+    String queryString = nextEdit();
+    pgql.parse(queryString);
+    return pgql.complete(queryString, cursors[editIndex], COMPLETION_CONTEXT);
+  }
+
+  @Benchmark
+  public List<PgqlCompletion> keystrokeWithSession() throws PgqlException {
+    String queryString = nextEdit();
+    session.update(queryString);
+    return session.complete(queryString, cursors[editIndex], COMPLETION_CONTEXT);
+  }
+
+  private String nextEdit() {
+    editIndex = (editIndex + 1) % edits.length;
+    return edits[editIndex];
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * Measures {@link PgqlPool#parseAll(java.util.Collection, AbstractMetadataProvider, java.util.concurrent.Executor)}
+ * for a batch of queries, for an increasing number of threads. The batch consists of copies of all the benchmark
+ * queries, made unique so that the result cache (if any) is not hit.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseAllBenchmark {
+
+  @Param({ "1", "2", "4", "8", "16" })
+  public int parallelism;
+
+  @Param({ "1000" })
+  public int numQueries;
+
+  @Param({ "NONE", "LARGE_UNVERSIONED" })
+  public BenchmarkSchema schema;
+
+  private List<String> queries;
+
+  private AbstractMetadataProvider metadataProvider;
+
+  private ForkJoinPool executor;
+
+  private PgqlPool pool;
+
+  @Setup
+  public void setup() throws PgqlException {
+    BenchmarkQuery[] benchmarkQueries = BenchmarkQuery.values();
+    queries = new ArrayList<>();
+    for (int i = 0; i < numQueries; i++) {
+      queries.add("/* " + i + " */ " + benchmarkQueries[i % benchmarkQueries.length].getQueryString());
+    }
+    metadataProvider = schema.createMetadataProvider();
+    executor = new ForkJoinPool(parallelism);
+    pool = new PgqlPool(parallelism, null);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.close();
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public List<PgqlResult> parseAll() throws PgqlException {
+    return pool.parseAll(queries, metadataProvider, executor);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * Measures {@link Pgql#parse(String, AbstractMetadataProvider)} end to end, with and without the optional speed-ups,
+ * and {@link Pgql#check(String)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+  @Param
+  public BenchmarkQuery query;
+
+  @Param
+  public BenchmarkSchema schema;
+
+  private String queryString;
+
+  private AbstractMetadataProvider metadataProvider;
+
+  private CompiledGraphSchema compiledGraphSchema;
+
+  private Pgql pgql;
+
+  private Pgql prunedPgql;
+
+  private Pgql cachedPgql;
+
+  @Setup
+  public void setup() throws Exception {
+    queryString = query.getQueryString();
+    metadataProvider = schema.createMetadataProvider();
+    compiledGraphSchema = metadataProvider == null ? null : CompiledGraphSchema.compile(metadataProvider);
+    pgql = new Pgql();
+    prunedPgql = new Pgql();
+    prunedPgql.setPruneGraphSchema(true);
+    cachedPgql = new Pgql(new PgqlResultCache(16));
+  }
+
+  @TearDown
+  public void tearDown() {
+    pgql.close();
+    prunedPgql.close();
+    cachedPgql.close();
+  }
+
+  @Benchmark
+  public PgqlResult parse() throws PgqlException {
+    return pgql.parse(queryString, metadataProvider);
+  }
+
+  @Benchmark
+  public PgqlResult parseWithCompiledGraphSchema() throws PgqlException {
+    return pgql.parse(queryString, metadataProvider, compiledGraphSchema);
+  }
+
+  @Benchmark
+  public PgqlResult parseWithPrunedGraphSchema() throws PgqlException {
+    return prunedPgql.parse(queryString, metadataProvider);
+  }
+
+  /**
+   * Parses the same query over and over so that all but the first parse are cache hits, unless the metadata provider
+   * does not provide a schema version.
+   */
+  @Benchmark
+  public PgqlResult parseWithResultCache() throws PgqlException {
+    return cachedPgql.parse(queryString, metadataProvider);
+  }
+
+  /**
+   * Syntax-only check, for comparison with a full parse. The metadata provider is not used.
+   */
+  @Benchmark
+  public PgqlCheckResult check() throws PgqlException {
+    return pgql.check(queryString);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.jsglr.client.imploder.ImploderOriginTermFactory;
+import org.spoofax.jsglr2.JSGLR2Implementation;
+import org.spoofax.jsglr2.JSGLR2Result;
+import org.spoofax.jsglr2.JSGLR2Success;
+import org.spoofax.jsglr2.parseforest.IParseForest;
+import org.spoofax.terms.TermFactory;
+import org.strategoxt.lang.Context;
+
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import pgqllang.trans.get_errors_and_offsets_0_0;
+import pgqllang.trans.pgql_trans_0_0;
+import pgqllang.trans.trans;
+
+/**
+ * Measures each stage of {@link Pgql#parse(String, AbstractMetadataProvider)} in isolation, so that a regression can be
+ * attributed to a single stage. The input of every stage is the output of the previous stage, computed once during
+ * setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseStageBenchmark {
+
+  @Param
+  public BenchmarkQuery query;
+
+  @Param
+  public BenchmarkSchema schema;
+
+  private String queryString;
+
+  private AbstractMetadataProvider metadataProvider;
+
+  private JSGLR2Implementation<IParseForest, ?, ?, IStrategoTerm, ?, ?> jsglr2;
+
+  private Context context;
+
+  private IStrategoTerm parseAst;
+
+  private IStrategoTerm parseAstPlusMetadata;
+
+  private IStrategoTerm analyzedAstPlusMetadata;
+
+  private IStrategoTerm analyzedAst;
+
+  private PgqlStatement statement;
+
+  @Setup
+  public void setup() throws Exception {
+    queryString = query.getQueryString();
+    metadataProvider = schema.createMetadataProvider();
+    jsglr2 = Pgql.getParser(Pgql.getParseTable());
+    context = trans.init(new Context(new ImploderOriginTermFactory(new TermFactory())));
+
+    parseAst = jsglr2Parse();
+    parseAstPlusMetadata = addMetadata();
+    analyzedAstPlusMetadata = analysis();
+    if (errors().getSubtermCount() > 0) {
+      throw new IllegalStateException("Benchmark query has errors: " + queryString);
+    }
+    analyzedAst = MetadataToAstUtil.removeMetadata(analyzedAstPlusMetadata);
+    statement = translate();
+  }
+
+  @Benchmark
+  public IStrategoTerm jsglr2Parse() {
+    JSGLR2Result<IStrategoTerm> parseResult = jsglr2.parseResult(queryString);
+    if (!parseResult.isSuccess()) {
+      throw new IllegalStateException("Benchmark query has syntax errors: " + queryString);
+    }
+    return ((JSGLR2Success<IStrategoTerm>) parseResult).ast;
+  }
+
+  @Benchmark
+  public IStrategoTerm addMetadata() {
+    return MetadataToAstUtil.addMetadata(parseAst, metadataProvider, null, context.getFactory(), false, false);
+  }
+
+  @Benchmark
+  public IStrategoTerm analysis() {
+    return pgql_trans_0_0.instance.invoke(context, parseAstPlusMetadata);
+  }
+
+  @Benchmark
+  public IStrategoTerm errors() {
+    return get_errors_and_offsets_0_0.instance.invoke(context, analyzedAstPlusMetadata);
+  }
+
+  @Benchmark
+  public PgqlStatement translate() throws PgqlException {
+    return SpoofaxAstToGraphQuery.translate(analyzedAst);
+  }
+
+  @Benchmark
+  public String prettyPrint() {
+    return statement.toString();
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares serving a query from a {@link PgqlPersistentCache}, as after a restart, with parsing the query. The
+ * in-memory cache has size zero so that every parse goes to the persistent cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PgqlPersistentCacheBenchmark {
+
+  @Param
+  public BenchmarkQuery query;
+
+  private String queryString;
+
+  private Path directory;
+
+  private PgqlPersistentCache persistentCache;
+
+  private Pgql pgql;
+
+  private Pgql persistentlyCachedPgql;
+
+  @Setup
+  public void setup() throws Exception {
+    queryString = query.getQueryString();
+    directory = Files.createTempDirectory("pgql-persistent-cache");
+    persistentCache = new PgqlPersistentCache(directory);
+    pgql = new Pgql();
+    persistentlyCachedPgql = new Pgql(new PgqlResultCache(0, 0, persistentCache));
+    persistentlyCachedPgql.parse(queryString);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    pgql.close();
+    persistentlyCachedPgql.close();
+    persistentCache.close();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        Files.delete(file);
+      }
+    }
+    Files.delete(directory);
+  }
+
+  @Benchmark
+  public PgqlResult parse() throws PgqlException {
+    return pgql.parse(queryString);
+  }
+
+  @Benchmark
+  public PgqlResult parseWithPersistentCache() throws PgqlException {
+    return persistentlyCachedPgql.parse(queryString);
+  }
+}
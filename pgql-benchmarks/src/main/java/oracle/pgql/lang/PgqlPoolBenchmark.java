@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * Measures the throughput of concurrent parsing through a shared {@link PgqlPool}, compared to giving every thread its
+ * own {@link Pgql} instance. The difference is the contention in the pool and in the shared caches. Use JMH's -t
+ * option to vary the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PgqlPoolBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SharedState {
+
+    @Param({ "SIMPLE", "FILTER", "LARGE_PATTERN" })
+    public BenchmarkQuery query;
+
+    @Param({ "NONE", "LARGE" })
+    public BenchmarkSchema schema;
+
+    private String queryString;
+
+    private AbstractMetadataProvider metadataProvider;
+
+    private PgqlPool pool;
+
+    private PgqlPool cachedPool;
+
+    @Setup
+    public void setup() throws PgqlException {
+      queryString = query.getQueryString();
+      metadataProvider = schema.createMetadataProvider();
+      pool = new PgqlPool();
+      cachedPool = new PgqlPool(0, new PgqlResultCache(16));
+    }
+
+    @TearDown
+    public void tearDown() {
+      pool.close();
+      cachedPool.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadState {
+
+    private Pgql pgql;
+
+    @Setup
+    public void setup() throws PgqlException {
+      pgql = new Pgql();
+    }
+
+    @TearDown
+    public void tearDown() {
+      pgql.close();
+    }
+  }
+
+  @Benchmark
+  public PgqlResult pool(SharedState state) throws PgqlException {
+    return state.pool.parse(state.queryString, state.metadataProvider);
+  }
+
+  /**
+   * All threads hit the same entry of the shared result cache.
+   */
+  @Benchmark
+  public PgqlResult poolWithResultCache(SharedState state) throws PgqlException {
+    return state.cachedPool.parse(state.queryString, state.metadataProvider);
+  }
+
+  @Benchmark
+  public PgqlResult instancePerThread(SharedState state, ThreadState threadState) throws PgqlException {
+    return threadState.pgql.parse(state.queryString, state.metadataProvider);
+  }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.ir.PgqlPrinter;
+import oracle.pgql.lang.ir.PgqlStatement;
+
+/**
+ * Measures pretty-printing a statement into a String and into a {@link java.io.Writer}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PgqlPrinterBenchmark {
+
+  @Param
+  public BenchmarkQuery query;
+
+  private Pgql pgql;
+
+  private PgqlStatement statement;
+
+  @Setup
+  public void setup() throws Exception {
+    pgql = new Pgql();
+    statement = pgql.parse(query.getQueryString()).getPgqlStatement();
+  }
+
+  @TearDown
+  public void tearDown() {
+    pgql.close();
+  }
+
+  @Benchmark
+  public String printToString() {
+    return statement.toString();
+  }
+
+  @Benchmark
+  public StringWriter printToWriter() throws IOException {
+    StringWriter writer = new StringWriter();
+    PgqlPrinter.print(statement, writer);
+    return writer;
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.util.PgqlStatementCodec;
+
+/**
+ * Compares decoding a statement that was encoded with {@link PgqlStatementCodec} with parsing the statement again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PgqlStatementCodecBenchmark {
+
+  @Param
+  public BenchmarkQuery query;
+
+  private String queryString;
+
+  private Pgql pgql;
+
+  private PgqlStatement statement;
+
+  private byte[] encodedStatement;
+
+  @Setup
+  public void setup() throws Exception {
+    queryString = query.getQueryString();
+    pgql = new Pgql();
+    statement = pgql.parse(queryString).getPgqlStatement();
+    encodedStatement = PgqlStatementCodec.encode(statement);
+  }
+
+  @TearDown
+  public void tearDown() {
+    pgql.close();
+  }
+
+  @Benchmark
+  public PgqlResult parse() throws PgqlException {
+    return pgql.parse(queryString);
+  }
+
+  @Benchmark
+  public byte[] encode() {
+    return PgqlStatementCodec.encode(statement);
+  }
+
+  @Benchmark
+  public PgqlStatement decode() throws PgqlException {
+    return PgqlStatementCodec.decode(encodedStatement);
+  }
+}
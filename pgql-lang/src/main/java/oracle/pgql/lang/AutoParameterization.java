@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.spoofax.interpreter.terms.IStrategoAppl;
+import org.spoofax.interpreter.terms.IStrategoInt;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+
+/**
+ * Automatic parameterization of queries that only differ in their literals (see
+ * {@link Pgql#setAutoParameterize(boolean)}).
+ *
+ * The literals of a query are replaced with bind variables, which gives the shape of the query. The shape is parsed and
+ * analyzed like any other query, and its result is cached. The statement of a query is then obtained by translating the
+ * analyzed shape again, with constants in place of the bind variables that replaced literals.
+ *
+ * Literals are replaced based on the tokens of the query string only. Therefore, a shape is used for a signature only
+ * after the full parse of a query with that signature resulted in the same statement (see
+ * {@link Template#isVerified(String)}). The signature consists of the types of the literals and of which literals are
+ * equal, since analysis turns repeated expressions into references to the first one (e.g. {@code ORDER BY n.age + 2}
+ * after {@code SELECT n.age + 2 AS x}), comparing them while ignoring case.
+ *
+ * Verification does not cover other values of the literals, so literals whose value affects the analysis are never
+ * replaced:
+ * <ul>
+ * <li>string arguments of label predicates ({@code has_label(n, 'Person')} and the legacy
+ * {@code n.hasLabel('Person')}), which are checked against the labels of the graph schema of the metadata provider</li>
+ * <li>strings of datetime and interval literals ({@code DATE '2000-01-01'}), which are checked for valid values</li>
+ * <li>strings with {@code \'} escapes, which are rejected</li>
+ * <li>numbers of path quantifiers and of TOP k, SHORTEST k and CHEAPEST k, which are part of the path pattern</li>
+ * </ul>
+ */
+final class AutoParameterization {
+
+  // literals with more digits may not fit a long
+  private static final int MAX_INTEGER_DIGITS = 18;
+
+  private AutoParameterization() {
+  }
+
+  /**
+   * @return the shape of the query, or null if the query does not have literals that can be replaced
+   */
+  static Shape extractShape(String queryString) {
+    StringBuilder shape = new StringBuilder(queryString.length());
+    List<Literal> literals = new ArrayList<>();
+    List<Integer> slots = new ArrayList<>(); // per bind variable of the shape: literal index or -1
+    String previousToken = "";
+    int braceDepth = 0;
+    int parenthesisDepth = 0;
+    int labelPredicateDepth = -1; // the depth of the parentheses of a label predicate's arguments or -1
+    int i = 0;
+    int length = queryString.length();
+    while (i < length) {
+      char c = queryString.charAt(i);
+      int start = i;
+      if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+        shape.append(c);
+        i++;
+        continue;
+      }
+      if (c == '/' && i + 1 < length && queryString.charAt(i + 1) == '/') {
+        int end = queryString.indexOf('\n', i + 2);
+        i = end == -1 ? length : end + 1;
+        shape.append(queryString, start, i);
+        continue;
+      }
+      if (c == '/' && i + 1 < length && queryString.charAt(i + 1) == '*') {
+        int end = queryString.indexOf("*/", i + 2);
+        i = end == -1 ? length : end + 2;
+        shape.append(queryString, start, i);
+        continue;
+      }
+
+      Literal literal = null;
+      if (c == '\'') {
+        i = skipString(queryString, i);
+        String text = queryString.substring(start, i);
+        if (labelPredicateDepth == -1 && isReplaceableString(text, previousToken)) {
+          literal = new Literal(LiteralType.STRING, text);
+        }
+        previousToken = "";
+      } else if (c == '"' || c == '`') {
+        int end = queryString.indexOf(c, i + 1);
+        i = end == -1 ? length : end + 1;
+        previousToken = "";
+      } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(queryString.charAt(i + 1)))) {
+        boolean decimal = false;
+        while (i < length && isDigit(queryString.charAt(i))) {
+          i++;
+        }
+        if (i < length && queryString.charAt(i) == '.') {
+          decimal = true;
+          do {
+            i++;
+          } while (i < length && isDigit(queryString.charAt(i)));
+        }
+        boolean followedByWordPart = i < length && isWordPart(queryString.charAt(i));
+        while (i < length && isWordPart(queryString.charAt(i))) {
+          i++;
+        }
+        String text = queryString.substring(start, i);
+        if (!followedByWordPart && isReplaceableNumber(text, decimal, previousToken, braceDepth)) {
+          literal = new Literal(decimal ? LiteralType.DECIMAL : LiteralType.INTEGER, text);
+        }
+        previousToken = "";
+      } else if (isWordPart(c)) {
+        do {
+          i++;
+        } while (i < length && isWordPart(queryString.charAt(i)));
+        String word = queryString.substring(start, i).toUpperCase();
+        // properties and labels may be named TRUE or FALSE
+        boolean reference = previousToken.equals(".") || previousToken.equals(":");
+        if ((word.equals("TRUE") || word.equals("FALSE")) && !reference) {
+          literal = new Literal(LiteralType.BOOLEAN, word);
+          previousToken = "";
+        } else {
+          previousToken = word;
+        }
+      } else {
+        if (c == '?') {
+          slots.add(-1);
+        } else if (c == '{') {
+          braceDepth++;
+        } else if (c == '}') {
+          braceDepth = Math.max(0, braceDepth - 1);
+        } else if (c == '(') {
+          parenthesisDepth++;
+          if (labelPredicateDepth == -1 && isLabelPredicate(previousToken)) {
+            labelPredicateDepth = parenthesisDepth;
+          }
+        } else if (c == ')') {
+          if (parenthesisDepth == labelPredicateDepth) {
+            labelPredicateDepth = -1;
+          }
+          parenthesisDepth = Math.max(0, parenthesisDepth - 1);
+        }
+        i++;
+        previousToken = String.valueOf(c);
+      }
+
+      if (literal == null) {
+        shape.append(queryString, start, i);
+      } else {
+        shape.append('?');
+        slots.add(literals.size());
+        literals.add(literal);
+      }
+    }
+
+    if (literals.isEmpty()) {
+      return null;
+    }
+    return new Shape(shape.toString(), literals, slots);
+  }
+
+  private static int skipString(String queryString, int start) {
+    int i = start + 1;
+    while (i < queryString.length()) {
+      char c = queryString.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == '\'') {
+        if (i + 1 < queryString.length() && queryString.charAt(i + 1) == '\'') {
+          i += 2; // escaped quote
+        } else {
+          return i + 1;
+        }
+      } else {
+        i++;
+      }
+    }
+    return queryString.length();
+  }
+
+  private static boolean isReplaceableString(String text, String previousToken) {
+    if (text.length() < 2 || text.charAt(text.length() - 1) != '\'' || text.indexOf('\\') != -1) {
+      // unterminated strings and strings with Java escapes result in errors
+      return false;
+    }
+    switch (previousToken) {
+      case "DATE":
+      case "TIME":
+      case "TIMESTAMP":
+      case "INTERVAL":
+        return false; // part of a datetime literal
+      case ":":
+        return false; // label
+      default:
+        return true;
+    }
+  }
+
+  private static boolean isLabelPredicate(String previousToken) {
+    return previousToken.equals("HAS_LABEL") || previousToken.equals("HASLABEL");
+  }
+
+  private static boolean isReplaceableNumber(String text, boolean decimal, String previousToken, int braceDepth) {
+    if (braceDepth > 0) {
+      return false; // path quantifier
+    }
+    if (!decimal && text.length() > MAX_INTEGER_DIGITS) {
+      return false;
+    }
+    switch (previousToken) {
+      case "TOP":
+      case "SHORTEST":
+      case "CHEAPEST":
+        return false; // number of paths
+      case "-":
+        return false; // negative literals are folded into a single literal during analysis
+      default:
+        return true;
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isWordPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  enum LiteralType {
+    INTEGER,
+    DECIMAL,
+    STRING,
+    BOOLEAN
+  }
+
+  static final class Literal {
+
+    final LiteralType type;
+
+    final String text;
+
+    Literal(LiteralType type, String text) {
+      this.type = type;
+      this.text = text;
+    }
+
+    QueryExpression toConstant() {
+      switch (type) {
+        case INTEGER:
+          return new ConstInteger(Long.parseLong(text));
+        case DECIMAL:
+          return new ConstDecimal(Double.parseDouble(text));
+        case STRING:
+          return new ConstString(text.substring(1, text.length() - 1).replace("''", "'"));
+        case BOOLEAN:
+          return new ConstBoolean(text.equals("TRUE"));
+        default:
+          throw new IllegalStateException("Unsupported literal type: " + type);
+      }
+    }
+  }
+
+  /**
+   * A query string in which literals are replaced with bind variables.
+   */
+  static final class Shape {
+
+    private final String queryString;
+
+    private final List<Literal> literals;
+
+    private final int[] literalIndexes; // per bind variable of the shape: the index of the literal or -1
+
+    private final int[] bindVariableIndexes; // per bind variable of the shape: the index in the original query or -1
+
+    private final String signature;
+
+    Shape(String queryString, List<Literal> literals, List<Integer> slots) {
+      this.queryString = queryString;
+      this.literals = literals;
+      this.literalIndexes = new int[slots.size()];
+      this.bindVariableIndexes = new int[slots.size()];
+      int bindVariableCount = 0;
+      for (int i = 0; i < slots.size(); i++) {
+        literalIndexes[i] = slots.get(i);
+        bindVariableIndexes[i] = slots.get(i) == -1 ? bindVariableCount++ : -1;
+      }
+      // per literal its type and the index of the first literal that is equal to it
+      StringBuilder sb = new StringBuilder(literals.size() * 2);
+      Map<String, Integer> firstOccurrences = new HashMap<>();
+      for (int i = 0; i < literals.size(); i++) {
+        Literal literal = literals.get(i);
+        Integer firstOccurrence = firstOccurrences.putIfAbsent(literal.type + literal.text.toUpperCase(), i);
+        sb.append(literal.type.name().charAt(0)).append(firstOccurrence == null ? i : firstOccurrence);
+      }
+      this.signature = sb.toString();
+    }
+
+    String getQueryString() {
+      return queryString;
+    }
+
+    int getLiteralCount() {
+      return literals.size();
+    }
+
+    /**
+     * @return the types of the literals and which literals are equal (ignoring case), which together with the shape
+     *         itself determine whether a parameterized parse gives the same result as a full parse
+     */
+    String getSignature() {
+      return signature;
+    }
+
+    /**
+     * @return a constant for a bind variable that replaced a literal, or otherwise a bind variable with the index that
+     *         it has in the original query
+     */
+    QueryExpression getBindVariable(int slot, int firstParameterIndex) {
+      if (slot < 0 || slot >= literalIndexes.length) {
+        // not numbered in order of appearance; the statement will not pass verification
+        return new BindVariable(slot + firstParameterIndex);
+      }
+      int literalIndex = literalIndexes[slot];
+      if (literalIndex == -1) {
+        return new BindVariable(bindVariableIndexes[slot] + firstParameterIndex);
+      }
+      return literals.get(literalIndex).toConstant();
+    }
+  }
+
+  /**
+   * The analyzed shape of a query, from which statements are obtained for queries with the same shape.
+   */
+  static final class Template {
+
+    private final IStrategoTerm analyzedAst;
+
+    private final int firstParameterIndex;
+
+    // whether parameterized parses give the same result as full parses, per signature
+    private final ConcurrentMap<String, Boolean> verifiedSignatures = new ConcurrentHashMap<>();
+
+    Template(IStrategoTerm analyzedAst) {
+      this.analyzedAst = analyzedAst;
+      this.firstParameterIndex = getFirstParameterIndex(analyzedAst);
+    }
+
+    /**
+     * @return true or false if parameterized parses were verified to give the same or a different result than full
+     *         parses for the signature; null if not verified yet
+     */
+    Boolean isVerified(String signature) {
+      return verifiedSignatures.get(signature);
+    }
+
+    void setVerified(String signature, boolean verified) {
+      verifiedSignatures.put(signature, verified);
+    }
+
+    PgqlStatement instantiate(Shape shape) throws PgqlException {
+      return SpoofaxAstToGraphQuery.translate(analyzedAst,
+          parameterIndex -> shape.getBindVariable(parameterIndex - firstParameterIndex, firstParameterIndex));
+    }
+
+    /**
+     * Bind variables are numbered in order of appearance, starting from the lowest index in the tree.
+     */
+    private static int getFirstParameterIndex(IStrategoTerm analyzedAst) {
+      int result = Integer.MAX_VALUE;
+      Deque<IStrategoTerm> stack = new ArrayDeque<>();
+      stack.push(analyzedAst);
+      while (!stack.isEmpty()) {
+        IStrategoTerm term = stack.pop();
+        if (term instanceof IStrategoAppl && ((IStrategoAppl) term).getConstructor().getName().equals("BindVariable")
+            && term.getSubtermCount() == 1 && term.getSubterm(0) instanceof IStrategoInt) {
+          result = Math.min(result, ((IStrategoInt) term.getSubterm(0)).intValue());
+        }
+        for (int i = 0; i < term.getSubtermCount(); i++) {
+          stack.push(term.getSubterm(i));
+        }
+      }
+      return result == Integer.MAX_VALUE ? 0 : result;
+    }
+  }
+}
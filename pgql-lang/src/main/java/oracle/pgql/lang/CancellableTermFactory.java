@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.CancellationException;
+
+import org.spoofax.interpreter.terms.IStrategoAppl;
+import org.spoofax.interpreter.terms.IStrategoConstructor;
+import org.spoofax.interpreter.terms.IStrategoList;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.terms.TermFactory;
+
+/**
+ * The term factory of the Stratego context, which aborts semantic analysis once the cancellation token of the current
+ * parse is cancelled. Since every rewrite builds new terms, checking the token on term construction aborts long
+ * running analysis without changes to the Stratego code.
+ */
+class CancellableTermFactory extends TermFactory {
+
+  // checking the token is cheap but not free, so it is only checked once every so many terms
+  private static final int CHECK_INTERVAL = 1024;
+
+  private PgqlCancellationToken cancellationToken;
+
+  private int termsUntilCheck = CHECK_INTERVAL;
+
+  /**
+   * @param cancellationToken
+   *          the token of the current parse, or null if the current parse cannot be cancelled
+   */
+  void setCancellationToken(PgqlCancellationToken cancellationToken) {
+    this.cancellationToken = cancellationToken;
+    this.termsUntilCheck = CHECK_INTERVAL;
+  }
+
+  @Override
+  public IStrategoAppl makeAppl(IStrategoConstructor ctr, IStrategoTerm[] terms, IStrategoList annotations) {
+    if (cancellationToken != null && --termsUntilCheck == 0) {
+      termsUntilCheck = CHECK_INTERVAL;
+      if (cancellationToken.isCancelled()) {
+        throw new CancellationException();
+      }
+    }
+    return super.makeAppl(ctr, terms, annotations);
+  }
+}
@@ -316,7 +316,7 @@ public class CommonTranslationUtil {
         return new QueryExpression.VarRef(var);
       case "BindVariable":
         int parameterIndex = getInt(t);
-        return new QueryExpression.BindVariable(parameterIndex);
+        return ctx.getBindVariable(parameterIndex);
       case "PropRef":
         IStrategoTerm varRefT = t.getSubterm(POS_PROPREF_VARREF);
         VarRef varRef = (VarRef) translateExp(varRefT, ctx);
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+import org.spoofax.terms.TermFactory;
+
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import oracle.pgql.lang.metadata.EdgeLabel;
+import oracle.pgql.lang.metadata.GraphSchema;
+import oracle.pgql.lang.metadata.Label;
+import oracle.pgql.lang.metadata.Property;
+import oracle.pgql.lang.metadata.VertexLabel;
+
+import static oracle.pgql.lang.MetadataToAstUtil.translateLabel;
+import static oracle.pgql.lang.MetadataToAstUtil.translateLabels;
+
+/**
+ * The graph schema of a single graph, translated once into the form that the parser needs, plus hashed lookups for
+ * labels and properties.
+ *
+ * A compiled graph schema can be passed to {@link Pgql#parse(String, AbstractMetadataProvider, CompiledGraphSchema)}
+ * so that the graph schema does not need to be translated for every query. It is immutable and can be shared between
+ * threads and Pgql instances. A new compiled graph schema needs to be created whenever the graph schema changes.
+ */
+public class CompiledGraphSchema {
+
+  private final SchemaQualifiedName graphName;
+
+  private final GraphSchema graphSchema;
+
+  private final IStrategoTerm vertexLabelsTerm;
+
+  private final IStrategoTerm edgeLabelsTerm;
+
+  private final Set<String> propertyTypes;
+
+  private volatile LabelIndex labelIndex;
+
+  CompiledGraphSchema(SchemaQualifiedName graphName, Optional<GraphSchema> optionalGraphSchema, ITermFactory f) {
+    this.graphName = graphName;
+    this.graphSchema = optionalGraphSchema.orElse(null);
+
+    if (graphSchema == null) {
+      this.vertexLabelsTerm = null;
+      this.edgeLabelsTerm = null;
+      this.propertyTypes = Collections.emptySet();
+    } else {
+      Set<String> propertyTypes = new HashSet<>();
+      this.vertexLabelsTerm = translateLabels("VertexLabels", graphSchema.getVertexLabels(), f, propertyTypes);
+      this.edgeLabelsTerm = translateLabels("EdgeLabels", graphSchema.getEdgeLabels(), f, propertyTypes);
+      this.propertyTypes = Collections.unmodifiableSet(propertyTypes);
+    }
+  }
+
+  /**
+   * Compiles the schema of the default graph.
+   *
+   * @param metadataProvider
+   *          the metadata provider that provides the graph schema
+   */
+  public static CompiledGraphSchema compile(AbstractMetadataProvider metadataProvider) {
+    return compile(metadataProvider, null);
+  }
+
+  /**
+   * Compiles the schema of a graph.
+   *
+   * @param metadataProvider
+   *          the metadata provider that provides the graph schema
+   * @param graphName
+   *          the name of the graph as it appears in queries after identifier normalization (i.e. upper-cased unless
+   *          quoted), or null for the default graph
+   */
+  public static CompiledGraphSchema compile(AbstractMetadataProvider metadataProvider,
+      SchemaQualifiedName graphName) {
+    Objects.requireNonNull(metadataProvider, "metadataProvider");
+    return new CompiledGraphSchema(graphName, getGraphSchema(metadataProvider, graphName), new TermFactory());
+  }
+
+  static Optional<GraphSchema> getGraphSchema(AbstractMetadataProvider metadataProvider,
+      SchemaQualifiedName graphName) {
+    return graphName == null ? metadataProvider.getGraphSchema() : metadataProvider.getGraphSchema(graphName);
+  }
+
+  /**
+   * @return the name of the graph, or null for the default graph
+   */
+  public SchemaQualifiedName getGraphName() {
+    return graphName;
+  }
+
+  /**
+   * @return the graph schema, or empty if the metadata provider did not provide one
+   */
+  public Optional<GraphSchema> getGraphSchema() {
+    return Optional.ofNullable(graphSchema);
+  }
+
+  /**
+   * Finds a vertex label by name. Labels that match exactly have precedence over labels that only match after
+   * upper-casing.
+   */
+  public Optional<VertexLabel> getVertexLabel(String label) {
+    return Optional.ofNullable(getLabelIndex().vertexLabels.get(label));
+  }
+
+  /**
+   * Finds an edge label by name. Labels that match exactly have precedence over labels that only match after
+   * upper-casing.
+   */
+  public Optional<EdgeLabel> getEdgeLabel(String label) {
+    return Optional.ofNullable(getLabelIndex().edgeLabels.get(label));
+  }
+
+  /**
+   * Finds a property of a label by name. Properties that match exactly have precedence over properties that only match
+   * after upper-casing.
+   */
+  public Optional<Property> getProperty(Label label, String propertyName) {
+    PropertyIndex properties = getLabelIndex().properties.get(label);
+    return properties == null ? Optional.empty() : Optional.ofNullable(properties.get(propertyName));
+  }
+
+  boolean isSchemaFor(SchemaQualifiedName graphName) {
+    return Objects.equals(this.graphName, graphName);
+  }
+
+  boolean hasGraphSchema() {
+    return graphSchema != null;
+  }
+
+  IStrategoTerm getVertexLabelsTerm() {
+    return vertexLabelsTerm;
+  }
+
+  IStrategoTerm getEdgeLabelsTerm() {
+    return edgeLabelsTerm;
+  }
+
+  Set<String> getPropertyTypes() {
+    return propertyTypes;
+  }
+
+  /**
+   * Same as {@link #getVertexLabelsTerm()} but only includes properties that may be referenced through one of the
+   * given names, i.e. properties for which either the name or the upper-cased name is in the set. All labels are
+   * included since label names are needed for checking label references.
+   */
+  IStrategoTerm getVertexLabelsTerm(Set<String> referencedNames, ITermFactory f) {
+    return translatePrunedLabels("VertexLabels", graphSchema.getVertexLabels(), referencedNames, f);
+  }
+
+  /**
+   * Same as {@link #getEdgeLabelsTerm()} but only includes properties that may be referenced through one of the given
+   * names.
+   */
+  IStrategoTerm getEdgeLabelsTerm(Set<String> referencedNames, ITermFactory f) {
+    return translatePrunedLabels("EdgeLabels", graphSchema.getEdgeLabels(), referencedNames, f);
+  }
+
+  private IStrategoTerm translatePrunedLabels(String constructorName, List<? extends Label> labels,
+      Set<String> referencedNames, ITermFactory f) {
+    Map<Label, PropertyIndex> propertyIndexes = getLabelIndex().properties;
+    List<IStrategoTerm> labelTerms = new ArrayList<>(labels.size());
+    for (Label label : labels) {
+      List<Property> properties = propertyIndexes.get(label).getReferencedProperties(referencedNames);
+      labelTerms.add(translateLabel(label.getLabel(), properties, f));
+    }
+    return f.makeAppl(constructorName, f.makeList(labelTerms));
+  }
+
+  private LabelIndex getLabelIndex() {
+    LabelIndex result = labelIndex;
+    if (result == null) {
+      // the index is only needed for lookups so we only build it on first use; building it twice is harmless
+      result = new LabelIndex(graphSchema);
+      labelIndex = result;
+    }
+    return result;
+  }
+
+  private static class LabelIndex {
+
+    private final NameIndex<VertexLabel> vertexLabels = new NameIndex<>();
+
+    private final NameIndex<EdgeLabel> edgeLabels = new NameIndex<>();
+
+    private final Map<Label, PropertyIndex> properties = new IdentityHashMap<>();
+
+    LabelIndex(GraphSchema graphSchema) {
+      if (graphSchema == null) {
+        return;
+      }
+      for (VertexLabel vertexLabel : graphSchema.getVertexLabels()) {
+        vertexLabels.add(vertexLabel.getLabel(), vertexLabel);
+        properties.put(vertexLabel, new PropertyIndex(vertexLabel.getProperties()));
+      }
+      for (EdgeLabel edgeLabel : graphSchema.getEdgeLabels()) {
+        edgeLabels.add(edgeLabel.getLabel(), edgeLabel);
+        properties.put(edgeLabel, new PropertyIndex(edgeLabel.getProperties()));
+      }
+    }
+  }
+
+  private static class NameIndex<T> {
+
+    private final Map<String, T> exactNames = new HashMap<>();
+
+    private final Map<String, T> upperCaseNames = new HashMap<>();
+
+    void add(String name, T value) {
+      exactNames.putIfAbsent(name, value);
+      upperCaseNames.putIfAbsent(name.toUpperCase(), value);
+    }
+
+    T get(String name) {
+      T result = exactNames.get(name);
+      return result == null ? upperCaseNames.get(name.toUpperCase()) : result;
+    }
+  }
+
+  private static class PropertyIndex {
+
+    private final List<Property> properties;
+
+    private final NameIndex<Integer> positions = new NameIndex<>();
+
+    // all positions per upper-cased name, in ascending order
+    private final Map<String, List<Integer>> upperCasePositions = new HashMap<>();
+
+    PropertyIndex(List<Property> properties) {
+      this.properties = properties;
+      for (int i = 0; i < properties.size(); i++) {
+        String name = properties.get(i).getName();
+        positions.add(name, i);
+        upperCasePositions.computeIfAbsent(name.toUpperCase(), k -> new ArrayList<>()).add(i);
+      }
+    }
+
+    Property get(String name) {
+      Integer position = positions.get(name);
+      return position == null ? null : properties.get(position);
+    }
+
+    /**
+     * @return the properties for which the name or the upper-cased name is in the set of names, in schema order
+     */
+    List<Property> getReferencedProperties(Set<String> referencedNames) {
+      TreeSet<Integer> result = new TreeSet<>();
+      for (String name : referencedNames) {
+        Integer exactPosition = positions.exactNames.get(name);
+        if (exactPosition != null) {
+          result.add(exactPosition);
+        }
+        List<Integer> upperCaseMatches = upperCasePositions.get(name);
+        if (upperCaseMatches != null) {
+          result.addAll(upperCaseMatches);
+        }
+      }
+      List<Property> referencedProperties = new ArrayList<>(result.size());
+      for (int position : result) {
+        referencedProperties.add(properties.get(position));
+      }
+      return referencedProperties;
+    }
+  }
+}
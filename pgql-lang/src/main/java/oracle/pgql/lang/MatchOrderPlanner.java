@@ -0,0 +1,597 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import oracle.pgql.lang.MatchPlan.Step;
+import oracle.pgql.lang.MatchPlan.StepType;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.PathFindingGoal;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BetweenPredicate;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstBoolean;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstDecimal;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.IsNull;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Not;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QuerySummary;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.ir.VertexPairConnection;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import oracle.pgql.lang.metadata.PropertyStatistics;
+import oracle.pgql.lang.util.AbstractQueryTraversal;
+
+/**
+ * Plans the order in which the vertices and connections of the graph patterns of a query are matched, based on the
+ * statistics of a metadata provider: vertex and edge counts per label, average degrees per edge label and direction,
+ * and property statistics for estimating the selectivity of filters. Statistics that the provider does not provide
+ * are replaced by defaults, so a plan is produced with or without statistics.
+ *
+ * The planner is greedy: it starts from the vertex with the fewest estimated matches and then repeatedly follows the
+ * edge or path that leads to the fewest estimated rows, starting a new SCAN only if no connection is reachable from
+ * the bound vertices. Filters are applied as soon as all the vertices and edges of the pattern that they refer to are
+ * bound. The cost of a plan is the sum of the estimated number of rows after each step.
+ */
+public class MatchOrderPlanner {
+
+  static final double DEFAULT_VERTEX_COUNT = 10_000;
+
+  static final double DEFAULT_DEGREE = 10;
+
+  static final double DEFAULT_EQUALITY_SELECTIVITY = 0.1;
+
+  static final double DEFAULT_RANGE_SELECTIVITY = 1.0 / 3;
+
+  static final double DEFAULT_SELECTIVITY = 0.5;
+
+  /**
+   * Bounds the estimation of paths with an unbounded number of hops over sparse graphs.
+   */
+  private static final int MAX_ESTIMATED_HOPS = 64;
+
+  private final AbstractMetadataProvider metadataProvider;
+
+  /**
+   * @param metadataProvider
+   *          the provider of the statistics, or null to plan with default statistics only
+   */
+  public MatchOrderPlanner(AbstractMetadataProvider metadataProvider) {
+    this.metadataProvider = metadataProvider;
+  }
+
+  /**
+   * @return a plan for each graph pattern and optional graph pattern of the query and its subqueries, in order of
+   *         appearance
+   */
+  public List<MatchPlan> plan(GraphQuery query) {
+    return plan(query, QuerySummary.of(query));
+  }
+
+  List<MatchPlan> plan(GraphQuery query, QuerySummary summary) {
+    QueryPlanner planner = new QueryPlanner(summary);
+    planner.traverse(query);
+    return planner.plans;
+  }
+
+  /**
+   * The vertex names that are bound by the graph patterns of a query that were planned so far.
+   */
+  private static final class Scope {
+
+    private final SchemaQualifiedName graphName;
+
+    private final Set<String> boundVertexNames = new HashSet<>();
+
+    Scope(SchemaQualifiedName graphName) {
+      this.graphName = graphName;
+    }
+  }
+
+  private static final class Filter {
+
+    private final QueryExpression constraint;
+
+    private final Set<QueryVariable> variables;
+
+    private final double selectivity;
+
+    Filter(QueryExpression constraint, Set<QueryVariable> variables, double selectivity) {
+      this.constraint = constraint;
+      this.variables = variables;
+      this.selectivity = selectivity;
+    }
+  }
+
+  private final class QueryPlanner extends AbstractQueryTraversal {
+
+    private final QuerySummary summary;
+
+    private final List<MatchPlan> plans = new ArrayList<>();
+
+    private final Deque<Scope> scopes = new ArrayDeque<>();
+
+    private SchemaQualifiedName graphName;
+
+    private double totalVertexCount;
+
+    QueryPlanner(QuerySummary summary) {
+      this.summary = summary;
+    }
+
+    @Override
+    protected TraversalAction preVisit(Object node) {
+      if (node instanceof GraphQuery) {
+        SchemaQualifiedName queryGraphName = ((GraphQuery) node).getGraphName();
+        if (queryGraphName == null && !scopes.isEmpty()) {
+          queryGraphName = scopes.peek().graphName;
+        }
+        scopes.push(new Scope(queryGraphName));
+      } else if (node instanceof GraphPattern) {
+        GraphPattern graphPattern = (GraphPattern) node;
+        Scope scope = scopes.peek();
+        plans.add(planGraphPattern(graphPattern, scope));
+        for (QueryVertex vertex : graphPattern.getVertices()) {
+          scope.boundVertexNames.add(vertex.getName());
+        }
+      }
+      return TraversalAction.CONTINUE;
+    }
+
+    @Override
+    protected TraversalAction postVisit(Object node) {
+      if (node instanceof GraphQuery) {
+        scopes.pop();
+      }
+      return TraversalAction.CONTINUE;
+    }
+
+    private MatchPlan planGraphPattern(GraphPattern graphPattern, Scope scope) {
+      graphName = scope.graphName;
+      totalVertexCount = Math.max(1, getStatistic(p -> p.getVertexCount(graphName, null), DEFAULT_VERTEX_COUNT));
+
+      // vertices in order of appearance, such that ties are broken in favor of the order of the query
+      List<QueryVertex> vertices = new ArrayList<>();
+      Set<QueryVariable> patternVariables = newVariableSet();
+      for (VertexPairConnection connection : graphPattern.getConnections()) {
+        if (patternVariables.add(connection.getSrc())) {
+          vertices.add(connection.getSrc());
+        }
+        if (patternVariables.add(connection.getDst())) {
+          vertices.add(connection.getDst());
+        }
+      }
+      for (QueryVertex vertex : graphPattern.getVertices()) {
+        if (patternVariables.add(vertex)) {
+          vertices.add(vertex);
+        }
+      }
+      patternVariables.addAll(graphPattern.getConnections());
+
+      Set<QueryVariable> bound = newVariableSet();
+      Map<QueryVertex, Double> vertexCounts = new IdentityHashMap<>();
+      Set<QueryExpression> labelPredicates = Collections.newSetFromMap(new IdentityHashMap<>());
+      for (QueryVertex vertex : vertices) {
+        if (scope.boundVertexNames.contains(vertex.getName()) || vertex.getCorrelationVertexInOuterQuery() != null) {
+          bound.add(vertex);
+        }
+        vertexCounts.put(vertex, getVertexCount(vertex));
+        labelPredicates.addAll(summary.getLabelPredicates(vertex));
+      }
+      for (VertexPairConnection connection : graphPattern.getConnections()) {
+        labelPredicates.addAll(summary.getLabelPredicates(connection));
+      }
+
+      List<Filter> filters = new ArrayList<>();
+      for (QueryExpression constraint : graphPattern.getConstraints()) {
+        if (!labelPredicates.contains(constraint)) {
+          Set<QueryVariable> variables = getVariables(constraint);
+          variables.retainAll(patternVariables);
+          filters.add(new Filter(constraint, variables, getSelectivity(constraint)));
+        }
+      }
+
+      List<Step> steps = new ArrayList<>();
+      double rows = 1;
+      double cost = 0;
+      if (!bound.isEmpty()) {
+        List<Filter> applicable = getApplicableFilters(filters, bound, null, null);
+        if (!applicable.isEmpty()) {
+          rows *= getSelectivity(applicable);
+          cost += rows;
+          steps.add(new Step(StepType.FILTER, null, null, null, getConstraints(applicable), rows, cost));
+          filters.removeAll(applicable);
+        }
+      }
+
+      List<VertexPairConnection> remainingConnections = new ArrayList<>(graphPattern.getConnections());
+      while (true) {
+        StepType bestStepType = null;
+        QueryVertex bestFrom = null;
+        VertexPairConnection bestConnection = null;
+        QueryVertex bestTo = null;
+        List<Filter> bestFilters = null;
+        double bestRows = 0;
+
+        for (VertexPairConnection connection : remainingConnections) {
+          boolean srcBound = bound.contains(connection.getSrc());
+          if (!srcBound && !bound.contains(connection.getDst())) {
+            continue;
+          }
+          QueryVertex from = srcBound ? connection.getSrc() : connection.getDst();
+          QueryVertex to = srcBound ? connection.getDst() : connection.getSrc();
+          boolean into = bound.contains(to);
+          double fanout = getFanout(connection, srcBound);
+          double factor = into ? fanout / vertexCounts.get(to) : fanout * vertexCounts.get(to) / totalVertexCount;
+          List<Filter> applicable = getApplicableFilters(filters, bound, connection, into ? null : to);
+          double rowsAfter = rows * factor * getSelectivity(applicable);
+          if (bestStepType == null || rowsAfter < bestRows) {
+            bestStepType = into ? StepType.EXPAND_INTO : StepType.EXPAND;
+            bestFrom = from;
+            bestConnection = connection;
+            bestTo = to;
+            bestFilters = applicable;
+            bestRows = rowsAfter;
+          }
+        }
+
+        if (bestStepType == null) {
+          for (QueryVertex vertex : vertices) {
+            if (bound.contains(vertex)) {
+              continue;
+            }
+            List<Filter> applicable = getApplicableFilters(filters, bound, null, vertex);
+            double rowsAfter = rows * vertexCounts.get(vertex) * getSelectivity(applicable);
+            if (bestStepType == null || rowsAfter < bestRows) {
+              bestStepType = StepType.SCAN;
+              bestTo = vertex;
+              bestFilters = applicable;
+              bestRows = rowsAfter;
+            }
+          }
+        }
+
+        if (bestStepType == null) {
+          break;
+        }
+        if (bestConnection != null) {
+          bound.add(bestConnection);
+          remainingConnections.remove(bestConnection);
+        }
+        bound.add(bestTo);
+        filters.removeAll(bestFilters);
+        rows = bestRows;
+        cost += rows;
+        steps.add(new Step(bestStepType, bestFrom, bestConnection, bestTo, getConstraints(bestFilters), rows, cost));
+      }
+
+      return new MatchPlan(graphPattern, steps);
+    }
+
+    private List<Filter> getApplicableFilters(List<Filter> filters, Set<QueryVariable> bound,
+        VertexPairConnection newConnection, QueryVertex newVertex) {
+      List<Filter> result = new ArrayList<>();
+      for (Filter filter : filters) {
+        boolean applicable = true;
+        for (QueryVariable variable : filter.variables) {
+          if (!bound.contains(variable) && variable != newConnection && variable != newVertex) {
+            applicable = false;
+            break;
+          }
+        }
+        if (applicable) {
+          result.add(filter);
+        }
+      }
+      return result;
+    }
+
+    private double getSelectivity(List<Filter> filters) {
+      double result = 1;
+      for (Filter filter : filters) {
+        result *= filter.selectivity;
+      }
+      return result;
+    }
+
+    private List<QueryExpression> getConstraints(List<Filter> filters) {
+      List<QueryExpression> result = new ArrayList<>(filters.size());
+      for (Filter filter : filters) {
+        result.add(filter.constraint);
+      }
+      return Collections.unmodifiableList(result);
+    }
+
+    private double getVertexCount(QueryVertex vertex) {
+      double result = totalVertexCount;
+      for (List<String> labels : summary.getLabelConstraints(vertex)) {
+        double count = 0;
+        for (String label : labels) {
+          count += getStatistic(p -> p.getVertexCount(graphName, label), totalVertexCount);
+        }
+        result = Math.min(result, count); // labels are a conjunction of disjunctions
+      }
+      return Math.max(1, result);
+    }
+
+    /**
+     * @return the estimated number of edges or paths per binding of the vertex that the connection is followed from
+     */
+    private double getFanout(VertexPairConnection connection, boolean fromSrc) {
+      Direction direction = connection.getDirection();
+      if (!fromSrc && direction != Direction.ANY) {
+        direction = direction == Direction.OUTGOING ? Direction.INCOMING : Direction.OUTGOING;
+      }
+
+      if (connection instanceof QueryEdge) {
+        List<List<String>> labelConstraints = summary.getLabelConstraints(connection);
+        if (labelConstraints.isEmpty()) {
+          return getDegree(null, direction);
+        }
+        double result = Double.MAX_VALUE;
+        for (List<String> labels : labelConstraints) {
+          double degree = 0;
+          for (String label : labels) {
+            degree += getDegree(label, direction);
+          }
+          result = Math.min(result, degree);
+        }
+        return result;
+      }
+
+      // the labels of the edges of a path pattern are not taken into account
+      QueryPath path = (QueryPath) connection;
+      double degreePerHop = Math.pow(getDegree(null, direction), Math.max(1, path.getConnections().size()));
+      PathFindingGoal goal = path.getPathFindingGoal();
+      double maxPaths = Double.MAX_VALUE;
+      if (goal == PathFindingGoal.REACHES || path.getMaxHops() == -1) {
+        maxPaths = totalVertexCount;
+      }
+      if (goal == PathFindingGoal.SHORTEST || goal == PathFindingGoal.CHEAPEST) {
+        maxPaths = totalVertexCount * Math.max(1, path.getKValue());
+      }
+
+      double result = 0;
+      double paths = 1;
+      for (long hops = 0; result < maxPaths; hops++) {
+        if (hops >= path.getMinHops()) {
+          result += paths;
+        }
+        if ((path.getMaxHops() != -1 && hops >= path.getMaxHops()) || hops >= MAX_ESTIMATED_HOPS) {
+          break;
+        }
+        paths *= degreePerHop;
+      }
+      return Math.min(result, maxPaths);
+    }
+
+    private double getDegree(String label, Direction direction) {
+      if (direction == Direction.ANY) {
+        return getDegree(label, Direction.OUTGOING) + getDegree(label, Direction.INCOMING);
+      }
+      double edgeCount = getStatistic(p -> p.getEdgeCount(graphName, label), -1);
+      double defaultDegree = edgeCount == -1 ? DEFAULT_DEGREE : edgeCount / totalVertexCount;
+      return getStatistic(p -> p.getAverageDegree(graphName, label, direction), defaultDegree);
+    }
+
+    private double getSelectivity(QueryExpression exp) {
+      double result;
+      switch (exp.getExpType()) {
+        case AND: {
+          BinaryExpression and = (BinaryExpression) exp;
+          result = getSelectivity(and.getExp1()) * getSelectivity(and.getExp2());
+          break;
+        }
+        case OR: {
+          BinaryExpression or = (BinaryExpression) exp;
+          double selectivity1 = getSelectivity(or.getExp1());
+          double selectivity2 = getSelectivity(or.getExp2());
+          result = selectivity1 + selectivity2 - selectivity1 * selectivity2;
+          break;
+        }
+        case NOT:
+          result = 1 - getSelectivity(((Not) exp).getExp());
+          break;
+        case BOOLEAN:
+          result = ((ConstBoolean) exp).getValue() ? 1 : 0;
+          break;
+        case EQUAL: {
+          BinaryExpression equal = (BinaryExpression) exp;
+          result = getEqualitySelectivity(equal.getExp1(), equal.getExp2());
+          break;
+        }
+        case NOT_EQUAL: {
+          BinaryExpression notEqual = (BinaryExpression) exp;
+          result = 1 - getEqualitySelectivity(notEqual.getExp1(), notEqual.getExp2());
+          break;
+        }
+        case LESS:
+        case LESS_EQUAL:
+        case GREATER:
+        case GREATER_EQUAL: {
+          BinaryExpression comparison = (BinaryExpression) exp;
+          boolean less = exp.getExpType() == ExpressionType.LESS || exp.getExpType() == ExpressionType.LESS_EQUAL;
+          if (getNumericValue(comparison.getExp1()) != null) {
+            result = getRangeSelectivity(comparison.getExp2(), !less, comparison.getExp1());
+          } else {
+            result = getRangeSelectivity(comparison.getExp1(), less, comparison.getExp2());
+          }
+          break;
+        }
+        case BETWEEN_PREDICATE: {
+          BetweenPredicate between = (BetweenPredicate) exp;
+          Optional<PropertyStatistics> statistics = getPropertyStatistics(between.getExp1());
+          Double lower = getNumericValue(between.getExp2());
+          Double upper = getNumericValue(between.getExp3());
+          Optional<Double> lowerFraction = lower == null ? Optional.empty() : getFractionBelow(statistics, lower);
+          Optional<Double> upperFraction = upper == null ? Optional.empty() : getFractionBelow(statistics, upper);
+          if (lowerFraction.isPresent() && upperFraction.isPresent()) {
+            result = (upperFraction.get() - lowerFraction.get()) * (1 - statistics.get().getNullFraction());
+          } else {
+            result = DEFAULT_RANGE_SELECTIVITY;
+          }
+          break;
+        }
+        case IS_NULL:
+          result = getPropertyStatistics(((IsNull) exp).getExp()).map(PropertyStatistics::getNullFraction)
+              .orElse(DEFAULT_EQUALITY_SELECTIVITY);
+          break;
+        default:
+          result = DEFAULT_SELECTIVITY;
+      }
+      return Math.max(0, Math.min(1, result));
+    }
+
+    private double getEqualitySelectivity(QueryExpression exp1, QueryExpression exp2) {
+      Optional<PropertyStatistics> statistics1 = getPropertyStatistics(exp1);
+      Optional<PropertyStatistics> statistics2 = getPropertyStatistics(exp2);
+      if (statistics1.isPresent() && statistics2.isPresent()) {
+        PropertyStatistics s1 = statistics1.get();
+        PropertyStatistics s2 = statistics2.get();
+        return (1 - s1.getNullFraction()) * (1 - s2.getNullFraction())
+            / Math.max(1, Math.max(s1.getDistinctValueCount(), s2.getDistinctValueCount()));
+      }
+      Optional<PropertyStatistics> statistics = statistics1.isPresent() ? statistics1 : statistics2;
+      QueryExpression other = statistics1.isPresent() ? exp2 : exp1;
+      if (statistics.isPresent() && other.getExpType() != ExpressionType.PROP_ACCESS) {
+        return (1 - statistics.get().getNullFraction()) / Math.max(1, statistics.get().getDistinctValueCount());
+      }
+      return DEFAULT_EQUALITY_SELECTIVITY;
+    }
+
+    /**
+     * @return the selectivity of {@code exp < value} if less is true, or {@code exp > value} otherwise
+     */
+    private double getRangeSelectivity(QueryExpression exp, boolean less, QueryExpression value) {
+      Optional<PropertyStatistics> statistics = getPropertyStatistics(exp);
+      Double numericValue = getNumericValue(value);
+      Optional<Double> fraction = numericValue == null ? Optional.empty() : getFractionBelow(statistics, numericValue);
+      if (!fraction.isPresent()) {
+        return DEFAULT_RANGE_SELECTIVITY;
+      }
+      return (less ? fraction.get() : 1 - fraction.get()) * (1 - statistics.get().getNullFraction());
+    }
+
+    /**
+     * @return the fraction of non-null values that are less than the given value according to the histogram
+     */
+    private Optional<Double> getFractionBelow(Optional<PropertyStatistics> statistics, double value) {
+      if (!statistics.isPresent() || statistics.get().getHistogramBounds().size() < 2) {
+        return Optional.empty();
+      }
+      List<Double> bounds = statistics.get().getHistogramBounds();
+      int buckets = bounds.size() - 1;
+      if (value <= bounds.get(0)) {
+        return Optional.of(0.0);
+      }
+      for (int i = 0; i < buckets; i++) {
+        double lower = bounds.get(i);
+        double upper = bounds.get(i + 1);
+        if (value < upper) {
+          return Optional.of((i + (value - lower) / (upper - lower)) / buckets);
+        }
+      }
+      return Optional.of(1.0);
+    }
+
+    private Optional<PropertyStatistics> getPropertyStatistics(QueryExpression exp) {
+      if (metadataProvider == null || exp.getExpType() != ExpressionType.PROP_ACCESS) {
+        return Optional.empty();
+      }
+      PropertyAccess propertyAccess = (PropertyAccess) exp;
+      QueryVariable variable = propertyAccess.getVariable();
+      List<List<String>> labelConstraints = summary.getLabelConstraints(variable);
+      String label = labelConstraints.size() == 1 && labelConstraints.get(0).size() == 1
+          ? labelConstraints.get(0).get(0)
+          : null;
+      Optional<PropertyStatistics> result;
+      switch (variable.getVariableType()) {
+        case VERTEX:
+          result = metadataProvider.getVertexPropertyStatistics(graphName, label, propertyAccess.getPropertyName());
+          break;
+        case EDGE:
+          result = metadataProvider.getEdgePropertyStatistics(graphName, label, propertyAccess.getPropertyName());
+          break;
+        default:
+          result = Optional.empty();
+      }
+      return result == null ? Optional.empty() : result;
+    }
+
+    private Double getNumericValue(QueryExpression exp) {
+      switch (exp.getExpType()) {
+        case INTEGER:
+          return ((ConstInteger) exp).getValue().doubleValue();
+        case DECIMAL:
+          return ((ConstDecimal) exp).getValue();
+        default:
+          return null;
+      }
+    }
+
+    private <T extends Number> double getStatistic(Function<AbstractMetadataProvider, Optional<T>> getter,
+        double defaultValue) {
+      if (metadataProvider == null) {
+        return defaultValue;
+      }
+      Optional<T> result = getter.apply(metadataProvider);
+      return result == null || !result.isPresent() ? defaultValue : result.get().doubleValue();
+    }
+  }
+
+  private static Set<QueryVariable> newVariableSet() {
+    return Collections.newSetFromMap(new IdentityHashMap<>());
+  }
+
+  /**
+   * @return the variables that the expression refers to, including the variables of outer queries that correlated
+   *         vertices and edges of subqueries refer to
+   */
+  private static Set<QueryVariable> getVariables(QueryExpression exp) {
+    Set<QueryVariable> result = newVariableSet();
+    new AbstractQueryTraversal() {
+
+      @Override
+      protected TraversalAction preVisit(Object node) {
+        if (node instanceof VarRef) {
+          result.add(((VarRef) node).getVariable());
+        } else if (node instanceof PropertyAccess) {
+          result.add(((PropertyAccess) node).getVariable());
+        } else if (node instanceof QueryVertex) {
+          addIfNotNull(result, ((QueryVertex) node).getCorrelationVertexInOuterQuery());
+        } else if (node instanceof QueryEdge) {
+          addIfNotNull(result, ((QueryEdge) node).getCorrelationEdgeInOuterQuery());
+        }
+        return TraversalAction.CONTINUE;
+      }
+    }.traverse(exp);
+    return result;
+  }
+
+  private static void addIfNotNull(Set<QueryVariable> variables, QueryVariable variable) {
+    if (variable != null) {
+      variables.add(variable);
+    }
+  }
+}
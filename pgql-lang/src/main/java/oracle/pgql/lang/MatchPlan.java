@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.Collections;
+import java.util.List;
+
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.VertexPairConnection;
+
+/**
+ * An ordered plan for matching the vertices and connections of a graph pattern, together with estimated cardinalities
+ * and costs (see {@link MatchOrderPlanner}).
+ *
+ * Estimates are per binding of the vertices that are already bound when the graph pattern is matched, i.e. the
+ * vertices that the graph pattern shares with preceding MATCH clauses of the same query, and the vertices that are
+ * correlated with an outer query.
+ */
+public class MatchPlan {
+
+  public enum StepType {
+
+    /**
+     * Apply filters on vertices that are already bound before the first vertex or connection is matched.
+     */
+    FILTER,
+
+    /**
+     * Iterate over the vertices that may bind to a vertex of the pattern, taking into account its labels.
+     */
+    SCAN,
+
+    /**
+     * Follow an edge or path from a bound vertex to a vertex that is not bound yet.
+     */
+    EXPAND,
+
+    /**
+     * Follow an edge or path between two bound vertices, which closes a cycle in the pattern.
+     */
+    EXPAND_INTO
+  }
+
+  public static class Step {
+
+    private final StepType stepType;
+
+    private final QueryVertex fromVertex;
+
+    private final VertexPairConnection connection;
+
+    private final QueryVertex toVertex;
+
+    private final List<QueryExpression> filters;
+
+    private final double estimatedRows;
+
+    private final double estimatedCost;
+
+    Step(StepType stepType, QueryVertex fromVertex, VertexPairConnection connection, QueryVertex toVertex,
+        List<QueryExpression> filters, double estimatedRows, double estimatedCost) {
+      this.stepType = stepType;
+      this.fromVertex = fromVertex;
+      this.connection = connection;
+      this.toVertex = toVertex;
+      this.filters = filters;
+      this.estimatedRows = estimatedRows;
+      this.estimatedCost = estimatedCost;
+    }
+
+    public StepType getStepType() {
+      return stepType;
+    }
+
+    /**
+     * @return the bound vertex that the connection is followed from; null for SCAN and FILTER steps
+     */
+    public QueryVertex getFromVertex() {
+      return fromVertex;
+    }
+
+    /**
+     * @return the edge or path that is followed; null for SCAN and FILTER steps
+     */
+    public VertexPairConnection getConnection() {
+      return connection;
+    }
+
+    /**
+     * @return the vertex that is scanned or reached; null for FILTER steps
+     */
+    public QueryVertex getToVertex() {
+      return toVertex;
+    }
+
+    /**
+     * @return the constraints of the graph pattern that can be evaluated after this step but not before it, excluding
+     *         label predicates since these are part of the SCAN or EXPAND itself
+     */
+    public List<QueryExpression> getFilters() {
+      return filters;
+    }
+
+    /**
+     * @return the estimated number of rows after this step
+     */
+    public double getEstimatedRows() {
+      return estimatedRows;
+    }
+
+    /**
+     * @return the estimated cost of this step and all preceding steps
+     */
+    public double getEstimatedCost() {
+      return estimatedCost;
+    }
+
+    @Override
+    public String toString() {
+      String result;
+      switch (stepType) {
+        case FILTER:
+          result = "FILTER";
+          break;
+        case SCAN:
+          result = "SCAN " + toVertex.getName();
+          break;
+        default:
+          result = stepType + " " + fromVertex.getName() + " -[" + connection.getName() + "]- " + toVertex.getName();
+      }
+      return result + " (rows=" + estimatedRows + ", cost=" + estimatedCost + ")";
+    }
+  }
+
+  private final GraphPattern graphPattern;
+
+  private final List<Step> steps;
+
+  MatchPlan(GraphPattern graphPattern, List<Step> steps) {
+    this.graphPattern = graphPattern;
+    this.steps = Collections.unmodifiableList(steps);
+  }
+
+  /**
+   * @return the graph pattern or optional graph pattern that is planned
+   */
+  public GraphPattern getGraphPattern() {
+    return graphPattern;
+  }
+
+  /**
+   * @return the steps in the order in which they are to be executed
+   */
+  public List<Step> getSteps() {
+    return steps;
+  }
+
+  /**
+   * @return the estimated number of matches per binding of the already bound vertices
+   */
+  public double getEstimatedRows() {
+    return steps.isEmpty() ? 1 : steps.get(steps.size() - 1).getEstimatedRows();
+  }
+
+  /**
+   * @return the estimated cost of the plan, which is the sum of the estimated number of rows over all steps
+   */
+  public double getEstimatedCost() {
+    return steps.isEmpty() ? 0 : steps.get(steps.size() - 1).getEstimatedCost();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (Step step : steps) {
+      result.append(step).append('\n');
+    }
+    return result.toString();
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.interpreter.terms.ITermFactory;
+
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+import static oracle.pgql.lang.CompiledGraphSchema.getGraphSchema;
+
+/**
+ * Caches the metadata terms that are derived from a metadata provider so that they are not recomputed on every parse:
+ * the compiled graph schemas (see {@link CompiledGraphSchema}) and the terms that are derived from the types (union
+ * types, unary and binary operations, data type synonyms and function signatures). The latter are expensive since the
+ * provider is queried for every pair of types.
+ *
+ * Terms are cached per provider, per graph and per set of types, and are only reused as long as the schema version (see
+ * {@link AbstractMetadataProvider#getSchemaVersion()}) and invalidation count (see
+ * {@link AbstractMetadataProvider#invalidateCachedMetadata()}) of the provider stay the same.
+ */
+class MetadataTermCache {
+
+  private static final int MAX_TYPE_SETS_PER_PROVIDER = 64;
+
+  // providers are weakly referenced so that the cache does not keep them alive
+  private static final Map<AbstractMetadataProvider, ProviderEntry> providerEntries = new WeakHashMap<>();
+
+  static CompiledGraphSchema getCompiledGraphSchema(AbstractMetadataProvider metadataProvider,
+      SchemaQualifiedName graphName, ITermFactory f) {
+    ProviderEntry providerEntry = getProviderEntry(metadataProvider);
+    if (providerEntry == null) {
+      return new CompiledGraphSchema(graphName, getGraphSchema(metadataProvider, graphName), f);
+    }
+
+    synchronized (providerEntry) {
+      CompiledGraphSchema compiledGraphSchema = providerEntry.compiledGraphSchemas.get(graphName);
+      if (compiledGraphSchema == null) {
+        compiledGraphSchema = new CompiledGraphSchema(graphName, getGraphSchema(metadataProvider, graphName), f);
+        providerEntry.compiledGraphSchemas.put(graphName, compiledGraphSchema);
+      }
+      return compiledGraphSchema;
+    }
+  }
+
+  static List<IStrategoTerm> getTypeTerms(AbstractMetadataProvider metadataProvider, Set<String> allTypes,
+      Supplier<List<IStrategoTerm>> typeTermsSupplier) {
+    ProviderEntry providerEntry = getProviderEntry(metadataProvider);
+    if (providerEntry == null) {
+      return typeTermsSupplier.get();
+    }
+
+    synchronized (providerEntry) {
+      List<IStrategoTerm> typeTerms = providerEntry.typeTerms.get(allTypes);
+      if (typeTerms == null) {
+        typeTerms = Collections.unmodifiableList(typeTermsSupplier.get());
+        providerEntry.typeTerms.put(new HashSet<>(allTypes), typeTerms);
+      }
+      return typeTerms;
+    }
+  }
+
+  /**
+   * @return the cache entry for the provider, or null if the provider does not support caching
+   */
+  private static ProviderEntry getProviderEntry(AbstractMetadataProvider metadataProvider) {
+    Optional<Long> schemaVersion = metadataProvider.getSchemaVersion();
+    if (!schemaVersion.isPresent()) {
+      return null;
+    }
+    long invalidationCount = metadataProvider.getInvalidationCount();
+
+    synchronized (providerEntries) {
+      ProviderEntry providerEntry = providerEntries.get(metadataProvider);
+      if (providerEntry == null || providerEntry.schemaVersion != schemaVersion.get()
+          || providerEntry.invalidationCount != invalidationCount) {
+        providerEntry = new ProviderEntry(schemaVersion.get(), invalidationCount);
+        providerEntries.put(metadataProvider, providerEntry);
+      }
+      return providerEntry;
+    }
+  }
+
+  private static class ProviderEntry {
+
+    private final long schemaVersion;
+
+    private final long invalidationCount;
+
+    private final Map<Set<String>, List<IStrategoTerm>> typeTerms = new LinkedHashMap<Set<String>, List<IStrategoTerm>>(
+        16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Set<String>, List<IStrategoTerm>> eldest) {
+        return size() > MAX_TYPE_SETS_PER_PROVIDER;
+      }
+    };
+
+    // keyed by graph name; the null key is used for the default graph
+    private final Map<SchemaQualifiedName, CompiledGraphSchema> compiledGraphSchemas = new HashMap<>();
+
+    ProviderEntry(long schemaVersion, long invalidationCount) {
+      this.schemaVersion = schemaVersion;
+      this.invalidationCount = invalidationCount;
+    }
+  }
+}
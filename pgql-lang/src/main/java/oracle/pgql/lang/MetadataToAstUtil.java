@@ -23,13 +23,10 @@ import oracle.pgql.lang.ir.SchemaQualifiedName;
 import oracle.pgql.lang.metadata.AbstractMetadataProvider;
 import oracle.pgql.lang.metadata.BinaryOperation;
 import oracle.pgql.lang.metadata.DataTypeSynonym;
-import oracle.pgql.lang.metadata.EdgeLabel;
 import oracle.pgql.lang.metadata.FunctionSignature;
-import oracle.pgql.lang.metadata.GraphSchema;
 import oracle.pgql.lang.metadata.Label;
 import oracle.pgql.lang.metadata.Property;
 import oracle.pgql.lang.metadata.UnaryOperation;
-import oracle.pgql.lang.metadata.VertexLabel;
 
 public class MetadataToAstUtil {
 
@@ -37,22 +34,13 @@ public class MetadataToAstUtil {
 
   private static final String AST_PLUS_METADATA_CONSTRUCTOR_NAME = "AstPlusMetadata";
 
-  static IStrategoTerm addMetadata(IStrategoTerm parseAst, AbstractMetadataProvider metadataProvider, ITermFactory f,
-      boolean allowReferencingAnyProperty) {
-    PgqlVersion pgqlVersion;
-    switch (((IStrategoAppl) parseAst).getConstructor().getName()) {
-      case "Query":
-        pgqlVersion = PgqlVersion.V_1_3_OR_UP;
-        break;
-      case "Pgql11Query":
-        pgqlVersion = PgqlVersion.V_1_1_OR_V_1_2;
-        break;
-      case "Pgql10Query":
-        pgqlVersion = PgqlVersion.V_1_0;
-        break;
-      default:
-        // for DDL statements and other non-query statement, we don't add metadata
-        return parseAst;
+  static IStrategoTerm addMetadata(IStrategoTerm parseAst, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema, ITermFactory f, boolean allowReferencingAnyProperty,
+      boolean pruneGraphSchema) {
+    PgqlVersion pgqlVersion = getQueryPgqlVersion(parseAst);
+    if (pgqlVersion == null) {
+      // for DDL statements and other non-query statement, we don't add metadata
+      return parseAst;
     }
 
     if (metadataProvider == null) {
@@ -60,16 +48,19 @@ public class MetadataToAstUtil {
     }
 
     Set<SchemaQualifiedName> graphNames = extractGraphNames(parseAst, pgqlVersion);
-    Optional<GraphSchema> graphSchema;
+    SchemaQualifiedName graphName;
     if (graphNames.size() > 1) {
       // multiple graph references in single query are currently not supported
       // we already generate an error for that during analysis so we can just return here
       return parseAst;
     } else if (graphNames.size() == 1) {
-      SchemaQualifiedName graphName = graphNames.iterator().next();
-      graphSchema = metadataProvider.getGraphSchema(graphName);
+      graphName = graphNames.iterator().next();
     } else {
-      graphSchema = metadataProvider.getGraphSchema();
+      graphName = null;
+    }
+
+    if (compiledGraphSchema == null || !compiledGraphSchema.isSchemaFor(graphName)) {
+      compiledGraphSchema = MetadataTermCache.getCompiledGraphSchema(metadataProvider, graphName, f);
     }
 
     Set<String> allTypes = new HashSet<>();
@@ -80,21 +71,17 @@ public class MetadataToAstUtil {
     allTypes.addAll(extractDataTypesFromUdfs(functionSignatures));
 
     List<IStrategoTerm> metadataTerm = new ArrayList<>();
-    if (graphSchema.isPresent()) {
-
-      List<IStrategoTerm> vertexLabelTerms = new ArrayList<>();
-      for (VertexLabel vertexLabel : graphSchema.get().getVertexLabels()) {
-        vertexLabelTerms.add(translateLabel(vertexLabel, f, allTypes));
-      }
-      IStrategoAppl vertexLabelsTerm = f.makeAppl("VertexLabels", f.makeList(vertexLabelTerms));
-      metadataTerm.add(vertexLabelsTerm);
-
-      List<IStrategoTerm> edgeLabelTerms = new ArrayList<>();
-      for (EdgeLabel edgeLabel : graphSchema.get().getEdgeLabels()) {
-        edgeLabelTerms.add(translateLabel(edgeLabel, f, allTypes));
+    if (compiledGraphSchema.hasGraphSchema()) {
+      if (pruneGraphSchema && !selectsAllProperties(parseAst)) {
+        Set<String> referencedNames = extractReferencedNames(parseAst, pgqlVersion);
+        metadataTerm.add(compiledGraphSchema.getVertexLabelsTerm(referencedNames, f));
+        metadataTerm.add(compiledGraphSchema.getEdgeLabelsTerm(referencedNames, f));
+      } else {
+        metadataTerm.add(compiledGraphSchema.getVertexLabelsTerm());
+        metadataTerm.add(compiledGraphSchema.getEdgeLabelsTerm());
       }
-      IStrategoAppl edgeLabelsTerm = f.makeAppl("EdgeLabels", f.makeList(edgeLabelTerms));
-      metadataTerm.add(edgeLabelsTerm);
+      // types of pruned properties are still included so that the type terms only depend on the schema
+      allTypes.addAll(compiledGraphSchema.getPropertyTypes());
     }
 
     if (metadataProvider.getDefaultStringType().isPresent()) {
@@ -135,47 +122,93 @@ public class MetadataToAstUtil {
     allTypes.add("EDGE");
     allTypes.add("INTERVAL");
 
+    metadataTerm.addAll(MetadataTermCache.getTypeTerms(metadataProvider, allTypes,
+        () -> getTypeTerms(allTypes, dataTypeSynonyms, functionSignatures, metadataProvider, f)));
+
+    if (allowReferencingAnyProperty) {
+      metadataTerm.add(f.makeAppl("AllowReferencingAnyProperty"));
+    }
+
+    IStrategoAppl metadataExtendedAst = f.makeAppl(AST_PLUS_METADATA_CONSTRUCTOR_NAME, parseAst,
+        f.makeList(metadataTerm));
+
+    return metadataExtendedAst;
+  }
+
+  /**
+   * Creates the metadata terms that only depend on the types and not on the query or the graph schema. These are the
+   * expensive ones since the metadata provider is queried for every pair of types.
+   */
+  private static List<IStrategoTerm> getTypeTerms(Set<String> allTypes,
+      Optional<List<DataTypeSynonym>> dataTypeSynonyms, Optional<List<FunctionSignature>> functionSignatures,
+      AbstractMetadataProvider metadataProvider, ITermFactory f) {
+    List<IStrategoTerm> typeTerms = new ArrayList<>();
+
     List<Pair<String, String>> allPairsOfTypes = getAllPairsOfTypes(allTypes);
     List<IStrategoTerm> unionTypes = getUnionCompatibleTypes(allPairsOfTypes, metadataProvider, f);
     if (!unionTypes.isEmpty()) {
-      metadataTerm.add(f.makeAppl("UnionTypes", f.makeList(unionTypes)));
+      typeTerms.add(f.makeAppl("UnionTypes", f.makeList(unionTypes)));
     }
     List<IStrategoTerm> unaryOperations = getUnaryOperationsWithTypes(allTypes, metadataProvider, f);
     if (!unaryOperations.isEmpty()) {
-      metadataTerm.add(f.makeAppl("UnaryOperations", f.makeList(unaryOperations)));
+      typeTerms.add(f.makeAppl("UnaryOperations", f.makeList(unaryOperations)));
     }
     List<IStrategoTerm> binaryOperations = getBinaryOperationsWithTypes(allPairsOfTypes, metadataProvider, f);
     if (!binaryOperations.isEmpty()) {
-      metadataTerm.add(f.makeAppl("BinaryOperations", f.makeList(binaryOperations)));
+      typeTerms.add(f.makeAppl("BinaryOperations", f.makeList(binaryOperations)));
     }
     List<IStrategoTerm> dataTypeSynonymTerms = getDataTypeSynonyms(dataTypeSynonyms, f);
     if (!dataTypeSynonymTerms.isEmpty()) {
-      metadataTerm.add(f.makeAppl("DataTypeSynonyms", f.makeList(dataTypeSynonymTerms)));
+      typeTerms.add(f.makeAppl("DataTypeSynonyms", f.makeList(dataTypeSynonymTerms)));
     }
 
     List<IStrategoTerm> functionSignatureTerms = getFunctionSignatures(functionSignatures, f);
     if (!functionSignatureTerms.isEmpty()) {
-      metadataTerm.add(f.makeAppl("FunctionSignatures", f.makeList(functionSignatureTerms)));
-    }
-
-    if (allowReferencingAnyProperty) {
-      metadataTerm.add(f.makeAppl("AllowReferencingAnyProperty"));
+      typeTerms.add(f.makeAppl("FunctionSignatures", f.makeList(functionSignatureTerms)));
     }
 
-    IStrategoAppl metadataExtendedAst = f.makeAppl(AST_PLUS_METADATA_CONSTRUCTOR_NAME, parseAst,
-        f.makeList(metadataTerm));
+    return typeTerms;
+  }
 
-    return metadataExtendedAst;
+  static IStrategoTerm translateLabels(String constructorName, List<? extends Label> labels, ITermFactory f,
+      Set<String> allTypes) {
+    List<IStrategoTerm> labelTerms = new ArrayList<>();
+    for (Label label : labels) {
+      labelTerms.add(translateLabel(label, f, allTypes));
+    }
+    return f.makeAppl(constructorName, f.makeList(labelTerms));
   }
 
   static IStrategoTerm translateLabel(Label label, ITermFactory f, Set<String> allTypes) {
-    List<IStrategoTerm> propertyTerms = new ArrayList<>();
     for (Property property : label.getProperties()) {
-      propertyTerms.add(f.makeAppl("Property", f.makeString(property.getName()), f.makeString(property.getType())));
       allTypes.add(property.getType());
     }
+    return translateLabel(label.getLabel(), label.getProperties(), f);
+  }
+
+  static IStrategoTerm translateLabel(String label, List<Property> properties, ITermFactory f) {
+    List<IStrategoTerm> propertyTerms = new ArrayList<>(properties.size());
+    for (Property property : properties) {
+      propertyTerms.add(f.makeAppl("Property", f.makeString(property.getName()), f.makeString(property.getType())));
+    }
+
+    return f.makeAppl("Label", f.makeString(label), f.makeList(propertyTerms));
+  }
 
-    return f.makeAppl("Label", f.makeString(label.getLabel()), f.makeList(propertyTerms));
+  /**
+   * @return the PGQL version of a query, or null if the parse tree is not a query but for example a DDL statement
+   */
+  static PgqlVersion getQueryPgqlVersion(IStrategoTerm parseAst) {
+    switch (((IStrategoAppl) parseAst).getConstructor().getName()) {
+      case "Query":
+        return PgqlVersion.V_1_3_OR_UP;
+      case "Pgql11Query":
+        return PgqlVersion.V_1_1_OR_V_1_2;
+      case "Pgql10Query":
+        return PgqlVersion.V_1_0;
+      default:
+        return null;
+    }
   }
 
   static IStrategoTerm removeMetadata(IStrategoTerm analysisAst) {
@@ -221,6 +254,62 @@ public class MetadataToAstUtil {
     return graphNames;
   }
 
+  /**
+   * Extracts all names that may refer to a property: the normalized identifiers as well as the variations of all other
+   * strings in the AST, which covers the legacy syntax for property references.
+   */
+  static Set<String> extractReferencedNames(IStrategoTerm ast, PgqlVersion pgqlVersion) {
+
+    final Set<String> names = new HashSet<>();
+
+    new TermVisitor() {
+
+      @Override
+      public void preVisit(IStrategoTerm t) {
+        if (t.getType() == TermType.APPL) {
+          String constructor = ((IStrategoAppl) t).getConstructor().getName();
+          if (constructor.equals("RegularIdentifier") || constructor.equals("DelimitedIdentifier")) {
+            names.add(identifierToString(t, pgqlVersion));
+          }
+        } else if (t.getType() == TermType.STRING) {
+          String name = ((IStrategoString) t).stringValue();
+          addNameVariations(name, names);
+          if (name.length() >= 2 && (name.charAt(0) == '"' || name.charAt(0) == '\'')) {
+            String unquotedPart = name.substring(1, name.length() - 1);
+            addNameVariations(unquotedPart.replaceAll("\"\"", "\""), names);
+            addNameVariations(PgqlUtils.unescapeLegacyPgqlString(unquotedPart, true), names);
+          }
+        }
+      }
+
+    }.visit(ast);
+
+    return names;
+  }
+
+  private static void addNameVariations(String name, Set<String> names) {
+    names.add(name);
+    names.add(name.toUpperCase());
+  }
+
+  private static boolean selectsAllProperties(IStrategoTerm ast) {
+
+    final boolean[] result = new boolean[1];
+
+    new TermVisitor() {
+
+      @Override
+      public void preVisit(IStrategoTerm t) {
+        if (t.getType() == TermType.APPL && ((IStrategoAppl) t).getConstructor().getName().equals("AllProperties")) {
+          result[0] = true;
+        }
+      }
+
+    }.visit(ast);
+
+    return result[0];
+  }
+
   static Set<String> extractDataTypesFromCastStatements(IStrategoTerm ast,
       Optional<List<DataTypeSynonym>> dataTypeSynonyms) {
 
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.OptionalLong;
+
+/**
+ * Wall time and, optionally, allocated bytes per stage of a parse. Statistics are only collected when enabled through
+ * {@link Pgql#setCollectParseStatistics(boolean)}.
+ *
+ * Stages that were not executed, for example because the query has a syntax error, report zero.
+ */
+public class ParseStatistics {
+
+  public enum Stage {
+
+    /**
+     * Tokenizing and parsing the query string into a parse tree.
+     */
+    PARSE,
+
+    /**
+     * Embedding the graph schema and other metadata into the parse tree.
+     */
+    METADATA,
+
+    /**
+     * Name analysis, type analysis and error checking.
+     */
+    ANALYSIS,
+
+    /**
+     * Extracting the error messages from the analyzed tree.
+     */
+    ERROR_EXTRACTION,
+
+    /**
+     * Translating the analyzed tree into a {@link oracle.pgql.lang.ir.PgqlStatement}.
+     */
+    TRANSLATION
+  }
+
+  private static final Stage[] STAGES = Stage.values();
+
+  private final long[] wallTimeNanos;
+
+  private final long[] allocatedBytes; // null if allocated bytes were not measured
+
+  private ParseStatistics(long[] wallTimeNanos, long[] allocatedBytes) {
+    this.wallTimeNanos = wallTimeNanos;
+    this.allocatedBytes = allocatedBytes;
+  }
+
+  /**
+   * @return the wall time of the stage in nanoseconds
+   */
+  public long getWallTimeNanos(Stage stage) {
+    return wallTimeNanos[stage.ordinal()];
+  }
+
+  /**
+   * @return the sum of the wall times of all the stages in nanoseconds
+   */
+  public long getTotalWallTimeNanos() {
+    long result = 0;
+    for (long nanos : wallTimeNanos) {
+      result += nanos;
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of bytes that were allocated by the parsing thread during the stage, or empty if allocated
+   *         bytes were not measured (see {@link Pgql#setCollectAllocatedBytes(boolean)}) or if the JVM does not
+   *         support measuring them
+   */
+  public OptionalLong getAllocatedBytes(Stage stage) {
+    return allocatedBytes == null ? OptionalLong.empty() : OptionalLong.of(allocatedBytes[stage.ordinal()]);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("ParseStatistics[");
+    for (Stage stage : STAGES) {
+      if (stage.ordinal() > 0) {
+        sb.append(", ");
+      }
+      sb.append(stage).append("=").append(wallTimeNanos[stage.ordinal()]).append("ns");
+      if (allocatedBytes != null) {
+        sb.append("/").append(allocatedBytes[stage.ordinal()]).append("B");
+      }
+    }
+    return sb.append("]").toString();
+  }
+
+  /**
+   * Records the statistics of a single parse. The disabled recorder does not record anything so that parsing does not
+   * pay for statistics unless they are enabled.
+   */
+  static class Recorder {
+
+    static final Recorder DISABLED = new Recorder();
+
+    private static final com.sun.management.ThreadMXBean ALLOCATION_MX_BEAN = getAllocationMXBean();
+
+    private final long[] wallTimeNanos;
+
+    private final long[] allocatedBytes;
+
+    private long stageStartNanos;
+
+    private long stageStartAllocatedBytes;
+
+    private Recorder() {
+      wallTimeNanos = null;
+      allocatedBytes = null;
+    }
+
+    Recorder(boolean collectAllocatedBytes) {
+      wallTimeNanos = new long[STAGES.length];
+      allocatedBytes = collectAllocatedBytes && ALLOCATION_MX_BEAN != null ? new long[STAGES.length] : null;
+      startStage();
+    }
+
+    /**
+     * Ends the current stage and starts the next one.
+     */
+    void endStage(Stage stage) {
+      if (wallTimeNanos == null) {
+        return;
+      }
+      long endNanos = System.nanoTime();
+      wallTimeNanos[stage.ordinal()] += endNanos - stageStartNanos;
+      if (allocatedBytes != null) {
+        long endAllocatedBytes = currentThreadAllocatedBytes();
+        allocatedBytes[stage.ordinal()] += endAllocatedBytes - stageStartAllocatedBytes;
+        stageStartAllocatedBytes = endAllocatedBytes;
+      }
+      stageStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts a new stage without attributing the time since the end of the previous stage to any stage.
+     */
+    void startStage() {
+      if (wallTimeNanos == null) {
+        return;
+      }
+      if (allocatedBytes != null) {
+        stageStartAllocatedBytes = currentThreadAllocatedBytes();
+      }
+      stageStartNanos = System.nanoTime();
+    }
+
+    boolean isEnabled() {
+      return wallTimeNanos != null;
+    }
+
+    ParseStatistics build() {
+      return new ParseStatistics(wallTimeNanos.clone(), allocatedBytes == null ? null : allocatedBytes.clone());
+    }
+
+    private static long currentThreadAllocatedBytes() {
+      return ALLOCATION_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static com.sun.management.ThreadMXBean getAllocationMXBean() {
+      try {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+          com.sun.management.ThreadMXBean result = (com.sun.management.ThreadMXBean) threadMXBean;
+          if (result.isThreadAllocatedMemorySupported() && result.isThreadAllocatedMemoryEnabled()) {
+            return result;
+          }
+        }
+      } catch (LinkageError e) {
+        // com.sun.management is not available on all JVMs
+      }
+      return null;
+    }
+  }
+}
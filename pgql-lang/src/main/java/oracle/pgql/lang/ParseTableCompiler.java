@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.spoofax.interpreter.terms.IStrategoTerm;
+import org.spoofax.terms.TermFactory;
+import org.spoofax.terms.io.binary.SAFWriter;
+import org.spoofax.terms.io.binary.TermReader;
+
+/**
+ * Converts the textual parse table that is generated by Spoofax into a binary (streamable ATerm) parse table that is
+ * more compact and faster to read. It is invoked during the build; {@link Pgql} prefers the binary parse table when it
+ * is on the class path.
+ *
+ * Usage: ParseTableCompiler &lt;input sdf.tbl&gt; &lt;output sdf.tbl.saf&gt;
+ */
+public final class ParseTableCompiler {
+
+  private ParseTableCompiler() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      throw new IllegalArgumentException("Usage: ParseTableCompiler <input sdf.tbl> <output sdf.tbl.saf>");
+    }
+
+    IStrategoTerm parseTable = new TermReader(new TermFactory()).parseFromFile(args[0]);
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(args[1]))) {
+      SAFWriter.writeTermToSAFStream(parseTable, out);
+    }
+  }
+}
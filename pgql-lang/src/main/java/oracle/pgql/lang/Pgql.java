@@ -3,12 +3,20 @@
  */
 package oracle.pgql.lang;
 
+import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import org.metaborg.parsetable.IParseTable;
 import org.metaborg.parsetable.ParseTableReadException;
+import org.metaborg.parsetable.ParseTableReader;
 import org.metaborg.parsetable.ParseTableVariant;
 import org.spoofax.interpreter.terms.IStrategoAppl;
 import org.spoofax.interpreter.terms.IStrategoInt;
@@ -32,12 +40,18 @@ import org.spoofax.jsglr2.stack.collections.ActiveStacksRepresentation;
 import org.spoofax.jsglr2.stack.collections.ForActorStacksRepresentation;
 import org.spoofax.jsglr2.tokens.TokenizerVariant;
 import org.spoofax.terms.TermFactory;
+import org.spoofax.terms.io.binary.TermReader;
 import org.strategoxt.lang.Context;
 
+import oracle.pgql.lang.ParseStatistics.Recorder;
+import oracle.pgql.lang.ParseStatistics.Stage;
+import oracle.pgql.lang.completion.PgqlCompletionCatalog;
 import oracle.pgql.lang.completion.PgqlCompletionGenerator;
 import oracle.pgql.lang.editor.completion.PgqlCompletion;
 import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
+import oracle.pgql.lang.ir.GraphQuery;
 import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryFingerprint;
 import oracle.pgql.lang.ir.StatementType;
 import oracle.pgql.lang.metadata.AbstractMetadataProvider;
 import pgqllang.trans.get_errors_and_offsets_0_0;
@@ -46,7 +60,15 @@ import pgqllang.trans.trans;
 
 import static oracle.pgql.lang.CheckInvalidJavaComment.checkInvalidJavaComment;
 import static oracle.pgql.lang.MetadataToAstUtil.addMetadata;
-
+import static oracle.pgql.lang.MetadataToAstUtil.extractGraphNames;
+import static oracle.pgql.lang.MetadataToAstUtil.getQueryPgqlVersion;
+
+/**
+ * PGQL parser and static query validator.
+ *
+ * A Pgql instance is not thread-safe; use a {@link PgqlPool} to parse queries from multiple threads. The parse table
+ * is loaded only once and is shared between all instances.
+ */
 public class Pgql implements Closeable {
 
   public static final String NON_BREAKING_WHITE_SPACE_ERROR = "Illegal character '\u00a0' (non-breaking white space)"
@@ -66,10 +88,45 @@ public class Pgql implements Closeable {
 
   private static final PgqlVersion LATEST_VERSION = PgqlVersion.V_1_3_OR_UP;
 
+  private static final int MAX_STRATEGO_CONTEXT_USES = 10_000;
+
   private static final String ALLOW_REFERENCING_ANY_PROPERTY_FLAG = "/*ALLOW_REFERENCING_ANY_PROPERTY*/";
 
+  static final String PARSE_TABLE_RESOURCE = "sdf.tbl";
+
+  static final String BINARY_PARSE_TABLE_RESOURCE = "sdf.tbl.saf";
+
+  private static IParseTable parseTable;
+
+  private static boolean backgroundInitializationStarted = false;
+
   private final JSGLR2Implementation<IParseForest, ?, ?, IStrategoTerm, ?, ?> jsglr2;
 
+  private final PgqlResultCache cache;
+
+  // reused between parses since initializing a context is expensive; renewed periodically because every parse leaves
+  // behind a (small) counter in the context
+  private Context strategoContext;
+
+  private CancellableTermFactory strategoTermFactory;
+
+  private int strategoContextUseCount = 0;
+
+  private boolean pruneGraphSchema = false;
+
+  private boolean collectParseStatistics = false;
+
+  private boolean collectAllocatedBytes = false;
+
+  private PgqlComplexityBudget complexityBudget = PgqlComplexityBudget.UNLIMITED;
+
+  private boolean autoParameterize = false;
+
+  // indexed graph names, labels and properties of the last completion context
+  private PgqlCompletionCatalog completionCatalog;
+
+  private int maxCompletionResults = PgqlCompletionCatalog.UNLIMITED_RESULTS;
+
   private boolean closed = false;
 
   /**
@@ -78,12 +135,48 @@ public class Pgql implements Closeable {
    * @throws IOException
    */
   public Pgql() throws PgqlException {
+    this(null);
+  }
+
+  /**
+   * Loads PGQL Spoofax binaries if not done already.
+   *
+   * @param cache
+   *          the cache for parse results, which may be shared between Pgql instances; null for no caching. Results
+   *          that come from the cache hold a copy of the cached statement, so callers may modify them.
+   */
+  public Pgql(PgqlResultCache cache) throws PgqlException {
+    this.cache = cache;
+    initializeInBackground(); // Stratego initializes in the background while this thread reads the parse table
     try {
       jsglr2 = getParser(getParseTable());
     } catch (ParseTableReadException | IOException e) {
       throw new PgqlException(e);
     }
-    parse("SELECT 'dummy' FROM MATCH (n)"); // make it initialize things
+  }
+
+  /**
+   * Starts reading the parse table and initializing the Stratego runtime in background threads, if not done already.
+   *
+   * Short-lived processes can call this as early as possible so that the initialization overlaps with other start-up
+   * work. Constructing a Pgql instance waits until the parse table is read, while the first parse waits until the
+   * Stratego runtime is initialized.
+   */
+  public static synchronized void initializeInBackground() {
+    if (backgroundInitializationStarted) {
+      return;
+    }
+    backgroundInitializationStarted = true;
+
+    // errors are ignored here; they are reported again when the parse table or the Stratego runtime is used
+    CompletableFuture.runAsync(() -> {
+      try {
+        getParseTable();
+      } catch (ParseTableReadException | IOException e) {
+        // ignore
+      }
+    });
+    CompletableFuture.runAsync(() -> trans.init(new Context(new TermFactory())));
   }
 
   /**
@@ -111,37 +204,389 @@ public class Pgql implements Closeable {
    *           if the query contains errors
    */
   public PgqlResult parse(String queryString, AbstractMetadataProvider metadataProvider) throws PgqlException {
+    return parse(queryString, metadataProvider, null);
+  }
+
+  /**
+   * Parse a PGQL query (either a SELECT or MODIFY query).
+   *
+   * @param queryString
+   *          PGQL query to parse
+   * @param metadataProvider
+   *          the metadata provider for enhanced type checking based on graph schema information and other metadata
+   * @param compiledGraphSchema
+   *          the precompiled graph schema (see {@link CompiledGraphSchema#compile(AbstractMetadataProvider)}); if the
+   *          query references a different graph then the schema of that graph is obtained from the metadata provider
+   * @return parse result holding either an AST or error messages
+   * @throws PgqlException
+   *           if the query contains errors
+   */
+  public PgqlResult parse(String queryString, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema) throws PgqlException {
+    return parse(queryString, metadataProvider, compiledGraphSchema, null);
+  }
+
+  /**
+   * Parse a PGQL query (either a SELECT or MODIFY query) such that the parse can be aborted.
+   *
+   * @param queryString
+   *          PGQL query to parse
+   * @param metadataProvider
+   *          the metadata provider for enhanced type checking based on graph schema information and other metadata
+   * @param compiledGraphSchema
+   *          the precompiled graph schema (see {@link CompiledGraphSchema#compile(AbstractMetadataProvider)}); may be
+   *          null
+   * @param cancellationToken
+   *          the token that aborts the parse once it is cancelled or once its deadline has passed; may be null
+   * @return parse result holding either an AST or error messages
+   * @throws PgqlCancellationException
+   *           if the parse was aborted
+   * @throws PgqlComplexityException
+   *           if the query exceeds the complexity budget (see {@link #setComplexityBudget(PgqlComplexityBudget)})
+   * @throws PgqlException
+   *           if the query contains errors
+   */
+  public PgqlResult parse(String queryString, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema, PgqlCancellationToken cancellationToken) throws PgqlException {
+    if (closed) {
+      throw new PgqlException("Pgql instance was closed");
+    }
+
+    if (cache == null) {
+      return parseWithoutCache(queryString, metadataProvider, compiledGraphSchema, cancellationToken);
+    }
+
+    if (autoParameterize && PgqlResultCache.isCacheable(metadataProvider)) {
+      PgqlResult result = parseParameterized(queryString, metadataProvider, compiledGraphSchema, cancellationToken);
+      if (result != null) {
+        return result;
+      }
+    }
+
+    int settings = getResultSettings();
+    PgqlResult result = cache.get(queryString, metadataProvider, settings);
+    if (result == null) {
+      result = parseWithoutCache(queryString, metadataProvider, compiledGraphSchema, cancellationToken);
+      cache.put(queryString, metadataProvider, settings, result);
+    }
+    return result;
+  }
+
+  /**
+   * @return the settings of this instance that change parse results, which are part of the key of cached results
+   */
+  private int getResultSettings() {
+    int settings = autoParameterize ? PgqlResultCache.AUTO_PARAMETERIZE : 0;
+    if (collectParseStatistics) {
+      settings |= PgqlResultCache.COLLECT_PARSE_STATISTICS;
+      settings |= collectAllocatedBytes ? PgqlResultCache.COLLECT_ALLOCATED_BYTES : 0;
+    }
+    return settings;
+  }
+
+  /**
+   * @return the result of the query, obtained from the cached result of the query's shape (see
+   *         {@link AutoParameterization}); null if the query has to be parsed by itself
+   */
+  private PgqlResult parseParameterized(String queryString, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema, PgqlCancellationToken cancellationToken) throws PgqlException {
+    throwIfCancelled(cancellationToken);
+    AutoParameterization.Shape shape = AutoParameterization.extractShape(queryString);
+    if (shape == null) {
+      return null;
+    }
+
+    // results from the persistent cache lack the template, so the shape always comes from memory or from the parser
+    int settings = getResultSettings();
+    PgqlResult shapeResult = cache.getShared(shape.getQueryString(), metadataProvider, settings);
+    if (shapeResult == null) {
+      shapeResult = parseWithoutCache(shape.getQueryString(), metadataProvider, compiledGraphSchema,
+          cancellationToken);
+      cache.put(shape.getQueryString(), metadataProvider, settings, shapeResult, false);
+    }
+    AutoParameterization.Template template = shapeResult.getTemplate();
+    if (template == null) {
+      return null; // the shape is not a valid query
+    }
+
+    Boolean verified = template.isVerified(shape.getSignature());
+    if (verified == null) {
+      // the first query with this shape and these types of literals is parsed by itself and compared
+      PgqlResult result = parseWithoutCache(queryString, metadataProvider, compiledGraphSchema, cancellationToken);
+      cache.put(queryString, metadataProvider, settings, result);
+      if (result.isQueryValid()) {
+        PgqlStatement statement = template.instantiate(shape);
+        PgqlStatement expectedStatement = result.getPgqlStatement();
+        template.setVerified(shape.getSignature(), statement != null && statement.equals(expectedStatement)
+            && expectedStatement.toString().equals(statement.toString())
+            && result.getBindVariableCount() == shapeResult.getBindVariableCount() - shape.getLiteralCount());
+      }
+      return result;
+    } else if (!verified) {
+      return null;
+    }
+
+    // only the translation of the template is attributed to the query; the shape was parsed by an earlier query
+    Recorder recorder = collectParseStatistics ? new Recorder(collectAllocatedBytes) : Recorder.DISABLED;
+    PgqlStatement statement = template.instantiate(shape);
+    PgqlResult result = new PgqlResult(queryString, true, null, statement, shapeResult.getPgqlVersion(),
+        shapeResult.getBindVariableCount() - shape.getLiteralCount(), shapeResult.querySelectsAllProperties(),
+        metadataProvider);
+    result.setFingerprint(computeFingerprint(true, statement));
+    recorder.endStage(Stage.TRANSLATION);
+    if (recorder.isEnabled()) {
+      result.setParseStatistics(recorder.build());
+    }
+    return result;
+  }
+
+  /**
+   * Reject queries that exceed the given limits on their size, such that pathological or adversarial queries cannot
+   * keep the parser busy for a long time. Results that are already in the cache are returned without checking the
+   * budget.
+   *
+   * @param complexityBudget
+   *          the limits (default {@link PgqlComplexityBudget#UNLIMITED})
+   */
+  public void setComplexityBudget(PgqlComplexityBudget complexityBudget) {
+    this.complexityBudget = complexityBudget;
+  }
+
+  public PgqlComplexityBudget getComplexityBudget() {
+    return complexityBudget;
+  }
+
+  /**
+   * Share the work of parsing between queries that only differ in their literals, such as {@code WHERE n.id = 42} and
+   * {@code WHERE n.id = 43}. The integer, decimal, string and boolean literals of a query are replaced with bind
+   * variables, after which the resulting query is parsed and analyzed only once. The statement of each query is then
+   * obtained by a cheap translation in which the literals are put back as constants. Results are the same as without
+   * parameterization: a full parse of the first query of each shape, combination of literal types and pattern of equal
+   * literals is used to verify this. Literals whose value is checked during analysis, such as the labels of label
+   * predicates, are never replaced (see {@link AutoParameterization}).
+   *
+   * Only has an effect if this instance has a cache (see {@link #Pgql(PgqlResultCache)}), which then holds the
+   * parameterized queries rather than the individual queries.
+   *
+   * @param autoParameterize
+   *          whether to parameterize literals automatically (default false)
+   */
+  public void setAutoParameterize(boolean autoParameterize) {
+    this.autoParameterize = autoParameterize;
+  }
+
+  public boolean isAutoParameterize() {
+    return autoParameterize;
+  }
+
+  /**
+   * Check whether a PGQL query is syntactically valid and extract the names of the graphs that it references. This only
+   * parses the query and skips semantic analysis and translation, which makes it much faster than
+   * {@link #parse(String)}. A syntactically valid query may still have semantic errors.
+   *
+   * The query string is checked against the complexity budget (see {@link #setComplexityBudget(PgqlComplexityBudget)})
+   * but results are not cached.
+   *
+   * @param queryString
+   *          PGQL query to check
+   * @return check result holding either the referenced graph names or the syntax error
+   * @throws PgqlException
+   *           if the query contains errors that are reported through exceptions by {@link #parse(String)} as well
+   */
+  public PgqlCheckResult check(String queryString) throws PgqlException {
+    if (closed) {
+      throw new PgqlException("Pgql instance was closed");
+    }
+
+    if (queryString.trim().equals("")) {
+      return new PgqlCheckResult(queryString, false, "Empty query string", LATEST_VERSION, Collections.emptySet());
+    }
+
+    complexityBudget.checkQueryString(queryString);
+    JSGLR2Result<IStrategoTerm> parseResult = jsglr2.parseResult(queryString);
+    if (!parseResult.isSuccess()) {
+      String error = getSyntaxErrorMessage(queryString, parseResult);
+      return new PgqlCheckResult(queryString, false, error, LATEST_VERSION, Collections.emptySet());
+    }
+    IStrategoTerm parseAst = ((JSGLR2Success<IStrategoTerm>) parseResult).ast;
+
+    PgqlVersion pgqlVersion = getQueryPgqlVersion(parseAst);
+    if (pgqlVersion == null) {
+      // DDL statements and other non-query statements
+      return new PgqlCheckResult(queryString, true, null, LATEST_VERSION, Collections.emptySet());
+    }
+
+    checkInvalidJavaComment(queryString, pgqlVersion);
+    return new PgqlCheckResult(queryString, true, null, pgqlVersion, extractGraphNames(parseAst, pgqlVersion));
+  }
+
+  private String getSyntaxErrorMessage(String queryString, JSGLR2Result<IStrategoTerm> parseResult) {
+    Position pos = ((JSGLR2Failure<IStrategoTerm>) parseResult).parseFailure.failureCause.position;
+    StringBuilder sb = new StringBuilder();
+    toErrorMessage(queryString, pos.line, pos.column - 1, -1, true, null, sb);
+    return sb.toString();
+  }
+
+  /**
+   * Only pass the properties that may be referenced by a query to the semantic analysis, instead of the properties of
+   * the entire graph schema. Labels are always passed since they are needed to check label references. This speeds up
+   * analysis for graph schemas with many properties. Parse results are the same as without pruning.
+   *
+   * @param pruneGraphSchema
+   *          whether to prune the graph schema (default false)
+   */
+  public void setPruneGraphSchema(boolean pruneGraphSchema) {
+    this.pruneGraphSchema = pruneGraphSchema;
+  }
+
+  public boolean isPruneGraphSchema() {
+    return pruneGraphSchema;
+  }
+
+  /**
+   * Collect the wall time of each stage of a parse and attach it to the parse result (see
+   * {@link PgqlResult#getParseStatistics()}).
+   *
+   * @param collectParseStatistics
+   *          whether to collect parse statistics (default false)
+   */
+  public void setCollectParseStatistics(boolean collectParseStatistics) {
+    this.collectParseStatistics = collectParseStatistics;
+  }
+
+  public boolean isCollectParseStatistics() {
+    return collectParseStatistics;
+  }
+
+  /**
+   * Limit the number of graph name, label and property completions of a single completion request to the best ranked
+   * ones (see {@link PgqlCompletionCatalog#setMaxResults(int)}).
+   *
+   * @param maxCompletionResults
+   *          the maximum number of completions per category (default {@link PgqlCompletionCatalog#UNLIMITED_RESULTS})
+   */
+  public void setMaxCompletionResults(int maxCompletionResults) {
+    this.maxCompletionResults = maxCompletionResults;
+  }
+
+  public int getMaxCompletionResults() {
+    return maxCompletionResults;
+  }
+
+  /**
+   * Also collect the number of bytes allocated in each stage of a parse, if the JVM supports it. Only has an effect if
+   * parse statistics are collected (see {@link #setCollectParseStatistics(boolean)}).
+   *
+   * @param collectAllocatedBytes
+   *          whether to collect allocated bytes (default false)
+   */
+  public void setCollectAllocatedBytes(boolean collectAllocatedBytes) {
+    this.collectAllocatedBytes = collectAllocatedBytes;
+  }
+
+  public boolean isCollectAllocatedBytes() {
+    return collectAllocatedBytes;
+  }
+
+  /**
+   * Parse many PGQL queries in parallel, using the common fork-join pool.
+   *
+   * @see #parseAll(Collection, AbstractMetadataProvider, Executor)
+   */
+  public List<PgqlResult> parseAll(Collection<String> queryStrings, AbstractMetadataProvider metadataProvider)
+      throws PgqlException {
+    return parseAll(queryStrings, metadataProvider, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parse many PGQL queries in parallel. The queries are parsed by temporary Pgql instances that have the same cache
+   * and settings as this instance.
+   *
+   * @param queryStrings
+   *          the PGQL queries to parse
+   * @param metadataProvider
+   *          the metadata provider for enhanced type checking based on graph schema information and other metadata
+   * @param executor
+   *          the executor to parse the queries with, for example a fork-join pool or a virtual-thread executor
+   * @return the parse results, in the same order as the queries
+   * @see PgqlPool#parseAll(Collection, AbstractMetadataProvider, Executor)
+   */
+  public List<PgqlResult> parseAll(Collection<String> queryStrings, AbstractMetadataProvider metadataProvider,
+      Executor executor) throws PgqlException {
     if (closed) {
       throw new PgqlException("Pgql instance was closed");
     }
 
+    try (PgqlPool pool = new PgqlPool(0, cache)) {
+      pool.setPruneGraphSchema(pruneGraphSchema);
+      pool.setCollectParseStatistics(collectParseStatistics);
+      pool.setCollectAllocatedBytes(collectAllocatedBytes);
+      pool.setComplexityBudget(complexityBudget);
+      pool.setAutoParameterize(autoParameterize);
+      return pool.parseAll(queryStrings, metadataProvider, executor);
+    }
+  }
+
+  private PgqlResult parseWithoutCache(String queryString, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema, PgqlCancellationToken cancellationToken) throws PgqlException {
+    if (!collectParseStatistics) {
+      return parseWithoutCache(queryString, metadataProvider, compiledGraphSchema, cancellationToken,
+          Recorder.DISABLED);
+    }
+
+    Recorder recorder = new Recorder(collectAllocatedBytes);
+    PgqlResult result = parseWithoutCache(queryString, metadataProvider, compiledGraphSchema, cancellationToken,
+        recorder);
+    result.setParseStatistics(recorder.build());
+    return result;
+  }
+
+  private PgqlResult parseWithoutCache(String queryString, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema, PgqlCancellationToken cancellationToken, Recorder recorder)
+      throws PgqlException {
     if (queryString.trim().equals("")) {
       String error = "Empty query string";
       return new PgqlResult(queryString, false, error, null, LATEST_VERSION, 0, false, metadataProvider);
     }
 
     /* Parse */
+    complexityBudget.checkQueryString(queryString);
+    throwIfCancelled(cancellationToken);
     JSGLR2Result<IStrategoTerm> parseResult = jsglr2.parseResult(queryString);
+    recorder.endStage(Stage.PARSE);
     if (!parseResult.isSuccess()) {
       /* Parse error */
       PgqlStatement statement = null;
-      Position pos = ((JSGLR2Failure<IStrategoTerm>) parseResult).parseFailure.failureCause.position;
-      StringBuilder sb = new StringBuilder();
-      toErrorMessage(queryString, pos.line, pos.column - 1, -1, true, null, sb);
-      return new PgqlResult(queryString, false, sb.toString(), statement, LATEST_VERSION, 0, false, metadataProvider);
+      String error = getSyntaxErrorMessage(queryString, parseResult);
+      return new PgqlResult(queryString, false, error, statement, LATEST_VERSION, 0, false, metadataProvider);
     }
     IStrategoTerm parseAst = ((JSGLR2Success<IStrategoTerm>) parseResult).ast;
+    complexityBudget.checkParseAst(parseAst);
+    throwIfCancelled(cancellationToken);
 
     /* Add graph metadata */
-    Context c = trans.init(new Context(new ImploderOriginTermFactory(new TermFactory())));
+    Context c = acquireStrategoContext();
     boolean allowReferencingAnyProperty = queryString.contains(ALLOW_REFERENCING_ANY_PROPERTY_FLAG);
-    IStrategoTerm parseAstPlusMetadata = addMetadata(parseAst, metadataProvider, c.getFactory(),
-        allowReferencingAnyProperty);
+    IStrategoTerm parseAstPlusMetadata = addMetadata(parseAst, metadataProvider, compiledGraphSchema, c.getFactory(),
+        allowReferencingAnyProperty, pruneGraphSchema);
+    recorder.endStage(Stage.METADATA);
 
     /* Semantic analysis */
-    IStrategoTerm analyzedAstPlusMetadata = pgql_trans_0_0.instance.invoke(c, parseAstPlusMetadata);
+    IStrategoTerm analyzedAstPlusMetadata;
+    strategoTermFactory.setCancellationToken(cancellationToken);
+    try {
+      analyzedAstPlusMetadata = pgql_trans_0_0.instance.invoke(c, parseAstPlusMetadata);
+    } catch (CancellationException e) {
+      // the context is not released since the analysis was aborted halfway
+      throwIfCancelled(cancellationToken);
+      throw e;
+    } finally {
+      strategoTermFactory.setCancellationToken(null);
+    }
+    recorder.endStage(Stage.ANALYSIS);
 
     IStrategoTerm errorMessagesT = get_errors_and_offsets_0_0.instance.invoke(c, analyzedAstPlusMetadata);
+    releaseStrategoContext(c);
     String prettyMessages = null;
     boolean queryValid = true;
     if (errorMessagesT.getSubtermCount() > 0) {
@@ -180,6 +625,7 @@ public class Pgql implements Closeable {
       prettyMessages = sb.toString();
     }
     IStrategoTerm analyzedAst = MetadataToAstUtil.removeMetadata(analyzedAstPlusMetadata);
+    recorder.endStage(Stage.ERROR_EXTRACTION);
 
     PgqlStatement statement = null;
     try {
@@ -188,6 +634,7 @@ public class Pgql implements Closeable {
       if (e instanceof PgqlException) {
         prettyMessages = e.getMessage();
         queryValid = false;
+        recorder.endStage(Stage.TRANSLATION);
         return new PgqlResult(queryString, queryValid, prettyMessages, statement, LATEST_VERSION, 0, false,
             metadataProvider);
       } else {
@@ -206,13 +653,60 @@ public class Pgql implements Closeable {
 
     int bindVariableCount = getBindVariableCount(queryAnnotations, statement);
     boolean querySelectsAllProperties = querySelectsAllProperties(queryAnnotations, statement);
+    QueryFingerprint fingerprint = computeFingerprint(queryValid, statement);
+    recorder.endStage(Stage.TRANSLATION);
+
+    PgqlResult result = new PgqlResult(queryString, queryValid, prettyMessages, statement, pgqlVersion,
+        bindVariableCount, querySelectsAllProperties, metadataProvider);
+    result.setFingerprint(fingerprint);
+    if (autoParameterize && queryValid && bindVariableCount > 0 && pgqlVersion == LATEST_VERSION) {
+      // string literals of older PGQL versions are unescaped differently
+      result.setTemplate(new AutoParameterization.Template(analyzedAst));
+    }
+    return result;
+  }
+
+  private static QueryFingerprint computeFingerprint(boolean queryValid, PgqlStatement statement) {
+    if (!queryValid || statement == null) {
+      return null;
+    }
+    switch (statement.getStatementType()) {
+      case SELECT:
+      case GRAPH_MODIFY:
+        return QueryFingerprint.of((GraphQuery) statement);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Takes the Stratego context out of this instance so that a context is never reused after an exception left it in an
+   * unknown state; {@link #releaseStrategoContext(Context)} puts it back.
+   */
+  private Context acquireStrategoContext() {
+    Context c = strategoContext;
+    strategoContext = null;
+    if (c == null || strategoContextUseCount >= MAX_STRATEGO_CONTEXT_USES) {
+      strategoTermFactory = new CancellableTermFactory();
+      c = trans.init(new Context(new ImploderOriginTermFactory(strategoTermFactory)));
+      strategoContextUseCount = 0;
+    }
+    strategoContextUseCount++;
+    return c;
+  }
 
-    return new PgqlResult(queryString, queryValid, prettyMessages, statement, pgqlVersion, bindVariableCount,
-        querySelectsAllProperties, metadataProvider);
+  private void releaseStrategoContext(Context c) {
+    strategoContext = c;
+  }
+
+  private static void throwIfCancelled(PgqlCancellationToken cancellationToken) throws PgqlCancellationException {
+    if (cancellationToken != null) {
+      cancellationToken.throwIfCancelled();
+    }
   }
 
   @SuppressWarnings("unchecked")
-  private JSGLR2Implementation<IParseForest, ?, ?, IStrategoTerm, ?, ?> getParser(IParseTable parseTable) {
+  static JSGLR2Implementation<IParseForest, ?, ?, IStrategoTerm, ?, ?> getParser(IParseTable parseTable) {
     final ParserVariant parserVariant = new ParserVariant(ActiveStacksRepresentation.standard(),
         ForActorStacksRepresentation.standard(), ParseForestRepresentation.standard(),
         ParseForestConstruction.standard(), StackRepresentation.standard(), Reducing.standard(), false);
@@ -221,10 +715,33 @@ public class Pgql implements Closeable {
     return (JSGLR2Implementation<IParseForest, ?, ?, IStrategoTerm, ?, ?>) jsglr2Variant.getJSGLR2(parseTable);
   }
 
-  private IParseTable getParseTable() throws ParseTableReadException, IOException {
-    final InputStream parseTableInputStream = Pgql.class.getClassLoader().getResourceAsStream("sdf.tbl");
-    final ParseTableVariant tableVariant = new ParseTableVariant();
-    return tableVariant.parseTableReader().read(parseTableInputStream);
+  static synchronized IParseTable getParseTable() throws ParseTableReadException, IOException {
+    if (parseTable == null) {
+      // the binary parse table is generated at build time (see ParseTableCompiler) and is faster to read
+      parseTable = readParseTable(BINARY_PARSE_TABLE_RESOURCE);
+      if (parseTable == null) {
+        parseTable = readParseTable(PARSE_TABLE_RESOURCE);
+      }
+    }
+    return parseTable;
+  }
+
+  /**
+   * @return the parse table, or null if the resource does not exist
+   */
+  static IParseTable readParseTable(String resourceName) throws ParseTableReadException, IOException {
+    try (InputStream parseTableInputStream = Pgql.class.getClassLoader().getResourceAsStream(resourceName)) {
+      if (parseTableInputStream == null) {
+        return null;
+      }
+      ParseTableReader parseTableReader = new ParseTableVariant().parseTableReader();
+      if (resourceName.equals(BINARY_PARSE_TABLE_RESOURCE)) {
+        InputStream bufferedInputStream = new BufferedInputStream(parseTableInputStream, 1 << 16);
+        return parseTableReader.read(new TermReader(new TermFactory()).parseFromStream(bufferedInputStream));
+      } else {
+        return parseTableReader.read(parseTableInputStream);
+      }
+    }
   }
 
   private void toErrorMessage(String queryString, int lineNumber, int columnNumber, int length, boolean parseError,
@@ -329,17 +846,47 @@ public class Pgql implements Closeable {
    * Generate code completions, given a (partial) query and cursor location.
    */
   public List<PgqlCompletion> complete(String queryString, int cursor, PgqlCompletionContext ctx) throws PgqlException {
-    PgqlResult pgqlResult = null;
+    // Iterable<ICompletion> spoofaxCompletions = null;
+    // synchronized (lock) { spoofaxCompletions = spoofaxComplete(pgqlResult.getSpoofaxParseUnit(), cursor); } // not
+    // used yet
+
+    return PgqlCompletionGenerator.generate(() -> parseForCompletion(queryString), queryString, cursor,
+        getCompletionCatalog(ctx));
+  }
+
+  /**
+   * @return the catalog of the last completion request if it is still up to date, or otherwise a new catalog
+   */
+  synchronized PgqlCompletionCatalog getCompletionCatalog(PgqlCompletionContext ctx) {
+    if (completionCatalog == null || !completionCatalog.isUpToDate(ctx)) {
+      completionCatalog = new PgqlCompletionCatalog(ctx);
+    }
+    completionCatalog.setMaxResults(maxCompletionResults);
+    return completionCatalog;
+  }
+
+  /**
+   * @return the parse result, or null if the query could not be parsed
+   */
+  private PgqlResult parseForCompletion(String queryString) {
     try {
-      pgqlResult = parse(queryString);
+      return parse(queryString);
     } catch (PgqlException e) {
       // spoofax e.g. throws exception for query "SELECT * FROM g MATCH "
+      return null;
     }
-    // Iterable<ICompletion> spoofaxCompletions = null;
-    // synchronized (lock) { spoofaxCompletions = spoofaxComplete(pgqlResult.getSpoofaxParseUnit(), cursor); } // not
-    // used yet
+  }
 
-    return PgqlCompletionGenerator.generate(pgqlResult, queryString, cursor, ctx);
+  /**
+   * Create a session for editing a single query, for example in a query editor. The session keeps the results of
+   * previous parses such that diagnostics and completions after a small edit are cheaper than parsing the query from
+   * scratch.
+   *
+   * @param metadataProvider
+   *          the metadata provider for enhanced type checking; may be null
+   */
+  public PgqlEditorSession createEditorSession(AbstractMetadataProvider metadataProvider) {
+    return new PgqlEditorSession(this, metadataProvider);
   }
 
   @Override
@@ -0,0 +1,14 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+/**
+ * Thrown when a parse is aborted because its {@link PgqlCancellationToken} was cancelled or its deadline passed.
+ */
+public class PgqlCancellationException extends PgqlException {
+
+  public PgqlCancellationException(String msg) {
+    super(msg);
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Allows a parse to be aborted, either explicitly through {@link #cancel()} (for example from another thread) or
+ * automatically once a deadline has passed. Pass it to the parse methods of {@link Pgql} that take a cancellation
+ * token.
+ *
+ * Cancellation is cooperative: the token is checked between the stages of a parse and regularly during semantic
+ * analysis. The parser itself cannot be interrupted, but its work can be bounded through a
+ * {@link PgqlComplexityBudget}.
+ *
+ * A token can be shared between multiple parses, for example all the parses for a single request.
+ */
+public class PgqlCancellationToken {
+
+  private final long deadlineNanos;
+
+  private final boolean hasDeadline;
+
+  private volatile boolean cancelled = false;
+
+  /**
+   * Creates a token without a deadline, which is only cancelled through {@link #cancel()}.
+   */
+  public PgqlCancellationToken() {
+    this.deadlineNanos = 0;
+    this.hasDeadline = false;
+  }
+
+  private PgqlCancellationToken(long deadlineNanos) {
+    this.deadlineNanos = deadlineNanos;
+    this.hasDeadline = true;
+  }
+
+  /**
+   * Creates a token that is cancelled once the timeout has passed, or earlier through {@link #cancel()}.
+   */
+  public static PgqlCancellationToken withTimeout(long timeout, TimeUnit unit) {
+    return new PgqlCancellationToken(System.nanoTime() + unit.toNanos(timeout));
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * @return true if the token was cancelled or if its deadline has passed
+   */
+  public boolean isCancelled() {
+    return cancelled || (hasDeadline && System.nanoTime() - deadlineNanos >= 0);
+  }
+
+  void throwIfCancelled() throws PgqlCancellationException {
+    if (isCancelled()) {
+      throw new PgqlCancellationException(cancelled ? "Parse was cancelled" : "Parse exceeded its deadline");
+    }
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+
+/**
+ * The result of {@link Pgql#check(String)}: whether a query is syntactically valid and which graphs it references.
+ * Unlike {@link PgqlResult}, the query is not analyzed, so a syntactically valid query may still have semantic errors
+ * such as references to undefined variables.
+ */
+public class PgqlCheckResult {
+
+  private final String queryString;
+
+  private final boolean syntaxValid;
+
+  private final String errorMessages;
+
+  private final PgqlVersion pgqlVersion;
+
+  private final Set<SchemaQualifiedName> graphNames;
+
+  PgqlCheckResult(String queryString, boolean syntaxValid, String errorMessages, PgqlVersion pgqlVersion,
+      Set<SchemaQualifiedName> graphNames) {
+    this.queryString = queryString;
+    this.syntaxValid = syntaxValid;
+    this.errorMessages = errorMessages;
+    this.pgqlVersion = pgqlVersion;
+    this.graphNames = Collections.unmodifiableSet(graphNames);
+  }
+
+  /**
+   * @return the original query as String
+   */
+  public String getQueryString() {
+    return queryString;
+  }
+
+  /**
+   * @return true if the query is syntactically valid
+   */
+  public boolean isSyntaxValid() {
+    return syntaxValid;
+  }
+
+  /**
+   * @return a String with the syntax error if the query is not syntactically valid; null otherwise
+   */
+  public String getErrorMessages() {
+    return errorMessages;
+  }
+
+  /**
+   * @return the PGQL version of the query; the latest version for statements other than queries or if the query is
+   *         not syntactically valid
+   */
+  public PgqlVersion getPgqlVersion() {
+    return pgqlVersion;
+  }
+
+  /**
+   * @return the names of the graphs referenced in the query (e.g. through ON or GRAPH_TABLE); empty if the query does
+   *         not reference a graph, in which case it is executed against the default graph
+   */
+  public Set<SchemaQualifiedName> getGraphNames() {
+    return graphNames;
+  }
+
+  /**
+   * @return the name of the graph referenced in the query, if the query references exactly one graph
+   */
+  public Optional<SchemaQualifiedName> getGraphName() {
+    return graphNames.size() == 1 ? Optional.of(graphNames.iterator().next()) : Optional.empty();
+  }
+}
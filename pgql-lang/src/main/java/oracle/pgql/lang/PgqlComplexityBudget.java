@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.spoofax.interpreter.terms.IStrategoAppl;
+import org.spoofax.interpreter.terms.IStrategoTerm;
+
+/**
+ * Limits on the size of the queries that a parser accepts, such that pathological or adversarial queries are rejected
+ * before they keep the parser busy for a long time (see {@link Pgql#setComplexityBudget(PgqlComplexityBudget)}).
+ * Queries that exceed the budget are rejected with a {@link PgqlComplexityException}.
+ *
+ * The number of tokens and the nesting depth are checked before parsing. The pattern size and the number of subqueries
+ * are checked before semantic analysis.
+ *
+ * Budgets are immutable; for example:
+ *
+ * <pre>
+ * PgqlComplexityBudget budget = PgqlComplexityBudget.UNLIMITED.withMaxTokens(10_000).withMaxNestingDepth(64);
+ * </pre>
+ */
+public final class PgqlComplexityBudget {
+
+  public static final PgqlComplexityBudget UNLIMITED = new PgqlComplexityBudget(Integer.MAX_VALUE, Integer.MAX_VALUE,
+      Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+  private final int maxTokens;
+
+  private final int maxNestingDepth;
+
+  private final int maxPatternSize;
+
+  private final int maxSubqueries;
+
+  private PgqlComplexityBudget(int maxTokens, int maxNestingDepth, int maxPatternSize, int maxSubqueries) {
+    this.maxTokens = maxTokens;
+    this.maxNestingDepth = maxNestingDepth;
+    this.maxPatternSize = maxPatternSize;
+    this.maxSubqueries = maxSubqueries;
+  }
+
+  /**
+   * @param maxTokens
+   *          the maximum number of tokens (keywords, identifiers, literals and symbols) in the query string
+   */
+  public PgqlComplexityBudget withMaxTokens(int maxTokens) {
+    return new PgqlComplexityBudget(checkPositive("maxTokens", maxTokens), maxNestingDepth, maxPatternSize,
+        maxSubqueries);
+  }
+
+  /**
+   * @param maxNestingDepth
+   *          the maximum nesting depth of parentheses, brackets and braces in the query string
+   */
+  public PgqlComplexityBudget withMaxNestingDepth(int maxNestingDepth) {
+    return new PgqlComplexityBudget(maxTokens, checkPositive("maxNestingDepth", maxNestingDepth), maxPatternSize,
+        maxSubqueries);
+  }
+
+  /**
+   * @param maxPatternSize
+   *          the maximum total number of vertices and edges/paths in the graph patterns of the query, including
+   *          subqueries
+   */
+  public PgqlComplexityBudget withMaxPatternSize(int maxPatternSize) {
+    return new PgqlComplexityBudget(maxTokens, maxNestingDepth, checkPositive("maxPatternSize", maxPatternSize),
+        maxSubqueries);
+  }
+
+  /**
+   * @param maxSubqueries
+   *          the maximum number of subqueries (EXISTS, scalar and LATERAL subqueries) in the query
+   */
+  public PgqlComplexityBudget withMaxSubqueries(int maxSubqueries) {
+    if (maxSubqueries < 0) {
+      throw new IllegalArgumentException("maxSubqueries should not be negative but was " + maxSubqueries);
+    }
+    return new PgqlComplexityBudget(maxTokens, maxNestingDepth, maxPatternSize, maxSubqueries);
+  }
+
+  public int getMaxTokens() {
+    return maxTokens;
+  }
+
+  public int getMaxNestingDepth() {
+    return maxNestingDepth;
+  }
+
+  public int getMaxPatternSize() {
+    return maxPatternSize;
+  }
+
+  public int getMaxSubqueries() {
+    return maxSubqueries;
+  }
+
+  private static int checkPositive(String name, int value) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " should be positive but was " + value);
+    }
+    return value;
+  }
+
+  /**
+   * Checks the number of tokens and the nesting depth with a single scan over the query string. The scan stops as soon
+   * as a limit is exceeded.
+   */
+  void checkQueryString(String queryString) throws PgqlComplexityException {
+    if (maxTokens == Integer.MAX_VALUE && maxNestingDepth == Integer.MAX_VALUE) {
+      return;
+    }
+
+    int tokens = 0;
+    int depth = 0;
+    int i = 0;
+    int length = queryString.length();
+    while (i < length) {
+      char c = queryString.charAt(i);
+      if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+        i++;
+        continue;
+      }
+      if (c == '/' && i + 1 < length && queryString.charAt(i + 1) == '/') {
+        int end = queryString.indexOf('\n', i + 2);
+        i = end == -1 ? length : end + 1;
+        continue;
+      }
+      if (c == '/' && i + 1 < length && queryString.charAt(i + 1) == '*') {
+        int end = queryString.indexOf("*/", i + 2);
+        i = end == -1 ? length : end + 2;
+        continue;
+      }
+
+      if (++tokens > maxTokens) {
+        throw new PgqlComplexityException("Query exceeds the maximum number of tokens (" + maxTokens + ")");
+      }
+
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skipQuoted(queryString, i);
+      } else if (isWordPart(c)) {
+        do {
+          i++;
+        } while (i < length && isWordPart(queryString.charAt(i)));
+      } else {
+        if (c == '(' || c == '[' || c == '{') {
+          if (++depth > maxNestingDepth) {
+            throw new PgqlComplexityException("Query exceeds the maximum nesting depth (" + maxNestingDepth + ")");
+          }
+        } else if (c == ')' || c == ']' || c == '}') {
+          depth = Math.max(0, depth - 1);
+        }
+        i++;
+      }
+    }
+  }
+
+  private static int skipQuoted(String queryString, int start) {
+    char quote = queryString.charAt(start);
+    int i = start + 1;
+    while (i < queryString.length()) {
+      char c = queryString.charAt(i);
+      if (c == '\\') {
+        i += 2;
+      } else if (c == quote) {
+        return i + 1;
+      } else {
+        i++;
+      }
+    }
+    return queryString.length();
+  }
+
+  private static boolean isWordPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+  }
+
+  /**
+   * Checks the pattern size and the number of subqueries in the parse tree, before the (more expensive) semantic
+   * analysis.
+   */
+  void checkParseAst(IStrategoTerm parseAst) throws PgqlComplexityException {
+    if (maxPatternSize == Integer.MAX_VALUE && maxSubqueries == Integer.MAX_VALUE) {
+      return;
+    }
+
+    int patternSize = 0;
+    int subqueries = 0;
+    // iterative since long expressions result in deep trees
+    Deque<IStrategoTerm> stack = new ArrayDeque<>();
+    stack.push(parseAst);
+    while (!stack.isEmpty()) {
+      IStrategoTerm term = stack.pop();
+      if (term instanceof IStrategoAppl) {
+        switch (((IStrategoAppl) term).getConstructor().getName()) {
+          case "Vertex":
+          case "SingleVertex":
+          case "EdgeVertex":
+          case "RelaxedEdgeVertex":
+            patternSize++;
+            break;
+          case "Subquery":
+            subqueries++;
+            break;
+          default:
+            break;
+        }
+      }
+      for (int i = 0; i < term.getSubtermCount(); i++) {
+        stack.push(term.getSubterm(i));
+      }
+    }
+
+    if (patternSize > maxPatternSize) {
+      throw new PgqlComplexityException("Query exceeds the maximum pattern size (" + patternSize
+          + " vertices and edges; maximum " + maxPatternSize + ")");
+    }
+    if (subqueries > maxSubqueries) {
+      throw new PgqlComplexityException(
+          "Query exceeds the maximum number of subqueries (" + subqueries + "; maximum " + maxSubqueries + ")");
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "PgqlComplexityBudget[maxTokens=" + maxTokens + ", maxNestingDepth=" + maxNestingDepth + ", maxPatternSize="
+        + maxPatternSize + ", maxSubqueries=" + maxSubqueries + "]";
+  }
+}
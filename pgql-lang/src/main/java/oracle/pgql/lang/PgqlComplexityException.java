@@ -0,0 +1,14 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+/**
+ * Thrown when a query is rejected because it exceeds the {@link PgqlComplexityBudget} of the parser.
+ */
+public class PgqlComplexityException extends PgqlException {
+
+  public PgqlComplexityException(String msg) {
+    super(msg);
+  }
+}
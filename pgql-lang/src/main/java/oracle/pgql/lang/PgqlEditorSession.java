@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import oracle.pgql.lang.completion.PgqlCompletionGenerator;
+import oracle.pgql.lang.editor.completion.PgqlCompletion;
+import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * A session for editing a single query, for example in a query editor, that keeps parse state between edits. Create
+ * one through {@link Pgql#createEditorSession(AbstractMetadataProvider)}.
+ *
+ * The session avoids parsing the query where possible:
+ * <ul>
+ * <li>Diagnostics and completions for the same text share a single parse.</li>
+ * <li>The results of recent texts are kept, such that undoing an edit or typing and then deleting a character does not
+ * require parsing again. Like {@link PgqlResultCache}, results are only kept across edits if the metadata provider
+ * provides a schema version (see {@link AbstractMetadataProvider#getSchemaVersion()}) or if there is no metadata
+ * provider.</li>
+ * <li>Completions that do not depend on the query's AST, such as keyword completions, do not parse the query at
+ * all.</li>
+ * <li>While the query is incomplete and cannot be analyzed, for example right after typing a "." to get property
+ * completions, completions are generated from the last query that could be analyzed.</li>
+ * </ul>
+ *
+ * If the metadata changes without a change in schema version, call {@link #invalidate()}.
+ *
+ * A session is not thread-safe and uses the Pgql instance that created it.
+ */
+public class PgqlEditorSession {
+
+  private static final int MAX_RECENT_RESULTS = 16;
+
+  private final Pgql pgql;
+
+  private final AbstractMetadataProvider metadataProvider;
+
+  private final Map<String, PgqlResult> recentResults = new LinkedHashMap<String, PgqlResult>(16, 0.75f, true) {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, PgqlResult> eldest) {
+      return size() > MAX_RECENT_RESULTS;
+    }
+  };
+
+  private Optional<Long> schemaVersion;
+
+  private long invalidationCount;
+
+  private String currentQueryString;
+
+  private PgqlResult currentResult;
+
+  private PgqlResult lastAnalyzedResult;
+
+  PgqlEditorSession(Pgql pgql, AbstractMetadataProvider metadataProvider) {
+    this.pgql = pgql;
+    this.metadataProvider = metadataProvider;
+    this.schemaVersion = getSchemaVersion();
+    this.invalidationCount = getInvalidationCount();
+  }
+
+  /**
+   * Update the text of the query, for example after an edit.
+   *
+   * @param queryString
+   *          the new text of the query
+   * @return the parse result for the new text, holding the diagnostics (error messages) of the query
+   * @throws PgqlException
+   *           if the query could not be parsed
+   */
+  public PgqlResult update(String queryString) throws PgqlException {
+    invalidateIfMetadataChanged();
+    if (queryString.equals(currentQueryString)) {
+      return currentResult;
+    }
+
+    PgqlResult result = recentResults.get(queryString);
+    if (result == null) {
+      result = pgql.parse(queryString, metadataProvider);
+      if (isCacheable()) {
+        recentResults.put(queryString, result);
+      }
+    }
+
+    currentQueryString = queryString;
+    currentResult = result;
+    if (result.getGraphQuery() != null) {
+      lastAnalyzedResult = result;
+    }
+    return result;
+  }
+
+  /**
+   * Generate code completions, given the (partial) query and cursor location. The query is only parsed if the
+   * completions depend on it and if it was not parsed before as part of this session.
+   */
+  public List<PgqlCompletion> complete(String queryString, int cursor, PgqlCompletionContext ctx) throws PgqlException {
+    return PgqlCompletionGenerator.generate(() -> getResultForCompletion(queryString), queryString, cursor,
+        pgql.getCompletionCatalog(ctx));
+  }
+
+  /**
+   * Forget the results of previous parses, for example because the metadata changed without a change in schema
+   * version.
+   */
+  public void invalidate() {
+    recentResults.clear();
+    currentQueryString = null;
+    currentResult = null;
+    lastAnalyzedResult = null;
+  }
+
+  private PgqlResult getResultForCompletion(String queryString) {
+    PgqlResult result;
+    try {
+      result = update(queryString);
+    } catch (PgqlException e) {
+      // spoofax e.g. throws exception for query "SELECT * FROM g MATCH "
+      result = null;
+    }
+
+    if ((result == null || result.getGraphQuery() == null) && lastAnalyzedResult != null) {
+      return lastAnalyzedResult;
+    }
+    return result;
+  }
+
+  private boolean isCacheable() {
+    return metadataProvider == null || schemaVersion.isPresent();
+  }
+
+  private void invalidateIfMetadataChanged() {
+    Optional<Long> newSchemaVersion = getSchemaVersion();
+    long newInvalidationCount = getInvalidationCount();
+    if (!newSchemaVersion.equals(schemaVersion) || newInvalidationCount != invalidationCount) {
+      schemaVersion = newSchemaVersion;
+      invalidationCount = newInvalidationCount;
+      invalidate();
+    }
+  }
+
+  private Optional<Long> getSchemaVersion() {
+    return metadataProvider == null ? Optional.empty() : metadataProvider.getSchemaVersion();
+  }
+
+  private long getInvalidationCount() {
+    return metadataProvider == null ? 0 : metadataProvider.getInvalidationCount();
+  }
+}
@@ -0,0 +1,792 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryFingerprint;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import oracle.pgql.lang.util.PgqlStatementCodec;
+
+/**
+ * An on-disk store of parse results that survives restarts of the JVM. It is used as a second level below a
+ * {@link PgqlResultCache} (see {@link PgqlResultCache#PgqlResultCache(int, long, PgqlPersistentCache)}) such that
+ * queries that were parsed by an earlier process are served without parsing them again.
+ *
+ * Results are appended to memory-mapped segment files in a directory. Every segment starts with the version of the
+ * parser that wrote it, which is derived from the version of pgql-lang (for snapshot versions: its jar file), the
+ * parse table and the Stratego runtime on the class path; segments that were written by a different version of the
+ * parser are deleted when the store is opened. Results are keyed by
+ * the query string and the schema version of the metadata provider (see
+ * {@link AbstractMetadataProvider#getSchemaVersion()}). Since metadata providers cannot be told apart across restarts,
+ * a store should only be used for providers that share their schema versions, for example the providers of a single
+ * database. Results for providers that were invalidated (see
+ * {@link AbstractMetadataProvider#invalidateCachedMetadata()}) are never stored.
+ *
+ * Once a segment is full, a new segment is started. Before that, the oldest segments are deleted together with their
+ * results if the maximum size would be exceeded otherwise. This only costs a scan of the in-memory index, so storing a
+ * result never copies other results. The space of results that were replaced by newer results is reclaimed when their
+ * segment is deleted, or earlier by calling {@link #compact()}.
+ *
+ * A failure to write to the store, for example because the disk is full, disables the store rather than failing the
+ * parse (see {@link #getFailure()}).
+ *
+ * Results that are read from the store carry no parse statistics and do not take part in automatic parameterization
+ * (see {@link Pgql#setAutoParameterize(boolean)}). The store is thread-safe but can be opened by only one process at a
+ * time.
+ */
+public class PgqlPersistentCache implements Closeable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  public static final long DEFAULT_MAXIMUM_SIZE = 1024L * 1024 * 1024;
+
+  private static final int MAGIC = 0x50475143; // "PGQC"
+
+  private static final int FORMAT_VERSION = 1;
+
+  // magic, format version, parser version
+  private static final int SEGMENT_HEADER_SIZE = 4 + 4 + 8;
+
+  // payload length, payload checksum, key hash
+  private static final int RECORD_HEADER_SIZE = 4 + 4 + 8;
+
+  private static final String SEGMENT_PREFIX = "segment-";
+
+  private static final String SEGMENT_SUFFIX = ".pgqlcache";
+
+  private static final String LOCK_FILE = "lock";
+
+  private static final String TRANS_CLASS_RESOURCE = "pgqllang/trans/trans.class";
+
+  private static final byte FLAG_METADATA_PROVIDER = 1;
+
+  private static final byte FLAG_QUERY_VALID = 2;
+
+  private static final byte FLAG_SELECTS_ALL_PROPERTIES = 4;
+
+  private static final byte FLAG_STATEMENT = 8;
+
+  private static final byte FLAG_FINGERPRINT = 16;
+
+  private static long parserVersion = -1;
+
+  private final Path directory;
+
+  private final int segmentSize;
+
+  private final long maximumSize;
+
+  private final FileChannel lockChannel;
+
+  private final FileLock lock;
+
+  // oldest segment first; only the last segment is written to
+  private final List<Segment> segments = new ArrayList<>();
+
+  private final HashMap<Long, Location> index = new HashMap<>();
+
+  private long nextSegmentId = 0;
+
+  private long totalSize = 0;
+
+  private long deadSize = 0;
+
+  private long hitCount = 0;
+
+  private long missCount = 0;
+
+  private long compactionCount = 0;
+
+  private IOException failure = null;
+
+  private boolean closed = false;
+
+  /**
+   * Opens the store in the given directory with the default segment size and maximum size, creating the directory if
+   * it does not exist.
+   *
+   * @param directory
+   *          the directory that holds the segment files
+   */
+  public PgqlPersistentCache(Path directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_MAXIMUM_SIZE);
+  }
+
+  /**
+   * Opens the store in the given directory, creating the directory if it does not exist.
+   *
+   * @param directory
+   *          the directory that holds the segment files
+   * @param segmentSize
+   *          the size in bytes of a segment file; results that do not fit in a segment are not stored
+   * @param maximumSize
+   *          the maximum total size in bytes of the segment files
+   */
+  public PgqlPersistentCache(Path directory, int segmentSize, long maximumSize) throws IOException {
+    if (segmentSize <= SEGMENT_HEADER_SIZE + RECORD_HEADER_SIZE) {
+      throw new IllegalArgumentException("segmentSize is too small: " + segmentSize);
+    }
+    if (maximumSize < segmentSize) {
+      throw new IllegalArgumentException("maximumSize should be at least segmentSize but was " + maximumSize);
+    }
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.maximumSize = maximumSize;
+
+    Files.createDirectories(directory);
+    lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock lock;
+    try {
+      lock = lockChannel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null; // opened by this process already
+    }
+    this.lock = lock;
+    if (lock == null) {
+      lockChannel.close();
+      throw new IOException("Persistent cache " + directory + " is already in use");
+    }
+
+    try {
+      openSegments();
+    } catch (IOException | RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  private void openSegments() throws IOException {
+    List<Path> paths = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+      for (Path path : stream) {
+        paths.add(path);
+      }
+    }
+    paths.sort(Comparator.comparingLong(PgqlPersistentCache::getSegmentId));
+
+    for (int i = 0; i < paths.size(); i++) {
+      Path path = paths.get(i);
+      long id = getSegmentId(path);
+      nextSegmentId = Math.max(nextSegmentId, id + 1);
+      if (id < 0 || Files.size(path) < SEGMENT_HEADER_SIZE || !hasCurrentHeader(path)) {
+        Files.delete(path); // written by a different version of the parser or not a segment at all
+        continue;
+      }
+
+      boolean writable = i == paths.size() - 1;
+      Segment segment = new Segment(id, path, writable, (int) Math.min(Files.size(path), Integer.MAX_VALUE));
+      segments.add(segment);
+      scan(segment);
+    }
+
+    // segments that could not be deleted before the restart
+    while (segments.size() > 1 && totalSize > maximumSize) {
+      evictOldestSegment();
+    }
+  }
+
+  private static boolean hasCurrentHeader(Path path) throws IOException {
+    try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+      return in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION && in.readLong() == getParserVersion();
+    }
+  }
+
+  /**
+   * Indexes the records of a segment. Scanning stops at the first record that is incomplete or damaged, which is where
+   * the next record is appended.
+   */
+  private void scan(Segment segment) {
+    ByteBuffer buffer = segment.buffer;
+    int position = SEGMENT_HEADER_SIZE;
+    while (position + RECORD_HEADER_SIZE <= buffer.capacity()) {
+      int length = buffer.getInt(position);
+      if (length <= 0 || length > buffer.capacity() - position - RECORD_HEADER_SIZE) {
+        break;
+      }
+      int checksum = buffer.getInt(position + 4);
+      long keyHash = buffer.getLong(position + 8);
+      if (checksum != checksum(buffer, position + RECORD_HEADER_SIZE, length)) {
+        break;
+      }
+      addToIndex(keyHash, new Location(segment, position, RECORD_HEADER_SIZE + length));
+      position += RECORD_HEADER_SIZE + length;
+    }
+    segment.writePosition = position;
+    totalSize += position;
+  }
+
+  private void addToIndex(long keyHash, Location location) {
+    Location previous = index.put(keyHash, location);
+    if (previous != null) {
+      deadSize += previous.size;
+    }
+  }
+
+  /**
+   * @return the result that was stored for the query or null if there is none
+   */
+  PgqlResult get(String queryString, AbstractMetadataProvider metadataProvider) {
+    Long schemaVersion = getPersistentSchemaVersion(metadataProvider);
+    if (schemaVersion == null) {
+      return null;
+    }
+
+    byte[] payload;
+    synchronized (this) {
+      long keyHash = keyHash(queryString, metadataProvider != null, schemaVersion);
+      Location location = closed || failure != null ? null : index.get(keyHash);
+      if (location == null) {
+        missCount++;
+        return null;
+      }
+      payload = location.readPayload();
+    }
+
+    PgqlResult result;
+    try {
+      result = readResult(payload, queryString, metadataProvider, schemaVersion);
+    } catch (IOException | PgqlException e) {
+      result = null; // a different query with the same key hash, or an incompatible encoding of the statement
+    }
+    synchronized (this) {
+      if (result == null) {
+        missCount++;
+      } else {
+        hitCount++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Stores the result unless the result is not cacheable or does not fit in a segment. Since the store is only a cache,
+   * a failure to write to it (for example because the disk is full) does not fail the parse; instead, the store is
+   * disabled (see {@link #getFailure()}).
+   */
+  void put(String queryString, AbstractMetadataProvider metadataProvider, PgqlResult result) {
+    Long schemaVersion = getPersistentSchemaVersion(metadataProvider);
+    if (schemaVersion == null) {
+      return;
+    }
+
+    byte[] payload;
+    try {
+      payload = writeResult(queryString, metadataProvider != null, schemaVersion, result);
+    } catch (IOException | RuntimeException e) {
+      return; // the statement cannot be encoded
+    }
+    if (RECORD_HEADER_SIZE + payload.length > segmentSize - SEGMENT_HEADER_SIZE) {
+      return;
+    }
+    long keyHash = keyHash(queryString, metadataProvider != null, schemaVersion);
+
+    synchronized (this) {
+      if (closed || failure != null) {
+        return;
+      }
+      try {
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (segment == null || !segment.writable || !segment.fits(payload.length)) {
+          while (!segments.isEmpty() && totalSize + segmentSize > maximumSize) {
+            evictOldestSegment();
+          }
+        }
+        append(keyHash, payload);
+      } catch (IOException e) {
+        disable(e);
+      }
+    }
+  }
+
+  /**
+   * Stops using the store after a failure to write to it, since its index may no longer match its segments.
+   */
+  private void disable(IOException e) {
+    failure = e;
+    segments.clear();
+    index.clear();
+  }
+
+  private static Long getPersistentSchemaVersion(AbstractMetadataProvider metadataProvider) {
+    if (metadataProvider == null) {
+      return 0L;
+    }
+    Optional<Long> schemaVersion = metadataProvider.getSchemaVersion();
+    if (!schemaVersion.isPresent() || metadataProvider.getInvalidationCount() > 0) {
+      return null;
+    }
+    return schemaVersion.get();
+  }
+
+  private void append(long keyHash, byte[] payload) throws IOException {
+    Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+    if (segment == null || !segment.writable || !segment.fits(payload.length)) {
+      segment = createSegment();
+    }
+
+    int position = segment.writePosition;
+    ByteBuffer buffer = segment.buffer.duplicate();
+    buffer.position(position + RECORD_HEADER_SIZE);
+    buffer.put(payload);
+    buffer.putInt(position + 4, checksum(payload));
+    buffer.putLong(position + 8, keyHash);
+    buffer.putInt(position, payload.length); // written last so that an incomplete record is never indexed
+
+    int size = RECORD_HEADER_SIZE + payload.length;
+    segment.writePosition += size;
+    totalSize += size;
+    addToIndex(keyHash, new Location(segment, position, size));
+  }
+
+  /**
+   * Deletes the oldest segment and its results.
+   */
+  private void evictOldestSegment() {
+    Segment oldest = segments.remove(0);
+    long liveSize = 0;
+    Iterator<Location> it = index.values().iterator();
+    while (it.hasNext()) {
+      Location location = it.next();
+      if (location.segment == oldest) {
+        liveSize += location.size;
+        it.remove();
+      }
+    }
+    totalSize -= oldest.writePosition;
+    deadSize -= oldest.writePosition - SEGMENT_HEADER_SIZE - liveSize;
+    deleteSegmentFile(oldest);
+  }
+
+  /**
+   * Deletes the file of a segment that is no longer used. On some platforms, files cannot be deleted while they are
+   * mapped; such files are left behind and are deleted after a restart once the store exceeds its maximum size again.
+   */
+  private static void deleteSegmentFile(Segment segment) {
+    try {
+      Files.delete(segment.path);
+    } catch (IOException e) {
+      // ignore; the results in the file are still valid if it is read again after a restart
+    }
+  }
+
+  private Segment createSegment() throws IOException {
+    Path path = directory.resolve(SEGMENT_PREFIX + nextSegmentId + SEGMENT_SUFFIX);
+    ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_SIZE);
+    header.putInt(MAGIC);
+    header.putInt(FORMAT_VERSION);
+    header.putLong(getParserVersion());
+    header.flip();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+      while (header.hasRemaining()) {
+        channel.write(header);
+      }
+    }
+
+    Segment segment = new Segment(nextSegmentId++, path, true, segmentSize);
+    segment.writePosition = SEGMENT_HEADER_SIZE;
+    totalSize += SEGMENT_HEADER_SIZE;
+    if (!segments.isEmpty()) {
+      segments.get(segments.size() - 1).writable = false;
+    }
+    segments.add(segment);
+    return segment;
+  }
+
+  /**
+   * Copies the live results to new segments and deletes the old segments. If the live results take up more than half
+   * of the maximum size, the oldest results are dropped.
+   *
+   * Compaction is never triggered by the parser. It copies up to half of the maximum size while holding the lock of the
+   * store, during which parses that look up or store results in the store wait. Call it from a background thread, for
+   * example when {@link #getDeadSizeInBytes()} is a large part of {@link #getSizeInBytes()}.
+   */
+  public synchronized void compact() throws IOException {
+    if (closed || failure != null) {
+      return;
+    }
+    try {
+      compactInternal();
+    } catch (IOException e) {
+      disable(e);
+      throw e;
+    }
+  }
+
+  private void compactInternal() throws IOException {
+    List<Location> live = new ArrayList<>(index.values());
+    live.sort(Comparator.comparingLong((Location l) -> l.segment.id).thenComparingInt(l -> l.offset));
+    long liveSize = 0;
+    for (Location location : live) {
+      liveSize += location.size;
+    }
+    int first = 0;
+    while (first < live.size() && liveSize > maximumSize / 2) {
+      liveSize -= live.get(first++).size;
+    }
+
+    List<Segment> oldSegments = new ArrayList<>(segments);
+    segments.clear();
+    index.clear();
+    totalSize = 0;
+    deadSize = 0;
+    for (Location location : live.subList(first, live.size())) {
+      append(location.segment.buffer.getLong(location.offset + 8), location.readPayload());
+    }
+    for (Segment segment : oldSegments) {
+      deleteSegmentFile(segment);
+    }
+    compactionCount++;
+  }
+
+  /**
+   * Writes the results that were stored so far to disk.
+   */
+  public synchronized void flush() {
+    if (!closed && !segments.isEmpty()) {
+      segments.get(segments.size() - 1).buffer.force();
+    }
+  }
+
+  /**
+   * Writes the stored results to disk and releases the store. Results can no longer be retrieved or stored afterwards.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    flush();
+    closed = true;
+    segments.clear();
+    index.clear();
+    try {
+      if (lock != null) {
+        lock.release();
+      }
+    } finally {
+      lockChannel.close();
+    }
+  }
+
+  /**
+   * @return the number of stored results, excluding results that were replaced by newer results
+   */
+  public synchronized int size() {
+    return index.size();
+  }
+
+  /**
+   * @return the number of bytes in use by the segment files, including the bytes of results that were replaced
+   */
+  public synchronized long getSizeInBytes() {
+    return totalSize;
+  }
+
+  /**
+   * @return the number of bytes in use by results that were replaced by newer results, which are reclaimed by
+   *         {@link #compact()}
+   */
+  public synchronized long getDeadSizeInBytes() {
+    return deadSize;
+  }
+
+  /**
+   * @return the number of times a result was found in the store
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of times a cacheable result was not found in the store
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of times the store was compacted
+   */
+  public synchronized long getCompactionCount() {
+    return compactionCount;
+  }
+
+  /**
+   * @return the failure to write to the store that disabled it, if any; a disabled store neither returns nor stores
+   *         results
+   */
+  public synchronized Optional<IOException> getFailure() {
+    return Optional.ofNullable(failure);
+  }
+
+  public Path getDirectory() {
+    return directory;
+  }
+
+  public int getSegmentSize() {
+    return segmentSize;
+  }
+
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+
+  private static byte[] writeResult(String queryString, boolean hasMetadataProvider, long schemaVersion,
+      PgqlResult result) throws IOException {
+    PgqlStatement statement = result.getPgqlStatement();
+    QueryFingerprint fingerprint = result.getFingerprint().orElse(null);
+    int flags = (hasMetadataProvider ? FLAG_METADATA_PROVIDER : 0) //
+        | (result.isQueryValid() ? FLAG_QUERY_VALID : 0) //
+        | (result.querySelectsAllProperties() ? FLAG_SELECTS_ALL_PROPERTIES : 0) //
+        | (statement == null ? 0 : FLAG_STATEMENT) //
+        | (fingerprint == null ? 0 : FLAG_FINGERPRINT);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + 2 * queryString.length());
+    DataOutputStream out = new DataOutputStream(bytes);
+    writeString(out, queryString);
+    out.writeByte(flags);
+    out.writeLong(schemaVersion);
+    writeString(out, result.getPgqlVersion().name());
+    out.writeInt(result.getBindVariableCount());
+    writeString(out, result.getErrorMessages());
+    if (fingerprint != null) {
+      out.writeLong(fingerprint.getHigh());
+      out.writeLong(fingerprint.getLow());
+    }
+    if (statement != null) {
+      byte[] encodedStatement = PgqlStatementCodec.encode(statement);
+      out.writeInt(encodedStatement.length);
+      out.write(encodedStatement);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return the stored result or null if the record is for a different query
+   */
+  private static PgqlResult readResult(byte[] payload, String queryString, AbstractMetadataProvider metadataProvider,
+      long schemaVersion) throws IOException, PgqlException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+    if (!queryString.equals(readString(in))) {
+      return null;
+    }
+    int flags = in.readByte();
+    if (((flags & FLAG_METADATA_PROVIDER) != 0) != (metadataProvider != null) || in.readLong() != schemaVersion) {
+      return null;
+    }
+    PgqlVersion pgqlVersion = PgqlVersion.valueOf(readString(in));
+    int bindVariableCount = in.readInt();
+    String errorMessages = readString(in);
+    QueryFingerprint fingerprint = null;
+    if ((flags & FLAG_FINGERPRINT) != 0) {
+      fingerprint = new QueryFingerprint(in.readLong(), in.readLong());
+    }
+    PgqlStatement statement = null;
+    if ((flags & FLAG_STATEMENT) != 0) {
+      byte[] encodedStatement = new byte[in.readInt()];
+      in.readFully(encodedStatement);
+      statement = PgqlStatementCodec.decode(encodedStatement);
+    }
+
+    PgqlResult result = new PgqlResult(queryString, (flags & FLAG_QUERY_VALID) != 0, errorMessages, statement,
+        pgqlVersion, bindVariableCount, (flags & FLAG_SELECTS_ALL_PROPERTIES) != 0, metadataProvider);
+    result.setFingerprint(fingerprint);
+    return result;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static long keyHash(String queryString, boolean hasMetadataProvider, long schemaVersion) {
+    // 64-bit FNV-1a
+    long hash = 0xcbf29ce484222325L;
+    for (int i = 0; i < queryString.length(); i++) {
+      hash = (hash ^ queryString.charAt(i)) * 0x100000001b3L;
+    }
+    hash = (hash ^ (hasMetadataProvider ? 1 : 0)) * 0x100000001b3L;
+    return (hash ^ schemaVersion) * 0x100000001b3L;
+  }
+
+  private static int checksum(byte[] bytes) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    return (int) crc.getValue();
+  }
+
+  private static int checksum(ByteBuffer buffer, int offset, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(offset);
+    duplicate.get(bytes);
+    return checksum(bytes);
+  }
+
+  private static long getSegmentId(Path path) {
+    String fileName = path.getFileName().toString();
+    try {
+      return Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(), fileName.length() - SEGMENT_SUFFIX.length()));
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /**
+   * @return a checksum of the version of pgql-lang, the parse table and the Stratego runtime, which identifies the
+   *         version of the parser including the Java translation of its output
+   */
+  static synchronized long getParserVersion() {
+    if (parserVersion == -1) {
+      CRC32 crc = new CRC32();
+      String implementationVersion = Pgql.class.getPackage().getImplementationVersion();
+      crc.update(String.valueOf(implementationVersion).getBytes(StandardCharsets.UTF_8));
+      if (implementationVersion == null || implementationVersion.endsWith("-SNAPSHOT")) {
+        // the version does not change with the code, so identify the jar files of the translation and the strategies
+        updateWithJarFile(crc, Pgql.class.getName().replace('.', '/') + ".class");
+        updateWithJarFile(crc, TRANS_CLASS_RESOURCE);
+      }
+
+      String[] resources = { Pgql.BINARY_PARSE_TABLE_RESOURCE, Pgql.PARSE_TABLE_RESOURCE, TRANS_CLASS_RESOURCE,
+          "pgqllang/trans/pgql_trans_0_0.class" };
+      byte[] buffer = new byte[8192];
+      for (String resource : resources) {
+        try (InputStream in = Pgql.class.getClassLoader().getResourceAsStream(resource)) {
+          if (in == null) {
+            continue;
+          }
+          int read;
+          while ((read = in.read(buffer)) != -1) {
+            crc.update(buffer, 0, read);
+          }
+        } catch (IOException e) {
+          // ignore; a missing resource also changes the checksum
+        }
+        crc.update(resource.getBytes(StandardCharsets.UTF_8));
+      }
+      parserVersion = ((long) FORMAT_VERSION << 32) | crc.getValue();
+    }
+    return parserVersion;
+  }
+
+  /**
+   * Adds the size and modification time of the jar file that holds the resource, if any, to the checksum.
+   */
+  private static void updateWithJarFile(CRC32 crc, String resource) {
+    URL url = Pgql.class.getClassLoader().getResource(resource);
+    if (url == null || !url.getProtocol().equals("jar")) {
+      return;
+    }
+    try {
+      JarURLConnection connection = (JarURLConnection) url.openConnection();
+      connection.setUseCaches(false);
+      Path jarFile = Paths.get(connection.getJarFileURL().toURI());
+      String identity = jarFile + ":" + Files.size(jarFile) + ":" + Files.getLastModifiedTime(jarFile).toMillis();
+      crc.update(identity.getBytes(StandardCharsets.UTF_8));
+    } catch (IOException | URISyntaxException | RuntimeException e) {
+      // ignore; the parse table and the strategies are still part of the checksum
+    }
+  }
+
+  private final class Segment {
+
+    private final long id;
+
+    private final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    private boolean writable;
+
+    private int writePosition;
+
+    Segment(long id, Path path, boolean writable, int size) throws IOException {
+      this.id = id;
+      this.path = path;
+      this.writable = writable;
+      if (writable) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+          buffer = channel.map(MapMode.READ_WRITE, 0, Math.max(size, segmentSize));
+        }
+      } else {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+          buffer = channel.map(MapMode.READ_ONLY, 0, size);
+        }
+      }
+    }
+
+    boolean fits(int payloadLength) {
+      return writePosition + RECORD_HEADER_SIZE + payloadLength <= buffer.capacity();
+    }
+  }
+
+  private static final class Location {
+
+    private final Segment segment;
+
+    private final int offset;
+
+    private final int size;
+
+    Location(Segment segment, int offset, int size) {
+      this.segment = segment;
+      this.offset = offset;
+      this.size = size;
+    }
+
+    byte[] readPayload() {
+      byte[] payload = new byte[size - RECORD_HEADER_SIZE];
+      ByteBuffer buffer = segment.buffer.duplicate();
+      buffer.position(offset + RECORD_HEADER_SIZE);
+      buffer.get(payload);
+      return payload;
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+import oracle.pgql.lang.editor.completion.PgqlCompletion;
+import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+
+/**
+ * A thread-safe pool of {@link Pgql} instances.
+ *
+ * Each parse leases an idle Pgql instance from the pool and returns it afterwards, so concurrent parses never share
+ * parser state. New instances are created whenever all existing instances are in use. All instances share the same
+ * parse table and, optionally, the same {@link PgqlResultCache}.
+ */
+public class PgqlPool implements Closeable {
+
+  private static final int BATCHES_PER_THREAD = 4;
+
+  private final ConcurrentLinkedQueue<Pgql> idleInstances = new ConcurrentLinkedQueue<>();
+
+  private final PgqlResultCache cache;
+
+  private volatile boolean pruneGraphSchema = false;
+
+  private volatile boolean collectParseStatistics = false;
+
+  private volatile boolean collectAllocatedBytes = false;
+
+  private volatile PgqlComplexityBudget complexityBudget = PgqlComplexityBudget.UNLIMITED;
+
+  private volatile boolean autoParameterize = false;
+
+  private volatile boolean closed = false;
+
+  public PgqlPool() throws PgqlException {
+    this(0, null);
+  }
+
+  /**
+   * @param initialSize
+   *          the number of Pgql instances to create upfront
+   * @param cache
+   *          the cache for parse results, shared by all Pgql instances in the pool; null for no caching
+   */
+  public PgqlPool(int initialSize, PgqlResultCache cache) throws PgqlException {
+    this.cache = cache;
+    for (int i = 0; i < initialSize; i++) {
+      idleInstances.add(new Pgql(cache));
+    }
+  }
+
+  /**
+   * Parse a PGQL query (either a SELECT or MODIFY query).
+   *
+   * @see Pgql#parse(String)
+   */
+  public PgqlResult parse(String queryString) throws PgqlException {
+    return parse(queryString, null);
+  }
+
+  /**
+   * Parse a PGQL query (either a SELECT or MODIFY query).
+   *
+   * @see Pgql#parse(String, AbstractMetadataProvider)
+   */
+  public PgqlResult parse(String queryString, AbstractMetadataProvider metadataProvider) throws PgqlException {
+    return parse(queryString, metadataProvider, null);
+  }
+
+  /**
+   * Parse a PGQL query (either a SELECT or MODIFY query).
+   *
+   * @see Pgql#parse(String, AbstractMetadataProvider, CompiledGraphSchema)
+   */
+  public PgqlResult parse(String queryString, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema) throws PgqlException {
+    return parse(queryString, metadataProvider, compiledGraphSchema, null);
+  }
+
+  /**
+   * Parse a PGQL query (either a SELECT or MODIFY query) such that the parse can be aborted.
+   *
+   * @see Pgql#parse(String, AbstractMetadataProvider, CompiledGraphSchema, PgqlCancellationToken)
+   */
+  public PgqlResult parse(String queryString, AbstractMetadataProvider metadataProvider,
+      CompiledGraphSchema compiledGraphSchema, PgqlCancellationToken cancellationToken) throws PgqlException {
+    Pgql pgql = acquire();
+    try {
+      return pgql.parse(queryString, metadataProvider, compiledGraphSchema, cancellationToken);
+    } finally {
+      release(pgql);
+    }
+  }
+
+  /**
+   * Check whether a PGQL query is syntactically valid, without semantic analysis.
+   *
+   * @see Pgql#check(String)
+   */
+  public PgqlCheckResult check(String queryString) throws PgqlException {
+    Pgql pgql = acquire();
+    try {
+      return pgql.check(queryString);
+    } finally {
+      release(pgql);
+    }
+  }
+
+  /**
+   * Parse many PGQL queries in parallel, using the common fork-join pool.
+   *
+   * @see #parseAll(Collection, AbstractMetadataProvider, Executor)
+   */
+  public List<PgqlResult> parseAll(Collection<String> queryStrings, AbstractMetadataProvider metadataProvider)
+      throws PgqlException {
+    return parseAll(queryStrings, metadataProvider, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Parse many PGQL queries in parallel. The queries are split into batches that are parsed by the executor, each
+   * batch by a single Pgql instance from this pool. The graph schema of the default graph is compiled only once for
+   * all the queries.
+   *
+   * @param queryStrings
+   *          the PGQL queries to parse
+   * @param metadataProvider
+   *          the metadata provider for enhanced type checking based on graph schema information and other metadata
+   * @param executor
+   *          the executor that parses the batches, for example a fork-join pool or a virtual-thread executor
+   * @return the parse results, in the same order as the queries
+   */
+  public List<PgqlResult> parseAll(Collection<String> queryStrings, AbstractMetadataProvider metadataProvider,
+      Executor executor) throws PgqlException {
+    String[] queries = queryStrings.toArray(new String[0]);
+    PgqlResult[] results = new PgqlResult[queries.length];
+    CompiledGraphSchema compiledGraphSchema = metadataProvider == null ? null
+        : CompiledGraphSchema.compile(metadataProvider);
+
+    int parallelism = executor instanceof ForkJoinPool ? ((ForkJoinPool) executor).getParallelism()
+        : Runtime.getRuntime().availableProcessors();
+    // multiple batches per thread so that threads that get the cheap queries do not run out of work
+    int batchSize = Math.max(1, (queries.length + BATCHES_PER_THREAD * parallelism - 1)
+        / (BATCHES_PER_THREAD * parallelism));
+
+    List<CompletableFuture<Void>> batches = new ArrayList<>();
+    for (int start = 0; start < queries.length; start += batchSize) {
+      int from = start;
+      int to = Math.min(start + batchSize, queries.length);
+      batches.add(CompletableFuture.runAsync(() -> {
+        try {
+          Pgql pgql = acquire();
+          try {
+            for (int i = from; i < to; i++) {
+              results[i] = pgql.parse(queries[i], metadataProvider, compiledGraphSchema);
+            }
+          } finally {
+            release(pgql);
+          }
+        } catch (PgqlException e) {
+          throw new CompletionException(e);
+        }
+      }, executor));
+    }
+
+    try {
+      CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof PgqlException) {
+        throw (PgqlException) e.getCause();
+      } else if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else {
+        throw new PgqlException(e.getCause());
+      }
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Generate code completions, given a (partial) query and cursor location.
+   *
+   * @see Pgql#complete(String, int, PgqlCompletionContext)
+   */
+  public List<PgqlCompletion> complete(String queryString, int cursor, PgqlCompletionContext ctx)
+      throws PgqlException {
+    Pgql pgql = acquire();
+    try {
+      return pgql.complete(queryString, cursor, ctx);
+    } finally {
+      release(pgql);
+    }
+  }
+
+  /**
+   * @see Pgql#setPruneGraphSchema(boolean)
+   */
+  public void setPruneGraphSchema(boolean pruneGraphSchema) {
+    this.pruneGraphSchema = pruneGraphSchema;
+  }
+
+  public boolean isPruneGraphSchema() {
+    return pruneGraphSchema;
+  }
+
+  /**
+   * @see Pgql#setCollectParseStatistics(boolean)
+   */
+  public void setCollectParseStatistics(boolean collectParseStatistics) {
+    this.collectParseStatistics = collectParseStatistics;
+  }
+
+  public boolean isCollectParseStatistics() {
+    return collectParseStatistics;
+  }
+
+  /**
+   * @see Pgql#setCollectAllocatedBytes(boolean)
+   */
+  public void setCollectAllocatedBytes(boolean collectAllocatedBytes) {
+    this.collectAllocatedBytes = collectAllocatedBytes;
+  }
+
+  public boolean isCollectAllocatedBytes() {
+    return collectAllocatedBytes;
+  }
+
+  /**
+   * @see Pgql#setComplexityBudget(PgqlComplexityBudget)
+   */
+  public void setComplexityBudget(PgqlComplexityBudget complexityBudget) {
+    this.complexityBudget = complexityBudget;
+  }
+
+  public PgqlComplexityBudget getComplexityBudget() {
+    return complexityBudget;
+  }
+
+  /**
+   * @see Pgql#setAutoParameterize(boolean)
+   */
+  public void setAutoParameterize(boolean autoParameterize) {
+    this.autoParameterize = autoParameterize;
+  }
+
+  public boolean isAutoParameterize() {
+    return autoParameterize;
+  }
+
+  /**
+   * @return the number of Pgql instances that are currently not in use
+   */
+  public int getIdleCount() {
+    return idleInstances.size();
+  }
+
+  private Pgql acquire() throws PgqlException {
+    if (closed) {
+      throw new PgqlException("PgqlPool was closed");
+    }
+
+    Pgql pgql = idleInstances.poll();
+    if (pgql == null) {
+      pgql = new Pgql(cache);
+    }
+    pgql.setPruneGraphSchema(pruneGraphSchema);
+    pgql.setCollectParseStatistics(collectParseStatistics);
+    pgql.setCollectAllocatedBytes(collectAllocatedBytes);
+    pgql.setComplexityBudget(complexityBudget);
+    pgql.setAutoParameterize(autoParameterize);
+    return pgql;
+  }
+
+  private void release(Pgql pgql) {
+    idleInstances.add(pgql);
+    if (closed) {
+      closeIdleInstances();
+    }
+  }
+
+  private void closeIdleInstances() {
+    Pgql pgql;
+    while ((pgql = idleInstances.poll()) != null) {
+      pgql.close();
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    closeIdleInstances();
+  }
+}
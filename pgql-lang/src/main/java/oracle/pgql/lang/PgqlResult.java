@@ -4,26 +4,29 @@
 package oracle.pgql.lang;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
+import oracle.pgql.lang.ir.GraphPattern;
 import oracle.pgql.lang.ir.GraphQuery;
 import oracle.pgql.lang.ir.PgqlStatement;
-import oracle.pgql.lang.ir.QueryExpression;
-import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
-import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
-import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.PropertyFootprint;
+import oracle.pgql.lang.ir.QueryFingerprint;
+import oracle.pgql.lang.ir.QuerySummary;
 import oracle.pgql.lang.ir.QueryVariable;
 import oracle.pgql.lang.ir.QueryVariable.VariableType;
 import oracle.pgql.lang.ir.SchemaQualifiedName;
 import oracle.pgql.lang.ir.StatementType;
+import oracle.pgql.lang.ir.TableExpression;
 import oracle.pgql.lang.metadata.AbstractMetadataProvider;
 import oracle.pgql.lang.metadata.GraphSchema;
 import oracle.pgql.lang.metadata.Label;
 
-import static oracle.pgql.lang.ir.PgqlUtils.isHasLabelFunctionForVar;
-
 public class PgqlResult {
 
   private final String queryString;
@@ -42,6 +45,22 @@ public class PgqlResult {
 
   private final AbstractMetadataProvider metadataProvider;
 
+  private ParseStatistics parseStatistics;
+
+  private QueryFingerprint fingerprint;
+
+  // computed on first use; computing it twice is harmless
+  private volatile QuerySummary querySummary;
+
+  private volatile PropertyFootprint propertyFootprint;
+
+  private volatile LabelProperties vertexLabelProperties;
+
+  private volatile LabelProperties edgeLabelProperties;
+
+  // analyzed query for automatic parameterization; only kept for valid queries with bind variables
+  private AutoParameterization.Template template;
+
   public PgqlResult(String queryString, boolean queryValid, String messages, PgqlStatement pgqlStatement,
       PgqlVersion pgqlVersion, int bindVariableCount, boolean querySelectsAllProperties,
       AbstractMetadataProvider metadataProvider) {
@@ -102,6 +121,104 @@ public class PgqlResult {
     return pgqlStatement;
   }
 
+  /**
+   * @return the statistics of the parse that produced this result, or empty if statistics were not collected (see
+   *         {@link Pgql#setCollectParseStatistics(boolean)}). Results that come from a {@link PgqlResultCache} carry
+   *         the statistics of the original parse.
+   */
+  public Optional<ParseStatistics> getParseStatistics() {
+    return Optional.ofNullable(parseStatistics);
+  }
+
+  void setParseStatistics(ParseStatistics parseStatistics) {
+    this.parseStatistics = parseStatistics;
+  }
+
+  /**
+   * @return the structural fingerprint of the query if the query is a valid SELECT or graph INSERT/UPDATE/DELETE query;
+   *         empty otherwise. Queries that only differ in formatting, in the names of anonymous variables or in the
+   *         order of their WHERE predicates have the same fingerprint (see {@link QueryFingerprint}).
+   */
+  public Optional<QueryFingerprint> getFingerprint() {
+    return Optional.ofNullable(fingerprint);
+  }
+
+  void setFingerprint(QueryFingerprint fingerprint) {
+    this.fingerprint = fingerprint;
+  }
+
+  /**
+   * @return the semantic summary of the query if the query is a valid SELECT or graph INSERT/UPDATE/DELETE query; empty
+   *         otherwise. The summary is computed on first use and kept with this result, such that the variables,
+   *         properties, aggregations, correlated variables and label predicates of the query can be looked up without
+   *         walking the query again (see {@link QuerySummary}).
+   */
+  public Optional<QuerySummary> getQuerySummary() {
+    if (!queryValid || pgqlStatement == null || (pgqlStatement.getStatementType() != StatementType.SELECT
+        && pgqlStatement.getStatementType() != StatementType.GRAPH_MODIFY)) {
+      return Optional.empty();
+    }
+    QuerySummary result = querySummary;
+    if (result == null) {
+      result = QuerySummary.of((GraphQuery) pgqlStatement);
+      querySummary = result;
+    }
+    return Optional.of(result);
+  }
+
+  /**
+   * @return the properties that are read and written per vertex and edge variable if the query is a valid SELECT or
+   *         graph INSERT/UPDATE/DELETE query; empty otherwise. The footprint is computed on first use and kept with
+   *         this result (see {@link PropertyFootprint}).
+   */
+  public Optional<PropertyFootprint> getPropertyFootprint() {
+    if (!getQuerySummary().isPresent()) {
+      return Optional.empty();
+    }
+    PropertyFootprint result = propertyFootprint;
+    if (result == null) {
+      result = PropertyFootprint.of((GraphQuery) pgqlStatement);
+      propertyFootprint = result;
+    }
+    return Optional.of(result);
+  }
+
+  /**
+   * @return a plan with estimated costs for each graph pattern and optional graph pattern of the query and its
+   *         subqueries if the query is a valid SELECT or graph INSERT/UPDATE/DELETE query; an empty list otherwise.
+   *         The plans are based on the statistics of the metadata provider that the query was parsed with (see
+   *         {@link MatchOrderPlanner}) and are not kept with this result since statistics may change.
+   */
+  public List<MatchPlan> getMatchPlans() {
+    Optional<QuerySummary> summary = getQuerySummary();
+    if (!summary.isPresent()) {
+      return Collections.emptyList();
+    }
+    return new MatchOrderPlanner(metadataProvider).plan((GraphQuery) pgqlStatement, summary.get());
+  }
+
+  /**
+   * @return a copy of this result with the given statement, which is a copy of the statement of this result
+   */
+  PgqlResult copy(PgqlStatement pgqlStatement) {
+    PgqlResult result = new PgqlResult(queryString, queryValid, errorMessages, pgqlStatement, pgqlVersion,
+        bindVariableCount, querySelectsAllProperties, metadataProvider);
+    result.parseStatistics = parseStatistics;
+    result.fingerprint = fingerprint;
+    result.vertexLabelProperties = vertexLabelProperties;
+    result.edgeLabelProperties = edgeLabelProperties;
+    result.template = template;
+    return result;
+  }
+
+  AutoParameterization.Template getTemplate() {
+    return template;
+  }
+
+  void setTemplate(AutoParameterization.Template template) {
+    this.template = template;
+  }
+
   public PgqlVersion getPgqlVersion() {
     return pgqlVersion;
   }
@@ -118,6 +235,9 @@ public class PgqlResult {
    * Given a vertex or edge variable that appears in the graph pattern, returns a list of visible properties taking into
    * account the label expressions defined for the vertex or edge.
    *
+   * Only the label expressions in the WHERE clause of the MATCH clause that defines the vertex or edge are taken into
+   * account, not those of OPTIONAL MATCH clauses or subqueries that match the vertex or edge again.
+   *
    * @param vertexOrEdge
    *          the vertex or edge from the graph pattern
    * @return the list of properties
@@ -129,77 +249,147 @@ public class PgqlResult {
     if (metadataProvider == null || metadataProvider.getGraphSchema() == null) {
       throw new IllegalStateException("Graph schema was not provided to the parser");
     }
+    return getVisibleProperties(vertexOrEdge);
+  }
+
+  /**
+   * Given a vertex or edge variable that appears in the graph pattern, returns the properties that the query reads from
+   * the vertex or edge, such that only these properties need to be loaded (see {@link PropertyFootprint}). If the query
+   * selects all properties of the vertex or edge through {@code v.*}, these are resolved against the graph schema like
+   * in {@link #getAllProperties(QueryVariable)}. If a graph schema is available, the names of other properties are
+   * resolved to the names of the properties in the schema that match exactly or else match after upper-casing.
+   *
+   * @param vertexOrEdge
+   *          the vertex or edge from the graph pattern
+   * @return the list of properties
+   */
+  public List<String> getReadProperties(QueryVariable vertexOrEdge) {
+    PropertyFootprint footprint = getPropertyFootprint().orElseThrow(
+        () -> new IllegalStateException("Valid SELECT or graph INSERT/UPDATE/DELETE query expected"));
+    if (getGraphSchema() == null) {
+      if (footprint.readsAllProperties(vertexOrEdge)) {
+        throw new IllegalStateException("Graph schema was not provided to the parser");
+      }
+      return new ArrayList<>(footprint.getReadProperties(vertexOrEdge));
+    }
+
+    List<String> visibleProperties = getVisibleProperties(vertexOrEdge);
+    LinkedHashSet<String> result = new LinkedHashSet<>();
+    if (footprint.readsAllProperties(vertexOrEdge)) {
+      result.addAll(visibleProperties);
+    }
+    for (String propertyName : footprint.getReadProperties(vertexOrEdge)) {
+      result.add(resolvePropertyName(visibleProperties, propertyName));
+    }
+    return new ArrayList<>(result);
+  }
 
+  private static String resolvePropertyName(List<String> visibleProperties, String propertyName) {
+    if (visibleProperties.contains(propertyName)) {
+      return propertyName;
+    }
+    for (String visibleProperty : visibleProperties) {
+      if (visibleProperty.toUpperCase().equals(propertyName)) {
+        return visibleProperty;
+      }
+    }
+    return propertyName;
+  }
+
+  private List<String> getVisibleProperties(QueryVariable vertexOrEdge) {
     boolean isVertex = vertexOrEdge.getVariableType() == VariableType.VERTEX;
+    LabelProperties labelProperties = getLabelProperties(isVertex);
+
+    List<List<String>> labelConstraints = Collections.emptyList();
+    QuerySummary summary = getQuerySummary().get();
+    TableExpression definingPattern = summary.getDefiningPattern(vertexOrEdge);
+    if (definingPattern instanceof GraphPattern) {
+      labelConstraints = summary.getLabelConstraints(vertexOrEdge, (GraphPattern) definingPattern);
+    }
 
     List<String> result = null;
-    for (QueryExpression exp : getGraphQuery().getGraphPattern().getConstraints()) {
-      if (isHasLabelFunctionForVar(exp, vertexOrEdge)) {
-        List<String> properties = getAllProperties(exp, isVertex);
-        if (result == null) {
-          result = properties;
-        } else {
-          result.retainAll(properties); // compute the intersection since this is a conjunction (AND)
-        }
+    for (List<String> labels : labelConstraints) {
+      List<String> properties = new ArrayList<>();
+      for (String label : labels) {
+        properties.addAll(labelProperties.get(label)); // compute the union since this is a disjunction (OR)
+      }
+      if (result == null) {
+        result = properties;
+      } else {
+        result.retainAll(properties); // compute the intersection since this is a conjunction (AND)
       }
     }
 
     // no label expression exist, so we return the union of properties of all labels
     if (result == null) {
-      List<? extends Label> labels = getLabels(isVertex);
-      LinkedHashSet<String> properties = new LinkedHashSet<>();
-      for (Label l : labels) {
-        properties.addAll(l.getProperties().stream().map(p -> p.getName()).collect(Collectors.toList()));
-      }
-      result = new ArrayList<String>(properties);
+      result = new ArrayList<>(labelProperties.allProperties);
     }
 
     return result;
   }
 
-  private List<String> getAllProperties(QueryExpression exp, boolean isVertex) {
-    switch (exp.getExpType()) {
-      case FUNCTION_CALL:
-        return getAllProperties((FunctionCall) exp, isVertex);
-      case OR:
-        return getAllProperties((Or) exp, isVertex);
-      default:
-        throw new IllegalStateException("Unsupported expression type " + pgqlStatement.getStatementType());
+  private GraphSchema getGraphSchema() {
+    if (metadataProvider == null) {
+      return null;
     }
+    SchemaQualifiedName graphName = getGraphQuery().getGraphName();
+    Optional<GraphSchema> graphSchema = graphName == null ? metadataProvider.getGraphSchema()
+        : metadataProvider.getGraphSchema(graphName);
+    return graphSchema == null ? null : graphSchema.orElse(null);
   }
 
-  private List<String> getAllProperties(FunctionCall functionCall, boolean isVertex) {
-    String label = ((ConstString) functionCall.getArgs().get(1)).getValue();
-    List<? extends Label> labels = getLabels(isVertex);
-
-    // first try to find an exact match
-    for (Label l : labels) {
-      if (l.getLabel().equals(label)) {
-        return l.getProperties().stream().map(p -> p.getName()).collect(Collectors.toList());
+  private LabelProperties getLabelProperties(boolean isVertex) {
+    GraphSchema graphSchema = getGraphSchema();
+    LabelProperties result = isVertex ? vertexLabelProperties : edgeLabelProperties;
+    if (result == null || result.graphSchema != graphSchema) {
+      result = new LabelProperties(graphSchema, isVertex ? graphSchema.getVertexLabels() : graphSchema.getEdgeLabels());
+      if (isVertex) {
+        vertexLabelProperties = result;
+      } else {
+        edgeLabelProperties = result;
       }
     }
+    return result;
+  }
 
-    // now try to find an inexact match
-    for (Label l : labels) {
-      if (l.getLabel().toUpperCase().equals(label)) {
-        return l.getProperties().stream().map(p -> p.getName()).collect(Collectors.toList());
-      }
-    }
+  /**
+   * The properties per vertex or edge label of a graph schema.
+   */
+  private static class LabelProperties {
 
-    throw new IllegalStateException("Label " + label + " does not exist");
-  }
+    private final GraphSchema graphSchema;
 
-  private List<String> getAllProperties(Or or, boolean isVertex) {
-    List<String> result = getAllProperties(or.getExp1(), isVertex);
-    result.addAll(getAllProperties(or.getExp2(), isVertex)); // compute the union since this is a disjunction (OR)
-    return result;
-  }
+    private final Map<String, List<String>> exactLabels = new HashMap<>();
 
-  private List<? extends Label> getLabels(boolean isVertex) {
-    SchemaQualifiedName graphName = getGraphQuery().getGraphName();
-    GraphSchema graphSchema = graphName == null ? metadataProvider.getGraphSchema().get()
-        : metadataProvider.getGraphSchema(graphName).get();
-    List<? extends Label> labels = isVertex ? graphSchema.getVertexLabels() : graphSchema.getEdgeLabels();
-    return labels;
+    private final Map<String, List<String>> upperCaseLabels = new HashMap<>();
+
+    private final List<String> allProperties;
+
+    LabelProperties(GraphSchema graphSchema, List<? extends Label> labels) {
+      this.graphSchema = graphSchema;
+      LinkedHashSet<String> properties = new LinkedHashSet<>();
+      for (Label l : labels) {
+        List<String> labelProperties = l.getProperties().stream().map(p -> p.getName()).collect(Collectors.toList());
+        exactLabels.putIfAbsent(l.getLabel(), labelProperties);
+        upperCaseLabels.putIfAbsent(l.getLabel().toUpperCase(), labelProperties);
+        properties.addAll(labelProperties);
+      }
+      allProperties = new ArrayList<>(properties);
+    }
+
+    /**
+     * @return the properties of the label; labels that match exactly have precedence over labels that only match after
+     *         upper-casing
+     */
+    List<String> get(String label) {
+      List<String> result = exactLabels.get(label);
+      if (result == null) {
+        result = upperCaseLabels.get(label);
+        if (result == null) {
+          throw new IllegalStateException("Label " + label + " does not exist");
+        }
+      }
+      return result;
+    }
   }
 }
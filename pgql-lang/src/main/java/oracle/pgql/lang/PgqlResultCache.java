@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.metadata.AbstractMetadataProvider;
+import oracle.pgql.lang.util.PgqlStatementCodec;
+
+/**
+ * A bounded, least-recently-used cache of parse results that can be passed to {@link Pgql#Pgql(PgqlResultCache)}.
+ *
+ * Results are keyed by the query string, the identity of the metadata provider and the schema version of the metadata
+ * provider (see {@link AbstractMetadataProvider#getSchemaVersion()}). Results for metadata providers that do not
+ * provide a schema version are never cached. Calling {@link AbstractMetadataProvider#invalidateCachedMetadata()} makes
+ * existing results for the provider unreachable. Results are also keyed by the settings of the Pgql instance that
+ * change parse results, such as {@link Pgql#setCollectParseStatistics(boolean)}, so that Pgql instances with different
+ * settings can share a cache.
+ *
+ * Entries are evicted once either the maximum number of entries or the maximum total weight is exceeded. The weight of
+ * an entry is the length of its query string.
+ *
+ * Optionally, the cache is backed by a {@link PgqlPersistentCache} that keeps results across restarts. Results that
+ * are not in memory are then looked up in the persistent cache before the query is parsed, and newly parsed results are
+ * added to both. The persistent cache does not keep parse statistics, so it is bypassed while statistics are collected.
+ *
+ * Results are kept in memory together with an encoding of their statement (see {@link PgqlStatementCodec}). Every hit
+ * returns a new result with a statement that is decoded from the encoding, so callers may modify the statement (for
+ * example with {@link oracle.pgql.lang.util.QueryExpressionInterner#intern(oracle.pgql.lang.ir.GraphQuery)}) without
+ * affecting other callers. Decoding a statement is much cheaper than parsing it, but it does allocate the statement
+ * again. Results with statements that cannot be encoded are not cached.
+ *
+ * The cache is thread-safe and can be shared between multiple Pgql instances.
+ */
+public class PgqlResultCache {
+
+  // settings of a Pgql instance that change parse results
+  static final int AUTO_PARAMETERIZE = 1;
+
+  static final int COLLECT_PARSE_STATISTICS = 2;
+
+  static final int COLLECT_ALLOCATED_BYTES = 4;
+
+  private final int maximumSize;
+
+  private final long maximumWeight;
+
+  private final PgqlPersistentCache persistentCache;
+
+  private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long weight = 0;
+
+  private long hitCount = 0;
+
+  private long missCount = 0;
+
+  private long evictionCount = 0;
+
+  /**
+   * @param maximumSize
+   *          the maximum number of parse results to keep
+   * @param maximumWeight
+   *          the maximum total length of the query strings of the parse results to keep
+   */
+  public PgqlResultCache(int maximumSize, long maximumWeight) {
+    this(maximumSize, maximumWeight, null);
+  }
+
+  /**
+   * @param maximumSize
+   *          the maximum number of parse results to keep in memory
+   * @param maximumWeight
+   *          the maximum total length of the query strings of the parse results to keep in memory
+   * @param persistentCache
+   *          the persistent cache that backs this cache; null for none. The persistent cache is not closed by this
+   *          cache.
+   */
+  public PgqlResultCache(int maximumSize, long maximumWeight, PgqlPersistentCache persistentCache) {
+    if (maximumSize < 0) {
+      throw new IllegalArgumentException("maximumSize should not be negative but was " + maximumSize);
+    }
+    if (maximumWeight < 0) {
+      throw new IllegalArgumentException("maximumWeight should not be negative but was " + maximumWeight);
+    }
+    this.maximumSize = maximumSize;
+    this.maximumWeight = maximumWeight;
+    this.persistentCache = persistentCache;
+  }
+
+  /**
+   * @param maximumSize
+   *          the maximum number of parse results to keep
+   */
+  public PgqlResultCache(int maximumSize) {
+    this(maximumSize, Long.MAX_VALUE);
+  }
+
+  /**
+   * @return a copy of the cached result or null if the result is not in the cache or is not cacheable
+   */
+  PgqlResult get(String queryString, AbstractMetadataProvider metadataProvider, int settings) {
+    Key key = createKey(queryString, metadataProvider, settings);
+    if (key == null) {
+      return null;
+    }
+
+    Entry entry = getFromMemory(key);
+    if (entry != null) {
+      // decoded outside of the lock
+      try {
+        return entry.result.copy(entry.encodedStatement == null ? null
+            : PgqlStatementCodec.decode(entry.encodedStatement));
+      } catch (PgqlException e) {
+        return null; // not expected for statements that were encoded by this version of the IR; parse it again
+      }
+    }
+
+    // the persistent cache is accessed outside of the lock since reading a result from disk is relatively slow
+    PgqlResult result = usesPersistentCache(settings) ? persistentCache.get(queryString, metadataProvider) : null;
+    if (result != null) {
+      Entry newEntry = createEntry(result);
+      if (newEntry != null) {
+        putInMemory(key, newEntry);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Looks up a result in memory without copying it, for results that are used internally only, such as the results of
+   * the shapes of queries (see {@link AutoParameterization}). The statement of the result should not be modified or
+   * handed out.
+   *
+   * @return the cached result or null if the result is not in memory or is not cacheable
+   */
+  PgqlResult getShared(String queryString, AbstractMetadataProvider metadataProvider, int settings) {
+    Key key = createKey(queryString, metadataProvider, settings);
+    if (key == null) {
+      return null;
+    }
+    Entry entry = getFromMemory(key);
+    return entry == null ? null : entry.result;
+  }
+
+  private synchronized Entry getFromMemory(Key key) {
+    Entry entry = entries.get(key);
+    if (entry != null) {
+      hitCount++;
+    } else {
+      missCount++;
+    }
+    return entry;
+  }
+
+  void put(String queryString, AbstractMetadataProvider metadataProvider, int settings, PgqlResult result) {
+    put(queryString, metadataProvider, settings, result, true);
+  }
+
+  /**
+   * @param persistent
+   *          whether to also add the result to the persistent cache
+   */
+  void put(String queryString, AbstractMetadataProvider metadataProvider, int settings, PgqlResult result,
+      boolean persistent) {
+    Key key = createKey(queryString, metadataProvider, settings);
+    if (key == null) {
+      return;
+    }
+
+    // encoded before the result is handed out, such that later modifications do not affect the cache
+    Entry entry = createEntry(result);
+    if (entry == null) {
+      return;
+    }
+    putInMemory(key, entry);
+    if (persistent && usesPersistentCache(settings)) {
+      persistentCache.put(queryString, metadataProvider, result); // disables itself rather than failing the parse
+    }
+  }
+
+  /**
+   * @return the entry for the result or null if its statement cannot be encoded
+   */
+  private static Entry createEntry(PgqlResult result) {
+    PgqlStatement statement = result.getPgqlStatement();
+    if (statement == null) {
+      return new Entry(result, null);
+    }
+    try {
+      return new Entry(result, PgqlStatementCodec.encode(statement));
+    } catch (RuntimeException e) {
+      return null;
+    }
+  }
+
+  private synchronized void putInMemory(Key key, Entry entry) {
+    Entry previous = entries.put(key, entry);
+    if (previous == null) {
+      weight += key.queryString.length();
+    }
+
+    Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+    while (it.hasNext() && (entries.size() > maximumSize || weight > maximumWeight)) {
+      Map.Entry<Key, Entry> eldest = it.next();
+      it.remove();
+      weight -= eldest.getKey().queryString.length();
+      evictionCount++;
+    }
+  }
+
+  /**
+   * @return true if results for the metadata provider are cached
+   */
+  static boolean isCacheable(AbstractMetadataProvider metadataProvider) {
+    return metadataProvider == null || metadataProvider.getSchemaVersion().isPresent();
+  }
+
+  private boolean usesPersistentCache(int settings) {
+    return persistentCache != null && (settings & COLLECT_PARSE_STATISTICS) == 0;
+  }
+
+  private static Key createKey(String queryString, AbstractMetadataProvider metadataProvider, int settings) {
+    if (metadataProvider == null) {
+      return new Key(queryString, null, 0, 0, settings);
+    }
+
+    Optional<Long> schemaVersion = metadataProvider.getSchemaVersion();
+    if (!schemaVersion.isPresent()) {
+      return null;
+    }
+    return new Key(queryString, metadataProvider, schemaVersion.get(), metadataProvider.getInvalidationCount(),
+        settings);
+  }
+
+  /**
+   * Removes all entries from the cache. Statistics are not reset.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  /**
+   * @return the number of parse results in the cache
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the total length of the query strings of the parse results in the cache
+   */
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  /**
+   * @return the number of times a parse result was found in the cache
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of times a cacheable parse result was not found in memory, including results that were then
+   *         found in the persistent cache
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of parse results that were removed from the cache because the cache was full
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  /**
+   * @return the persistent cache that backs this cache, if any
+   */
+  public Optional<PgqlPersistentCache> getPersistentCache() {
+    return Optional.ofNullable(persistentCache);
+  }
+
+  private static final class Entry {
+
+    private final PgqlResult result;
+
+    // null if the result has no statement
+    private final byte[] encodedStatement;
+
+    Entry(PgqlResult result, byte[] encodedStatement) {
+      this.result = result;
+      this.encodedStatement = encodedStatement;
+    }
+  }
+
+  private static final class Key {
+
+    private final String queryString;
+
+    private final AbstractMetadataProvider metadataProvider;
+
+    private final long schemaVersion;
+
+    private final long invalidationCount;
+
+    private final int settings;
+
+    private final int hashCode;
+
+    Key(String queryString, AbstractMetadataProvider metadataProvider, long schemaVersion, long invalidationCount,
+        int settings) {
+      this.queryString = queryString;
+      this.metadataProvider = metadataProvider;
+      this.schemaVersion = schemaVersion;
+      this.invalidationCount = invalidationCount;
+      this.settings = settings;
+      this.hashCode = 31 * (31 * (31 * (31 * queryString.hashCode() + System.identityHashCode(metadataProvider))
+          + Long.hashCode(schemaVersion)) + Long.hashCode(invalidationCount)) + settings;
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      // metadata providers are compared by identity
+      return metadataProvider == other.metadataProvider && schemaVersion == other.schemaVersion
+          && invalidationCount == other.invalidationCount && settings == other.settings
+          && queryString.equals(other.queryString);
+    }
+  }
+}
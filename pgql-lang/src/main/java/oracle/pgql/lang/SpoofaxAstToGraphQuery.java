@@ -13,6 +13,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import org.spoofax.interpreter.terms.IStrategoAppl;
 import org.spoofax.interpreter.terms.IStrategoList;
@@ -196,12 +197,23 @@ public class SpoofaxAstToGraphQuery {
   private static final int POS_SUBQUERY_QUERY = 0;
 
   public static PgqlStatement translate(IStrategoTerm ast) throws PgqlException {
+    return translate(ast, QueryExpression.BindVariable::new);
+  }
+
+  /**
+   * @param bindVariables
+   *          creates the expression for a bind variable, given its parameter index; for example, a constant in place of
+   *          the bind variable
+   */
+  static PgqlStatement translate(IStrategoTerm ast, IntFunction<QueryExpression> bindVariables)
+      throws PgqlException {
 
     String constructorName = ((IStrategoAppl) ast).getConstructor().getName();
 
     switch (constructorName) {
       case "NormalizedQuery":
-        return translate(ast, new TranslationContext(new HashMap<>(), new HashSet<>(), new HashMap<>()));
+        return translate(ast,
+            new TranslationContext(new HashMap<>(), new HashSet<>(), new HashMap<>(), bindVariables));
       case "CreatePropertyGraph":
         return translateCreatePropertyGraph(ast);
       case "DropPropertyGraph":
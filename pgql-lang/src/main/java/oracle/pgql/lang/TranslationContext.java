@@ -6,10 +6,12 @@ package oracle.pgql.lang;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import org.spoofax.interpreter.terms.IStrategoTerm;
 
 import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.QueryExpression;
 import oracle.pgql.lang.ir.QueryVariable;
 
 public class TranslationContext {
@@ -20,11 +22,20 @@ public class TranslationContext {
 
   private final Map<String, CommonPathExpression> commonPathExpressions;
 
+  // creates the expression for a bind variable, given its parameter index
+  private final IntFunction<QueryExpression> bindVariables;
+
   public TranslationContext(Map<IStrategoTerm, QueryVariable> vars, Set<String> varNames,
       Map<String, CommonPathExpression> commonPathExpressions) {
+    this(vars, varNames, commonPathExpressions, QueryExpression.BindVariable::new);
+  }
+
+  public TranslationContext(Map<IStrategoTerm, QueryVariable> vars, Set<String> varNames,
+      Map<String, CommonPathExpression> commonPathExpressions, IntFunction<QueryExpression> bindVariables) {
     this.vars = vars;
     this.varNames = varNames;
     this.commonPathExpressions = commonPathExpressions;
+    this.bindVariables = bindVariables;
   }
 
   public TranslationContext() {
@@ -47,4 +58,8 @@ public class TranslationContext {
   public Map<String, CommonPathExpression> getCommonPathExpressions() {
     return commonPathExpressions;
   }
+
+  public QueryExpression getBindVariable(int parameterIndex) {
+    return bindVariables.apply(parameterIndex);
+  }
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.completion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A sorted index over a list of names (e.g. the labels or properties of a graph) that answers prefix and fuzzy lookups
+ * and returns the best matches first.
+ *
+ * Matches are ranked as follows:
+ * <ol>
+ * <li>names that are equal to the prefix, with a case-sensitive match before a case-insensitive match</li>
+ * <li>names that start with the prefix, with a case-sensitive match before a case-insensitive match, then shorter
+ * names before longer names</li>
+ * <li>names that contain the characters of the prefix in order (fuzzy matches), with tighter matches first</li>
+ * </ol>
+ */
+final class CompletionIndex {
+
+  private final String[] names; // in original order
+
+  // built on the first non-empty lookup, since lookups with an empty prefix return names in their original order
+  private String[] sortedKeys; // lower-cased names, sorted
+
+  private int[] sortedPositions; // position in names of each of the sorted keys
+
+  private long[] sortedCharacterMasks; // characters that occur in each of the sorted keys (see characterMask)
+
+  CompletionIndex(List<String> names) {
+    this.names = names.toArray(new String[0]);
+  }
+
+  /**
+   * @param prefix
+   *          the (possibly empty) prefix that was typed; if empty, the names are returned in their original order
+   * @param maxResults
+   *          the maximum number of names to return
+   * @return the best matching names, best match first
+   */
+  List<String> lookup(String prefix, int maxResults) {
+    if (prefix.isEmpty()) {
+      return Arrays.asList(names).subList(0, Math.min(maxResults, names.length));
+    }
+
+    ensureSorted();
+    String key = prefix.toLowerCase();
+    List<String> result = new ArrayList<>();
+
+    // prefix matches form a contiguous range of the sorted keys
+    int from = lowerBound(key);
+    int to = from;
+    while (to < sortedKeys.length && sortedKeys[to].startsWith(key)) {
+      to++;
+    }
+    addBest(prefixMatches(from, to, prefix), maxResults, result);
+
+    // fuzzy matches
+    if (result.size() < maxResults) {
+      long keyCharacterMask = characterMask(key);
+      List<Match> fuzzyMatches = new ArrayList<>();
+      for (int i = 0; i < sortedKeys.length; i++) {
+        if ((i >= from && i < to) || (sortedCharacterMasks[i] & keyCharacterMask) != keyCharacterMask) {
+          continue;
+        }
+        int score = fuzzyScore(sortedKeys[i], key);
+        if (score >= 0) {
+          fuzzyMatches.add(new Match(names[sortedPositions[i]], score));
+        }
+      }
+      addBest(fuzzyMatches, maxResults - result.size(), result);
+    }
+
+    return result;
+  }
+
+  private List<Match> prefixMatches(int from, int to, String prefix) {
+    List<Match> result = new ArrayList<>(to - from);
+    for (int i = from; i < to; i++) {
+      String name = names[sortedPositions[i]];
+      boolean caseSensitiveMatch = name.startsWith(prefix);
+      int score;
+      if (name.length() == prefix.length()) {
+        score = caseSensitiveMatch ? 0 : 1;
+      } else {
+        score = caseSensitiveMatch ? 2 : 3;
+      }
+      result.add(new Match(name, score));
+    }
+    return result;
+  }
+
+  private void ensureSorted() {
+    if (sortedKeys != null) {
+      return;
+    }
+    Key[] keys = new Key[names.length];
+    for (int i = 0; i < names.length; i++) {
+      keys[i] = new Key(names[i].toLowerCase(), i);
+    }
+    Arrays.sort(keys);
+
+    sortedKeys = new String[names.length];
+    sortedPositions = new int[names.length];
+    sortedCharacterMasks = new long[names.length];
+    for (int i = 0; i < names.length; i++) {
+      sortedKeys[i] = keys[i].key;
+      sortedPositions[i] = keys[i].position;
+      sortedCharacterMasks[i] = characterMask(keys[i].key);
+    }
+  }
+
+  /**
+   * @return a bit set of the characters that occur in the key, such that keys that do not contain all the characters
+   *         of the prefix are skipped without a fuzzy match; characters share bits modulo 64
+   */
+  private static long characterMask(String key) {
+    long mask = 0;
+    for (int i = 0; i < key.length(); i++) {
+      mask |= 1L << key.charAt(i);
+    }
+    return mask;
+  }
+
+  private int lowerBound(String key) {
+    int low = 0;
+    int high = sortedKeys.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (sortedKeys[mid].compareTo(key) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return -1 if the characters of the prefix do not appear in order in the key, or otherwise the number of characters
+   *         that are skipped before and in between the matched characters (lower is better)
+   */
+  private static int fuzzyScore(String key, String prefix) {
+    int score = 0;
+    int keyIdx = 0;
+    for (int prefixIdx = 0; prefixIdx < prefix.length(); prefixIdx++) {
+      char c = prefix.charAt(prefixIdx);
+      int matchIdx = key.indexOf(c, keyIdx);
+      if (matchIdx == -1) {
+        return -1;
+      }
+      score += matchIdx - keyIdx;
+      keyIdx = matchIdx + 1;
+    }
+    return score;
+  }
+
+  /**
+   * Adds the best k matches to the result, in order of rank, without sorting all of the matches.
+   */
+  private static void addBest(List<Match> matches, int k, List<String> result) {
+    if (k <= 0 || matches.isEmpty()) {
+      return;
+    }
+    PriorityQueue<Match> worstFirst = new PriorityQueue<>(Math.min(k, matches.size()), Match.RANK.reversed());
+    for (Match match : matches) {
+      if (worstFirst.size() < k) {
+        worstFirst.add(match);
+      } else if (Match.RANK.compare(match, worstFirst.peek()) < 0) {
+        worstFirst.poll();
+        worstFirst.add(match);
+      }
+    }
+    Match[] best = worstFirst.toArray(new Match[0]);
+    Arrays.sort(best, Match.RANK);
+    for (Match match : best) {
+      result.add(match.name);
+    }
+  }
+
+  private static final class Key implements Comparable<Key> {
+
+    final String key;
+
+    final int position;
+
+    Key(String key, int position) {
+      this.key = key;
+      this.position = position;
+    }
+
+    @Override
+    public int compareTo(Key other) {
+      return key.compareTo(other.key);
+    }
+  }
+
+  private static final class Match {
+
+    static final Comparator<Match> RANK = Comparator.comparingInt((Match m) -> m.score) //
+        .thenComparingInt(m -> m.name.length()) //
+        .thenComparing(m -> m.name);
+
+    final String name;
+
+    final int score;
+
+    Match(String name, int score) {
+      this.name = name;
+      this.score = score;
+    }
+  }
+}
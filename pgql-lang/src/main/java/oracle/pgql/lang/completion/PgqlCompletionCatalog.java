@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.completion;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
+
+/**
+ * Indexes the graph names, labels and properties of a {@link PgqlCompletionContext} for prefix and fuzzy lookups.
+ * Lookups return names that are equal to the prefix first, then names that start with the prefix and then names that
+ * contain the characters of the prefix in order. The names of a graph are retrieved from the context and indexed the
+ * first time they are needed.
+ *
+ * A catalog can be reused for as long as the context's version does not change (see {@link #isUpToDate}).
+ */
+public class PgqlCompletionCatalog {
+
+  /**
+   * Indicates that all matching names are returned (see {@link #setMaxResults(int)}).
+   */
+  public static final int UNLIMITED_RESULTS = Integer.MAX_VALUE;
+
+  private final PgqlCompletionContext ctx;
+
+  private final Optional<Long> version;
+
+  private CompletionIndex graphNames;
+
+  private final Map<String, CompletionIndex> vertexLabels = new HashMap<>();
+
+  private final Map<String, CompletionIndex> edgeLabels = new HashMap<>();
+
+  private final Map<String, CompletionIndex> vertexProperties = new HashMap<>();
+
+  private final Map<String, CompletionIndex> edgeProperties = new HashMap<>();
+
+  private volatile int maxResults = UNLIMITED_RESULTS;
+
+  public PgqlCompletionCatalog(PgqlCompletionContext ctx) {
+    this.ctx = ctx;
+    this.version = ctx.getVersion();
+  }
+
+  /**
+   * @return true if this catalog was built for the given context and the context's version did not change since
+   */
+  public boolean isUpToDate(PgqlCompletionContext ctx) {
+    return this.ctx == ctx && version.isPresent() && version.equals(ctx.getVersion());
+  }
+
+  /**
+   * Limit the number of graph name, label and property completions that are generated for a single request to the
+   * best ranked ones.
+   *
+   * @param maxResults
+   *          the maximum number of results (default {@link #UNLIMITED_RESULTS})
+   */
+  public void setMaxResults(int maxResults) {
+    this.maxResults = maxResults;
+  }
+
+  public int getMaxResults() {
+    return maxResults;
+  }
+
+  public synchronized List<String> lookupGraphNames(String prefix, int maxResults) {
+    if (graphNames == null) {
+      graphNames = new CompletionIndex(ctx.getGraphNames());
+    }
+    return graphNames.lookup(prefix, maxResults);
+  }
+
+  public List<String> lookupVertexLabels(String graphName, String prefix, int maxResults) {
+    return lookup(vertexLabels, ctx::getVertexLabels, graphName, prefix, maxResults);
+  }
+
+  public List<String> lookupEdgeLabels(String graphName, String prefix, int maxResults) {
+    return lookup(edgeLabels, ctx::getEdgeLabels, graphName, prefix, maxResults);
+  }
+
+  public List<String> lookupVertexProperties(String graphName, String prefix, int maxResults) {
+    return lookup(vertexProperties, ctx::getVertexProperties, graphName, prefix, maxResults);
+  }
+
+  public List<String> lookupEdgeProperties(String graphName, String prefix, int maxResults) {
+    return lookup(edgeProperties, ctx::getEdgeProperties, graphName, prefix, maxResults);
+  }
+
+  private synchronized List<String> lookup(Map<String, CompletionIndex> indexes,
+      java.util.function.Function<String, List<String>> names, String graphName, String prefix, int maxResults) {
+    CompletionIndex index = indexes.computeIfAbsent(graphName, g -> new CompletionIndex(names.apply(g)));
+    return index.lookup(prefix, maxResults);
+  }
+}
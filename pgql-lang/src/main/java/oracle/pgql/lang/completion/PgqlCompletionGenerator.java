@@ -10,6 +10,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -74,6 +75,32 @@ public class PgqlCompletionGenerator {
   public static List<PgqlCompletion> generate(PgqlResult pgqlResult, String queryString, int cursor,
       PgqlCompletionContext ctx)
       throws PgqlException {
+    return generate(() -> pgqlResult, queryString, cursor, ctx);
+  }
+
+  /**
+   * Generate completions, obtaining the parse result only when the completions depend on it. Keyword completions, for
+   * example, are generated without parsing the query.
+   *
+   * @param pgqlResultSupplier
+   *          supplies the parse result of the query, or null if the query could not be parsed
+   */
+  public static List<PgqlCompletion> generate(Supplier<PgqlResult> pgqlResultSupplier, String queryString, int cursor,
+      PgqlCompletionContext ctx)
+      throws PgqlException {
+    return generate(pgqlResultSupplier, queryString, cursor, new PgqlCompletionCatalog(ctx));
+  }
+
+  /**
+   * Generate completions, looking up graph names, labels and properties in a catalog that may be reused between
+   * requests.
+   *
+   * @param pgqlResultSupplier
+   *          supplies the parse result of the query, or null if the query could not be parsed
+   */
+  public static List<PgqlCompletion> generate(Supplier<PgqlResult> pgqlResultSupplier, String queryString, int cursor,
+      PgqlCompletionCatalog catalog)
+      throws PgqlException {
 
     List<PgqlCompletion> result = new ArrayList<>();
 
@@ -96,6 +123,7 @@ public class PgqlCompletionGenerator {
       return result;
     }
 
+    PgqlResult pgqlResult = pgqlResultSupplier.get();
     if (pgqlResult == null) {
       if (queryString.toUpperCase().trim().endsWith(MATCH)) {
         if (queryString.endsWith(" ")) {
@@ -121,12 +149,23 @@ public class PgqlCompletionGenerator {
       }
     }
 
-    if (queryString.charAt(cursor - 1) == ':') {
+    // the (possibly empty) label or property name that is being typed
+    int prefixStart = cursor;
+    while (prefixStart > 0 && isIdentifierPart(queryString.charAt(prefixStart - 1))) {
+      prefixStart--;
+    }
+    String prefix = queryString.substring(prefixStart, cursor);
+    char charBeforePrefix = prefixStart > 0 && (prefix.isEmpty() || Character.isLetter(prefix.charAt(0)))
+        ? queryString.charAt(prefixStart - 1)
+        : 0;
+
+    if (charBeforePrefix == ':') {
       // labels
-      return generateLabelSuggestions(graphName, queryString, cursor, ctx);
-    } else if (queryString.charAt(cursor - 1) == '.') {
+      return generateLabelSuggestions(graphName, queryString, prefixStart, prefix, catalog);
+    } else if (charBeforePrefix == '.'
+        && (prefix.isEmpty() || parseIdentifierAtEnd(queryString, prefixStart - 1) != null)) {
       // properties
-      return generatePropertySuggestions(graphName, pgqlResult, queryString, cursor, ctx);
+      return generatePropertySuggestions(graphName, pgqlResult, queryString, prefixStart, prefix, catalog);
     } else {
 
       List<PgqlCompletion> variableProposals = getVariableProposals(pgqlResult);
@@ -144,7 +183,7 @@ public class PgqlCompletionGenerator {
           break;
         case FROM:
           if (trimmedStringBeforeCursor.endsWith(FROM)) {
-            return generateInputGraphCompletions(ctx);
+            return generateInputGraphCompletions(catalog);
           } else {
             return Collections.singletonList(MATCH_CLAUSE_COMPLETION);
           }
@@ -195,9 +234,9 @@ public class PgqlCompletionGenerator {
     }
   }
 
-  private static List<PgqlCompletion> generateInputGraphCompletions(PgqlCompletionContext ctx) {
+  private static List<PgqlCompletion> generateInputGraphCompletions(PgqlCompletionCatalog catalog) {
     List<PgqlCompletion> completions = new ArrayList<>();
-    for (String graphName : ctx.getGraphNames()) {
+    for (String graphName : catalog.lookupGraphNames("", catalog.getMaxResults())) {
       completions.add(completion(graphName, "graph name"));
     }
     return completions;
@@ -233,9 +272,9 @@ public class PgqlCompletionGenerator {
   }
 
   private static List<PgqlCompletion> generatePropertySuggestions(String graphName, PgqlResult pgqlResult,
-      String queryString, int cursor, PgqlCompletionContext ctx)
+      String queryString, int prefixStart, String prefix, PgqlCompletionCatalog catalog)
       throws PgqlException {
-    String variableName = parseIdentifierAtEnd(queryString, cursor - 1);
+    String variableName = parseIdentifierAtEnd(queryString, prefixStart - 1);
     if (variableName == null) {
       return Collections.emptyList();
     }
@@ -249,8 +288,8 @@ public class PgqlCompletionGenerator {
         .map(QueryVertex::getName) //
         .anyMatch(variableName::equals);
     if (isVertexVariable) {
-      return ctx.getVertexProperties(graphName).stream().map(prop -> new PgqlCompletion(prop, "vertex property"))
-          .collect(Collectors.toList());
+      return catalog.lookupVertexProperties(graphName, prefix, catalog.getMaxResults()).stream()
+          .map(prop -> new PgqlCompletion(prop, "vertex property")).collect(Collectors.toList());
     }
 
     Set<VertexPairConnection> edges = graphPattern.getConnections();
@@ -259,33 +298,42 @@ public class PgqlCompletionGenerator {
         .map(VertexPairConnection::getName) //
         .anyMatch(variableName::equals);
     if (isEdgeVariable) {
-      return ctx.getEdgeProperties(graphName).stream().map(prop -> new PgqlCompletion(prop, "edge property"))
-          .collect(Collectors.toList());
+      return catalog.lookupEdgeProperties(graphName, prefix, catalog.getMaxResults()).stream()
+          .map(prop -> new PgqlCompletion(prop, "edge property")).collect(Collectors.toList());
     }
 
     return Collections.emptyList();
   }
 
-  private static List<PgqlCompletion> generateLabelSuggestions(String graphName, String queryString, int cursor,
-      PgqlCompletionContext ctx) {
-    String queryUpToCursor = queryString.substring(0, cursor - 2);
+  private static List<PgqlCompletion> generateLabelSuggestions(String graphName, String queryString, int prefixStart,
+      String prefix, PgqlCompletionCatalog catalog) {
+    String queryUpToCursor = queryString.substring(0, Math.max(0, prefixStart - 2));
     if (queryUpToCursor.lastIndexOf('(') > queryUpToCursor.lastIndexOf('[')) {
-      return ctx.getVertexLabels(graphName).stream().map(lbl -> new PgqlCompletion(lbl, "vertex label"))
-          .collect(Collectors.toList());
+      return catalog.lookupVertexLabels(graphName, prefix, catalog.getMaxResults()).stream()
+          .map(lbl -> new PgqlCompletion(lbl, "vertex label")).collect(Collectors.toList());
     } else {
-      return ctx.getEdgeLabels(graphName).stream().map(lbl -> new PgqlCompletion(lbl, "edge label"))
-          .collect(Collectors.toList());
+      return catalog.lookupEdgeLabels(graphName, prefix, catalog.getMaxResults()).stream()
+          .map(lbl -> new PgqlCompletion(lbl, "edge label")).collect(Collectors.toList());
     }
   }
 
+  private static boolean isIdentifierPart(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_';
+  }
+
+  private static final ClauseOrAggregate[] CLAUSES_AND_AGGREGATES = ClauseOrAggregate.values();
+
+  private static final String[] CLAUSE_AND_AGGREGATE_STRINGS = Arrays.stream(CLAUSES_AND_AGGREGATES)
+      .map(c -> c.toString().replace("_", " ")).toArray(String[]::new);
+
   private static ClauseOrAggregate getCurrentClauseOrAggregate(String trimmedQuery) {
     ClauseOrAggregate result = null;
     int index = -1;
 
-    for (ClauseOrAggregate c : ClauseOrAggregate.values()) {
-      int newIndex = trimmedQuery.lastIndexOf(c.toString().replace("_", " "));
+    for (int i = 0; i < CLAUSES_AND_AGGREGATES.length; i++) {
+      int newIndex = trimmedQuery.lastIndexOf(CLAUSE_AND_AGGREGATE_STRINGS[i]);
       if (newIndex > index) {
-        result = c;
+        result = CLAUSES_AND_AGGREGATES[i];
         index = newIndex;
       }
     }
@@ -394,13 +442,18 @@ public class PgqlCompletionGenerator {
     return allowedKeywords;
   }
 
-  private static PgqlCompletion getKeywordCompletion(String beforeQuery, String afterQuery, Keyword keyword) {
+  private static final int MAX_KEYWORD_PARTS = allowedClauseKeywords.values().stream() //
+      .flatMap(List::stream) //
+      .mapToInt(k -> k.getStringExpression().split("\\s+").length) //
+      .max().getAsInt();
+
+  private static PgqlCompletion getKeywordCompletion(String beforeQuery, String[] words, String afterQuery,
+      Keyword keyword) {
     String keywordExpression = keyword.getStringExpression();
     if (afterQuery.contains(keywordExpression)) {
       return null;
     }
     String[] keywordParts = keywordExpression.split("\\s+");
-    String[] words = beforeQuery.toUpperCase().split("\\s+");
     int idxLastWord = words.length - 1;
     boolean isKeyword = false;
     int partsIdx;
@@ -435,8 +488,9 @@ public class PgqlCompletionGenerator {
   private static List<PgqlCompletion> getIncompleteKeywords(String beforeQuery, String afterQuery,
       ClauseOrAggregate currentClause) {
     List<PgqlCompletion> keywords = new ArrayList<>();
+    String[] words = getLastWordsInUpperCase(beforeQuery, MAX_KEYWORD_PARTS);
     for (Keyword allowedKeyword : allowedClauseKeywords.get(currentClause)) {
-      PgqlCompletion completion = getKeywordCompletion(beforeQuery, afterQuery, allowedKeyword);
+      PgqlCompletion completion = getKeywordCompletion(beforeQuery, words, afterQuery, allowedKeyword);
       if (completion != null) {
         keywords.add(completion);
       }
@@ -444,6 +498,35 @@ public class PgqlCompletionGenerator {
     return keywords;
   }
 
+  /**
+   * Same as the last n elements of s.toUpperCase().split("\\s+") for a trimmed string s, but without processing the
+   * entire string.
+   */
+  private static String[] getLastWordsInUpperCase(String s, int n) {
+    List<String> words = new ArrayList<>(n);
+    int end = s.length();
+    while (words.size() < n) {
+      int start = end;
+      while (start > 0 && !isWhitespace(s.charAt(start - 1))) {
+        start--;
+      }
+      words.add(0, s.substring(start, end).toUpperCase());
+      end = start;
+      while (end > 0 && isWhitespace(s.charAt(end - 1))) {
+        end--;
+      }
+      if (end == 0) {
+        break;
+      }
+    }
+    return words.toArray(new String[0]);
+  }
+
+  private static boolean isWhitespace(char c) {
+    // same as \s in regular expressions
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
   private static String parseIdentifierAtBeginning(String s) {
     return matchPattern(s, IDENTIFIER_PATTERN);
   }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.PgqlUtils;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Aggregation;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.LogicalExpression.Or;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.util.AbstractQueryTraversal;
+
+public class AbstractQueryTraversalTest extends AbstractPgqlTest {
+
+  private static SelectQuery parse(String query) throws PgqlException {
+    PgqlResult result = pgql.parse(query);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    return (SelectQuery) result.getPgqlStatement();
+  }
+
+  @Test
+  public void testPreAndPostOrder() throws Exception {
+    QueryExpression expression = parse("SELECT n.a + 1 * 2 AS x FROM MATCH (n)").getProjection().getElements().get(0)
+        .getExp();
+    List<String> events = new ArrayList<>();
+    new AbstractQueryTraversal() {
+
+      @Override
+      protected TraversalAction preVisit(Object node) {
+        events.add("pre " + node.getClass().getSimpleName());
+        return TraversalAction.CONTINUE;
+      }
+
+      @Override
+      protected TraversalAction postVisit(Object node) {
+        events.add("post " + node.getClass().getSimpleName());
+        return TraversalAction.CONTINUE;
+      }
+    }.traverse(expression);
+
+    List<String> expected = new ArrayList<>();
+    Collections.addAll(expected, "pre Add", "pre PropertyAccess", "post PropertyAccess", "pre Mul", "pre ConstInteger",
+        "post ConstInteger", "pre ConstInteger", "post ConstInteger", "post Mul", "post Add");
+    assertEquals(expected, events);
+  }
+
+  @Test
+  public void testSkipChildrenAndTerminate() throws Exception {
+    SelectQuery query = parse("SELECT n.a FROM MATCH (n) WHERE EXISTS (SELECT * FROM MATCH (n) -> (m) WHERE m.b > 3) "
+        + "AND n.c = 4");
+    List<Object> constants = new ArrayList<>();
+    AbstractQueryTraversal traversal = new AbstractQueryTraversal() {
+
+      @Override
+      protected TraversalAction preVisit(Object node) {
+        if (node instanceof QueryExpression.Function.Exists) {
+          return TraversalAction.SKIP_CHILDREN;
+        }
+        if (node instanceof ConstInteger) {
+          constants.add(((ConstInteger) node).getValue());
+          return TraversalAction.TERMINATE;
+        }
+        return TraversalAction.CONTINUE;
+      }
+    };
+    assertFalse(traversal.traverse(query));
+    assertEquals(Collections.singletonList(4L), constants);
+
+    // the traversal can be reused after it was terminated
+    constants.clear();
+    assertTrue(traversal.traverse(new PropertyAccess(new QueryVertex("n", false), "a")));
+    assertTrue(constants.isEmpty());
+  }
+
+  @Test
+  public void testDeeplyNestedExpression() {
+    QueryVertex n = new QueryVertex("n", false);
+    QueryExpression expression = new Equal(new PropertyAccess(n, "p"), new ConstInteger(0));
+    for (int i = 1; i < 100_000; i++) {
+      expression = new Or(expression, new Equal(new PropertyAccess(n, "p"), new ConstInteger(i)));
+    }
+    Set<QueryVariable> variables = PgqlUtils.getVariables(expression);
+    assertEquals(Collections.singleton(n), variables);
+    assertTrue(PgqlUtils.getAggregations(expression).isEmpty());
+  }
+
+  @Test
+  public void testGetAggregations() throws Exception {
+    SelectQuery query = parse("SELECT COUNT(*) + MAX(n.a) AS x, (SELECT MIN(m.b) FROM MATCH (m)) AS y FROM MATCH (n)");
+    Set<Aggregation> aggregations = PgqlUtils.getAggregations(query.getProjection().getElements().get(0).getExp());
+    assertEquals(2, aggregations.size());
+    assertTrue(PgqlUtils.getAggregations(query.getProjection().getElements().get(1).getExp()).isEmpty());
+  }
+}
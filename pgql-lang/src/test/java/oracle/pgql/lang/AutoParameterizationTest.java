@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Equal;
+
+public class AutoParameterizationTest extends AbstractPgqlTest {
+
+  @Test
+  public void testSameResultsAsFullParse() throws Exception {
+    String[] queries = { //
+        "SELECT n.name FROM MATCH (n:Person) WHERE n.age > 30 AND n.name <> 'Alice' LIMIT 10", //
+        "SELECT n.name FROM MATCH (n:Person) WHERE n.age > 31 AND n.name <> 'Bob' LIMIT 20", //
+        "SELECT n.name FROM MATCH (n:Person) WHERE n.age > 31.5 AND n.name <> 'O''Brien' LIMIT 20", //
+        "SELECT n.name FROM MATCH (n:Person) WHERE n.age > 32 AND n.name <> 'Carol' LIMIT 30", //
+        "SELECT n.name, 1 + 2 AS three FROM MATCH (n) WHERE n.active = true AND n.age IN (1, 2, 3)", //
+        "SELECT n.name, 1 + 2 AS three FROM MATCH (n) WHERE n.active = false AND n.age IN (4, 5, 6)", //
+        "SELECT n.name FROM MATCH (n) WHERE n.age > -5 AND n.name = ? AND n.height > 1.80 AND n.weight < ?", //
+        "SELECT n.name FROM MATCH (n) WHERE n.age > -6 AND n.name = ? AND n.height > 1.90 AND n.weight < ?", //
+        "SELECT n.name FROM MATCH ANY SHORTEST (n) -[e]->{1,3} (m) WHERE n.dob > DATE '2000-01-01' AND m.x = 1", //
+        "SELECT n.name FROM MATCH ANY SHORTEST (n) -[e]->{1,3} (m) WHERE n.dob > DATE '2000-01-01' AND m.x = 2", //
+        "SELECT LISTAGG(n.name, ';') FROM MATCH (n) WHERE n.age = 1", //
+        "SELECT LISTAGG(n.name, ',') FROM MATCH (n) WHERE n.age = 2", //
+        "INSERT VERTEX v LABELS (Person) PROPERTIES (v.name = 'Dave', v.age = 40)", //
+        "INSERT VERTEX v LABELS (Person) PROPERTIES (v.name = 'Eve', v.age = 41)" };
+
+    try (Pgql parameterizingPgql = new Pgql(new PgqlResultCache(100))) {
+      parameterizingPgql.setAutoParameterize(true);
+      for (String query : queries) {
+        PgqlResult expected = pgql.parse(query);
+        PgqlResult actual = parameterizingPgql.parse(query);
+        assertTrue(query, actual.isQueryValid());
+        assertEquals(query, actual.getQueryString());
+        assertEquals(query, expected.getPgqlStatement(), actual.getPgqlStatement());
+        assertEquals(query, expected.getPgqlStatement().toString(), actual.getPgqlStatement().toString());
+        assertEquals(query, expected.getBindVariableCount(), actual.getBindVariableCount());
+        assertEquals(query, expected.getPgqlVersion(), actual.getPgqlVersion());
+      }
+    }
+  }
+
+  @Test
+  public void testShapeIsParsedOnce() throws Exception {
+    PgqlResultCache cache = new PgqlResultCache(100);
+    try (Pgql parameterizingPgql = new Pgql(cache)) {
+      parameterizingPgql.setAutoParameterize(true);
+      parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 1"); // parses the shape and the query
+      assertEquals(2, cache.size());
+
+      for (int i = 2; i <= 10; i++) {
+        PgqlResult result = parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = " + i);
+        Equal equal = (Equal) result.getGraphQuery().getConstraints().iterator().next();
+        assertEquals(new ConstInteger(i), equal.getExp2());
+      }
+      assertEquals(2, cache.size());
+      assertEquals(9, cache.getHitCount());
+    }
+  }
+
+  @Test
+  public void testBindVariablesOfQuery() throws Exception {
+    try (Pgql parameterizingPgql = new Pgql(new PgqlResultCache(100))) {
+      parameterizingPgql.setAutoParameterize(true);
+      String query = "SELECT n.name FROM MATCH (n) WHERE n.a = ? AND n.b = 2 AND n.c = ?";
+      parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.a = ? AND n.b = 1 AND n.c = ?");
+      PgqlResult result = parameterizingPgql.parse(query);
+      assertEquals(2, result.getBindVariableCount());
+      GraphQuery expected = pgql.parse(query).getGraphQuery();
+      assertEquals(expected, result.getGraphQuery());
+    }
+  }
+
+  @Test
+  public void testDifferentLiteralTypes() throws Exception {
+    try (Pgql parameterizingPgql = new Pgql(new PgqlResultCache(100))) {
+      parameterizingPgql.setAutoParameterize(true);
+      parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 1");
+      parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 2");
+      PgqlResult result = parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 'three'");
+      QueryExpression constraint = result.getGraphQuery().getConstraints().iterator().next();
+      assertEquals(pgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 'three'").getGraphQuery().getConstraints()
+          .iterator().next(), constraint);
+    }
+  }
+
+  @Test
+  public void testEqualLiterals() throws Exception {
+    try (Pgql parameterizingPgql = new Pgql(new PgqlResultCache(100))) {
+      parameterizingPgql.setAutoParameterize(true);
+      // repeated expressions become references to the SELECT element, so equal literals change the result
+      String[] queries = { //
+          "SELECT n.age + 2 AS x FROM MATCH (n) ORDER BY n.age + 3", //
+          "SELECT n.age + 2 AS x FROM MATCH (n) ORDER BY n.age + 2", //
+          "SELECT n.age + 4 AS x FROM MATCH (n) ORDER BY n.age + 4", //
+          "SELECT n.name || 'a' AS x FROM MATCH (n) ORDER BY n.name || 'b'", //
+          "SELECT n.name || 'a' AS x FROM MATCH (n) ORDER BY n.name || 'A'" };
+      for (String query : queries) {
+        assertEquals(query, pgql.parse(query).getPgqlStatement(), parameterizingPgql.parse(query).getPgqlStatement());
+      }
+    }
+  }
+
+  @Test
+  public void testSignature() throws Exception {
+    assertEquals("I0I1", getSignature("SELECT n.a + 2 FROM MATCH (n) WHERE n.b = 3"));
+    assertEquals("I0I0", getSignature("SELECT n.a + 2 FROM MATCH (n) WHERE n.b = 2"));
+    assertEquals("S0I1S0", getSignature("SELECT 'a', 2 FROM MATCH (n) WHERE n.b = 'A'"));
+    assertEquals("I0D1", getSignature("SELECT 2, 2.0 FROM MATCH (n)"));
+  }
+
+  private static String getSignature(String query) {
+    return AutoParameterization.extractShape(query).getSignature();
+  }
+
+  @Test
+  public void testLabelPredicatesWithMetadata() throws Exception {
+    ExampleMetadataProvider metadataProvider = new ExampleMetadataProvider() {
+
+      @Override
+      public Optional<Long> getSchemaVersion() {
+        return Optional.of(1L);
+      }
+    };
+
+    try (Pgql parameterizingPgql = new Pgql(new PgqlResultCache(100))) {
+      parameterizingPgql.setAutoParameterize(true);
+      String[] queries = { //
+          "SELECT n.name FROM MATCH (n) WHERE has_label(n, 'Person') AND n.age = 1", //
+          "SELECT n.name FROM MATCH (n) WHERE has_label(n, 'Persn') AND n.age = 2", //
+          "SELECT n.name FROM MATCH (n) WHERE has_label(n, 'Person') AND n.age = 3", //
+          "SELECT n.name FROM MATCH (n) WHERE n.hasLabel('Persn') AND n.age = 4" };
+      for (String query : queries) {
+        PgqlResult expected = pgql.parse(query, metadataProvider);
+        PgqlResult actual = parameterizingPgql.parse(query, metadataProvider);
+        assertEquals(query, expected.isQueryValid(), actual.isQueryValid());
+        assertEquals(query, expected.getErrorMessages(), actual.getErrorMessages());
+      }
+      assertFalse(parameterizingPgql.parse(queries[1], metadataProvider).isQueryValid());
+    }
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    try (Pgql parameterizingPgql = new Pgql(new PgqlResultCache(100))) {
+      parameterizingPgql.setAutoParameterize(true);
+      parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 1");
+      parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 2");
+      String query = "SELECT m.name FROM MATCH (n) WHERE n.id = 3";
+      PgqlResult result = parameterizingPgql.parse(query);
+      assertEquals(pgql.parse(query).getErrorMessages(), result.getErrorMessages());
+    }
+  }
+
+  @Test
+  public void testDisabledWithoutCache() throws Exception {
+    try (Pgql parameterizingPgql = new Pgql()) {
+      parameterizingPgql.setAutoParameterize(true);
+      PgqlResult result = parameterizingPgql.parse("SELECT n.name FROM MATCH (n) WHERE n.id = 1");
+      assertTrue(result.isQueryValid());
+      assertNull(result.getErrorMessages());
+    }
+  }
+}
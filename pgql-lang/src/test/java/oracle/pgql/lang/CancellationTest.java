@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CancellationTest extends AbstractPgqlTest {
+
+  private static final String QUERY = "SELECT n.name FROM MATCH (n) -[e]-> (m) "
+      + "WHERE EXISTS ( SELECT * FROM MATCH (m) -> (o) )";
+
+  @Test
+  public void testCancelledToken() throws Exception {
+    PgqlCancellationToken token = new PgqlCancellationToken();
+    token.cancel();
+    checkCancelled(token);
+  }
+
+  @Test
+  public void testDeadlinePassed() throws Exception {
+    checkCancelled(PgqlCancellationToken.withTimeout(0, TimeUnit.NANOSECONDS));
+  }
+
+  @Test
+  public void testNotCancelled() throws Exception {
+    PgqlCancellationToken token = PgqlCancellationToken.withTimeout(1, TimeUnit.HOURS);
+    assertTrue(pgql.parse(QUERY, null, null, token).isQueryValid());
+  }
+
+  @Test
+  public void testMaxTokens() throws Exception {
+    PgqlComplexityBudget budget = PgqlComplexityBudget.UNLIMITED.withMaxTokens(5);
+    budget.checkQueryString("SELECT 'a string with ( many words' /* comment ( ( */ FROM x");
+    checkExceedsBudget(budget, "SELECT n, m FROM MATCH (n)");
+  }
+
+  @Test
+  public void testMaxNestingDepth() throws Exception {
+    PgqlComplexityBudget budget = PgqlComplexityBudget.UNLIMITED.withMaxNestingDepth(2);
+    budget.checkQueryString("SELECT (1 + 2) * (3 + 4) FROM MATCH (n)");
+    checkExceedsBudget(budget, "SELECT ((1 + (2))) FROM MATCH (n)");
+  }
+
+  @Test
+  public void testMaxPatternSize() throws Exception {
+    checkWithinBudget(PgqlComplexityBudget.UNLIMITED.withMaxPatternSize(100), QUERY);
+    checkExceedsBudget(PgqlComplexityBudget.UNLIMITED.withMaxPatternSize(2), QUERY);
+  }
+
+  @Test
+  public void testMaxSubqueries() throws Exception {
+    checkWithinBudget(PgqlComplexityBudget.UNLIMITED.withMaxSubqueries(1), QUERY);
+    checkExceedsBudget(PgqlComplexityBudget.UNLIMITED.withMaxSubqueries(0), QUERY);
+  }
+
+  private void checkCancelled(PgqlCancellationToken token) throws Exception {
+    try (Pgql pgql = new Pgql()) {
+      try {
+        pgql.parse(QUERY, null, null, token);
+        fail();
+      } catch (PgqlCancellationException e) {
+        // expected
+      }
+
+      // the instance can still be used afterwards
+      assertTrue(pgql.parse(QUERY).isQueryValid());
+    }
+  }
+
+  private void checkWithinBudget(PgqlComplexityBudget budget, String query) throws Exception {
+    try (Pgql pgql = new Pgql()) {
+      pgql.setComplexityBudget(budget);
+      assertTrue(pgql.parse(query).isQueryValid());
+    }
+  }
+
+  private void checkExceedsBudget(PgqlComplexityBudget budget, String query) throws Exception {
+    try (Pgql pgql = new Pgql()) {
+      pgql.setComplexityBudget(budget);
+      try {
+        pgql.parse(query);
+        fail();
+      } catch (PgqlComplexityException e) {
+        // expected
+      }
+    }
+  }
+}
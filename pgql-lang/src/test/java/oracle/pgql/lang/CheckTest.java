@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+
+public class CheckTest extends AbstractPgqlTest {
+
+  @Test
+  public void testValidQuery() throws Exception {
+    PgqlCheckResult result = pgql.check("SELECT n.name FROM MATCH (n) ON myGraph");
+    assertTrue(result.isSyntaxValid());
+    assertNull(result.getErrorMessages());
+    assertEquals(PgqlVersion.V_1_3_OR_UP, result.getPgqlVersion());
+    assertEquals(Optional.of(new SchemaQualifiedName(null, "MYGRAPH")), result.getGraphName());
+  }
+
+  @Test
+  public void testDefaultGraph() throws Exception {
+    PgqlCheckResult result = pgql.check("SELECT n.name FROM MATCH (n)");
+    assertTrue(result.isSyntaxValid());
+    assertEquals(Collections.emptySet(), result.getGraphNames());
+    assertFalse(result.getGraphName().isPresent());
+  }
+
+  @Test
+  public void testSyntaxError() throws Exception {
+    String query = "SELECT n.name FROM MATCH (n) ON myGraph WHERE";
+    PgqlCheckResult result = pgql.check(query);
+    assertFalse(result.isSyntaxValid());
+    assertEquals(pgql.parse(query).getErrorMessages(), result.getErrorMessages());
+  }
+
+  @Test
+  public void testSemanticErrorIsNotChecked() throws Exception {
+    String query = "SELECT undefinedVariable FROM MATCH (n)";
+    assertFalse(pgql.parse(query).isQueryValid());
+    assertTrue(pgql.check(query).isSyntaxValid());
+  }
+
+  @Test
+  public void testEmptyQuery() throws Exception {
+    assertFalse(pgql.check("  ").isSyntaxValid());
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.QueryFingerprint;
+import oracle.pgql.lang.ir.QueryVertex;
+
+public class FingerprintTest extends AbstractPgqlTest {
+
+  private static QueryFingerprint fingerprint(String query) throws PgqlException {
+    PgqlResult result = pgql.parse(query);
+    assertTrue(query, result.isQueryValid());
+    return result.getFingerprint().get();
+  }
+
+  @Test
+  public void testFormatting() throws Exception {
+    assertEquals(fingerprint("SELECT n.name FROM MATCH (n:Person) -[e]-> (m) WHERE n.age > 30"),
+        fingerprint("select  n.name\nfrom match (n:Person)-[e]->(m) /* comment */ where n.age>30"));
+  }
+
+  @Test
+  public void testPredicateOrder() throws Exception {
+    assertEquals(fingerprint("SELECT n.name FROM MATCH (n) -> (m) WHERE n.age > 30 AND m.name = 'Alice'"),
+        fingerprint("SELECT n.name FROM MATCH (n) -> (m) WHERE m.name = 'Alice' AND n.age > 30"));
+  }
+
+  @Test
+  public void testAnonymousVariables() throws Exception {
+    String query = "SELECT n.name FROM MATCH (n) -> () <- (), MATCH ANY (n) ->+ (m)";
+    GraphQuery graphQuery = pgql.parse(query).getGraphQuery();
+    QueryFingerprint expected = QueryFingerprint.of(graphQuery);
+    for (QueryVertex vertex : graphQuery.getGraphPattern().getVertices()) {
+      if (vertex.isAnonymous()) {
+        vertex.setName(vertex.getName() + "_renamed");
+      }
+    }
+    assertEquals(expected, QueryFingerprint.of(graphQuery));
+  }
+
+  @Test
+  public void testDifferentQueries() throws Exception {
+    QueryFingerprint fingerprint = fingerprint("SELECT n.name FROM MATCH (n) -> (m) WHERE n.age > 30");
+    assertNotEquals(fingerprint, fingerprint("SELECT n.name FROM MATCH (n) -> (m) WHERE n.height > 30"));
+    assertNotEquals(fingerprint, fingerprint("SELECT n.name FROM MATCH (n) -> (m) WHERE n.age > 31"));
+    assertNotEquals(fingerprint, fingerprint("SELECT n.name FROM MATCH (n) -> (m) WHERE n.age > ?"));
+    assertNotEquals(fingerprint, fingerprint("SELECT n.name FROM MATCH (n) <- (m) WHERE n.age > 30"));
+    assertNotEquals(fingerprint, fingerprint("SELECT x.name FROM MATCH (x) -> (m) WHERE x.age > 30"));
+    assertNotEquals(fingerprint, fingerprint("SELECT n.name FROM MATCH (n) -> (m) WHERE m.age > 30"));
+  }
+
+  @Test
+  public void testModifyQueries() throws Exception {
+    QueryFingerprint fingerprint = fingerprint("UPDATE n SET (n.age = n.age + 1) FROM MATCH (n) WHERE n.age > 30");
+    assertEquals(fingerprint, fingerprint("update n set (n.age = n.age + 1)\nfrom match (n) where n.age>30"));
+    assertNotEquals(fingerprint, fingerprint("UPDATE n SET (n.age = n.age + 2) FROM MATCH (n) WHERE n.age > 30"));
+    assertNotEquals(fingerprint, fingerprint("DELETE n FROM MATCH (n) WHERE n.age > 30"));
+    assertNotEquals(fingerprint, fingerprint("SELECT n.age + 1 FROM MATCH (n) WHERE n.age > 30"));
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    PgqlResult result = pgql.parse("SELECT m.name FROM MATCH (n)");
+    assertFalse(result.isQueryValid());
+    assertFalse(result.getFingerprint().isPresent());
+  }
+
+  @Test
+  public void testToString() throws Exception {
+    assertEquals("0000000000000001000000000000000a", new QueryFingerprint(1, 10).toString());
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.MatchPlan.Step;
+import oracle.pgql.lang.MatchPlan.StepType;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.OptionalGraphPattern;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.SchemaQualifiedName;
+import oracle.pgql.lang.metadata.PropertyStatistics;
+
+public class MatchOrderPlannerTest extends AbstractPgqlTest {
+
+  private static final double DELTA = 1e-9;
+
+  /**
+   * 1000 persons that know 10 persons each and study at one of 10 universities.
+   */
+  private static class StatisticsProvider extends ExampleMetadataProvider {
+
+    @Override
+    public Optional<Long> getVertexCount(SchemaQualifiedName graphName, String vertexLabel) {
+      if (vertexLabel == null) {
+        return Optional.of(1010L);
+      }
+      return Optional.of(vertexLabel.equalsIgnoreCase("Person") ? 1000L : 10L);
+    }
+
+    @Override
+    public Optional<Double> getAverageDegree(SchemaQualifiedName graphName, String edgeLabel, Direction direction) {
+      if (edgeLabel != null && edgeLabel.equalsIgnoreCase("studyAt")) {
+        return Optional.of(direction == Direction.OUTGOING ? 1.0 : 100.0);
+      }
+      return Optional.of(10.0);
+    }
+
+    @Override
+    public Optional<PropertyStatistics> getVertexPropertyStatistics(SchemaQualifiedName graphName, String vertexLabel,
+        String propertyName) {
+      if (propertyName.equalsIgnoreCase("numericProp")) {
+        return Optional.of(new PropertyStatistics(100, 0.5, Arrays.asList(0.0, 50.0, 100.0)));
+      }
+      return Optional.of(new PropertyStatistics(1000, 0));
+    }
+  }
+
+  private static List<MatchPlan> plan(String query) throws PgqlException {
+    PgqlResult result = pgql.parse(query, new StatisticsProvider());
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    return result.getMatchPlans();
+  }
+
+  private static List<StepType> getStepTypes(MatchPlan plan) {
+    return plan.getSteps().stream().map(Step::getStepType).collect(Collectors.toList());
+  }
+
+  @Test
+  public void testStartFromSmallestLabel() throws Exception {
+    List<MatchPlan> plans = plan("SELECT * FROM MATCH (p:Person) -[e:studyAt]-> (u:University)");
+    assertEquals(1, plans.size());
+    MatchPlan plan = plans.get(0);
+
+    assertEquals(Arrays.asList(StepType.SCAN, StepType.EXPAND), getStepTypes(plan));
+    Step scan = plan.getSteps().get(0);
+    Step expand = plan.getSteps().get(1);
+    assertEquals("U", scan.getToVertex().getName());
+    assertEquals(10, scan.getEstimatedRows(), DELTA);
+    assertSame(scan.getToVertex(), expand.getFromVertex());
+    assertSame(plan.getGraphPattern().getConnections().iterator().next(), expand.getConnection());
+    assertEquals("P", expand.getToVertex().getName());
+
+    // 100 incoming studyAt edges per university, of which the source is a person with probability 1000/1010
+    double expectedRows = 10 * 100 * 1000.0 / 1010;
+    assertEquals(expectedRows, plan.getEstimatedRows(), DELTA);
+    assertEquals(10 + expectedRows, plan.getEstimatedCost(), DELTA);
+  }
+
+  @Test
+  public void testFilterSelectivity() throws Exception {
+    MatchPlan plan = plan("SELECT * FROM MATCH (a:Person) -[e:knows]-> (b:Person) "
+        + "WHERE a.numericProp > 75 AND b.firstName = 'x'").get(0);
+
+    // 1 in 1000 persons has the first name versus 1 in 8 for the histogram of numericProp
+    Step scan = plan.getSteps().get(0);
+    assertEquals("B", scan.getToVertex().getName());
+    assertEquals(1, scan.getEstimatedRows(), DELTA);
+    assertEquals(1, scan.getFilters().size());
+    assertEquals(ExpressionType.EQUAL, scan.getFilters().get(0).getExpType());
+
+    Step expand = plan.getSteps().get(1);
+    assertEquals("A", expand.getToVertex().getName());
+    assertEquals(10 * 1000.0 / 1010 * 0.125, expand.getEstimatedRows(), DELTA);
+    assertEquals(ExpressionType.GREATER, expand.getFilters().get(0).getExpType());
+  }
+
+  @Test
+  public void testCycleAndOptionalMatchWithoutStatistics() throws Exception {
+    PgqlResult result = pgql.parse("SELECT * FROM MATCH (a) -> (b) -> (c) -> (a), OPTIONAL MATCH (c) -> (d)");
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    List<MatchPlan> plans = result.getMatchPlans();
+    assertEquals(2, plans.size());
+
+    assertEquals(Arrays.asList(StepType.SCAN, StepType.EXPAND, StepType.EXPAND, StepType.EXPAND_INTO),
+        getStepTypes(plans.get(0)));
+
+    // the optional graph pattern starts from the vertex that is bound by the first graph pattern
+    MatchPlan optionalPlan = plans.get(1);
+    assertTrue(optionalPlan.getGraphPattern() instanceof OptionalGraphPattern);
+    assertEquals(Arrays.asList(StepType.EXPAND), getStepTypes(optionalPlan));
+    assertEquals("C", optionalPlan.getSteps().get(0).getFromVertex().getName());
+    assertEquals(MatchOrderPlanner.DEFAULT_DEGREE, optionalPlan.getEstimatedRows(), DELTA);
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    assertTrue(pgql.parse("SELECT * FROM MATCH (n) WHERE").getMatchPlans().isEmpty());
+  }
+}
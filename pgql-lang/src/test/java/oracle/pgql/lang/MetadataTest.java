@@ -4,9 +4,11 @@
 package oracle.pgql.lang;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.List;
+import java.util.Optional;
 
 import org.junit.Test;
 
@@ -14,6 +16,7 @@ import oracle.pgql.lang.ir.ExpAsVar;
 import oracle.pgql.lang.ir.GraphQuery;
 import oracle.pgql.lang.ir.SelectQuery;
 import oracle.pgql.lang.ir.TableExpressionType;
+import oracle.pgql.lang.metadata.VertexLabel;
 
 public class MetadataTest extends AbstractPgqlTest {
 
@@ -1197,6 +1200,99 @@ public class MetadataTest extends AbstractPgqlTest {
     assertEquals("amount", expAsVars.get(2).getName());
   }
 
+  @Test
+  public void testTypeMetadataCaching() throws Exception {
+    CountingMetadataProvider metadataProvider = new CountingMetadataProvider();
+    String query = "SELECT n.firstName || 'x', n.numericProp + 1 FROM MATCH (n:Person)";
+
+    assertTrue(pgql.parse(query, metadataProvider).isQueryValid());
+    long numCalls = metadataProvider.numUnionTypeCalls;
+    assertTrue(numCalls > 0);
+
+    // type metadata is reused
+    assertTrue(pgql.parse(query, metadataProvider).isQueryValid());
+    assertEquals(numCalls, metadataProvider.numUnionTypeCalls);
+
+    // type metadata is recomputed after invalidation
+    metadataProvider.invalidateCachedMetadata();
+    assertTrue(pgql.parse(query, metadataProvider).isQueryValid());
+    assertEquals(2 * numCalls, metadataProvider.numUnionTypeCalls);
+
+    // type metadata is recomputed when the set of types changes
+    assertTrue(pgql.parse("SELECT CAST(n.numericProp AS FLOAT) FROM MATCH (n:Person)", metadataProvider)
+        .isQueryValid());
+    assertTrue(metadataProvider.numUnionTypeCalls > 2 * numCalls);
+  }
+
+  @Test
+  public void testCompiledGraphSchema() throws Exception {
+    ExampleMetadataProvider metadataProvider = new ExampleMetadataProvider();
+    CompiledGraphSchema compiledGraphSchema = CompiledGraphSchema.compile(metadataProvider);
+
+    PgqlResult result = pgql.parse("SELECT n.firstName FROM MATCH (n:Person)", metadataProvider,
+        compiledGraphSchema);
+    assertTrue(result.isQueryValid());
+
+    result = pgql.parse("SELECT n.firstNme FROM MATCH (n:Person)", metadataProvider, compiledGraphSchema);
+    assertTrue(result.getErrorMessages().contains("Property does not exist for any of the labels"));
+
+    // schema of other graphs is still obtained from the metadata provider
+    result = pgql.parse("SELECT e.amount FROM MATCH () -[e:worksFor]-> () ON financialNetwork", metadataProvider,
+        compiledGraphSchema);
+    assertTrue(result.getErrorMessages().contains("Property does not exist for any of the labels"));
+
+    VertexLabel person = compiledGraphSchema.getVertexLabel("PERSON").get();
+    assertEquals("Person", person.getLabel());
+    assertEquals("firstName", compiledGraphSchema.getProperty(person, "firstname").get().getName());
+    assertEquals("studyAt", compiledGraphSchema.getEdgeLabel("studyAt").get().getLabel());
+    assertFalse(compiledGraphSchema.getEdgeLabel("Person").isPresent());
+  }
+
+  @Test
+  public void testPruneGraphSchema() throws Exception {
+    String[] queries = { //
+        "SELECT n.firstName, n.numericProp + 1 FROM MATCH (n:Person)", //
+        "SELECT n.firstNme FROM MATCH (n)", //
+        "SELECT n.\"firstname\" FROM MATCH (n:Person)", //
+        "SELECT n.typeConflictProp FROM MATCH (n)", //
+        "SELECT e.prop FROM MATCH () -[e]-> ()", //
+        "SELECT e.since FROM MATCH () -[e:knows|studyAt]-> ()", //
+        "SELECT n.* FROM MATCH (n:Person)", //
+        "SELECT * FROM MATCH (n:NotExists)", //
+        "SELECT n.amount FROM MATCH (n) -[e:transaction]-> () ON financialNetwork", //
+        "UPDATE n SET ( n.notExists = 'Larry' ) FROM MATCH (n:Person)", //
+        "SELECT n.name FROM MATCH (n:Person) WHERE n.dob > DATE '2000-01-01'" };
+
+    for (String query : queries) {
+      PgqlResult expected = parse(query);
+      pgql.setPruneGraphSchema(true);
+      try {
+        PgqlResult result = parse(query);
+        assertEquals(query, expected.isQueryValid(), result.isQueryValid());
+        assertEquals(query, expected.getErrorMessages(), result.getErrorMessages());
+        assertEquals(query, String.valueOf(expected.getGraphQuery()), String.valueOf(result.getGraphQuery()));
+      } finally {
+        pgql.setPruneGraphSchema(false);
+      }
+    }
+  }
+
+  private static class CountingMetadataProvider extends ExampleMetadataProvider {
+
+    long numUnionTypeCalls = 0;
+
+    @Override
+    public Optional<Long> getSchemaVersion() {
+      return Optional.of(1L);
+    }
+
+    @Override
+    public Optional<String> getUnionType(String typeA, String typeB) {
+      numUnionTypeCalls++;
+      return super.getUnionType(typeA, typeB);
+    }
+  }
+
   private void isValid(String query) throws Exception {
     assertTrue(parse(query).isQueryValid());
   }
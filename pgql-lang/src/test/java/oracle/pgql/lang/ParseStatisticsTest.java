@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ParseStatistics.Stage;
+
+public class ParseStatisticsTest {
+
+  @Test
+  public void testStatisticsDisabledByDefault() throws Exception {
+    try (Pgql pgql = new Pgql()) {
+      assertFalse(pgql.parse("SELECT n FROM MATCH (n)").getParseStatistics().isPresent());
+    }
+  }
+
+  @Test
+  public void testWallTime() throws Exception {
+    try (Pgql pgql = new Pgql()) {
+      pgql.setCollectParseStatistics(true);
+      PgqlResult result = pgql.parse("SELECT n.firstName FROM MATCH (n:Person)", new ExampleMetadataProvider());
+      assertTrue(result.isQueryValid());
+
+      ParseStatistics statistics = result.getParseStatistics().get();
+      long total = 0;
+      for (Stage stage : Stage.values()) {
+        assertTrue(statistics.getWallTimeNanos(stage) >= 0);
+        total += statistics.getWallTimeNanos(stage);
+      }
+      assertEquals(total, statistics.getTotalWallTimeNanos());
+      assertTrue(statistics.getTotalWallTimeNanos() > 0);
+      assertFalse(statistics.getAllocatedBytes(Stage.PARSE).isPresent());
+    }
+  }
+
+  @Test
+  public void testSyntaxError() throws Exception {
+    try (Pgql pgql = new Pgql()) {
+      pgql.setCollectParseStatistics(true);
+      PgqlResult result = pgql.parse("SELECT n FROM MATCH (n");
+      assertFalse(result.isQueryValid());
+
+      ParseStatistics statistics = result.getParseStatistics().get();
+      assertEquals(statistics.getWallTimeNanos(Stage.PARSE), statistics.getTotalWallTimeNanos());
+      assertEquals(0, statistics.getWallTimeNanos(Stage.ANALYSIS));
+    }
+  }
+
+  @Test
+  public void testAllocatedBytes() throws Exception {
+    try (Pgql pgql = new Pgql()) {
+      pgql.setCollectParseStatistics(true);
+      pgql.setCollectAllocatedBytes(true);
+      ParseStatistics statistics = pgql.parse("SELECT n FROM MATCH (n)").getParseStatistics().get();
+      if (statistics.getAllocatedBytes(Stage.PARSE).isPresent()) { // not all JVMs support this
+        assertTrue(statistics.getAllocatedBytes(Stage.PARSE).getAsLong() > 0);
+      }
+    }
+  }
+}
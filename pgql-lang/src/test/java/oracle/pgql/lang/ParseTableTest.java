@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ParseTableTest {
+
+  @Test
+  public void testTextAndBinaryParseTable() throws Exception {
+    assertNotNull(Pgql.readParseTable(Pgql.PARSE_TABLE_RESOURCE));
+    assertNotNull(Pgql.readParseTable(Pgql.BINARY_PARSE_TABLE_RESOURCE));
+    assertNull(Pgql.readParseTable("notExists.tbl"));
+  }
+
+  @Test
+  public void testInitializeInBackground() throws Exception {
+    Pgql.initializeInBackground();
+    Pgql.initializeInBackground(); // no effect
+    try (Pgql pgql = new Pgql()) {
+      PgqlResult result = pgql.parse("SELECT n.name FROM MATCH (n) WHERE n.age > 3");
+      assertTrue(result.isQueryValid());
+      assertEquals(1, result.getGraphQuery().getGraphPattern().getVertices().size());
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PgqlPersistentCacheTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testSurvivesRestart() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    String query = "SELECT n.name FROM MATCH (n) -[e]-> (m) WHERE n.age > 30";
+    PgqlResult expected;
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(directory);
+        Pgql pgql = new Pgql(new PgqlResultCache(10, Long.MAX_VALUE, persistentCache))) {
+      expected = pgql.parse(query);
+      assertEquals(1, persistentCache.size());
+    }
+
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(directory);
+        Pgql pgql = new Pgql(new PgqlResultCache(10, Long.MAX_VALUE, persistentCache))) {
+      PgqlResult actual = pgql.parse(query);
+      assertEquals(1, persistentCache.getHitCount());
+      assertTrue(actual.isQueryValid());
+      assertEquals(expected.getPgqlStatement(), actual.getPgqlStatement());
+      assertEquals(expected.getPgqlStatement().toString(), actual.getPgqlStatement().toString());
+      assertEquals(expected.getFingerprint(), actual.getFingerprint());
+      assertEquals(expected.getBindVariableCount(), actual.getBindVariableCount());
+      assertEquals(expected.getPgqlVersion(), actual.getPgqlVersion());
+    }
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    Path directory = folder.getRoot().toPath();
+    String query = "SELECT m.name FROM MATCH (n)";
+    PgqlResult expected;
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(directory);
+        Pgql pgql = new Pgql(new PgqlResultCache(10, Long.MAX_VALUE, persistentCache))) {
+      expected = pgql.parse(query);
+    }
+
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(directory);
+        Pgql pgql = new Pgql(new PgqlResultCache(10, Long.MAX_VALUE, persistentCache))) {
+      PgqlResult actual = pgql.parse(query);
+      assertEquals(1, persistentCache.getHitCount());
+      assertFalse(actual.isQueryValid());
+      assertEquals(expected.getErrorMessages(), actual.getErrorMessages());
+    }
+  }
+
+  @Test
+  public void testSchemaVersion() throws Exception {
+    VersionedMetadataProvider metadataProvider = new VersionedMetadataProvider();
+    String query = "SELECT n.firstName FROM MATCH (n:Person)";
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(folder.getRoot().toPath());
+        Pgql pgql = new Pgql(new PgqlResultCache(0, 0, persistentCache))) {
+      pgql.parse(query, metadataProvider);
+      pgql.parse(query, metadataProvider);
+      assertEquals(1, persistentCache.getHitCount());
+
+      metadataProvider.version++;
+      pgql.parse(query, metadataProvider);
+      assertEquals(1, persistentCache.getHitCount());
+      assertEquals(2, persistentCache.size());
+
+      metadataProvider.invalidateCachedMetadata();
+      pgql.parse(query, metadataProvider);
+      assertEquals(2, persistentCache.size());
+    }
+  }
+
+  @Test
+  public void testBypassedWhileCollectingParseStatistics() throws Exception {
+    String query = "SELECT n.name FROM MATCH (n)";
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(folder.getRoot().toPath());
+        Pgql pgql = new Pgql(new PgqlResultCache(0, 0, persistentCache))) {
+      pgql.parse(query);
+      assertEquals(1, persistentCache.size());
+
+      // stored results do not have parse statistics
+      pgql.setCollectParseStatistics(true);
+      assertTrue(pgql.parse(query).getParseStatistics().isPresent());
+      assertEquals(0, persistentCache.getHitCount());
+      assertEquals(1, persistentCache.size());
+    }
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(folder.getRoot().toPath(), 4096, 16384);
+        Pgql pgql = new Pgql(new PgqlResultCache(0, 0, persistentCache))) {
+      for (int i = 0; i < 200; i++) {
+        pgql.parse("SELECT n.name FROM MATCH (n) WHERE n.age > " + i);
+      }
+      assertEquals(0, persistentCache.getCompactionCount());
+      assertTrue(persistentCache.getSizeInBytes() <= 16384);
+
+      // the most recent results are kept
+      long hitCount = persistentCache.getHitCount();
+      pgql.parse("SELECT n.name FROM MATCH (n) WHERE n.age > 199");
+      assertEquals(hitCount + 1, persistentCache.getHitCount());
+      pgql.parse("SELECT n.name FROM MATCH (n) WHERE n.age > 0");
+      assertEquals(hitCount + 1, persistentCache.getHitCount());
+    }
+  }
+
+  @Test
+  public void testCompaction() throws Exception {
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(folder.getRoot().toPath(), 4096, 16384);
+        Pgql pgql = new Pgql(new PgqlResultCache(0, 0, persistentCache))) {
+      for (int i = 0; i < 200; i++) {
+        pgql.parse("SELECT n.name FROM MATCH (n) WHERE n.age > " + i);
+      }
+      persistentCache.compact();
+      assertEquals(1, persistentCache.getCompactionCount());
+      assertEquals(0, persistentCache.getDeadSizeInBytes());
+      assertTrue(persistentCache.getSizeInBytes() <= 16384 / 2 + 4096);
+
+      long hitCount = persistentCache.getHitCount();
+      pgql.parse("SELECT n.name FROM MATCH (n) WHERE n.age > 199");
+      assertEquals(hitCount + 1, persistentCache.getHitCount());
+    }
+  }
+
+  @Test
+  public void testWriteFailureDoesNotFailParse() throws Exception {
+    Path directory = folder.getRoot().toPath().resolve("cache");
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(directory);
+        Pgql pgql = new Pgql(new PgqlResultCache(10, Long.MAX_VALUE, persistentCache))) {
+      // segment files can no longer be created
+      Files.delete(directory.resolve("lock"));
+      Files.delete(directory);
+
+      PgqlResult result = pgql.parse("SELECT n.name FROM MATCH (n)");
+      assertTrue(result.isQueryValid());
+      assertTrue(persistentCache.getFailure().isPresent());
+      assertEquals(0, persistentCache.size());
+
+      assertTrue(pgql.parse("SELECT m.name FROM MATCH (m)").isQueryValid());
+      assertNull(persistentCache.get("SELECT n.name FROM MATCH (n)", null));
+    }
+  }
+
+  @Test
+  public void testLocked() throws Exception {
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(folder.getRoot().toPath())) {
+      try (PgqlPersistentCache otherPersistentCache = new PgqlPersistentCache(folder.getRoot().toPath())) {
+        throw new AssertionError("Persistent cache should be locked");
+      } catch (IOException e) {
+        assertTrue(e.getMessage().contains("already in use"));
+      }
+    }
+    try (PgqlPersistentCache persistentCache = new PgqlPersistentCache(folder.getRoot().toPath())) {
+      assertNull(persistentCache.get("SELECT n FROM MATCH (n)", null));
+    }
+  }
+
+  private static class VersionedMetadataProvider extends ExampleMetadataProvider {
+
+    long version = 0;
+
+    @Override
+    public Optional<Long> getSchemaVersion() {
+      return Optional.of(version);
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class PgqlPoolTest {
+
+  @Rule
+  public ExpectedException thrown = ExpectedException.none();
+
+  private static final int NUM_THREADS = 8;
+
+  private static final int NUM_QUERIES_PER_THREAD = 50;
+
+  @Test
+  public void testConcurrentParsing() throws Exception {
+    String expected;
+    try (Pgql pgql = new Pgql()) {
+      expected = pgql.parse(query(0)).getGraphQuery().toString();
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    try (PgqlPool pool = new PgqlPool(2, null)) {
+      List<Future<List<String>>> futures = new ArrayList<>();
+      for (int i = 0; i < NUM_THREADS; i++) {
+        futures.add(executor.submit(() -> {
+          List<String> results = new ArrayList<>();
+          for (int j = 0; j < NUM_QUERIES_PER_THREAD; j++) {
+            PgqlResult result = pool.parse(query(j));
+            assertTrue(result.getErrorMessages(), result.isQueryValid());
+            results.add(result.getGraphQuery().toString());
+          }
+          return results;
+        }));
+      }
+
+      for (Future<List<String>> future : futures) {
+        List<String> results = future.get();
+        assertEquals(NUM_QUERIES_PER_THREAD, results.size());
+        assertEquals(expected, results.get(0));
+      }
+      assertTrue(pool.getIdleCount() <= NUM_THREADS);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testParseAll() throws Exception {
+    List<String> queries = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      queries.add(i % 10 == 0 ? "SELECT n.firstName FROM MATCH (n:NotExists)"
+          : "SELECT n.firstName FROM MATCH (n:Person) WHERE n.numericProp > " + i);
+    }
+
+    try (Pgql pgql = new Pgql()) {
+      List<PgqlResult> results = pgql.parseAll(queries, new ExampleMetadataProvider());
+      assertEquals(queries.size(), results.size());
+      for (int i = 0; i < queries.size(); i++) {
+        PgqlResult result = results.get(i);
+        assertEquals(queries.get(i), result.getQueryString());
+        assertEquals(pgql.parse(queries.get(i), new ExampleMetadataProvider()).isQueryValid(), result.isQueryValid());
+      }
+      assertFalse(results.get(0).isQueryValid());
+      assertTrue(results.get(1).isQueryValid());
+    }
+  }
+
+  @Test
+  public void testParseAllWithExecutor() throws Exception {
+    List<String> queries = new ArrayList<>();
+    for (int i = 0; i < NUM_QUERIES_PER_THREAD; i++) {
+      queries.add(query(i));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(NUM_THREADS);
+    try (PgqlPool pool = new PgqlPool()) {
+      List<PgqlResult> results = pool.parseAll(queries, null, executor);
+      for (int i = 0; i < queries.size(); i++) {
+        assertEquals(queries.get(i), results.get(i).getQueryString());
+        assertTrue(results.get(i).isQueryValid());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testClosedPool() throws Exception {
+    PgqlPool pool = new PgqlPool(1, null);
+    pool.close();
+    assertEquals(0, pool.getIdleCount());
+
+    thrown.expect(PgqlException.class);
+    thrown.expectMessage("PgqlPool was closed");
+    pool.parse("SELECT * FROM MATCH (n)");
+  }
+
+  private static String query(int i) {
+    return "SELECT n.name, m.name FROM MATCH (n) -[e]-> (m) WHERE n.age > " + i + " ORDER BY n.name";
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.CommonPathExpression;
+import oracle.pgql.lang.ir.DerivedTable;
+import oracle.pgql.lang.ir.Direction;
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.OptionalGraphPattern;
+import oracle.pgql.lang.ir.OrderBy;
+import oracle.pgql.lang.ir.PathFindingGoal;
+import oracle.pgql.lang.ir.PathMode;
+import oracle.pgql.lang.ir.PgqlPrinter;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.Projection;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ArithmeticExpression.Add;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstString;
+import oracle.pgql.lang.ir.QueryExpression.FunctionCall;
+import oracle.pgql.lang.ir.QueryExpression.IfElse;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryExpression.SimpleCase;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.WhenThenExpression;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.TableExpression;
+import oracle.pgql.lang.ir.modify.DeleteClause;
+import oracle.pgql.lang.ir.modify.EdgeInsertion;
+import oracle.pgql.lang.ir.modify.InsertClause;
+import oracle.pgql.lang.ir.modify.Modification;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.ir.modify.SetPropertyExpression;
+import oracle.pgql.lang.ir.modify.Update;
+import oracle.pgql.lang.ir.modify.UpdateClause;
+import oracle.pgql.lang.ir.modify.VertexInsertion;
+import oracle.pgql.lang.ir.unnest.OneRowPerMatch;
+import oracle.pgql.lang.ir.unnest.OneRowPerVertex;
+
+public class PgqlPrinterTest extends AbstractPgqlTest {
+
+  /**
+   * Checks the printer against the output of toString() before the printer was introduced.
+   */
+  private static void checkPrint(PgqlStatement statement, String expected) throws Exception {
+    StringWriter writer = new StringWriter();
+    PgqlPrinter.print(statement, writer);
+    assertEquals(expected, writer.toString());
+
+    StringBuilder sb = new StringBuilder("-- ");
+    PgqlPrinter.print(statement, sb);
+    assertEquals("-- " + expected, sb.toString());
+
+    assertEquals(expected, statement.toString());
+  }
+
+  @SafeVarargs
+  private static <T> LinkedHashSet<T> set(T... elements) {
+    return new LinkedHashSet<>(Arrays.asList(elements));
+  }
+
+  @SafeVarargs
+  private static <T> List<T> list(T... elements) {
+    return new ArrayList<>(Arrays.asList(elements));
+  }
+
+  private static FunctionCall hasLabel(QueryVariable variable, String label) {
+    return new FunctionCall("has_label", list(new VarRef(variable), new ConstString(label)));
+  }
+
+  private static ExpAsVar property(QueryVariable variable, String propertyName) {
+    return new ExpAsVar(new PropertyAccess(variable, propertyName), variable.getName() + "_" + propertyName, true);
+  }
+
+  private static SelectQuery selectQuery(List<CommonPathExpression> commonPathExpressions, Projection projection,
+      List<TableExpression> tableExpressions, LinkedHashSet<QueryExpression> constraints) {
+    return new SelectQuery(commonPathExpressions, projection, null, tableExpressions, constraints, null, null,
+        new OrderBy(new ArrayList<>()), null, null);
+  }
+
+  private static ModifyQuery modifyQuery(List<Modification> modifications, List<TableExpression> tableExpressions,
+      LinkedHashSet<QueryExpression> constraints) {
+    return new ModifyQuery(new ArrayList<>(), modifications, null, tableExpressions, constraints, null, null,
+        new OrderBy(new ArrayList<>()), null, null);
+  }
+
+  private static void checkPrint(String statement) throws Exception {
+    PgqlResult result = pgql.parse(statement);
+    assertTrue(statement, result.isQueryValid());
+    PgqlStatement pgqlStatement = result.getPgqlStatement();
+
+    StringWriter writer = new StringWriter();
+    PgqlPrinter.print(pgqlStatement, writer);
+    assertEquals(statement, pgqlStatement.toString(), writer.toString());
+
+    StringBuilder sb = new StringBuilder("-- ");
+    PgqlPrinter.print(pgqlStatement, sb);
+    assertEquals(statement, "-- " + pgqlStatement, sb.toString());
+  }
+
+  @Test
+  public void testStatements() throws Exception {
+    String[] statements = { //
+        "SELECT n.name AS name, COUNT(*) AS cnt FROM MATCH (n:Person) -[e:knows]-> (m) WHERE n.age > 30 "
+            + "GROUP BY n.name HAVING COUNT(*) > 1 ORDER BY cnt DESC LIMIT 10 OFFSET 5", //
+        "SELECT DISTINCT n.* PREFIX 'n_' FROM MATCH (n) ON g, MATCH (n) -> (m) ON g", //
+        "SELECT CASE n.x WHEN 1 THEN 'a' ELSE 'b' END, CASE WHEN n.x > 1 THEN 'c' END, n.x IN (1, 2, 3), "
+            + "n.y IS NULL, CAST(n.x AS STRING), SUBSTRING(n.s FROM 1 FOR 2), n.s || 'x', "
+            + "LISTAGG(DISTINCT n.s, ';'), JSON_ARRAYAGG(n.s FORMAT JSON ORDER BY n.s ABSENT ON NULL RETURNING CLOB) "
+            + "FROM MATCH (n)", //
+        "SELECT n.name FROM MATCH (n) WHERE EXISTS (SELECT * FROM MATCH (n) -> (m) WHERE m.x > n.x) "
+            + "AND (SELECT COUNT(*) FROM MATCH (n) -> (o)) > 2", //
+        "SELECT n.name, m.name FROM MATCH (n), LATERAL (SELECT m FROM MATCH (n) -> (m))", //
+        "SELECT COUNT(e) FROM MATCH ANY SHORTEST (n) -[e]->* (m) ONE ROW PER VERTEX (v)", //
+        "PATH p AS () -[e:likes]-> () WHERE e.weight > 10 "
+            + "SELECT n.name FROM MATCH (n) -/:p+/-> (m), MATCH CHEAPEST 2 (n) (-[f]-> COST f.w)* (o)", //
+        "SELECT n.name FROM MATCH (n), OPTIONAL MATCH (n) -> (m)", //
+        "INSERT VERTEX v LABELS (Person) PROPERTIES (v.name = 'Alice'), EDGE e BETWEEN v AND w LABELS (knows) "
+            + "FROM MATCH (w)", //
+        "UPDATE n SET (n.age = n.age + 1) DELETE e FROM MATCH (n) -[e]-> (m)", //
+        "CREATE PROPERTY GRAPH g VERTEX TABLES ( Person ) EDGE TABLES ( knows SOURCE Person DESTINATION Person )", //
+        "DROP PROPERTY GRAPH g" };
+    for (String statement : statements) {
+      checkPrint(statement);
+    }
+  }
+
+  @Test
+  public void testPaths() throws Exception {
+    QueryVertex n = new QueryVertex("N", false);
+    QueryVertex m = new QueryVertex("M", false);
+    QueryVertex o = new QueryVertex("O", false);
+
+    QueryVertex a = new QueryVertex("A", false);
+    QueryVertex b = new QueryVertex("B", false);
+    QueryEdge e = new QueryEdge(a, b, "E", false, Direction.OUTGOING);
+    CommonPathExpression p = new CommonPathExpression("P", list(a, b), list(e),
+        set(hasLabel(e, "LIKES"), new Greater(new PropertyAccess(e, "WEIGHT"), new ConstInteger(10))));
+    QueryPath reaches = new QueryPath(n, m, "<<anonymous>>_1", p, true, 1, -1, PathFindingGoal.REACHES, 1, false,
+        PathMode.WALK, Direction.OUTGOING, new OneRowPerMatch());
+
+    QueryVertex src = new QueryVertex("<<anonymous>>_2", true);
+    QueryVertex dst = new QueryVertex("<<anonymous>>_3", true);
+    QueryEdge f = new QueryEdge(src, dst, "F", false, Direction.OUTGOING);
+    QueryVertex v = new QueryVertex("V", false);
+    CommonPathExpression shortestExpression = new CommonPathExpression("<<anonymous>>_4", list(src, dst), list(f),
+        set());
+    QueryPath shortest = new QueryPath(m, o, "<<anonymous>>_5", shortestExpression, true, 0, -1,
+        PathFindingGoal.SHORTEST, 1, false, PathMode.WALK, Direction.OUTGOING, new OneRowPerVertex(v));
+    CommonPathExpression cheapestExpression = new CommonPathExpression("<<anonymous>>_6", list(src, dst), list(f),
+        set());
+    cheapestExpression.setCost(new PropertyAccess(f, "W"));
+    QueryPath cheapest = new QueryPath(n, o, "<<anonymous>>_7", cheapestExpression, true, 1, 3,
+        PathFindingGoal.CHEAPEST, 2, false, PathMode.WALK, Direction.OUTGOING, new OneRowPerMatch());
+
+    List<TableExpression> tableExpressions = list( //
+        new GraphPattern(set(n, m), set(reaches), set()), //
+        new GraphPattern(set(m, o), set(shortest), set()), //
+        new GraphPattern(set(n, o), set(cheapest), set()));
+    Projection projection = new Projection(false, list(property(n, "NAME"), new ExpAsVar(new VarRef(v), "V", true)));
+    checkPrint(selectQuery(list(p), projection, tableExpressions, set()), //
+        "PATH p AS (a) -[e IS likes]-> (b) WHERE (e.weight > 10)\n" //
+            + "SELECT n.name AS n_name, v\n" //
+            + "FROM MATCH (n) -/:p+/-> (m),\n" //
+            + "MATCH ANY SHORTEST (m) -[f]->* (o) ONE ROW PER VERTEX (\"V\"),\n" //
+            + "MATCH CHEAPEST 2 (n) (-[f]-> COST f.w){1,3} (o)");
+  }
+
+  @Test
+  public void testOptionalMatchAndLateral() throws Exception {
+    QueryVertex n = new QueryVertex("N", false);
+    QueryVertex m = new QueryVertex("M", false);
+    QueryVertex o = new QueryVertex("O", false);
+    QueryEdge e = new QueryEdge(n, m, "E", false, Direction.OUTGOING);
+    GraphPattern graphPattern = new GraphPattern(set(n), set(), set(hasLabel(n, "PERSON")));
+    OptionalGraphPattern optionalGraphPattern = new OptionalGraphPattern(set(n, m), set(e),
+        set(new Greater(new PropertyAccess(e, "SINCE"), new ConstInteger(2000))));
+
+    QueryVertex correlatedN = new QueryVertex("N", false);
+    correlatedN.setCorrelationVertexInOuterQuery(n);
+    QueryEdge anonymousEdge = new QueryEdge(correlatedN, o, "<<anonymous>>_1", true, Direction.ANY);
+    SelectQuery subquery = selectQuery(new ArrayList<>(), new Projection(false, list(new ExpAsVar(new VarRef(o), "O",
+        true))), list(new GraphPattern(set(correlatedN, o), set(anonymousEdge), set())), set());
+
+    Projection projection = new Projection(false, list(property(n, "NAME"), property(m, "NAME"), property(o, "NAME")));
+    List<TableExpression> tableExpressions = list(graphPattern, optionalGraphPattern, new DerivedTable(subquery, true));
+    checkPrint(selectQuery(new ArrayList<>(), projection, tableExpressions, set()), //
+        "SELECT n.name AS n_name, m.name AS m_name, o.name AS o_name\n" //
+            + "FROM MATCH ( (n)\n" //
+            + "WHERE \"has_label\"(n, 'PERSON')),\n" //
+            + "OPTIONAL MATCH ( (n) -[e]-> (m)\n" //
+            + "WHERE (e.since > 2000)),\n" //
+            + "LATERAL (SELECT o\n" //
+            + "FROM MATCH (n) -[\"<<anonymous>>_1\"]- (o))");
+  }
+
+  @Test
+  public void testInsert() throws Exception {
+    QueryVertex v = new QueryVertex("V", false);
+    QueryVertex w = new QueryVertex("W", false);
+    QueryEdge e = new QueryEdge(v, w, "E", false, Direction.OUTGOING);
+    VertexInsertion vertexInsertion = new VertexInsertion(v, list(new ConstString("PERSON")),
+        list(new SetPropertyExpression(new PropertyAccess(v, "NAME"), new ConstString("Alice")),
+            new SetPropertyExpression(new PropertyAccess(v, "AGE"), new ConstInteger(40))));
+    EdgeInsertion edgeInsertion = new EdgeInsertion(e, list(new ConstString("knows")), new ArrayList<>());
+    List<Modification> modifications = list(new InsertClause(null, list(vertexInsertion, edgeInsertion)));
+    checkPrint(modifyQuery(modifications, list(new GraphPattern(set(w), set(), set())), set()), //
+        "INSERT VERTEX v LABELS ( person ) PROPERTIES ( v.name = 'Alice', v.age = 40 ), "
+            + "EDGE e BETWEEN v AND w LABELS ( \"knows\" )\n" //
+            + "FROM MATCH (w)");
+  }
+
+  @Test
+  public void testUpdateAndDelete() throws Exception {
+    QueryVertex n = new QueryVertex("N", false);
+    QueryVertex m = new QueryVertex("M", false);
+    QueryEdge e = new QueryEdge(n, m, "E", false, Direction.OUTGOING);
+    Update update = new Update(new VarRef(n), list(new SetPropertyExpression(new PropertyAccess(n, "AGE"),
+        new Add(new PropertyAccess(n, "AGE"), new ConstInteger(1)))));
+    List<Modification> modifications = list(new UpdateClause(list(update)), new DeleteClause(list(new VarRef(e))));
+    LinkedHashSet<QueryExpression> constraints = set(
+        new Greater(new PropertyAccess(n, "AGE"), new ConstInteger(30)));
+    checkPrint(modifyQuery(modifications, list(new GraphPattern(set(n, m), set(e), set())), constraints), //
+        "UPDATE n SET ( n.age = (n.age + 1) )\n" //
+            + "DELETE e\n" //
+            + "FROM MATCH (n) -[e]-> (m)\n" //
+            + "WHERE (n.age > 30)");
+  }
+
+  @Test
+  public void testCase() throws Exception {
+    QueryVertex n = new QueryVertex("N", false);
+    SimpleCase simpleCase = new SimpleCase(new PropertyAccess(n, "X"),
+        list(new WhenThenExpression(new ConstInteger(1), new ConstString("a")),
+            new WhenThenExpression(new ConstInteger(2), new ConstString("b"))),
+        new ConstString("c"), null);
+    IfElse searchedCase = new IfElse(new Greater(new PropertyAccess(n, "X"), new ConstInteger(1)),
+        new ConstString("d"), null);
+    Projection projection = new Projection(false,
+        list(new ExpAsVar(simpleCase, "A", false), new ExpAsVar(searchedCase, "B", false)));
+    checkPrint(selectQuery(new ArrayList<>(), projection, list(new GraphPattern(set(n), set(), set())), set()), //
+        "SELECT CASE n.x WHEN 1 THEN 'a' WHEN 2 THEN 'b' ELSE 'c' END AS a, "
+            + "CASE WHEN (n.x > 1) THEN 'd' END AS b\n" //
+            + "FROM MATCH (n)");
+  }
+
+  @Test
+  public void testLargeQuery() throws Exception {
+    StringBuilder query = new StringBuilder("SELECT n.p0");
+    for (int i = 1; i < 2000; i++) {
+      query.append(", n.p").append(i);
+    }
+    query.append(" FROM MATCH (n) -> (m) WHERE n.p0 = 0");
+    for (int i = 1; i < 2000; i++) {
+      query.append(" AND n.p").append(i).append(" > m.p").append(i);
+    }
+    checkPrint(query.toString());
+  }
+
+  @Test
+  public void testExpression() throws Exception {
+    SelectQuery query = (SelectQuery) pgql.parse("SELECT n.x + 1 AS y FROM MATCH (n)").getPgqlStatement();
+    QueryExpression expression = query.getProjection().getElements().get(0).getExp();
+    StringWriter writer = new StringWriter();
+    PgqlPrinter.print(expression, writer);
+    assertEquals("(n.x + 1)", writer.toString());
+  }
+
+  @Test(expected = IOException.class)
+  public void testWriterFailure() throws Exception {
+    Writer writer = new Writer() {
+
+      @Override
+      public void write(char[] cbuf, int off, int len) throws IOException {
+        throw new IOException("write failed");
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    PgqlPrinter.print(pgql.parse("SELECT n FROM MATCH (n)").getPgqlStatement(), writer);
+  }
+}
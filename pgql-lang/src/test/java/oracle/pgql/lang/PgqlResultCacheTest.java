@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.GraphQuery;
+
+public class PgqlResultCacheTest {
+
+  @Test
+  public void testHitAndMiss() throws Exception {
+    PgqlResultCache cache = new PgqlResultCache(10);
+    try (Pgql pgql = new Pgql(cache)) {
+      PgqlResult result1 = pgql.parse("SELECT n.name FROM MATCH (n)");
+      PgqlResult result2 = pgql.parse("SELECT n.name FROM MATCH (n)");
+      assertTrue(result1.isQueryValid());
+      assertEquals(result1.getPgqlStatement(), result2.getPgqlStatement());
+      assertEquals(result1.getFingerprint(), result2.getFingerprint());
+      assertEquals(1, cache.getHitCount());
+      assertEquals(1, cache.getMissCount());
+      assertEquals(1, cache.size());
+    }
+  }
+
+  @Test
+  public void testResultsAreCopies() throws Exception {
+    String query = "SELECT n.name FROM MATCH (n) -> (m) WHERE n.age > 3";
+    PgqlResultCache cache = new PgqlResultCache(10);
+    try (Pgql pgql = new Pgql(cache)) {
+      PgqlResult result1 = pgql.parse(query);
+      GraphQuery expected = pgql.parse(query).getGraphQuery();
+
+      // modifications of a result do not affect other callers
+      result1.getGraphQuery().getConstraints().clear();
+      PgqlResult result2 = pgql.parse(query);
+      assertNotSame(result1.getPgqlStatement(), result2.getPgqlStatement());
+      assertEquals(expected, result2.getGraphQuery());
+      assertEquals(1, result2.getGraphQuery().getConstraints().size());
+
+      result2.getGraphQuery().getConstraints().clear();
+      assertEquals(expected, pgql.parse(query).getGraphQuery());
+      assertEquals(3, cache.getHitCount());
+    }
+  }
+
+  @Test
+  public void testCollectParseStatistics() throws Exception {
+    String query = "SELECT n.name FROM MATCH (n)";
+    PgqlResultCache cache = new PgqlResultCache(10);
+    try (Pgql pgql = new Pgql(cache)) {
+      assertFalse(pgql.parse(query).getParseStatistics().isPresent());
+
+      // results are cached separately for each setting
+      pgql.setCollectParseStatistics(true);
+      assertTrue(pgql.parse(query).getParseStatistics().isPresent());
+      assertTrue(pgql.parse(query).getParseStatistics().isPresent());
+      pgql.setCollectParseStatistics(false);
+      assertFalse(pgql.parse(query).getParseStatistics().isPresent());
+      assertEquals(2, cache.getHitCount());
+      assertEquals(2, cache.getMissCount());
+      assertEquals(2, cache.size());
+    }
+  }
+
+  @Test
+  public void testEvictionBySize() throws Exception {
+    PgqlResultCache cache = new PgqlResultCache(2);
+    try (Pgql pgql = new Pgql(cache)) {
+      PgqlResult result1 = pgql.parse("SELECT 1 FROM MATCH (n)");
+      pgql.parse("SELECT 2 FROM MATCH (n)");
+      pgql.parse("SELECT 1 FROM MATCH (n)"); // makes the second query the least recently used one
+      pgql.parse("SELECT 3 FROM MATCH (n)");
+      assertEquals(2, cache.size());
+      assertEquals(1, cache.getEvictionCount());
+      long hitCount = cache.getHitCount();
+      assertEquals(result1.getPgqlStatement(), pgql.parse("SELECT 1 FROM MATCH (n)").getPgqlStatement());
+      assertEquals(hitCount + 1, cache.getHitCount());
+    }
+  }
+
+  @Test
+  public void testEvictionByWeight() throws Exception {
+    String query1 = "SELECT 1 FROM MATCH (n)";
+    String query2 = "SELECT 2 FROM MATCH (n)";
+    PgqlResultCache cache = new PgqlResultCache(10, query1.length() + query2.length());
+    try (Pgql pgql = new Pgql(cache)) {
+      pgql.parse(query1);
+      pgql.parse(query2);
+      assertEquals(0, cache.getEvictionCount());
+      pgql.parse("SELECT 3 FROM MATCH (n)");
+      assertEquals(2, cache.size());
+      assertEquals(1, cache.getEvictionCount());
+      assertEquals(query1.length() + query2.length(), cache.getWeight());
+    }
+  }
+
+  @Test
+  public void testSchemaVersion() throws Exception {
+    VersionedMetadataProvider metadataProvider = new VersionedMetadataProvider();
+    PgqlResultCache cache = new PgqlResultCache(10);
+    try (Pgql pgql = new Pgql(cache)) {
+      String query = "SELECT n.firstName FROM MATCH (n:Person)";
+      pgql.parse(query, metadataProvider);
+      pgql.parse(query, metadataProvider);
+      assertEquals(1, cache.getHitCount());
+
+      metadataProvider.version++;
+      pgql.parse(query, metadataProvider);
+      assertEquals(2, cache.getMissCount());
+    }
+  }
+
+  @Test
+  public void testUnversionedMetadataProviderNotCached() throws Exception {
+    ExampleMetadataProvider metadataProvider = new ExampleMetadataProvider();
+    PgqlResultCache cache = new PgqlResultCache(10);
+    try (Pgql pgql = new Pgql(cache)) {
+      String query = "SELECT n.firstName FROM MATCH (n:Person)";
+      PgqlResult result1 = pgql.parse(query, metadataProvider);
+      assertNotSame(result1, pgql.parse(query, metadataProvider));
+      assertEquals(0, cache.size());
+      assertEquals(0, cache.getMissCount());
+    }
+  }
+
+  private static class VersionedMetadataProvider extends ExampleMetadataProvider {
+
+    long version = 0;
+
+    @Override
+    public Optional<Long> getSchemaVersion() {
+      return Optional.of(version);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ddl.propertygraph.CreatePropertyGraph;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.PgqlStatement;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.ir.QueryExpression.RelationalExpression.Greater;
+import oracle.pgql.lang.ir.QueryVertex;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.util.PgqlStatementCodec;
+
+public class PgqlStatementCodecTest extends AbstractPgqlTest {
+
+  private static PgqlStatement roundTrip(String statement) throws PgqlException {
+    PgqlResult result = pgql.parse(statement);
+    assertTrue(statement, result.isQueryValid());
+    PgqlStatement expected = result.getPgqlStatement();
+    PgqlStatement actual = PgqlStatementCodec.decode(PgqlStatementCodec.encode(expected));
+    assertEquals(statement, expected, actual);
+    assertEquals(statement, expected.toString(), actual.toString());
+    return actual;
+  }
+
+  @Test
+  public void testStatements() throws Exception {
+    String[] statements = { //
+        "SELECT n.name AS name, COUNT(*) AS cnt FROM MATCH (n:Person) -[e:knows]-> (m) WHERE n.age > 30 "
+            + "GROUP BY n.name HAVING COUNT(*) > 1 ORDER BY cnt DESC LIMIT 10 OFFSET 5", //
+        "SELECT DISTINCT n.* PREFIX 'n_' FROM MATCH (n) ON g, MATCH (n) -> (m) ON g", //
+        "SELECT n.dob, DATE '2000-01-01', TIME '12:00:00+01:00', TIMESTAMP '2000-01-01 12:00:00', "
+            + "n.x + INTERVAL '3' DAY, EXTRACT(YEAR FROM n.dob), -1.5, 'O''Brien', true, ? FROM MATCH (n)", //
+        "SELECT CASE n.x WHEN 1 THEN 'a' ELSE 'b' END, CASE WHEN n.x > 1 THEN 'c' END, n.x IN (1, 2, 3), "
+            + "n.y IS NULL, CAST(n.x AS STRING), SUBSTRING(n.s FROM 1 FOR 2), n.s || 'x', "
+            + "LISTAGG(DISTINCT n.s, ';'), JSON_ARRAYAGG(n.s FORMAT JSON ORDER BY n.s ABSENT ON NULL RETURNING CLOB) "
+            + "FROM MATCH (n)", //
+        "SELECT n.name FROM MATCH (n) WHERE EXISTS (SELECT * FROM MATCH (n) -> (m) WHERE m.x > n.x) "
+            + "AND (SELECT COUNT(*) FROM MATCH (n) -> (o)) > 2", //
+        "SELECT n.name, m.name FROM MATCH (n), LATERAL (SELECT m FROM MATCH (n) -> (m))", //
+        "SELECT COUNT(e) FROM MATCH ANY SHORTEST (n) -[e]->* (m) ONE ROW PER VERTEX (v)", //
+        "PATH p AS () -[e:likes]-> () WHERE e.weight > 10 "
+            + "SELECT n.name FROM MATCH (n) -/:p+/-> (m), MATCH CHEAPEST 2 (n) (-[f]-> COST f.w)* (o)", //
+        "SELECT n.name FROM MATCH (n), OPTIONAL MATCH (n) -> (m)", //
+        "INSERT VERTEX v LABELS (Person) PROPERTIES (v.name = 'Alice'), EDGE e BETWEEN v AND w LABELS (knows) "
+            + "FROM MATCH (w)", //
+        "UPDATE n SET (n.age = n.age + 1) DELETE e FROM MATCH (n) -[e]-> (m)", //
+        "CREATE PROPERTY GRAPH g VERTEX TABLES ( Person KEY ( id ) LABEL Person PROPERTIES ( name, age AS a ) ) "
+            + "EDGE TABLES ( knows SOURCE KEY ( src ) REFERENCES Person ( id ) DESTINATION Person "
+            + "PROPERTIES ARE ALL COLUMNS EXCEPT ( src ) ) OPTIONS ( PG_VIEW )", //
+        "CREATE PROPERTY GRAPH g1 BASE GRAPHS ( g2 ALL ELEMENT TABLES EXCEPT ( t1, t2 ) )", //
+        "DROP PROPERTY GRAPH g", //
+        "CALL \"my schema\".package.\"routineXyz\"(DATE '2000-01-01', 'a', 1)" };
+    for (String statement : statements) {
+      roundTrip(statement);
+    }
+  }
+
+  @Test
+  public void testSharedVariables() throws Exception {
+    SelectQuery query = (SelectQuery) roundTrip("SELECT n.name FROM MATCH (n) -[e]-> (m) WHERE n.age > m.age");
+    GraphPattern graphPattern = query.getGraphPattern();
+    QueryEdge edge = (QueryEdge) graphPattern.getConnections().iterator().next();
+    QueryVertex[] vertices = graphPattern.getVertices().toArray(new QueryVertex[0]);
+    assertSame(vertices[0], edge.getSrc());
+    assertSame(vertices[1], edge.getDst());
+
+    Greater greater = (Greater) query.getConstraints().iterator().next();
+    assertSame(edge.getSrc(), ((PropertyAccess) greater.getExp1()).getVariable());
+    assertSame(edge.getDst(), ((PropertyAccess) greater.getExp2()).getVariable());
+    assertSame(edge.getSrc(),
+        ((PropertyAccess) query.getProjection().getElements().get(0).getExp()).getVariable());
+  }
+
+  @Test
+  public void testSharedVertexTables() throws Exception {
+    CreatePropertyGraph createPropertyGraph = (CreatePropertyGraph) roundTrip(
+        "CREATE PROPERTY GRAPH g VERTEX TABLES ( Person ) EDGE TABLES ( knows SOURCE Person DESTINATION Person )");
+    assertSame(createPropertyGraph.getVertexTables().get(0),
+        createPropertyGraph.getEdgeTables().get(0).getSourceVertexTable());
+    assertSame(createPropertyGraph.getVertexTables().get(0),
+        createPropertyGraph.getEdgeTables().get(0).getDestinationVertexTable());
+  }
+
+  @Test(expected = PgqlException.class)
+  public void testIncompatibleFormat() throws Exception {
+    byte[] bytes = PgqlStatementCodec.encode(pgql.parse("SELECT n FROM MATCH (n)").getPgqlStatement());
+    bytes[4]++; // format version
+    PgqlStatementCodec.decode(bytes);
+  }
+
+  @Test(expected = PgqlException.class)
+  public void testTruncated() throws Exception {
+    byte[] bytes = PgqlStatementCodec.encode(pgql.parse("SELECT n FROM MATCH (n)").getPgqlStatement());
+    PgqlStatementCodec.decode(Arrays.copyOf(bytes, bytes.length - 1));
+  }
+}
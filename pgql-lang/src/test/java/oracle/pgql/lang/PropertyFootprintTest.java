@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.PropertyFootprint;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVariable.VariableType;
+import oracle.pgql.lang.ir.QueryVertex;
+
+public class PropertyFootprintTest extends AbstractPgqlTest {
+
+  private static PgqlResult parse(String query) throws PgqlException {
+    PgqlResult result = pgql.parse(query);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    return result;
+  }
+
+  private static QueryVertex getVertex(GraphPattern graphPattern, String name) {
+    return graphPattern.getVertices().stream().filter(v -> v.getName().equals(name)).findFirst().get();
+  }
+
+  @Test
+  public void testClauses() throws Exception {
+    PgqlResult result = parse("SELECT n.a, COUNT(*) FROM MATCH (n) -[e]-> (m) WHERE e.w > 1 GROUP BY n.a, m.b "
+        + "HAVING MIN(m.c) > 0 ORDER BY MAX(m.d)");
+    PropertyFootprint footprint = result.getPropertyFootprint().get();
+    GraphPattern graphPattern = result.getGraphQuery().getGraphPattern();
+    QueryVertex n = getVertex(graphPattern, "N");
+    QueryVertex m = getVertex(graphPattern, "M");
+    QueryEdge e = (QueryEdge) graphPattern.getConnections().iterator().next();
+
+    assertEquals(3, footprint.getVariables().size());
+    assertEquals(Collections.singleton("A"), footprint.getReadProperties(n));
+    assertEquals(new HashSet<>(Arrays.asList("B", "C", "D")), footprint.getReadProperties(m));
+    assertEquals(Collections.singleton("W"), footprint.getReadProperties(e));
+    assertFalse(footprint.readsAllProperties(n));
+    assertTrue(footprint.getWrittenProperties(n).isEmpty());
+  }
+
+  @Test
+  public void testSubqueries() throws Exception {
+    PgqlResult result = parse("SELECT n.a FROM MATCH (n) WHERE EXISTS (SELECT * FROM MATCH (n) -> (m) WHERE m.b > n.c) "
+        + "AND (SELECT MAX(o.d) FROM MATCH (o) WHERE o.e = n.f) > 0");
+    PropertyFootprint footprint = result.getPropertyFootprint().get();
+    QueryVertex n = getVertex(result.getGraphQuery().getGraphPattern(), "N");
+
+    // the correlated vertex n of the EXISTS subquery is attributed to the outer vertex n
+    assertEquals(new HashSet<>(Arrays.asList("A", "C", "F")), footprint.getReadProperties(n));
+    assertEquals(5, footprint.getVariables().size());
+  }
+
+  @Test
+  public void testPathCost() throws Exception {
+    PgqlResult result = parse("SELECT n.a FROM MATCH ANY CHEAPEST (n) (-[e]-> COST e.w)* (m)");
+    PropertyFootprint footprint = result.getPropertyFootprint().get();
+
+    boolean costPropertyFound = false;
+    for (QueryVariable variable : footprint.getVariables()) {
+      if (variable.getVariableType() == VariableType.EDGE) {
+        costPropertyFound |= footprint.getReadProperties(variable).contains("W");
+      }
+    }
+    assertTrue(costPropertyFound);
+  }
+
+  @Test
+  public void testSetProperties() throws Exception {
+    PgqlResult result = parse("UPDATE n SET (n.a = m.b + n.c) FROM MATCH (n) -> (m)");
+    PropertyFootprint footprint = result.getPropertyFootprint().get();
+    GraphPattern graphPattern = result.getGraphQuery().getGraphPattern();
+    QueryVertex n = getVertex(graphPattern, "N");
+    QueryVertex m = getVertex(graphPattern, "M");
+
+    assertEquals(Collections.singleton("A"), footprint.getWrittenProperties(n));
+    assertEquals(Collections.singleton("C"), footprint.getReadProperties(n));
+    assertEquals(Collections.singleton("B"), footprint.getReadProperties(m));
+    assertEquals(Arrays.asList("B"), result.getReadProperties(m));
+  }
+
+  @Test
+  public void testAllProperties() throws Exception {
+    PgqlResult result = parse("SELECT n.* FROM MATCH (n) -[e]-> (m) WHERE m.firstName = 'x'");
+    PropertyFootprint footprint = result.getPropertyFootprint().get();
+    GraphPattern graphPattern = result.getGraphQuery().getGraphPattern();
+    QueryVertex n = getVertex(graphPattern, "N");
+    QueryVertex m = getVertex(graphPattern, "M");
+
+    assertTrue(footprint.readsAllProperties(n));
+    assertFalse(footprint.readsAllProperties(m));
+    assertEquals(Arrays.asList("FIRSTNAME"), result.getReadProperties(m));
+    try {
+      result.getReadProperties(n);
+      fail();
+    } catch (IllegalStateException e) {
+      // no graph schema to resolve n.* against
+    }
+  }
+
+  @Test
+  public void testResolveAgainstGraphSchema() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n.name, m.firstName, e.since FROM MATCH (n:University) <-[e:studyAt]- (m) "
+        + "WHERE m.dob IS NOT NULL", new ExampleMetadataProvider());
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    GraphPattern graphPattern = result.getGraphQuery().getGraphPattern();
+    QueryVertex n = getVertex(graphPattern, "N");
+    QueryVertex m = getVertex(graphPattern, "M");
+    QueryEdge e = (QueryEdge) graphPattern.getConnections().iterator().next();
+
+    assertEquals(Arrays.asList("name"), result.getReadProperties(n));
+    assertEquals(Arrays.asList("firstName", "dob"), result.getReadProperties(m));
+    assertEquals(Arrays.asList("since"), result.getReadProperties(e));
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    assertFalse(pgql.parse("SELECT * FROM MATCH (n) WHERE").getPropertyFootprint().isPresent());
+    assertFalse(pgql.parse("DROP PROPERTY GRAPH g").getPropertyFootprint().isPresent());
+  }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BinaryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QueryExpression.PropertyAccess;
+import oracle.pgql.lang.util.QueryExpressionInterner;
+
+public class QueryExpressionInternerTest extends AbstractPgqlTest {
+
+  private static final String QUERY = "SELECT n.age FROM MATCH (n) -> (m) WHERE n.age > 3 AND (m.age > 3 OR n.age = 3)";
+
+  @Test
+  public void testSharedSubexpressions() throws Exception {
+    GraphQuery query = pgql.parse(QUERY).getGraphQuery();
+    String expected = query.toString();
+    new QueryExpressionInterner().intern(query);
+    assertEquals(expected, query.toString());
+
+    BinaryExpression greater = (BinaryExpression) getConstraint(query, ExpressionType.GREATER);
+    BinaryExpression or = (BinaryExpression) getConstraint(query, ExpressionType.OR);
+    BinaryExpression equal = (BinaryExpression) or.getExp2();
+    assertSame(greater.getExp1(), equal.getExp1());
+    assertSame(greater.getExp2(), equal.getExp2());
+    assertSame(greater.getExp1(), query.getProjection().getElements().get(0).getExp());
+  }
+
+  private static QueryExpression getConstraint(GraphQuery query, ExpressionType expressionType) {
+    return query.getConstraints().stream().filter(exp -> exp.getExpType() == expressionType).findFirst().get();
+  }
+
+  @Test
+  public void testSharedBetweenQueries() throws Exception {
+    QueryExpressionInterner interner = new QueryExpressionInterner();
+    GraphQuery query1 = pgql.parse(QUERY).getGraphQuery();
+    GraphQuery query2 = pgql.parse(QUERY.replace(" > 3", " >  3")).getGraphQuery();
+    interner.intern(query1);
+    int size = interner.size();
+    interner.intern(query2);
+    assertTrue(interner.size() > size);
+
+    // expressions with variables are not shared between queries since the variables are different instances, but
+    // constants are
+    BinaryExpression greater1 = (BinaryExpression) getConstraint(query1, ExpressionType.GREATER);
+    BinaryExpression greater2 = (BinaryExpression) getConstraint(query2, ExpressionType.GREATER);
+    assertNotSame(greater1, greater2);
+    assertNotSame(greater1.getExp1(), greater2.getExp1());
+    assertNotSame(((PropertyAccess) greater1.getExp1()).getVariable(),
+        ((PropertyAccess) greater2.getExp1()).getVariable());
+    assertSame(greater1.getExp2(), greater2.getExp2());
+    assertTrue(interner.isInterned(greater2));
+  }
+
+  @Test
+  public void testCorrelatedVariablesNotMerged() throws Exception {
+    GraphQuery query = pgql.parse("SELECT n.age FROM MATCH (n) WHERE EXISTS (SELECT * FROM MATCH (n) -> (m) "
+        + "WHERE n.age > 3) AND n.age > 3").getGraphQuery();
+    new QueryExpressionInterner().intern(query);
+
+    BinaryExpression outer = (BinaryExpression) getConstraint(query, ExpressionType.GREATER);
+    Exists exists = (Exists) getConstraint(query, ExpressionType.EXISTS);
+    BinaryExpression inner = (BinaryExpression) getConstraint(exists.getQuery(), ExpressionType.GREATER);
+    assertNotSame(outer, inner);
+    assertNotSame(((PropertyAccess) outer.getExp1()).getVariable(), ((PropertyAccess) inner.getExp1()).getVariable());
+  }
+
+  @Test
+  public void testHashCode() throws Exception {
+    QueryExpressionInterner interner = new QueryExpressionInterner();
+    QueryExpression exp1 = interner.intern(pgql.parse("SELECT n.age + 1 FROM MATCH (n)").getGraphQuery()
+        .getProjection().getElements().get(0).getExp());
+    QueryExpression exp2 = interner.intern(pgql.parse("SELECT n.age + 2 FROM MATCH (n)").getGraphQuery()
+        .getProjection().getElements().get(0).getExp());
+    assertNotSame(exp1, exp2);
+    assertFalse(interner.hashCode(exp1) == interner.hashCode(exp2));
+
+    QueryExpression exp3 = pgql.parse("SELECT n.age + 1 FROM MATCH (n)").getGraphQuery().getProjection().getElements()
+        .get(0).getExp();
+    assertFalse(interner.isInterned(exp3));
+    QueryExpression internedExp3 = interner.intern(exp3);
+    assertNotSame(exp1, internedExp3);
+    assertSame(((BinaryExpression) exp1).getExp2(), ((BinaryExpression) internedExp3).getExp2());
+  }
+}
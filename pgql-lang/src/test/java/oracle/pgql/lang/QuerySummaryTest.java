@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphPattern;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.PgqlUtils;
+import oracle.pgql.lang.ir.QueryEdge;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.ScalarSubquery;
+import oracle.pgql.lang.ir.QueryExpression.Function.Exists;
+import oracle.pgql.lang.ir.QuerySummary;
+import oracle.pgql.lang.ir.QueryVariable;
+import oracle.pgql.lang.ir.QueryVertex;
+
+public class QuerySummaryTest extends AbstractPgqlTest {
+
+  private static PgqlResult parse(String query) throws PgqlException {
+    PgqlResult result = pgql.parse(query);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    return result;
+  }
+
+  private static QueryVertex getVertex(GraphPattern graphPattern, String name) {
+    return graphPattern.getVertices().stream().filter(v -> v.getName().equals(name)).findFirst().get();
+  }
+
+  @Test
+  public void testDefiningPatternsAndProperties() throws Exception {
+    PgqlResult result = parse("SELECT n.name, m.age, o FROM MATCH (n) -[e]-> (m), MATCH (o) "
+        + "WHERE n.age > 3 AND o.name = 'x'");
+    QuerySummary summary = result.getQuerySummary().get();
+    assertSame(summary, result.getQuerySummary().get());
+
+    GraphQuery query = result.getGraphQuery();
+    GraphPattern pattern1 = (GraphPattern) query.getTableExpressions().get(0);
+    GraphPattern pattern2 = (GraphPattern) query.getTableExpressions().get(1);
+    QueryVertex n = getVertex(pattern1, "N");
+    QueryEdge e = (QueryEdge) pattern1.getConnections().iterator().next();
+    QueryVertex o = getVertex(pattern2, "O");
+
+    assertSame(pattern1, summary.getDefiningPattern(n));
+    assertSame(pattern1, summary.getDefiningPattern(e));
+    assertSame(pattern2, summary.getDefiningPattern(o));
+    ExpAsVar selectElement = query.getProjection().getElements().get(0);
+    assertNull(summary.getDefiningPattern(selectElement));
+
+    assertEquals(Arrays.asList("NAME", "AGE"), new ArrayList<>(summary.getReferencedProperties(n)));
+    assertEquals(Collections.singleton("NAME"), summary.getReferencedProperties(o));
+    assertTrue(summary.getReferencedProperties(e).isEmpty());
+  }
+
+  @Test
+  public void testAggregations() throws Exception {
+    PgqlResult result = parse("SELECT COUNT(*) AS c, MAX(n.a) AS x, (SELECT MIN(m.b) FROM MATCH (m)) AS y "
+        + "FROM MATCH (n) GROUP BY n.g HAVING SUM(n.a) > 1");
+    QuerySummary summary = result.getQuerySummary().get();
+
+    List<ExpressionType> types = summary.getAggregations().stream().map(QueryExpression::getExpType)
+        .collect(Collectors.toList());
+    assertEquals(Arrays.asList(ExpressionType.AGGR_COUNT, ExpressionType.AGGR_MAX, ExpressionType.AGGR_SUM), types);
+
+    ScalarSubquery subquery = (ScalarSubquery) result.getGraphQuery().getProjection().getElements().get(2).getExp();
+    assertEquals(1, summary.getAggregations(subquery.getQuery()).size());
+    assertEquals(ExpressionType.AGGR_MIN, summary.getAggregations(subquery.getQuery()).get(0).getExpType());
+  }
+
+  @Test
+  public void testCorrelatedVariables() throws Exception {
+    PgqlResult result = parse("SELECT n.name FROM MATCH (n) -> (o) WHERE EXISTS "
+        + "(SELECT * FROM MATCH (n) -> (m) WHERE m.age > o.age)");
+    QuerySummary summary = result.getQuerySummary().get();
+    GraphPattern graphPattern = result.getGraphQuery().getGraphPattern();
+    Exists exists = (Exists) graphPattern.getConstraints().stream().filter(c -> c instanceof Exists).findFirst().get();
+
+    // the outer n through the correlated vertex n of the subquery, and o through the reference in the WHERE clause
+    Set<QueryVariable> correlated = summary.getCorrelatedVariables(exists.getQuery());
+    assertEquals(2, correlated.size());
+    assertTrue(correlated.contains(getVertex(graphPattern, "N")));
+    assertTrue(correlated.contains(getVertex(graphPattern, "O")));
+    assertTrue(summary.getCorrelatedVariables(result.getGraphQuery()).isEmpty());
+  }
+
+  @Test
+  public void testLabelConstraints() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n, e, m FROM MATCH (n:Person|University) -[e:knows]-> (m)",
+        new ExampleMetadataProvider());
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    QuerySummary summary = result.getQuerySummary().get();
+    GraphPattern graphPattern = result.getGraphQuery().getGraphPattern();
+    QueryVertex n = getVertex(graphPattern, "N");
+    QueryVertex m = getVertex(graphPattern, "M");
+    QueryEdge e = (QueryEdge) graphPattern.getConnections().iterator().next();
+
+    assertEquals(1, summary.getLabelPredicates(n).size());
+    assertTrue(PgqlUtils.isHasLabelFunctionForVar(summary.getLabelPredicates(n).get(0), n));
+    assertEquals(1, summary.getLabelConstraints(n).size());
+    assertEquals(2, summary.getLabelConstraints(n).get(0).size());
+    assertTrue(summary.getLabelConstraints(m).isEmpty());
+
+    assertEquals(Arrays.asList("firstName", "dob", "numericProp", "typeConflictProp", "name", "numericProp",
+        "typeConflictProp"), result.getAllProperties(n));
+    assertEquals(Arrays.asList("firstName", "dob", "numericProp", "typeConflictProp", "name"),
+        result.getAllProperties(m));
+    assertEquals(Arrays.asList("since", "prop", "typeConflictProp"), result.getAllProperties(e));
+  }
+
+  @Test
+  public void testLabelConstraintsOfOtherGraphPatterns() throws Exception {
+    PgqlResult result = pgql.parse("SELECT n FROM MATCH (n:Person), OPTIONAL MATCH (n:University) -> (m) "
+        + "WHERE EXISTS (SELECT * FROM MATCH (n:University) -> (o))", new ExampleMetadataProvider());
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    QuerySummary summary = result.getQuerySummary().get();
+    GraphPattern graphPattern = (GraphPattern) result.getGraphQuery().getTableExpressions().get(0);
+    QueryVertex n = getVertex(graphPattern, "N");
+
+    // only the label expression of the MATCH clause that defines n narrows its properties
+    assertEquals(1, summary.getLabelConstraints(n, graphPattern).size());
+    assertEquals(Arrays.asList("firstName", "dob", "numericProp", "typeConflictProp"), result.getAllProperties(n));
+  }
+
+  @Test
+  public void testInvalidQuery() throws Exception {
+    assertFalse(pgql.parse("SELECT * FROM MATCH (n) WHERE").getQuerySummary().isPresent());
+    assertFalse(pgql.parse("DROP PROPERTY GRAPH g").getQuerySummary().isPresent());
+  }
+}
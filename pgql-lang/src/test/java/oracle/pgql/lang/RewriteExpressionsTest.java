@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.ir.ExpAsVar;
+import oracle.pgql.lang.ir.GraphQuery;
+import oracle.pgql.lang.ir.QueryExpression;
+import oracle.pgql.lang.ir.QueryExpression.BindVariable;
+import oracle.pgql.lang.ir.QueryExpression.ExpressionType;
+import oracle.pgql.lang.ir.QueryExpression.VarRef;
+import oracle.pgql.lang.ir.QueryExpression.Constant.ConstInteger;
+import oracle.pgql.lang.ir.QueryPath;
+import oracle.pgql.lang.ir.SelectQuery;
+import oracle.pgql.lang.ir.modify.ModifyQuery;
+import oracle.pgql.lang.util.RewriteExpressions;
+
+public class RewriteExpressionsTest extends AbstractPgqlTest {
+
+  /**
+   * Replaces every bind variable with an integer constant.
+   */
+  private static class BindValues extends RewriteExpressions {
+
+    private final long value;
+
+    BindValues(long value) {
+      this.value = value;
+    }
+
+    @Override
+    protected boolean matches(QueryExpression expression) {
+      return expression.getExpType() == ExpressionType.BIND_VARIABLE;
+    }
+
+    @Override
+    public QueryExpression replace(QueryExpression expression) {
+      return new ConstInteger(value + ((BindVariable) expression).getParameterIndex());
+    }
+  }
+
+  private static GraphQuery parse(String query) throws PgqlException {
+    PgqlResult result = pgql.parse(query);
+    assertTrue(result.getErrorMessages(), result.isQueryValid());
+    return (GraphQuery) result.getPgqlStatement();
+  }
+
+  @Test
+  public void testStructuralSharing() throws Exception {
+    SelectQuery query = (SelectQuery) parse("SELECT n.a + ? AS x, n.b AS y FROM MATCH (n) -> (m) WHERE n.c > 3 "
+        + "AND m.d = ? ORDER BY x LIMIT 10");
+    String original = query.toString();
+
+    SelectQuery rewritten = (SelectQuery) new BindValues(100).rewrite(query);
+
+    assertEquals(original, query.toString());
+    assertEquals(parse("SELECT n.a + 100 AS x, n.b AS y FROM MATCH (n) -> (m) WHERE n.c > 3 AND m.d = 101 "
+        + "ORDER BY x LIMIT 10").toString(), rewritten.toString());
+
+    // only the ancestors of the replaced bind variables are copied
+    assertNotSame(query.getProjection(), rewritten.getProjection());
+    assertNotSame(query.getProjection().getElements().get(0), rewritten.getProjection().getElements().get(0));
+    assertSame(query.getProjection().getElements().get(1), rewritten.getProjection().getElements().get(1));
+    assertSame(query.getGraphPattern().getVertices(), rewritten.getGraphPattern().getVertices());
+    assertSame(query.getGraphPattern().getConnections(), rewritten.getGraphPattern().getConnections());
+    assertSame(query.getLimit(), rewritten.getLimit());
+
+    // ORDER BY refers to the copied SELECT element
+    ExpAsVar x = rewritten.getProjection().getElements().get(0);
+    assertSame(x, ((VarRef) rewritten.getOrderBy().getElements().get(0).getExp()).getVariable());
+  }
+
+  @Test
+  public void testVariants() throws Exception {
+    GraphQuery query = parse("SELECT n.a FROM MATCH (n) WHERE n.b = ? AND EXISTS (SELECT * FROM MATCH (n) -> (m) "
+        + "WHERE m.c > n.b)");
+    GraphQuery variant1 = new BindValues(1).rewrite(query);
+    GraphQuery variant2 = new BindValues(2).rewrite(query);
+
+    assertTrue(variant1.toString().contains("n.b = 1"));
+    assertTrue(variant2.toString().contains("n.b = 2"));
+    assertSame(query.getProjection(), variant1.getProjection());
+    assertSame(variant1.getProjection(), variant2.getProjection());
+  }
+
+  @Test
+  public void testNothingReplaced() throws Exception {
+    GraphQuery query = parse("SELECT n.a, COUNT(*) FROM MATCH (n) -> (m) GROUP BY n.a ORDER BY n.a");
+    assertSame(query, new BindValues(0).rewrite(query));
+  }
+
+  @Test
+  public void testPathConstraints() throws Exception {
+    String[] queries = { //
+        "PATH p AS (a) -[e]-> (b) WHERE e.w > ? SELECT n.a FROM MATCH (n) -/:p*/-> (m) WHERE n.b = ?", //
+        "SELECT COUNT(e) FROM MATCH CHEAPEST (n) (-[e]-> WHERE e.w > ? COST e.c + ?)* (m)" };
+    for (String queryString : queries) {
+      GraphQuery query = parse(queryString);
+      String original = query.toString();
+      QueryPath path = (QueryPath) query.getGraphPattern().getConnections().iterator().next();
+
+      GraphQuery rewritten = new BindValues(10).rewrite(query);
+
+      assertEquals(original, query.toString());
+      assertEquals(parse(queryString.replaceFirst("\\?", "10").replaceFirst("\\?", "11")).toString(),
+          rewritten.toString());
+      QueryPath rewrittenPath = (QueryPath) rewritten.getGraphPattern().getConnections().iterator().next();
+      assertNotSame(path, rewrittenPath);
+      assertNotSame(path.getCommonPathExpression(), rewrittenPath.getCommonPathExpression());
+      assertSame(path.getConnections(), rewrittenPath.getConnections());
+      assertSame(query.getGraphPattern().getVertices(), rewritten.getGraphPattern().getVertices());
+    }
+  }
+
+  @Test
+  public void testModifyQuery() throws Exception {
+    ModifyQuery query = (ModifyQuery) parse("UPDATE n SET (n.a = ?) DELETE e FROM MATCH (n) -[e]-> (m)");
+    String original = query.toString();
+
+    ModifyQuery rewritten = (ModifyQuery) new BindValues(7).rewrite(query);
+
+    assertEquals(original, query.toString());
+    assertEquals(original.replace("?", "7"), rewritten.toString());
+    assertSame(query.getModifications().get(1), rewritten.getModifications().get(1));
+  }
+}
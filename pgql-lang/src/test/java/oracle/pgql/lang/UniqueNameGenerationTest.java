@@ -263,4 +263,25 @@ public class UniqueNameGenerationTest extends AbstractPgqlTest {
 
     return !(correlationVariables.isEmpty() && referencedVariables.isEmpty());
   }
+
+  @Test
+  public void testGeneratedNamesSameForRepeatedParses() throws Exception {
+    // the Stratego context is reused between parses, so generated names should not depend on earlier parses
+    String query = "SELECT COUNT(*) FROM MATCH () -> (), MATCH () -[e]-> () WHERE e.prop > 3 GROUP BY e.prop * 2";
+    GraphQuery graphQuery1 = pgql.parse(query).getGraphQuery();
+    GraphQuery graphQuery2 = pgql.parse(query).getGraphQuery();
+    assertEquals(getUniqueNames(graphQuery1.getGraphPattern()), getUniqueNames(graphQuery2.getGraphPattern()));
+    assertEquals(graphQuery1.toString(), graphQuery2.toString());
+  }
+
+  private Set<String> getUniqueNames(GraphPattern graphPattern) {
+    Set<String> result = new HashSet<>();
+    for (QueryVertex vertex : graphPattern.getVertices()) {
+      result.add(vertex.getUniqueName());
+    }
+    for (VertexPairConnection connection : graphPattern.getConnections()) {
+      result.add(connection.getUniqueName());
+    }
+    return result;
+  }
 }
\ No newline at end of file
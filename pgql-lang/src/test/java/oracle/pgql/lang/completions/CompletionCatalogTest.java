@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.completions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.completion.PgqlCompletionCatalog;
+import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
+
+public class CompletionCatalogTest {
+
+  private static final List<String> PROPERTIES = Arrays.asList("name", "age", "firstName", "Name", "nameOfFather",
+      "lastName", "first_name");
+
+  private static class VersionedCompletionContext implements PgqlCompletionContext {
+
+    private long version = 0;
+
+    @Override
+    public List<String> getGraphNames() {
+      return Arrays.asList("g1", "g2");
+    }
+
+    @Override
+    public List<String> getVertexProperties(String graphName) {
+      return PROPERTIES;
+    }
+
+    @Override
+    public List<String> getEdgeProperties(String graphName) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getVertexLabels(String graphName) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public List<String> getEdgeLabels(String graphName) {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Optional<Long> getVersion() {
+      return Optional.of(version);
+    }
+  }
+
+  @Test
+  public void testEmptyPrefix() {
+    PgqlCompletionCatalog catalog = new PgqlCompletionCatalog(new VersionedCompletionContext());
+    assertEquals(PROPERTIES, catalog.lookupVertexProperties(null, "", 100));
+    assertEquals(Arrays.asList("name", "age"), catalog.lookupVertexProperties(null, "", 2));
+  }
+
+  @Test
+  public void testPrefix() {
+    PgqlCompletionCatalog catalog = new PgqlCompletionCatalog(new VersionedCompletionContext());
+
+    // exact matches, then prefix matches, then fuzzy matches
+    assertEquals(Arrays.asList("name", "Name", "nameOfFather", "lastName", "firstName", "first_name"),
+        catalog.lookupVertexProperties("g1", "name", 100));
+    assertEquals(Arrays.asList("Name", "name", "nameOfFather"), catalog.lookupVertexProperties("g1", "Na", 3));
+    assertEquals(Arrays.asList("firstName", "first_name"), catalog.lookupVertexProperties("g1", "fn", 100));
+    assertEquals(Collections.emptyList(), catalog.lookupVertexProperties("g1", "xyz", 100));
+    assertEquals(Arrays.asList("g2"), catalog.lookupGraphNames("g2", 100));
+  }
+
+  @Test
+  public void testMaxResults() {
+    PgqlCompletionCatalog catalog = new PgqlCompletionCatalog(new VersionedCompletionContext());
+    assertEquals(PgqlCompletionCatalog.UNLIMITED_RESULTS, catalog.getMaxResults());
+    assertEquals(PROPERTIES, catalog.lookupVertexProperties("g1", "", catalog.getMaxResults()));
+    assertEquals(6, catalog.lookupVertexProperties("g1", "name", catalog.getMaxResults()).size());
+
+    catalog.setMaxResults(2);
+    assertEquals(2, catalog.lookupVertexProperties("g1", "name", catalog.getMaxResults()).size());
+  }
+
+  @Test
+  public void testIsUpToDate() {
+    VersionedCompletionContext ctx = new VersionedCompletionContext();
+    PgqlCompletionCatalog catalog = new PgqlCompletionCatalog(ctx);
+    assertTrue(catalog.isUpToDate(ctx));
+    assertFalse(catalog.isUpToDate(new VersionedCompletionContext()));
+    ctx.version++;
+    assertFalse(catalog.isUpToDate(ctx));
+  }
+}
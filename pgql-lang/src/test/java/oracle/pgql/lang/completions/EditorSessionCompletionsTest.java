@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013 - 2024 Oracle and/or its affiliates. All rights reserved.
+ */
+package oracle.pgql.lang.completions;
+
+import static oracle.pgql.lang.completion.PgqlCompletionGenerator.completion;
+import static oracle.pgql.lang.completion.PgqlCompletionGenerator.completions;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import oracle.pgql.lang.PgqlEditorSession;
+import oracle.pgql.lang.PgqlResult;
+import oracle.pgql.lang.editor.completion.PgqlCompletion;
+
+public class EditorSessionCompletionsTest extends AbstractCompletionsTest {
+
+  @Test
+  public void testResultReusedForSameText() throws Exception {
+    PgqlEditorSession session = pgql.createEditorSession(null);
+    PgqlResult result1 = session.update("SELECT n MATCH (n)");
+    PgqlResult result2 = session.update("SELECT n MATCH (n) ");
+    assertNotSame(result1, result2);
+    assertSame(result2, session.update("SELECT n MATCH (n) "));
+    assertSame(result1, session.update("SELECT n MATCH (n)")); // undo
+
+    session.invalidate();
+    assertNotSame(result1, session.update("SELECT n MATCH (n)"));
+  }
+
+  @Test
+  public void testPropertiesOfIncompleteQuery() throws Exception {
+    PgqlEditorSession session = pgql.createEditorSession(null);
+    session.update("SELECT n.line_no MATCH (n)");
+
+    String query = "SELECT n. MATCH (n)";
+    List<PgqlCompletion> actual = session.complete(query, query.indexOf('.') + 1, getCompletionContext());
+    assertEquals(completions(completion("line_no", "vertex property")), actual);
+  }
+}
@@ -6,12 +6,17 @@ package oracle.pgql.lang.completions;
 import static oracle.pgql.lang.completion.PgqlCompletionGenerator.MATCH_CLAUSE_COMPLETION;
 import static oracle.pgql.lang.completion.PgqlCompletionGenerator.completion;
 import static oracle.pgql.lang.completion.PgqlCompletionGenerator.completions;
+import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
 
+import oracle.pgql.lang.completion.PgqlCompletionCatalog;
 import oracle.pgql.lang.editor.completion.PgqlCompletion;
+import oracle.pgql.lang.editor.completion.PgqlCompletionContext;
 
 public class InputGraphCompletionsTest extends AbstractCompletionsTest {
 
@@ -23,6 +28,51 @@ public class InputGraphCompletionsTest extends AbstractCompletionsTest {
     check(query, expected);
   }
 
+  @Test
+  public void testManyGraphNames() throws Exception {
+    List<String> graphNames = new ArrayList<>();
+    for (int i = 0; i < 250; i++) {
+      graphNames.add("graph" + i);
+    }
+    PgqlCompletionContext ctx = new PgqlCompletionContext() {
+
+      @Override
+      public List<String> getGraphNames() {
+        return graphNames;
+      }
+
+      @Override
+      public List<String> getVertexProperties(String graphName) {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public List<String> getEdgeProperties(String graphName) {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public List<String> getVertexLabels(String graphName) {
+        return Collections.emptyList();
+      }
+
+      @Override
+      public List<String> getEdgeLabels(String graphName) {
+        return Collections.emptyList();
+      }
+    };
+    String query = "SELECT * FROM ";
+
+    // all graph names unless the number of completions is limited
+    assertEquals(250, pgql.complete(query, query.length(), ctx).size());
+    pgql.setMaxCompletionResults(10);
+    try {
+      assertEquals(10, pgql.complete(query, query.length(), ctx).size());
+    } finally {
+      pgql.setMaxCompletionResults(PgqlCompletionCatalog.UNLIMITED_RESULTS);
+    }
+  }
+
   @Test
   public void testMatchClause() throws Exception {
     List<PgqlCompletion> expected = completions(MATCH_CLAUSE_COMPLETION);